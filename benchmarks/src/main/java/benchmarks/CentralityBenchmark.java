@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import analysis.Centrality;
+import org.apache.jena.graph.NodeFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the PageRank of the {@link Centrality} over random graphs with millions of nodes. The links prefer low
+ * node ids as targets, so that some nodes are hubs, like the services of a scenario.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CentralityBenchmark {
+    private static final int DEGREE = 5;
+
+    @Param({"1000000", "4000000"})
+    public int nodes;
+
+    private Centrality centrality;
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        Centrality.Builder builder = new Centrality.Builder();
+        for (int i = 0; i < nodes; i++) {
+            builder.addNode(NodeFactory.createURI("http://example.org/entity" + i));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < nodes; i++) {
+            for (int j = 0; j < DEGREE; j++) {
+                double skewed = random.nextDouble();
+                builder.addLink(i, (int) (skewed * skewed * nodes));
+            }
+        }
+        centrality = builder.build();
+    }
+
+    @Benchmark
+    public Centrality.Report rank() {
+        return centrality.rank();
+    }
+
+    @Benchmark
+    public Centrality.Report rankPersonalized() {
+        return centrality.rank(new int[]{0}, Centrality.DAMPING, Centrality.TOLERANCE, Centrality.MAX_ITERATIONS);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import analysis.CostRollup;
+import models.AnalysisModel;
+import models.CoreModel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the incremental updates of the {@link CostRollup}: communities own services, on which processes run, and
+ * every process has a cost. A changed cost value updates the process, its service and its community; a moved process
+ * recomputes the totals of the old and the new service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CostRollupBenchmark {
+    private static final String NS = "http://example.org/";
+    private static final int SERVICES_PER_COMMUNITY = 10;
+
+    @Param({"10000", "100000"})
+    public int processes;
+
+    private Model model;
+    private CostRollup rollup;
+    private Statement value;
+    private Statement runsOn;
+    private Resource process;
+    private Resource otherService;
+    private int counter = 0;
+
+    @Setup(Level.Trial)
+    public void createModel() {
+        model = ModelFactory.createDefaultModel();
+        int services = Math.max(1, processes / 100);
+        for (int i = 0; i < services; i++) {
+            model.createResource(NS + "service" + i).addProperty(CoreModel.ownedByCommunity.property,
+                    model.createResource(NS + "community" + i / SERVICES_PER_COMMUNITY));
+        }
+        for (int i = 0; i < processes; i++) {
+            process = model.createResource(NS + "process" + i);
+            runsOn = model.createStatement(process, CoreModel.runsOn.property,
+                    model.createResource(NS + "service" + i % services));
+            model.add(runsOn);
+            Resource cost = model.createResource(NS + "cost" + i).addProperty(AnalysisModel.costOf.property, process);
+            value = model.createLiteralStatement(cost, AnalysisModel.hasValue.property, 1f);
+            model.add(value);
+        }
+        otherService = model.createResource(NS + "service0");
+        rollup = new CostRollup(model);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        rollup.close();
+    }
+
+    @Benchmark
+    public double changeCostValue() {
+        model.remove(value);
+        value = model.createLiteralStatement(value.getSubject(), value.getPredicate(), (float) (counter++ % 100));
+        model.add(value);
+        return rollup.getTotal(process);
+    }
+
+    @Benchmark
+    public double moveProcess() {
+        Resource service = runsOn.getResource();
+        model.remove(runsOn);
+        runsOn = model.createStatement(process, CoreModel.runsOn.property, otherService);
+        model.add(runsOn);
+        otherService = service;
+        return rollup.getTotal(service);
+    }
+}
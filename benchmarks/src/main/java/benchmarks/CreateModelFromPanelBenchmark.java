@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import gui.ScenarioPanel;
+import models.ScenarioModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation of the scenario ontology from the graphical scenario panel, which is what happens each time
+ * the user saves the scenario. The panels are filled with the entities and relations of the example experiments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CreateModelFromPanelBenchmark {
+    @Param({"CERNExample", "TransferScenario", "VideoStreaming"})
+    public String experiment;
+
+    private ScenarioPanel panel;
+
+    @Setup
+    public void createPanel() {
+        panel = Fixtures.panel(experiment);
+    }
+
+    @Benchmark
+    public ScenarioModel createModelFromPanel() {
+        ScenarioModel scenario = new ScenarioModel(panel.toBeImported);
+        scenario.createModelFromPanel(panel);
+        return scenario;
+    }
+}
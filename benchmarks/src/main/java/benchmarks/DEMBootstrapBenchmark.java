@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import DomainOntology.DVAWrapper;
+import LRMv2.LRM_dynamic_schema;
+import LRMv2.LRM_static_schema;
+import models.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the bootstrap of the DEM sub models.
+ * <p>
+ * The first touch of {@link DEM} can only be measured once per JVM, therefore it runs as single shot in many forks.
+ * The construction of the single sub models is measured as throughput, because the constructors can be called
+ * repeatedly.
+ */
+public class DEMBootstrapBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SubModel {
+        @Param({"LRM_STATIC", "LRM_DYNAMIC", "CORE", "POLICY", "PROCESS", "INFRASTRUCTURE", "ANALYSIS",
+                "PRESERVATION_POLICY", "DVA"})
+        public String name;
+
+        @Setup
+        public void loadDEM() {
+            DEM.getModels();
+        }
+    }
+
+    /**
+     * Cold start: the construction of all DEM sub models, from the static LRM through the DVA model.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(10)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void firstTouch(Blackhole blackhole) {
+        blackhole.consume(DEM.getModels());
+        blackhole.consume(DEM.getDVAModel());
+    }
+
+    /**
+     * Cold start of a scenario which only uses core entities: only the LRM and the core model are built.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(10)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public ScenarioModel firstCoreScenario() {
+        return new ScenarioModel(new HashSet<>());
+    }
+
+    /**
+     * Construction of a single sub model, after the DEM was loaded once.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Fork(1)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 5)
+    public AbstractModel constructSubModel(SubModel subModel) {
+        switch (subModel.name) {
+            case "LRM_STATIC":
+                return new LRM_static_schema();
+            case "LRM_DYNAMIC":
+                return new LRM_dynamic_schema();
+            case "CORE":
+                return new CoreModel();
+            case "POLICY":
+                return new PolicyModel();
+            case "PROCESS":
+                return new ProcessModel();
+            case "INFRASTRUCTURE":
+                return new InfrastructureModel();
+            case "ANALYSIS":
+                return new AnalysisModel();
+            case "PRESERVATION_POLICY":
+                return new PreservationPolicyModel();
+            case "DVA":
+                return new DVAWrapper();
+            default:
+                throw new IllegalArgumentException("Unknown sub model " + subModel.name);
+        }
+    }
+}
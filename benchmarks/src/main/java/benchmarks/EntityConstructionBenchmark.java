@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import entities.EcosystemEntity;
+import entities.Template;
+import models.ScenarioModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of {@link EcosystemEntity} individuals per template. The scenario model is renewed for
+ * each iteration, so that the measured model does not grow without limits.
+ * <p>
+ * Further templates can be measured with the -p template=... option of JMH.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EntityConstructionBenchmark {
+    @Param({"EcosystemEntity", "Policy", "Process", "DigitalObject", "TechnicalService", "UserCommunity",
+            "HumanAgent", "EcosystemDependency", "DigitalPreservationPolicy", "DigitalVideo"})
+    public String templateName;
+
+    private Template template;
+    private ScenarioModel scenario;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void findTemplate() {
+        template = Fixtures.template(templateName);
+    }
+
+    @Setup(Level.Iteration)
+    public void newScenario() {
+        scenario = new ScenarioModel(new HashSet<>());
+        counter = 0;
+    }
+
+    @Benchmark
+    public EcosystemEntity newEntity() {
+        return new EcosystemEntity(scenario, "Entity " + counter++, template);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import entities.Template;
+import experiments.Experiment;
+import gui.EntityView;
+import gui.ScenarioPanel;
+import gui.TemplateView;
+import javafx.embed.swing.JFXPanel;
+import models.AbstractModel;
+import models.DEM;
+import models.ScenarioModel;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDF;
+import relations.Relation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixtures shared by the benchmark suites. The scenarios of the {@link experiments} package are used as realistic
+ * input data.
+ */
+public final class Fixtures {
+    private static boolean toolkitStarted = false;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Runs the experiment with the given simple class name, e.g. "CERNExample", and returns its scenario model.
+     *
+     * @param experimentName simple class name of an {@link Experiment} sub class
+     * @return the scenario model created by the experiment
+     */
+    public static ScenarioModel experiment(String experimentName) {
+        try {
+            return ((Experiment) Class.forName("experiments." + experimentName).newInstance()).scenario;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unknown experiment " + experimentName, e);
+        }
+    }
+
+    /**
+     * Finds a DEM template by its (sanitized) name. The DVA templates are included.
+     *
+     * @param name name of the template, e.g. "DigitalObject"
+     * @return the template
+     */
+    public static Template template(String name) {
+        for (AbstractModel model : DEM.getModels()) {
+            for (Template template : model.templates) {
+                if (template.name.equals(name)) {
+                    return template;
+                }
+            }
+        }
+        for (Template template : DEM.getDVAModel().templates) {
+            if (template.name.equals(name)) {
+                return template;
+            }
+        }
+        throw new IllegalArgumentException("Unknown template " + name);
+    }
+
+    /**
+     * The scenario panel consists of JavaFX controls, which can only be created once the toolkit is running.
+     */
+    public static synchronized void startToolkit() {
+        if (!toolkitStarted) {
+            new JFXPanel();
+            toolkitStarted = true;
+        }
+    }
+
+    /**
+     * Creates a scenario panel which contains the same entities and relations as the scenario model of the given
+     * experiment, as if a user had modelled the experiment with the graphical interface. Individuals of custom
+     * templates, which are not known to the panel, are skipped.
+     *
+     * @param experimentName simple class name of an {@link Experiment} sub class
+     * @return the filled scenario panel
+     */
+    public static ScenarioPanel panel(String experimentName) {
+        startToolkit();
+        ScenarioModel scenario = experiment(experimentName);
+        ScenarioPanel panel = new ScenarioPanel(null);
+        Map<Resource, EntityView> views = new HashMap<>();
+        ResIterator subjects = scenario.model.listSubjectsWithProperty(RDF.type);
+        while (subjects.hasNext()) {
+            Resource subject = subjects.next();
+            Resource type = subject.getPropertyResourceValue(RDF.type);
+            if (subject.isAnon() || type == null || !type.isURIResource()) {
+                continue;
+            }
+            TemplateView templateView = panel.getTemplateView(type.getLocalName());
+            if (templateView == null) {
+                continue;
+            }
+            templateView.parentModel.useTemplateView(templateView);
+            EntityView entityView = templateView.addEntity();
+            entityView.updateEntity(subject.getLocalName(), "", "");
+            views.put(subject, entityView);
+        }
+        for (Map.Entry<Resource, EntityView> entry : views.entrySet()) {
+            StmtIterator statements = entry.getKey().listProperties();
+            while (statements.hasNext()) {
+                Statement statement = statements.next();
+                Relation relation = panel.getRelation(statement.getPredicate().getLocalName());
+                if (relation == null) {
+                    continue;
+                }
+                RDFNode object = statement.getObject();
+                if (object.isLiteral()) {
+                    entry.getValue().addValueRelation(relation, object.asLiteral().getLexicalForm());
+                } else if (views.containsKey(object.asResource())) {
+                    entry.getValue().addRelationTarget(relation, views.get(object.asResource()));
+                }
+            }
+        }
+        return panel;
+    }
+}
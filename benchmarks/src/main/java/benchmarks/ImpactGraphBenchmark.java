@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import analysis.Impact;
+import analysis.ImpactGraph;
+import org.apache.jena.graph.NodeFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the change impact propagation of the {@link ImpactGraph} over random dependency graphs with millions of
+ * edges. Each node depends on a few others, the weights are between 0.5 and 1.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ImpactGraphBenchmark {
+    private static final int DEGREE = 4;
+
+    @Param({"100000", "1000000"})
+    public int nodes;
+
+    @Param({"0.01", "0.2"})
+    public float threshold;
+
+    private ImpactGraph graph;
+    private Random random = new Random(42);
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        ImpactGraph.Builder builder = new ImpactGraph.Builder();
+        for (int i = 0; i < nodes; i++) {
+            builder.addNode(NodeFactory.createURI("http://example.org/entity" + i));
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < nodes; i++) {
+            for (int j = 0; j < DEGREE; j++) {
+                builder.addEdge(i, random.nextInt(nodes), 0.5f + random.nextFloat() / 2);
+            }
+        }
+        graph = builder.build();
+    }
+
+    @Benchmark
+    public List<Impact> propagate() {
+        return graph.propagate(new int[]{random.nextInt(nodes)}, threshold, Integer.MAX_VALUE);
+    }
+}
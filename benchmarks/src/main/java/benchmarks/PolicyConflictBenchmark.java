@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import analysis.PolicyConflictDetector;
+import models.CoreModel;
+import models.PolicyModel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link PolicyConflictDetector}: the indexing of many policies, which constrain random digital objects
+ * with random requirement levels, and the incremental update after the requirement level of a policy changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PolicyConflictBenchmark {
+    private static final String NS = "http://example.org/";
+    private static final String[] LEVELS = {"MUST", "MUST NOT", "SHOULD", "SHOULD NOT", "MAY"};
+    private static final int POLICIES_PER_OBJECT = 10;
+
+    @Param({"10000", "100000"})
+    public int policies;
+
+    private Model model;
+    private PolicyConflictDetector detector;
+    private Statement level;
+    private int counter = 0;
+
+    @Setup(Level.Trial)
+    public void createModel() {
+        model = ModelFactory.createDefaultModel();
+        Random random = new Random(42);
+        int objects = Math.max(1, policies / POLICIES_PER_OBJECT);
+        for (int i = 0; i < policies; i++) {
+            Resource policy = model.createResource(NS + "policy" + i)
+                    .addProperty(CoreModel.constrains.property, model.createResource(NS + "object" + random.nextInt(objects)));
+            level = model.createStatement(policy, PolicyModel.hasRequirementLevel.property,
+                    LEVELS[random.nextInt(LEVELS.length)]);
+            model.add(level);
+        }
+        detector = new PolicyConflictDetector(model);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        detector.close();
+    }
+
+    @Benchmark
+    public PolicyConflictDetector index() {
+        PolicyConflictDetector index = new PolicyConflictDetector(model);
+        index.close();
+        return index;
+    }
+
+    @Benchmark
+    public int changeRequirementLevel() {
+        model.remove(level);
+        level = model.createStatement(level.getSubject(), level.getPredicate(), LEVELS[counter++ % LEVELS.length]);
+        model.add(level);
+        return detector.getConflicts(level.getSubject()).size();
+    }
+}
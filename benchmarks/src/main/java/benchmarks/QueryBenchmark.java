@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import experiments.SyntheticScenarioGenerator;
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.*;
+import query.QueryEngine;
+import query.QueryPlan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the query engine over generated scenarios: the construction of the index, a cached plan, and a join over three
+ * patterns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class QueryBenchmark {
+    private static final String JOIN = "?entity a ?type . ?entity ?relation ?target . ?target a ?targetType";
+
+    @Param({"1000", "10000"})
+    public int entities;
+
+    private Model model;
+    private QueryEngine engine;
+
+    @Setup
+    public void generate() {
+        model = SyntheticScenarioGenerator.scenario(entities).model;
+        engine = new QueryEngine(model);
+    }
+
+    @Benchmark
+    public QueryEngine buildIndex() {
+        return new QueryEngine(model);
+    }
+
+    @Benchmark
+    public QueryPlan planCached() {
+        return engine.plan(JOIN);
+    }
+
+    @Benchmark
+    public List<Map<String, Node>> join() {
+        return engine.select(JOIN);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import org.apache.jena.rdf.model.*;
+import org.openjdk.jmh.annotations.*;
+import rules.Rule;
+import rules.RuleEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the incremental matching of the {@link RuleEngine} with thousands of rules: each change of the model is
+ * only compared with the rules, whose patterns have the predicate of the change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RuleEngineBenchmark {
+    private static final String NS = "http://example.org/";
+    private static final int ENTITIES = 10000;
+
+    @Param({"1000", "5000"})
+    public int rules;
+
+    private Model model;
+    private RuleEngine engine;
+    private Property location;
+    private int counter = 0;
+
+    @Setup(Level.Trial)
+    public void createRules() {
+        model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("ex", NS);
+        location = model.createProperty(NS, "location");
+        Property type = model.createProperty(NS, "type");
+        for (int i = 0; i < ENTITIES; i++) {
+            model.createResource(NS + "object" + i).addProperty(type, "type" + i % rules);
+        }
+        engine = new RuleEngine(model);
+        for (int i = 0; i < rules; i++) {
+            engine.addRule(Rule.parse("rule" + i, "Precondition: ?object ex:type \"type" + i + "\" . "
+                    + "?object ex:location ?location\nImpact: set ?object ex:checked ?location", model));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        engine.close();
+    }
+
+    /**
+     * Adds a location, which fires one rule, and removes it again.
+     */
+    @Benchmark
+    public long changeLocation() {
+        Resource object = model.getResource(NS + "object" + (counter++ % ENTITIES));
+        Statement statement = model.createStatement(object, location, "private");
+        model.add(statement);
+        model.remove(statement);
+        return engine.getFirings();
+    }
+}
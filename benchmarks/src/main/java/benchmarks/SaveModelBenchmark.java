@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import gui.BackgroundTask;
+import models.ScenarioModel;
+import org.apache.jena.ontology.OntModel;
+import org.openjdk.jmh.annotations.*;
+import saver.AbstractSaver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the export of the example scenarios. The serialisation is measured per format into a discarding stream,
+ * and the complete {@link AbstractSaver#saveModel} path, which writes all formats to disk, is measured separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SaveModelBenchmark {
+    @Param({"CERNExample", "TransferScenario", "VideoStreaming"})
+    public String experiment;
+
+    private OntModel model;
+    private FixtureSaver saver;
+
+    @Setup
+    public void createModel() throws IOException {
+        ScenarioModel scenario = Fixtures.experiment(experiment);
+        model = scenario.model;
+        saver = new FixtureSaver(Files.createTempDirectory("ecobuilder-benchmark").toFile());
+    }
+
+    @Benchmark
+    public long write(Format format) {
+        CountingOutputStream out = new CountingOutputStream();
+        model.write(out, format.language);
+        return out.count;
+    }
+
+    @Benchmark
+    public File saveModel() {
+        return saver.save(model, experiment);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Format {
+        @Param({"TURTLE", "RDF/XML-ABBREV"})
+        public String language;
+    }
+
+    /**
+     * Saver which writes into a temporary directory instead of asking the user for an output directory.
+     */
+    private static class FixtureSaver extends AbstractSaver {
+
+        FixtureSaver(File outputDirectory) {
+            super(null, "benchmark");
+            projectOutputDirectory = outputDirectory;
+        }
+
+        @Override
+        public File save() {
+            return null;
+        }
+
+        @Override
+        public BackgroundTask<File> saveTask() {
+            return null;
+        }
+
+        File save(OntModel model, String name) {
+            return getSavedFile(saveModel(model, name));
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count = 0;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
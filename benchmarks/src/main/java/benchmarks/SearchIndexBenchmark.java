@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package benchmarks;
+
+import gui.EntityView;
+import gui.SearchIndex;
+import gui.TemplateView;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the type-ahead queries of the {@link SearchIndex} over a large number of entities, and the update of the
+ * index after an edit of an entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx6g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SearchIndexBenchmark {
+    private static final String[] WORDS = {"laptop", "server", "archive", "video", "policy", "storage", "format",
+            "migration", "curator", "checksum", "emulator", "codec", "backup", "license", "workflow", "sensor"};
+
+    @Param({"100000", "1000000"})
+    public int entities;
+
+    @Param({"lap", "server arch", "Entity12345", "video codec lic"})
+    public String query;
+
+    private SearchIndex index;
+    private EntityView edited;
+    private long counter = 0;
+
+    @Setup(Level.Trial)
+    public void createIndex() {
+        Fixtures.startToolkit();
+        Random random = new Random(42);
+        TemplateView template = new TemplateView("DigitalObject", "", null);
+        index = new SearchIndex();
+        for (int i = 0; i < entities; i++) {
+            EntityView entity = new EntityView(template);
+            entity.name = "Entity" + i + "_" + WORDS[random.nextInt(WORDS.length)];
+            entity.version = "v" + random.nextInt(10);
+            entity.description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            index.update(entity);
+            edited = entity;
+        }
+    }
+
+    @Benchmark
+    public List<EntityView> search() {
+        return index.search(query, 12);
+    }
+
+    @Benchmark
+    public void updateEntity() {
+        edited.description = WORDS[(int) (counter++ % WORDS.length)] + " edited";
+        index.update(edited);
+    }
+}
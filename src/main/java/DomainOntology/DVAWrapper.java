@@ -33,6 +33,8 @@ import relations.RelationBuilder;
  * @author Auto-generated by schemagen on 01 Jul 2016 15:17
  */
 public class DVAWrapper extends AbstractModel {
+    private static final long serialVersionUID = 3935841287824776281L;
+
     /**
      * <p>The RDF model that holds the vocabulary terms</p>
      */
@@ -524,4 +526,7 @@ public class DVAWrapper extends AbstractModel {
             }
         }
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final DVAWrapper INSTANCE = new DVAWrapper();
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package ERMR;
+
+import org.apache.jena.graph.Node;
+import saver.NTriplesSink;
+import saver.TripleSink;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads triples in batches to the statements API of the ERMR: POST /api/triple/[repository]/statements.
+ * <p>
+ * The triples are collected into gzip compressed N-Triples batches of {@link Configuration#batchSize} statements. The
+ * batches are posted over {@link Configuration#connections} concurrent connections, and a failed batch is retried up
+ * to {@link Configuration#retries} times, without sending the other batches again. Only a few batches per connection
+ * are kept in memory: the producer of the triples waits, if the uploads fall behind.
+ */
+public class BulkUpload implements TripleSink {
+    private static final long RETRY_DELAY_MILLIS = 250;
+
+    private final URL submissionURL;
+    private final ERMRConnection connection;
+    private final int batchSize;
+    private final int retries;
+    private final ExecutorService uploaders;
+    private final Semaphore pendingBatches;
+    private final CompletionService<Boolean> completions;
+    private final long start = System.nanoTime();
+    private final AtomicLong uploadedStatements = new AtomicLong();
+    private final AtomicInteger retriedBatches = new AtomicInteger();
+    private int submittedBatches = 0;
+    private int failedBatches = 0;
+    private ProgressListener progress = ProgressListener.NONE;
+    private long progressOffset = 0;
+    private long progressTotal = -1;
+
+    private final NTriplesSink format = new NTriplesSink(null);
+    private ByteArrayOutputStream batchBytes;
+    private Writer batch;
+    private int batchStatements = 0;
+
+    /**
+     * @param submissionURL the statements URL of the repository
+     * @param connection    sets the credentials of the requests
+     */
+    BulkUpload(URL submissionURL, ERMRConnection connection, int batchSize, int connections, int retries) {
+        this.submissionURL = submissionURL;
+        this.connection = connection;
+        this.batchSize = batchSize;
+        this.retries = retries;
+        uploaders = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "ERMR-Upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pendingBatches = new Semaphore(2 * connections);
+        completions = new ExecutorCompletionService<>(uploaders);
+    }
+
+    /**
+     * Informs the listener after each uploaded batch.
+     *
+     * @param offset the statements, which were transferred before this upload
+     * @param total  the statements of the whole transfer, or -1 if unknown
+     */
+    void setProgress(ProgressListener progress, long offset, long total) {
+        this.progress = progress;
+        this.progressOffset = offset;
+        this.progressTotal = total;
+    }
+
+    @Override
+    public void start(Map<String, String> prefixes) {
+    }
+
+    @Override
+    public void triple(Node subject, Node predicate, Node object) throws IOException {
+        line(format.toLine(subject, predicate, object));
+    }
+
+    /**
+     * Adds a statement, which is already formatted as N-Triples line.
+     */
+    void line(String line) throws IOException {
+        if (batch == null) {
+            batchBytes = new ByteArrayOutputStream();
+            batch = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(batchBytes),
+                    StandardCharsets.UTF_8));
+        }
+        batch.write(line);
+        batch.write('\n');
+        if (++batchStatements == batchSize) {
+            submitBatch();
+        }
+    }
+
+    /**
+     * Sends the last batch, and waits until all batches are uploaded.
+     *
+     * @throws IOException if batches failed after all retries
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            submitBatch();
+            for (int i = 0; i < submittedBatches; i++) {
+                if (!completions.take().get()) {
+                    failedBatches++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Upload failed", e.getCause());
+        } finally {
+            uploaders.shutdownNow();
+        }
+        if (failedBatches > 0) {
+            throw new IOException(failedBatches + " of " + submittedBatches + " batches couldn't be uploaded");
+        }
+    }
+
+    /**
+     * @return the uploaded statements, the batches, and the statements per second
+     */
+    public String getReport() {
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+        return "Uploaded " + uploadedStatements.get() + " statements in " + submittedBatches + " batches ("
+                + retriedBatches.get() + " retries, " + failedBatches + " failed) in "
+                + String.format("%.1f s, %.0f statements/s", seconds, uploadedStatements.get() / seconds);
+    }
+
+    private void submitBatch() throws IOException {
+        if (batch == null) {
+            return;
+        }
+        batch.close(); // finishes the gzip stream
+        final byte[] body = batchBytes.toByteArray();
+        final int statements = batchStatements;
+        batch = null;
+        batchBytes = null;
+        batchStatements = 0;
+        try {
+            pendingBatches.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        }
+        submittedBatches++;
+        completions.submit(() -> {
+            try {
+                return upload(body, statements);
+            } finally {
+                pendingBatches.release();
+            }
+        });
+    }
+
+    /**
+     * Posts one batch, with retries after a growing delay.
+     *
+     * @return true, if the batch was accepted
+     */
+    private boolean upload(byte[] body, int statements) throws InterruptedException {
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            if (attempt > 0) {
+                retriedBatches.incrementAndGet();
+                Thread.sleep(RETRY_DELAY_MILLIS << (attempt - 1));
+            }
+            try {
+                int responseCode = post(body);
+                if (responseCode >= 200 && responseCode < 300) {
+                    long uploaded = uploadedStatements.addAndGet(statements);
+                    progress.progress(progressOffset + uploaded, progressTotal, "Uploading the statements");
+                    return true;
+                }
+                System.err.println("ERMR rejected a batch of " + statements + " statements: HTTP " + responseCode);
+            } catch (IOException e) {
+                System.err.println("Could not upload a batch of " + statements + " statements: " + e);
+            }
+        }
+        return false;
+    }
+
+    private int post(byte[] body) throws IOException {
+        HttpURLConnection request = connection.getConnection(submissionURL);
+        request.setRequestMethod("POST");
+        request.setRequestProperty("Content-Type", "application/n-triples");
+        request.setRequestProperty("Content-Encoding", "gzip");
+        request.setDoOutput(true);
+        request.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = request.getOutputStream()) {
+            out.write(body);
+        }
+        return ERMRConnection.finish(request);
+    }
+}
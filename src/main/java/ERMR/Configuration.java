@@ -31,6 +31,12 @@ public class Configuration {
     protected static String url = "";
     protected static String user = "";
     protected static String password = "";
+    // The bulk upload settings, see BulkUpload:
+    protected static int batchSize = Integer.getInteger("ermr.batchSize", 5000);
+    protected static int connections = Integer.getInteger("ermr.connections", 4);
+    protected static int retries = Integer.getInteger("ermr.retries", 3);
+    // How long the list of the repositories is cached, see ERMRConnection:
+    protected static int repositoryCacheSeconds = Integer.getInteger("ermr.repositoryCacheSeconds", 300);
 
     /**
      * Create ERMR repository with: PUT <root URI>/api/triple/<NewRepositoryName>
@@ -73,6 +79,26 @@ public class Configuration {
         return string == null || string.equals("") || string.equals(" ");
     }
 
+    /**
+     * Configures the bulk upload of the triples.
+     *
+     * @param batchSize   statements per request
+     * @param connections number of concurrent requests
+     * @param retries     retries of a failed request
+     */
+    public static void setUploadSettings(int batchSize, int connections, int retries) {
+        Configuration.batchSize = batchSize;
+        Configuration.connections = connections;
+        Configuration.retries = retries;
+    }
+
+    /**
+     * @return the number of concurrent requests of the bulk upload
+     */
+    public static int getConnections() {
+        return connections;
+    }
+
     public static void setCredentials(String ERMRRepository, String ERMRUrl, String ERMRUser, String ERMRPassword) {
         repository = ERMRRepository;
         url = ERMRUrl;
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package ERMR;
+
+import org.apache.jena.graph.Node;
+import saver.NTriplesSink;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends only the changes of a scenario to the ERMR, since its last synchronisation.
+ * <p>
+ * The statements which were pushed last are recorded per ERMR and repository in a local file. The statements of the
+ * current scenario are compared in units to the record: a statement without blank nodes is a unit of its own, the
+ * statements of a blank node, like a Description or Version individual, form one unit. The blank nodes have stable
+ * labels, see {@link saver.ScenarioExporter}, so an unchanged individual is matched to its recorded unit. Removed and
+ * changed units are deleted with a SPARQL update, added and changed units are uploaded with a {@link BulkUpload}. The
+ * record is only replaced, after the ERMR accepted all changes.
+ * <p>
+ * The statements are only collected by the export, they are sent by {@link #push(ProgressListener)}.
+ */
+public class DeltaSync extends NTriplesSink {
+    public static final String DIRECTORY_PROPERTY = "ecobuilder.ermr";
+
+    private final ERMRConnection connection;
+    final File record;
+    private final SortedSet<String> statements = new TreeSet<>();
+    private int added = 0;
+    private int removed = 0;
+
+    /**
+     * @param record the statements which were pushed last, the whole scenario is uploaded if it doesn't exist
+     */
+    DeltaSync(ERMRConnection connection, File record) {
+        super(null);
+        this.connection = connection;
+        this.record = record;
+    }
+
+    /**
+     * @return the record file of the configured ERMR and repository
+     */
+    static File getRecord() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null) {
+            directory = System.getProperty("user.home") + File.separator + ".ecobuilder" + File.separator + "ermr";
+        }
+        String name = (Configuration.url + "_" + Configuration.repository).replaceAll("[^A-Za-z0-9.-]", "_");
+        return new File(directory, name + ".nt.gz");
+    }
+
+    @Override
+    public void triple(Node subject, Node predicate, Node object) throws IOException {
+        statements.add(toLine(subject, predicate, object));
+    }
+
+    /**
+     * Sends the differences to the recorded statements, and records the current statements.
+     *
+     * @param progress is informed about the removed and uploaded statements
+     * @return the report of the synchronisation
+     * @throws IOException if the ERMR didn't accept the changes, the record is kept in this case
+     */
+    String push(ProgressListener progress) throws IOException {
+        Map<String, SortedSet<String>> recordedUnits = getUnits(readRecord());
+        Map<String, SortedSet<String>> currentUnits = getUnits(statements);
+        List<SortedSet<String>> removedUnits = new ArrayList<>();
+        for (Map.Entry<String, SortedSet<String>> unit : recordedUnits.entrySet()) {
+            if (!unit.getValue().equals(currentUnits.get(unit.getKey()))) {
+                removedUnits.add(unit.getValue());
+                removed += unit.getValue().size();
+            }
+        }
+        List<SortedSet<String>> addedUnits = new ArrayList<>();
+        for (Map.Entry<String, SortedSet<String>> unit : currentUnits.entrySet()) {
+            if (!unit.getValue().equals(recordedUnits.get(unit.getKey()))) {
+                addedUnits.add(unit.getValue());
+                added += unit.getValue().size();
+            }
+        }
+        long total = removed + added;
+        if (!removedUnits.isEmpty()) {
+            progress.progress(0, total, "Removing the changed statements");
+            delete(removedUnits);
+        }
+        BulkUpload upload = new BulkUpload(Configuration.getSubmissionURL(), connection, Configuration.batchSize,
+                Configuration.connections, Configuration.retries);
+        upload.setProgress(progress, removed, total);
+        try {
+            for (SortedSet<String> unit : addedUnits) {
+                for (String statement : unit) {
+                    upload.line(statement);
+                }
+            }
+        } finally {
+            upload.close();
+        }
+        writeRecord();
+        progress.progress(total, total, "Synchronised");
+        return getReport();
+    }
+
+    /**
+     * The statements are kept until the push.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return the numbers of the added and removed statements
+     */
+    public String getReport() {
+        return "Synchronised " + statements.size() + " statements with the ERMR: " + added + " added, " + removed
+                + " removed";
+    }
+
+    /**
+     * Groups the statements by their first blank node. Statements without blank nodes are their own unit.
+     */
+    private static Map<String, SortedSet<String>> getUnits(Collection<String> statements) {
+        Map<String, SortedSet<String>> units = new HashMap<>();
+        for (String statement : statements) {
+            String key = statement;
+            String subject = getSubject(statement);
+            String object = getObject(statement);
+            if (subject.startsWith("_:")) {
+                key = subject;
+            } else if (object.startsWith("_:")) {
+                key = object;
+            }
+            units.computeIfAbsent(key, unit -> new TreeSet<>()).add(statement);
+        }
+        return units;
+    }
+
+    private static String getSubject(String statement) {
+        return statement.substring(0, statement.indexOf(' '));
+    }
+
+    /**
+     * The predicate is always an IRI without spaces, the object is everything between the predicate and the final
+     * dot.
+     */
+    private static String getObject(String statement) {
+        int predicateEnd = statement.indexOf(' ', statement.indexOf(' ') + 1);
+        return statement.substring(predicateEnd + 1, statement.length() - 2);
+    }
+
+    /**
+     * Deletes the units with one SPARQL update. Statements without blank nodes are deleted as data. The blank nodes
+     * of the other units become variables of a pattern, which has to match all statements of the unit.
+     */
+    private void delete(List<SortedSet<String>> units) throws IOException {
+        StringBuilder update = new StringBuilder();
+        StringBuilder data = new StringBuilder();
+        for (SortedSet<String> unit : units) {
+            if (unit.size() == 1 && !getSubject(unit.first()).startsWith("_:")
+                    && !getObject(unit.first()).startsWith("_:")) {
+                data.append("  ").append(unit.first()).append('\n');
+                continue;
+            }
+            update.append("DELETE WHERE {\n");
+            for (String statement : unit) {
+                String subject = getSubject(statement);
+                String object = getObject(statement);
+                String predicate = statement.substring(subject.length() + 1, statement.length() - object.length() - 3);
+                update.append("  ").append(toVariable(subject)).append(' ').append(predicate).append(' ')
+                        .append(toVariable(object)).append(" .\n");
+            }
+            update.append("} ;\n");
+        }
+        if (data.length() > 0) {
+            update.insert(0, "DELETE DATA {\n" + data + "} ;\n");
+        }
+        update.setLength(update.length() - 3); // the last separator
+        HttpURLConnection request = connection.getConnection(Configuration.getSubmissionURL());
+        request.setRequestMethod("POST");
+        request.setRequestProperty("Content-Type", "application/sparql-update");
+        request.setDoOutput(true);
+        try (OutputStream body = request.getOutputStream()) {
+            body.write(update.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        int responseCode = ERMRConnection.finish(request);
+        if (responseCode < 200 || responseCode >= 300) {
+            throw new IOException("ERMR rejected the removal of " + removed + " statements: HTTP " + responseCode);
+        }
+    }
+
+    private static String toVariable(String node) {
+        return node.startsWith("_:") ? "?" + node.substring(2) : node;
+    }
+
+    private List<String> readRecord() throws IOException {
+        List<String> recorded = new ArrayList<>();
+        if (!record.exists()) {
+            return recorded;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(record)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    recorded.add(line);
+                }
+            }
+        }
+        return recorded;
+    }
+
+    private void writeRecord() throws IOException {
+        File directory = record.getAbsoluteFile().getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File temp = new File(directory, record.getName() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(temp)), StandardCharsets.UTF_8))) {
+            for (String statement : statements) {
+                writer.write(statement);
+                writer.write('\n');
+            }
+        }
+        Files.move(temp.toPath(), record.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
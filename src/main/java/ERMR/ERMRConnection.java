@@ -17,21 +17,47 @@
  */
 package ERMR;
 
+import saver.ScenarioExporter;
+
 import javax.net.ssl.*;
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.HashSet;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Connects to the PERICLES Entity Registry and Model Repository (ERMR) to create model repositories and to submit the
  * scenario Digital Ecosystem Model instances.
+ * <p>
+ * A connection is meant to be long-lived: the TLS context is created once, so that the TLS sessions are resumed, and
+ * the responses are read to the end instead of disconnecting, so that the sockets are kept alive and reused. The
+ * known repositories are cached for {@link Configuration#repositoryCacheSeconds}. The asynchronous sends run one
+ * after the other on a background thread of the connection.
  */
-public class ERMRConnection {
+public class ERMRConnection implements Closeable {
+    private static final Pattern REPOSITORY_TITLE = Pattern.compile("\"title\"\\s*:\\s*\"([^\"]*)\"");
+
+    private final ExecutorService client = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ERMR-Client");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private SSLSocketFactory socketFactory;
+    private URL repositoriesURL;
+    private Set<String> repositories;
+    private long repositoriesExpiry;
+
     /**
      * Sends a turtle file containing the representation of a scenario model to the ERMR, and creates the needed
      * model repository, if it is not existing yet.
@@ -46,16 +72,97 @@ public class ERMRConnection {
         }
     }
 
+    /**
+     * Uploads the scenario triples to the ERMR in compressed N-Triples batches over several connections, see
+     * {@link BulkUpload}. The repository is created, if it is not existing yet.
+     *
+     * @param exporter streams the triples of the scenario
+     * @return true, if all triples were uploaded
+     */
+    public boolean send(ScenarioExporter exporter) {
+        try {
+            if (!createRepository()) {
+                System.err.println("Couldn't create repository");
+                return false;
+            }
+            exporter.export(new BulkUpload(Configuration.getSubmissionURL(), this, Configuration.batchSize,
+                    Configuration.connections, Configuration.retries));
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Sends only the changes of the scenario since the last synchronisation with the configured repository, and waits
+     * for the result, see {@link #syncAsync(ScenarioExporter, ProgressListener)}.
+     *
+     * @param exporter streams the triples of the scenario
+     * @return true, if the ERMR accepted all changes
+     */
+    public boolean sync(ScenarioExporter exporter) {
+        try {
+            syncAsync(exporter, ProgressListener.NONE).get();
+            return true;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Sends only the changes of the scenario since the last synchronisation with the configured repository, see
+     * {@link DeltaSync}. The whole scenario is uploaded, if the repository is created by this call.
+     * <p>
+     * The triples are exported in the background like the requests, from the snapshot of the exporter.
+     *
+     * @param exporter streams the triples of the scenario
+     * @param progress is informed about the removed and uploaded statements
+     * @return completes with the report of the synchronisation, or exceptionally if the ERMR didn't accept all
+     * changes
+     */
+    public CompletableFuture<String> syncAsync(ScenarioExporter exporter, ProgressListener progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                progress.progress(0, -1, "Exporting the scenario");
+                DeltaSync sync = new DeltaSync(this, DeltaSync.getRecord());
+                exporter.export(sync);
+                progress.progress(0, -1, "Connecting to the ERMR");
+                if (!repositoryExists()) {
+                    if (!createRepository()) {
+                        throw new IOException("Couldn't create repository " + Configuration.repository);
+                    }
+                    Files.deleteIfExists(sync.record.toPath()); // outdated, the repository is empty
+                }
+                return sync.push(progress);
+            } catch (IOException e) {
+                invalidateRepositories();
+                throw new CompletionException(e);
+            }
+        }, client);
+    }
+
+    /**
+     * Stops the background thread, after the running send.
+     */
+    @Override
+    public void close() {
+        client.shutdown();
+    }
+
     /**
      * Does some https magic to send the scenario triples to ERMR's triple store.
      */
     private boolean sendScenarioModel(File turtleFile) throws Exception {
-        setSSLContext();
         if (!createRepository()) {  // create if it doesn't exist yet
             System.err.println("Couldn't create repository");
             return false;
         }
-        HttpsURLConnection connection = getConnection(Configuration.getSubmissionURL());
+        HttpURLConnection connection = getConnection(Configuration.getSubmissionURL());
         connection.setRequestMethod("POST");
         connection.setRequestProperty("Content-Type", "text/turtle");
         connection.setDoOutput(true); // use the connection to output the turtle file
@@ -70,9 +177,7 @@ public class ERMRConnection {
         inputStream.close();
         request.flush();
         request.close();
-        int responseCode = connection.getResponseCode();
-        connection.disconnect();
-        return responseCode == 201;
+        return finish(connection) == 201;
     }
 
 
@@ -83,57 +188,108 @@ public class ERMRConnection {
         if (repositoryExists()) {
             return true;
         } // else create repository:
-        HttpsURLConnection connection = getConnection(Configuration.getRepositoryURL());
+        HttpURLConnection connection = getConnection(Configuration.getRepositoryURL());
         connection.setRequestMethod("PUT");
         connection.setDoOutput(true);
         connection.connect();
-        int responseCode = connection.getResponseCode();
-        connection.disconnect();
-        return responseCode == 201;
+        if (finish(connection) != 201) {
+            return false;
+        }
+        synchronized (this) {
+            if (repositories != null) {
+                repositories.add(Configuration.repository);
+            }
+        }
+        return true;
     }
 
     /**
-     * Checks if the currently configured repository already exists.
+     * Checks if the currently configured repository already exists. The list of the repositories is only requested
+     * again, if it is older than {@link Configuration#repositoryCacheSeconds}, or the ERMR has changed.
      *
      * @return flag, if the repository already exists
      */
-    private boolean repositoryExists() {
-        boolean exists = false;
-        try {
-            HttpsURLConnection connection = getConnection(Configuration.getAPIURL());
-            connection.setRequestMethod("GET");
-            connection.setDoOutput(false);
-            connection.setDoInput(true);
-            connection.connect();
-            InputStream response = connection.getInputStream();
-            Scanner scanner = new Scanner(response).useDelimiter("\\A");
-            String repositoryList = scanner.hasNext() ? scanner.next() : "";
-            String pattern = "\"title\": \"" + Configuration.repository + "\"";
-            exists = repositoryList.contains(pattern);
-            response.close();
-            connection.disconnect();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+    private synchronized boolean repositoryExists() {
+        URL apiURL = Configuration.getAPIURL();
+        if (repositories == null || !apiURL.toString().equals(repositoriesURL.toString())
+                || System.currentTimeMillis() > repositoriesExpiry) {
+            try {
+                repositories = requestRepositories(apiURL);
+                repositoriesURL = apiURL;
+                repositoriesExpiry = System.currentTimeMillis() + Configuration.repositoryCacheSeconds * 1000L;
+            } catch (IOException e) {
+                e.printStackTrace();
+                repositories = null;
+                return false;
+            }
         }
-        return exists;
+        return repositories.contains(Configuration.repository);
+    }
+
+    private Set<String> requestRepositories(URL apiURL) throws IOException {
+        HttpURLConnection connection = getConnection(apiURL);
+        connection.setRequestMethod("GET");
+        connection.setDoOutput(false);
+        connection.setDoInput(true);
+        connection.connect();
+        InputStream response = connection.getInputStream();
+        Scanner scanner = new Scanner(response, "UTF-8").useDelimiter("\\A");
+        String repositoryList = scanner.hasNext() ? scanner.next() : "";
+        response.close();
+        Set<String> titles = new HashSet<>();
+        Matcher title = REPOSITORY_TITLE.matcher(repositoryList);
+        while (title.find()) {
+            titles.add(title.group(1));
+        }
+        return titles;
+    }
+
+    /**
+     * Requests the repositories again at the next send, for example after a failure.
+     */
+    public synchronized void invalidateRepositories() {
+        repositories = null;
     }
 
     /**
-     * Creates an TLS connection to the URL.
+     * Creates an TLS connection to the URL. Plain http is used for a local ERMR, like the LocalERMR of the tests.
+     * <p>
+     * The response of the connection has to be read with {@link #finish(HttpURLConnection)}, to reuse the socket.
      *
      * @param url
      * @return
      * @throws IOException
      */
-    private HttpsURLConnection getConnection(URL url) throws IOException {
-        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+    HttpURLConnection getConnection(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         setCredentials(connection);
-        setHostnameVerifier(connection);
+        if (connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(getSocketFactory());
+            setHostnameVerifier((HttpsURLConnection) connection);
+        }
         connection.setUseCaches(false);
         return connection;
     }
 
+    /**
+     * Reads the response to the end and closes it, which returns the socket to the keep-alive cache. A disconnect
+     * would close the socket.
+     *
+     * @return the response code
+     */
+    static int finish(HttpURLConnection connection) throws IOException {
+        int responseCode = connection.getResponseCode();
+        InputStream response = responseCode < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (response != null) {
+            byte[] buffer = new byte[4096];
+            while (response.read(buffer) != -1) {
+                // discard
+            }
+            response.close();
+        }
+        return responseCode;
+    }
+
     /**
      * FIXME: enable certificate check, once the ERMR has a valid certificate.
      *
@@ -148,18 +304,34 @@ public class ERMRConnection {
      *
      * @param connection
      */
-    private void setCredentials(HttpsURLConnection connection) {
+    private void setCredentials(HttpURLConnection connection) {
         connection.setRequestProperty("username", Configuration.user);
         connection.setRequestProperty("password", Configuration.password);
     }
 
     /**
-     * Sets the SSL Context
+     * The socket factory is created once, so that its session cache resumes the TLS sessions with the ERMR.
+     *
+     * @throws IOException if the TLS context can't be created
+     */
+    private synchronized SSLSocketFactory getSocketFactory() throws IOException {
+        if (socketFactory == null) {
+            try {
+                socketFactory = createSSLContext().getSocketFactory();
+            } catch (NoSuchAlgorithmException | KeyManagementException e) {
+                throw new IOException("Couldn't create the TLS context", e);
+            }
+        }
+        return socketFactory;
+    }
+
+    /**
+     * Creates the SSL Context
      *
      * @throws NoSuchAlgorithmException
      * @throws KeyManagementException
      */
-    private void setSSLContext() throws NoSuchAlgorithmException, KeyManagementException {
+    private SSLContext createSSLContext() throws NoSuchAlgorithmException, KeyManagementException {
         SSLContext context = SSLContext.getInstance("TLS");
         context.init(new KeyManager[0], new TrustManager[]{new X509TrustManager() {
             @Override
@@ -175,6 +347,6 @@ public class ERMRConnection {
                 return new X509Certificate[0];
             }
         }}, new SecureRandom());
-        SSLContext.setDefault(context);
+        return context;
     }
 }
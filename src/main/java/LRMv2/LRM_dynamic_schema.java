@@ -30,6 +30,7 @@ import org.apache.jena.rdf.model.ModelFactory;
  * @author Auto-generated by schemagen on 24 Jun 2015 10:51
  */
 public class LRM_dynamic_schema extends AbstractModel {
+    private static final long serialVersionUID = -376400830971204902L;
 
     public LRM_dynamic_schema() {
         super(NS, "LRM", "The dynamic Linked Resource Model");
@@ -509,4 +510,7 @@ public class LRM_dynamic_schema extends AbstractModel {
     @Override
     public void createModelRelations() {
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final LRM_dynamic_schema INSTANCE = new LRM_dynamic_schema();
 }
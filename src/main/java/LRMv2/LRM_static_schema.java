@@ -31,6 +31,7 @@ import org.apache.jena.rdf.model.Property;
  * @author Auto-generated by schemagen on 24 Jun 2015 10:47
  */
 public class LRM_static_schema extends AbstractModel {
+    private static final long serialVersionUID = 8736373277161445424L;
 
     public LRM_static_schema() {
         super(NS, "LRM", "The static Linked Resource Model");
@@ -385,4 +386,7 @@ public class LRM_static_schema extends AbstractModel {
         from_property = model.createProperty("http://xrce.xerox.com/LRM#from");
         to_property = model.createProperty("http://xrce.xerox.com/LRM#to");
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final LRM_static_schema INSTANCE = new LRM_static_schema();
 }
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package analysis;
+
+import LRMv2.LRM_static_schema;
+import entities.Significance;
+import models.ScenarioModel;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The centrality of the entities of a scenario, computed with PageRank: an entity is significant if significant
+ * entities point to it. The personalized PageRank restarts at a given entity, so that it ranks the entities by their
+ * significance for that entity.
+ * <p>
+ * The links are stored by their target in the compressed sparse row format, so that each step of the power iteration
+ * is a sparse matrix vector product, which is split into parts of similar numbers of links and run in the fork join
+ * pool.
+ */
+public class Centrality {
+    public static final double DAMPING = 0.85;
+    public static final double TOLERANCE = 1e-9;
+    public static final int MAX_ITERATIONS = 100;
+    /**
+     * Parts with fewer links and nodes are not split further.
+     */
+    private static final int GRAIN = 1 << 15;
+
+    private final List<Node> nodes;
+    private final Map<Node, Integer> ids;
+    // The incoming links of the node i are the sources at the positions offsets[i] until offsets[i + 1]:
+    private final int[] offsets;
+    private final int[] sources;
+    private final int[] outDegrees;
+
+    private Centrality(Builder builder) {
+        nodes = builder.nodes;
+        ids = builder.ids;
+        int nodeCount = nodes.size();
+        offsets = new int[nodeCount + 1];
+        outDegrees = new int[nodeCount];
+        for (int i = 0; i < builder.linkCount; i++) {
+            offsets[builder.targets[i] + 1]++;
+            outDegrees[builder.sources[i]]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        sources = new int[builder.linkCount];
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        for (int i = 0; i < builder.linkCount; i++) {
+            sources[next[builder.targets[i]]++] = builder.sources[i];
+        }
+    }
+
+    /**
+     * Links the entities of the model, which point to each other. Only the statements of the scenario itself are used,
+     * not the imported DEM. Classes, properties and weighted relations, like existing significances, are no entities.
+     */
+    public static Centrality fromModel(Model model) {
+        Model base = model instanceof OntModel ? ((OntModel) model).getBaseModel() : model;
+        Graph graph = base.getGraph();
+        Set<Node> entities = new HashSet<>();
+        Node type = RDF.type.asNode();
+        Node from = LRM_static_schema.from_property.asNode();
+        ExtendedIterator<Triple> typed = graph.find(Node.ANY, type, Node.ANY);
+        try {
+            while (typed.hasNext()) {
+                Triple triple = typed.next();
+                String namespace = triple.getObject().isURI() ? triple.getObject().getNameSpace() : "";
+                if (triple.getSubject().isURI() && !namespace.equals(RDF.getURI())
+                        && !namespace.equals(RDFS.getURI()) && !namespace.equals(OWL.getURI())) {
+                    entities.add(triple.getSubject());
+                }
+            }
+        } finally {
+            typed.close();
+        }
+        entities.removeIf(entity -> graph.contains(entity, from, Node.ANY));
+        Builder builder = new Builder();
+        entities.forEach(builder::addNode);
+        ExtendedIterator<Triple> links = graph.find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (links.hasNext()) {
+                Triple triple = links.next();
+                if (!triple.getPredicate().equals(type) && entities.contains(triple.getSubject())
+                        && entities.contains(triple.getObject())) {
+                    builder.addLink(builder.addNode(triple.getSubject()), builder.addNode(triple.getObject()));
+                }
+            }
+        } finally {
+            links.close();
+        }
+        return builder.build();
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public int getLinkCount() {
+        return sources.length;
+    }
+
+    /**
+     * @return the id of the node, or -1 if it isn't an entity of the graph
+     */
+    public int getId(Node node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    public Node getNode(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Computes the PageRank of all entities, with the default parameters.
+     */
+    public Report rank() {
+        return rank(null, DAMPING, TOLERANCE, MAX_ITERATIONS);
+    }
+
+    /**
+     * Computes the personalized PageRank for the entity, with the default parameters.
+     */
+    public Report rankFor(Node entity) {
+        int id = getId(entity);
+        if (id < 0) {
+            throw new IllegalArgumentException(entity + " is no entity of the graph.");
+        }
+        return rank(new int[]{id}, DAMPING, TOLERANCE, MAX_ITERATIONS);
+    }
+
+    /**
+     * Runs the power iteration until the sum of the changes of the scores is below the tolerance.
+     *
+     * @param restart the nodes at which the random walk restarts, or null to restart at all nodes
+     * @param damping the probability to follow a link instead of restarting
+     * @return the scores, which sum up to 1, and how they converged
+     */
+    public Report rank(int[] restart, double damping, double tolerance, int maxIterations) {
+        long start = System.nanoTime();
+        int nodeCount = nodes.size();
+        double[] teleport = null;
+        if (restart != null) {
+            teleport = new double[nodeCount];
+            for (int node : restart) {
+                teleport[node] += 1.0 / restart.length;
+            }
+        }
+        double[] scores = new double[nodeCount];
+        double[] contributions = new double[nodeCount];
+        double dangling = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            scores[node] = teleport == null ? 1.0 / nodeCount : teleport[node];
+            if (outDegrees[node] == 0) {
+                dangling += scores[node];
+            } else {
+                contributions[node] = scores[node] / outDegrees[node];
+            }
+        }
+        Iteration iteration = new Iteration(teleport, damping, scores, contributions);
+        double residual = Double.MAX_VALUE;
+        int iterations = 0;
+        while (iterations < maxIterations && residual > tolerance && nodeCount > 0) {
+            double[] result = ForkJoinPool.commonPool().invoke(iteration.part(0, nodeCount, dangling));
+            residual = result[0];
+            dangling = result[1];
+            iteration.swap();
+            iterations++;
+        }
+        return new Report(iteration.scores, iterations, nodeCount == 0 ? 0 : residual, residual <= tolerance,
+                (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Writes the most significant entities of the report as {@link Significance} relations to the scenario. The value
+     * of a significance is the score relative to the highest score.
+     *
+     * @param target the entity for which the entities are significant, e.g. the restart entity or the scenario
+     * @param count  the maximal number of significances
+     * @return the created significances
+     */
+    public List<Significance> writeSignificances(ScenarioModel scenario, Report report, Resource target, int count) {
+        List<Significance> significances = new ArrayList<>();
+        int[] top = report.top(count + 1);
+        double maximum = top.length == 0 ? 0 : report.getScore(top[0]);
+        for (int node : top) {
+            Node entity = nodes.get(node);
+            if (entity.equals(target.asNode()) || significances.size() == count || maximum == 0) {
+                continue;
+            }
+            Significance significance = new Significance(scenario, "Significance of " + entity.getLocalName()
+                    + " for " + target.getLocalName(), scenario.model.wrapAsResource(entity), target);
+            significance.hasValue((float) (report.getScore(node) / maximum));
+            significances.add(significance);
+        }
+        return significances;
+    }
+
+    /**
+     * The state of the power iteration: the scores of the last step, and the scores of the next step.
+     */
+    private class Iteration {
+        private final double[] teleport;
+        private final double damping;
+        private double[] scores;
+        private double[] contributions;
+        private double[] nextScores;
+        private double[] nextContributions;
+        private double dangling;
+
+        Iteration(double[] teleport, double damping, double[] scores, double[] contributions) {
+            this.teleport = teleport;
+            this.damping = damping;
+            this.scores = scores;
+            this.contributions = contributions;
+            nextScores = new double[scores.length];
+            nextContributions = new double[scores.length];
+        }
+
+        Part part(int from, int to, double dangling) {
+            this.dangling = dangling;
+            return new Part(from, to);
+        }
+
+        void swap() {
+            double[] swap = scores;
+            scores = nextScores;
+            nextScores = swap;
+            swap = contributions;
+            contributions = nextContributions;
+            nextContributions = swap;
+        }
+
+        /**
+         * Computes the next scores of the nodes from until to.
+         *
+         * @return the sum of the changes of the scores, and the sum of the next scores of nodes without links
+         */
+        private class Part extends RecursiveTask<double[]> {
+            private static final long serialVersionUID = 8414918087433722220L;
+            private final int from;
+            private final int to;
+
+            Part(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected double[] compute() {
+                int work = offsets[to] - offsets[from] + (to - from);
+                if (work <= GRAIN || to - from < 2) {
+                    return computeDirectly();
+                }
+                int middle = split();
+                Part left = new Part(from, middle);
+                left.fork();
+                double[] right = new Part(middle, to).compute();
+                double[] result = left.join();
+                result[0] += right[0];
+                result[1] += right[1];
+                return result;
+            }
+
+            /**
+             * @return the node which halves the work, the number of links and nodes, of this part
+             */
+            private int split() {
+                long half = ((long) offsets[from] + from + offsets[to] + to) / 2;
+                int low = from + 1;
+                int high = to - 1;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if ((long) offsets[middle] + middle < half) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                return low;
+            }
+
+            private double[] computeDirectly() {
+                double uniform = 1.0 / scores.length;
+                double residual = 0;
+                double nextDangling = 0;
+                for (int node = from; node < to; node++) {
+                    double sum = 0;
+                    for (int link = offsets[node]; link < offsets[node + 1]; link++) {
+                        sum += contributions[sources[link]];
+                    }
+                    double restart = teleport == null ? uniform : teleport[node];
+                    double score = (1 - damping) * restart + damping * (sum + dangling * restart);
+                    nextScores[node] = score;
+                    residual += Math.abs(score - scores[node]);
+                    if (outDegrees[node] == 0) {
+                        nextDangling += score;
+                        nextContributions[node] = 0;
+                    } else {
+                        nextContributions[node] = score / outDegrees[node];
+                    }
+                }
+                return new double[]{residual, nextDangling};
+            }
+        }
+    }
+
+    /**
+     * The result of the power iteration.
+     */
+    public class Report {
+        private final double[] scores;
+        private final int iterations;
+        private final double residual;
+        private final boolean converged;
+        private final long milliseconds;
+
+        Report(double[] scores, int iterations, double residual, boolean converged, long milliseconds) {
+            this.scores = scores;
+            this.iterations = iterations;
+            this.residual = residual;
+            this.converged = converged;
+            this.milliseconds = milliseconds;
+        }
+
+        public double getScore(int node) {
+            return scores[node];
+        }
+
+        public double getScore(Node entity) {
+            int id = getId(entity);
+            return id < 0 ? 0 : scores[id];
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * @return the sum of the changes of the scores in the last iteration
+         */
+        public double getResidual() {
+            return residual;
+        }
+
+        public boolean isConverged() {
+            return converged;
+        }
+
+        public long getMilliseconds() {
+            return milliseconds;
+        }
+
+        /**
+         * @return the ids of the nodes with the highest scores, by descending score
+         */
+        public int[] top(int count) {
+            PriorityQueue<Integer> lowest = new PriorityQueue<>(Comparator.comparingDouble(node -> scores[node]));
+            for (int node = 0; node < scores.length; node++) {
+                if (lowest.size() < count) {
+                    lowest.add(node);
+                } else if (count > 0 && scores[node] > scores[lowest.peek()]) {
+                    lowest.poll();
+                    lowest.add(node);
+                }
+            }
+            int[] top = new int[lowest.size()];
+            for (int i = top.length - 1; i >= 0; i--) {
+                top[i] = lowest.poll();
+            }
+            return top;
+        }
+
+        @Override
+        public String toString() {
+            return (converged ? "Converged" : "Not converged") + " after " + iterations + " iterations in "
+                    + milliseconds + " ms, residual " + String.format(Locale.ROOT, "%.3g", residual) + ", "
+                    + nodes.size() + " entities, " + sources.length + " links.";
+        }
+    }
+
+    /**
+     * Collects the nodes and links of a {@link Centrality}.
+     */
+    public static class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+        private final Map<Node, Integer> ids = new HashMap<>();
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int linkCount = 0;
+
+        /**
+         * @return the id of the node, which is added if it is new
+         */
+        public int addNode(Node node) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                id = nodes.size();
+                ids.put(node, id);
+                nodes.add(node);
+            }
+            return id;
+        }
+
+        public void addLink(int source, int target) {
+            if (linkCount == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * linkCount);
+                targets = Arrays.copyOf(targets, 2 * linkCount);
+            }
+            sources[linkCount] = source;
+            targets[linkCount] = target;
+            linkCount++;
+        }
+
+        public Centrality build() {
+            return new Centrality(this);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package analysis;
+
+import LRMv2.LRM_static_schema;
+import models.AnalysisModel;
+import models.CoreModel;
+import models.InfrastructureModel;
+import org.apache.jena.datatypes.DatatypeFormatException;
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.listeners.StatementListener;
+import org.apache.jena.rdf.model.*;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Totals of the costs of the entities of a model, rolled up along the ownership and infrastructure edges: an entity
+ * which is owned by a community, runs on or is stored on a technical service, or is part of another entity, adds its
+ * costs to the total of that entity, and to the totals of its ancestors.
+ * <p>
+ * The own costs of an entity are the values of the {@link entities.Cost} entities which are linked to it by hasCost or
+ * costOf. Every cost is counted once per ancestor, also if the ancestor is reachable on several paths.
+ * <p>
+ * The totals are kept up to date by a listener of the model: the change of a cost value is added to the entity and
+ * its ancestors, the change of an edge recomputes the totals of the ancestors of the edge. Call {@link #close()} to
+ * stop the listening.
+ */
+public class CostRollup implements Closeable {
+    private final Model model;
+    private final Listener listener = new Listener();
+
+    private final Property hasValue = AnalysisModel.hasValue.property;
+    private final Property hasCost = AnalysisModel.hasCost.property;
+    private final Property costOf = AnalysisModel.costOf.property;
+    // The properties, which point from the child to the parent:
+    private final Set<Property> toParent = new HashSet<>(Arrays.asList(CoreModel.ownedByCommunity.property,
+            CoreModel.runsOn.property, InfrastructureModel.runsOn.property, CoreModel.storedOn.property,
+            LRM_static_schema.partOf));
+    // The properties, which point from the parent to the child:
+    private final Set<Property> toChild = new HashSet<>(Arrays.asList(CoreModel.communityOwns.property,
+            LRM_static_schema.hasPart));
+
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private double[] ownCosts = new double[16];
+    private double[] totals = new double[16];
+    private final List<List<Integer>> parents = new ArrayList<>();
+    private final List<List<Integer>> children = new ArrayList<>();
+    // How many statements assert an edge, by (child << 32 | parent):
+    private final Map<Long, Integer> edgeCounts = new HashMap<>();
+    // How many statements link a cost entity to an entity, by the cost entity and the entity:
+    private final Map<Integer, Map<Integer, Integer>> costLinks = new HashMap<>();
+    // The sum of the values of a cost entity, by its id:
+    private final Map<Integer, Double> costValues = new HashMap<>();
+    private boolean loading = true;
+
+    public CostRollup(Model model) {
+        this.model = model;
+        StmtIterator statements = model.listStatements();
+        try {
+            while (statements.hasNext()) {
+                added(statements.next());
+            }
+        } finally {
+            statements.close();
+        }
+        loading = false;
+        for (int node = 0; node < nodes.size(); node++) {
+            totals[node] = computeTotal(node);
+        }
+        model.register(listener);
+    }
+
+    /**
+     * @return the costs of the entity and of all entities below it, or 0 if the entity has no costs
+     */
+    public synchronized double getTotal(Resource entity) {
+        Integer id = ids.get(entity.asNode());
+        return id == null ? 0 : totals[id];
+    }
+
+    /**
+     * @return the costs of the entity itself
+     */
+    public synchronized double getOwnCost(Resource entity) {
+        Integer id = ids.get(entity.asNode());
+        return id == null ? 0 : ownCosts[id];
+    }
+
+    /**
+     * @return the entities which have costs, or are above an entity with costs, with their totals
+     */
+    public synchronized Map<Resource, Double> getTotals() {
+        Map<Resource, Double> result = new HashMap<>();
+        for (int node = 0; node < nodes.size(); node++) {
+            if (totals[node] != 0 && !costValues.containsKey(node)) {
+                result.put(model.wrapAsResource(nodes.get(node)), totals[node]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        model.unregister(listener);
+    }
+
+    private synchronized void added(Statement statement) {
+        changed(statement, 1);
+    }
+
+    private synchronized void removed(Statement statement) {
+        changed(statement, -1);
+    }
+
+    /**
+     * @param sign 1 if the statement was added, -1 if it was removed
+     */
+    private void changed(Statement statement, int sign) {
+        Property property = statement.getPredicate();
+        RDFNode object = statement.getObject();
+        if (property.equals(hasValue)) {
+            if (object.isLiteral()) {
+                changeCostValue(id(statement.getSubject()), sign * toNumber(statement));
+            }
+        } else if (object.isLiteral()) {
+            return;
+        } else if (property.equals(costOf)) {
+            changeCostLink(id(statement.getSubject()), id(object), sign);
+        } else if (property.equals(hasCost)) {
+            changeCostLink(id(object), id(statement.getSubject()), sign);
+        } else if (toParent.contains(property)) {
+            changeEdge(id(statement.getSubject()), id(object), sign);
+        } else if (toChild.contains(property)) {
+            changeEdge(id(object), id(statement.getSubject()), sign);
+        }
+    }
+
+    /**
+     * Reads the value once as number. Typed literals are used as they are, other literals are parsed.
+     */
+    private static double toNumber(Statement statement) {
+        Literal literal = statement.getLiteral();
+        try {
+            Object value = literal.getValue();
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return Double.parseDouble(literal.getLexicalForm().trim());
+        } catch (DatatypeFormatException | NumberFormatException e) {
+            System.err.println("Invalid cost value of " + statement.getSubject() + ": " + literal);
+            return 0;
+        }
+    }
+
+    private void changeCostValue(int cost, double delta) {
+        costValues.merge(cost, delta, Double::sum);
+        for (int entity : costLinks.getOrDefault(cost, Collections.emptyMap()).keySet()) {
+            changeOwnCost(entity, delta);
+        }
+    }
+
+    private void changeCostLink(int cost, int entity, int sign) {
+        Map<Integer, Integer> links = costLinks.computeIfAbsent(cost, key -> new HashMap<>());
+        int before = links.getOrDefault(entity, 0);
+        int after = before + sign;
+        if (after > 0) {
+            links.put(entity, after);
+        } else {
+            links.remove(entity);
+        }
+        if (before == 0 || after == 0) {
+            changeOwnCost(entity, sign * costValues.getOrDefault(cost, 0.0));
+        }
+    }
+
+    /**
+     * Adds the delta to the entity and to all of its ancestors.
+     */
+    private void changeOwnCost(int entity, double delta) {
+        ownCosts[entity] += delta;
+        if (!loading) {
+            for (int node : closure(entity, parents)) {
+                totals[node] += delta;
+            }
+        }
+    }
+
+    private void changeEdge(int child, int parent, int sign) {
+        long key = key(child, parent);
+        int before = edgeCounts.getOrDefault(key, 0);
+        int after = before + sign;
+        if (after > 0) {
+            edgeCounts.put(key, after);
+        } else {
+            edgeCounts.remove(key);
+        }
+        if (before > 0 && after > 0) {
+            return;
+        }
+        if (after > 0) {
+            parents.get(child).add(parent);
+            children.get(parent).add(child);
+        } else {
+            parents.get(child).remove((Integer) parent);
+            children.get(parent).remove((Integer) child);
+        }
+        if (!loading) {
+            for (int node : closure(parent, parents)) {
+                totals[node] = computeTotal(node);
+            }
+        }
+    }
+
+    /**
+     * @return the own costs of the node and of all nodes below it
+     */
+    private double computeTotal(int node) {
+        double total = 0;
+        for (int descendant : closure(node, children)) {
+            total += ownCosts[descendant];
+        }
+        return total;
+    }
+
+    /**
+     * @return the node and all nodes, which are reachable by the edges
+     */
+    private static Set<Integer> closure(int node, List<List<Integer>> edges) {
+        Set<Integer> visited = new HashSet<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(node);
+        visited.add(node);
+        while (!stack.isEmpty()) {
+            for (int next : edges.get(stack.pop())) {
+                if (visited.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        return visited;
+    }
+
+    private int id(RDFNode resource) {
+        Node node = resource.asNode();
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodes.size();
+            ids.put(node, id);
+            nodes.add(node);
+            parents.add(new ArrayList<>());
+            children.add(new ArrayList<>());
+            if (id == ownCosts.length) {
+                ownCosts = Arrays.copyOf(ownCosts, 2 * id);
+                totals = Arrays.copyOf(totals, 2 * id);
+            }
+        }
+        return id;
+    }
+
+    private static long key(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+
+    private class Listener extends StatementListener {
+        @Override
+        public void addedStatement(Statement statement) {
+            added(statement);
+        }
+
+        @Override
+        public void removedStatement(Statement statement) {
+            removed(statement);
+        }
+    }
+}
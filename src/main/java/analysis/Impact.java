@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package analysis;
+
+import org.apache.jena.graph.Node;
+
+/**
+ * An entity which is affected by a change, see {@link ImpactGraph#propagate(int[], float, int)}.
+ */
+public class Impact {
+    private final Node node;
+    private final float impact;
+    private final int depth;
+
+    public Impact(Node node, float impact, int depth) {
+        this.node = node;
+        this.impact = impact;
+        this.depth = depth;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    /**
+     * @return the strength of the impact, between 0 and 1
+     */
+    public float getImpact() {
+        return impact;
+    }
+
+    /**
+     * @return the number of dependencies between the changed and this entity, on the path of the strongest impact
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return node + " " + impact + " (" + depth + ")";
+    }
+}
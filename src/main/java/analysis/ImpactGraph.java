@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package analysis;
+
+import LRMv2.LRM_static_schema;
+import models.AnalysisModel;
+import models.CoreModel;
+import models.InfrastructureModel;
+import org.apache.jena.datatypes.DatatypeFormatException;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * The dependencies of a scenario as a weighted, directed graph, for the question "if this entity changes, which
+ * entities are affected, and how strongly?". An edge from A to B with the weight w means that a change of A affects B
+ * with the strength w, between 0 and 1.
+ * <p>
+ * The edges are stored in the compressed sparse row format: the outgoing edges of the node i are the targets and
+ * weights at the positions offsets[i] until offsets[i + 1].
+ */
+public class ImpactGraph {
+    /**
+     * Frontiers with fewer nodes are expanded on the calling thread.
+     */
+    private static final int PARALLEL_FRONTIER = 1024;
+
+    private final List<Node> nodes;
+    private final Map<Node, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final float[] weights;
+
+    private ImpactGraph(Builder builder) {
+        nodes = builder.nodes;
+        ids = builder.ids;
+        int nodeCount = nodes.size();
+        int edgeCount = builder.edgeCount;
+        offsets = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[builder.sources[i] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        targets = new int[edgeCount];
+        weights = new float[edgeCount];
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int position = next[builder.sources[i]]++;
+            targets[position] = builder.targets[i];
+            weights[position] = builder.weights[i];
+        }
+    }
+
+    /**
+     * Compiles the dependencies of the model into an impact graph:
+     * <ul>
+     * <li>Weighted relations, like Ecosystem Dependencies, Significances and Costs, are edges from their "from" to
+     * their "to" entities, weighted with their value. If the values of a kind of weighted relation exceed 1, they are
+     * divided by the largest value of that kind.</li>
+     * <li>A process which runs on a technical service, or has an input, and a digital object which is stored on a
+     * technical service, are affected by the change of the service or input, with the weight 1.</li>
+     * <li>A policy affects the entities it constrains with the weight 1.</li>
+     * </ul>
+     */
+    public static ImpactGraph fromModel(Model model) {
+        return fromGraph(model.getGraph());
+    }
+
+    public static ImpactGraph fromGraph(Graph graph) {
+        Builder builder = new Builder();
+        addStructuralEdges(graph, builder, CoreModel.runsOn.getURI(), true);
+        addStructuralEdges(graph, builder, InfrastructureModel.runsOn.getURI(), true);
+        addStructuralEdges(graph, builder, CoreModel.storedOn.getURI(), true);
+        addStructuralEdges(graph, builder, CoreModel.hasInput.getURI(), true);
+        addStructuralEdges(graph, builder, CoreModel.constrains.getURI(), false);
+        addWeightedRelations(graph, builder);
+        return builder.build();
+    }
+
+    /**
+     * @param reversed true, if the object affects the subject
+     */
+    private static void addStructuralEdges(Graph graph, Builder builder, String property, boolean reversed) {
+        ExtendedIterator<Triple> iterator = graph.find(Node.ANY, NodeFactory.createURI(property), Node.ANY);
+        try {
+            while (iterator.hasNext()) {
+                Triple triple = iterator.next();
+                if (!triple.getObject().isLiteral()) {
+                    int subject = builder.addNode(triple.getSubject());
+                    int object = builder.addNode(triple.getObject());
+                    if (reversed) {
+                        builder.addEdge(object, subject, 1f);
+                    } else {
+                        builder.addEdge(subject, object, 1f);
+                    }
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    private static void addWeightedRelations(Graph graph, Builder builder) {
+        Node from = LRM_static_schema.from_property.asNode();
+        Node to = LRM_static_schema.to_property.asNode();
+        Node hasValue = AnalysisModel.hasValue.asNode();
+        // The relations grouped by their kind, for the normalisation of their values:
+        Map<String, List<Node>> relationsByKind = new HashMap<>();
+        Map<Node, Float> values = new HashMap<>();
+        ExtendedIterator<Node> relations = graph.find(Node.ANY, from, Node.ANY).mapWith(Triple::getSubject);
+        try {
+            Set<Node> seen = new HashSet<>();
+            while (relations.hasNext()) {
+                Node relation = relations.next();
+                if (seen.add(relation)) {
+                    relationsByKind.computeIfAbsent(getKind(graph, relation), kind -> new ArrayList<>())
+                            .add(relation);
+                    values.put(relation, getValue(graph, relation, hasValue));
+                }
+            }
+        } finally {
+            relations.close();
+        }
+        for (List<Node> kind : relationsByKind.values()) {
+            float maximum = 1f;
+            for (Node relation : kind) {
+                maximum = Math.max(maximum, values.get(relation));
+            }
+            for (Node relation : kind) {
+                float weight = values.get(relation) / maximum;
+                if (weight <= 0) {
+                    continue;
+                }
+                for (Node source : objects(graph, relation, from)) {
+                    for (Node target : objects(graph, relation, to)) {
+                        if (!source.isLiteral() && !target.isLiteral()) {
+                            builder.addEdge(builder.addNode(source), builder.addNode(target), weight);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String getKind(Graph graph, Node relation) {
+        List<String> types = new ArrayList<>();
+        for (Node type : objects(graph, relation, RDF.type.asNode())) {
+            types.add(type.toString());
+        }
+        Collections.sort(types);
+        return String.join(" ", types);
+    }
+
+    /**
+     * @return the value of the weighted relation, or 1 if it has no valid value
+     */
+    private static float getValue(Graph graph, Node relation, Node hasValue) {
+        for (Node value : objects(graph, relation, hasValue)) {
+            if (value.isLiteral()) {
+                try {
+                    Object number = value.getLiteralValue();
+                    if (number instanceof Number) {
+                        return ((Number) number).floatValue();
+                    }
+                    return Float.parseFloat(value.getLiteralLexicalForm().trim());
+                } catch (DatatypeFormatException | NumberFormatException e) {
+                    System.err.println("Invalid value of the weighted relation " + relation + ": " + value);
+                }
+            }
+        }
+        return 1f;
+    }
+
+    private static List<Node> objects(Graph graph, Node subject, Node property) {
+        List<Node> objects = new ArrayList<>();
+        ExtendedIterator<Triple> iterator = graph.find(subject, property, Node.ANY);
+        try {
+            while (iterator.hasNext()) {
+                objects.add(iterator.next().getObject());
+            }
+        } finally {
+            iterator.close();
+        }
+        return objects;
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return the id of the node, or -1 if the node has no dependencies
+     */
+    public int getId(Node node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    public Node getNode(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * The entities which are affected by a change of the given entity, see {@link #propagate(int[], float, int)}.
+     */
+    public List<Impact> impactOf(Node changed, float threshold, int maxDepth) {
+        int id = getId(changed);
+        return id < 0 ? new ArrayList<>() : propagate(new int[]{id}, threshold, maxDepth);
+    }
+
+    /**
+     * Propagates a change of the source nodes along the edges. The impact on a node is the largest product of the
+     * edge weights of a path from a source to the node, the sources themselves have the impact 1.
+     * <p>
+     * The propagation runs in rounds: each round expands the nodes whose impact was raised by the previous round. Large
+     * rounds are expanded in parallel, the impacts are raised with compare and set.
+     *
+     * @param threshold smaller impacts aren't propagated and reported
+     * @param maxDepth  the maximal number of edges of a path
+     * @return the affected nodes, without the sources, by descending impact
+     */
+    public List<Impact> propagate(int[] sources, float threshold, int maxDepth) {
+        int nodeCount = nodes.size();
+        // The impacts as float bits. Non negative floats have the same order as their bits:
+        AtomicIntegerArray impacts = new AtomicIntegerArray(nodeCount);
+        // The round in which a node was last added to the frontier:
+        AtomicIntegerArray queued = new AtomicIntegerArray(nodeCount);
+        int[] depths = new int[nodeCount];
+        boolean[] isSource = new boolean[nodeCount];
+        for (int source : sources) {
+            impacts.set(source, Float.floatToIntBits(1f));
+            isSource[source] = true;
+        }
+        int[] frontier = IntStream.of(sources).distinct().toArray();
+        for (int round = 1; round <= maxDepth && frontier.length > 0; round++) {
+            final int depth = round;
+            IntStream stream = IntStream.of(frontier);
+            if (frontier.length >= PARALLEL_FRONTIER) {
+                stream = stream.parallel();
+            }
+            frontier = stream.flatMap(node -> relax(node, depth, threshold, impacts, queued, depths)).toArray();
+        }
+        List<Impact> affected = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            float impact = Float.intBitsToFloat(impacts.get(i));
+            if (impact > 0 && !isSource[i]) {
+                affected.add(new Impact(nodes.get(i), impact, depths[i]));
+            }
+        }
+        affected.sort(Comparator.comparing(Impact::getImpact).reversed());
+        return affected;
+    }
+
+    /**
+     * Raises the impacts of the targets of the node.
+     *
+     * @return the targets which weren't in the next frontier yet, and whose impact was raised
+     */
+    private IntStream relax(int node, int depth, float threshold, AtomicIntegerArray impacts,
+                            AtomicIntegerArray queued, int[] depths) {
+        float impact = Float.intBitsToFloat(impacts.get(node));
+        IntStream.Builder raised = null;
+        for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+            float candidate = impact * weights[edge];
+            if (candidate < threshold) {
+                continue;
+            }
+            int target = targets[edge];
+            int bits = Float.floatToIntBits(candidate);
+            int current;
+            do {
+                current = impacts.get(target);
+                if (bits <= current) {
+                    break;
+                }
+            } while (!impacts.compareAndSet(target, current, bits));
+            if (bits > current) {
+                depths[target] = depth;
+                if (queued.getAndSet(target, depth) != depth) {
+                    if (raised == null) {
+                        raised = IntStream.builder();
+                    }
+                    raised.add(target);
+                }
+            }
+        }
+        return raised == null ? IntStream.empty() : raised.build();
+    }
+
+    /**
+     * Collects the nodes and edges of an {@link ImpactGraph}.
+     */
+    public static class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+        private final Map<Node, Integer> ids = new HashMap<>();
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private float[] weights = new float[16];
+        private int edgeCount = 0;
+
+        /**
+         * @return the id of the node, which is added if it is new
+         */
+        public int addNode(Node node) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                id = nodes.size();
+                ids.put(node, id);
+                nodes.add(node);
+            }
+            return id;
+        }
+
+        /**
+         * @param weight is limited to 1
+         */
+        public void addEdge(int source, int target, float weight) {
+            if (edgeCount == sources.length) {
+                int capacity = edgeCount * 2;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            sources[edgeCount] = source;
+            targets[edgeCount] = target;
+            weights[edgeCount] = Math.min(1f, weight);
+            edgeCount++;
+        }
+
+        public ImpactGraph build() {
+            return new ImpactGraph(this);
+        }
+    }
+}
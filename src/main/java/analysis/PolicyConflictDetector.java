@@ -0,0 +1,378 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package analysis;
+
+import models.CoreModel;
+import models.PolicyModel;
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.listeners.StatementListener;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDFS;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Detects conflicting policies of a model, like a MUST and a MUST NOT policy which constrain the same digital object.
+ * <p>
+ * Two policies conflict if they
+ * <ul>
+ * <li>constrain a common entity, or both constrain no entity but have a conflict ID,</li>
+ * <li>have a common conflict ID attribute, or both have none,</li>
+ * <li>have target communities in common, or one of them has no target community, and</li>
+ * <li>have opposite requirement levels, see {@link Requirement}.</li>
+ * </ul>
+ * The policies are indexed by their scopes, the pairs of constrained entity and conflict ID, and by their requirement
+ * levels, so that a policy is only compared with the policies of the opposite levels in its scopes.
+ * <p>
+ * A listener of the model re-indexes a policy when its constrained entities, conflict IDs, target communities or
+ * requirement levels change. Call {@link #close()} to stop the listening.
+ */
+public class PolicyConflictDetector implements Closeable {
+    // The scope of the policies, which constrain no entity, but have a conflict ID:
+    private static final String ANY_ENTITY = "*";
+
+    private final Model model;
+    private final Listener listener = new Listener();
+    private final Property constrains = CoreModel.constrains.property;
+    private final Property conflictID = CoreModel.hasConflictIDAttribute.property;
+    private final Property targetCommunity = CoreModel.targetCommunity.property;
+    private final Property requirementLevel = PolicyModel.hasRequirementLevel.property;
+
+    private final Map<Node, PolicyState> policies = new HashMap<>();
+    // The policies by scope and requirement level:
+    private final Map<String, EnumMap<Requirement, Set<Node>>> index = new HashMap<>();
+    // The conflicts by both of their policies:
+    private final Map<Node, Map<Node, Conflict>> conflicts = new HashMap<>();
+
+    /**
+     * The requirement levels of RFC 2119, reduced to their meaning.
+     */
+    public enum Requirement {
+        MUST, MUST_NOT, SHOULD, SHOULD_NOT, MAY;
+
+        /**
+         * @return the requirement, or null if the level is unknown
+         */
+        public static Requirement parse(String level) {
+            switch (level.trim().toUpperCase(Locale.ROOT).replace('_', ' ').replace('-', ' ')) {
+                case "MUST":
+                case "REQUIRED":
+                case "SHALL":
+                    return MUST;
+                case "MUST NOT":
+                case "SHALL NOT":
+                    return MUST_NOT;
+                case "SHOULD":
+                case "RECOMMENDED":
+                    return SHOULD;
+                case "SHOULD NOT":
+                case "NOT RECOMMENDED":
+                    return SHOULD_NOT;
+                case "MAY":
+                case "OPTIONAL":
+                    return MAY;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * @return the severity of a conflict with the other requirement, or null if they don't conflict
+         */
+        public Severity conflictWith(Requirement other) {
+            if ((this == MUST && other == MUST_NOT) || (this == MUST_NOT && other == MUST)) {
+                return Severity.CONFLICT;
+            }
+            if (opposite().contains(other)) {
+                return Severity.WARNING;
+            }
+            return null;
+        }
+
+        private EnumSet<Requirement> opposite() {
+            switch (this) {
+                case MUST:
+                case SHOULD:
+                    return EnumSet.of(MUST_NOT, SHOULD_NOT);
+                case MUST_NOT:
+                case SHOULD_NOT:
+                    return EnumSet.of(MUST, SHOULD);
+                default:
+                    return EnumSet.noneOf(Requirement.class);
+            }
+        }
+    }
+
+    public enum Severity {
+        /**
+         * The policies can't be fulfilled both.
+         */
+        CONFLICT,
+        /**
+         * A recommendation contradicts another policy.
+         */
+        WARNING
+    }
+
+    /**
+     * Two conflicting policies.
+     */
+    public static class Conflict {
+        public final Resource first;
+        public final Resource second;
+        public final Severity severity;
+        /**
+         * The constrained entities or conflict IDs, for which the policies conflict.
+         */
+        public final Set<String> scopes;
+
+        Conflict(Resource first, Resource second, Severity severity, Set<String> scopes) {
+            this.first = first;
+            this.second = second;
+            this.severity = severity;
+            this.scopes = scopes;
+        }
+
+        @Override
+        public String toString() {
+            return severity + ": " + first + " and " + second + " on " + scopes;
+        }
+    }
+
+    /**
+     * The indexed properties of a policy.
+     */
+    private static class PolicyState {
+        final Set<String> scopes = new HashSet<>();
+        final Set<Node> communities = new HashSet<>();
+        final EnumSet<Requirement> requirements = EnumSet.noneOf(Requirement.class);
+    }
+
+    public PolicyConflictDetector(Model model) {
+        this.model = model;
+        ResIterator subjects = model.listSubjectsWithProperty(requirementLevel);
+        try {
+            while (subjects.hasNext()) {
+                update(subjects.next());
+            }
+        } finally {
+            subjects.close();
+        }
+        model.register(listener);
+    }
+
+    /**
+     * @return all conflicts, each once
+     */
+    public synchronized List<Conflict> getConflicts() {
+        List<Conflict> result = new ArrayList<>();
+        Set<Conflict> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map<Node, Conflict> partners : conflicts.values()) {
+            for (Conflict conflict : partners.values()) {
+                if (seen.add(conflict)) {
+                    result.add(conflict);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the conflicts of the policy
+     */
+    public synchronized List<Conflict> getConflicts(Resource policy) {
+        return new ArrayList<>(conflicts.getOrDefault(policy.asNode(), Collections.emptyMap()).values());
+    }
+
+    /**
+     * Writes the conflicts of the given severity back to the model, as it is done by
+     * {@link entities.Policy#conflictDetectedWith(entities.EcosystemEntity)}: both policies point to each other with
+     * the conflict ID attribute.
+     *
+     * @return the number of conflicts
+     */
+    public int writeConflicts(Severity severity) {
+        List<Conflict> detected = getConflicts();
+        int count = 0;
+        for (Conflict conflict : detected) {
+            if (conflict.severity == severity) {
+                model.add(conflict.first, conflictID, conflict.second);
+                model.add(conflict.second, conflictID, conflict.first);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        model.unregister(listener);
+    }
+
+    /**
+     * Reads the policy from the model, and replaces its entries of the index and its conflicts.
+     */
+    public synchronized void update(Resource policy) {
+        Node node = policy.asNode();
+        remove(node);
+        PolicyState state = read(policy);
+        if (state.requirements.isEmpty()) {
+            return;
+        }
+        policies.put(node, state);
+        for (String scope : state.scopes) {
+            EnumMap<Requirement, Set<Node>> levels = index.computeIfAbsent(scope,
+                    key -> new EnumMap<>(Requirement.class));
+            for (Requirement requirement : state.requirements) {
+                for (Requirement other : requirement.opposite()) {
+                    for (Node candidate : levels.getOrDefault(other, Collections.emptySet())) {
+                        addConflict(node, state, candidate, requirement.conflictWith(other), scope);
+                    }
+                }
+                levels.computeIfAbsent(requirement, key -> new HashSet<>()).add(node);
+            }
+        }
+    }
+
+    private void addConflict(Node policy, PolicyState state, Node candidate, Severity severity, String scope) {
+        PolicyState other = policies.get(candidate);
+        if (candidate.equals(policy) || (!state.communities.isEmpty() && !other.communities.isEmpty()
+                && Collections.disjoint(state.communities, other.communities))) {
+            return;
+        }
+        Conflict conflict = conflicts.getOrDefault(policy, Collections.emptyMap()).get(candidate);
+        if (conflict == null || (conflict.severity == Severity.WARNING && severity == Severity.CONFLICT)) {
+            Set<String> scopes = conflict == null ? new TreeSet<>() : conflict.scopes;
+            conflict = new Conflict(model.wrapAsResource(candidate), model.wrapAsResource(policy), severity, scopes);
+            conflicts.computeIfAbsent(policy, key -> new HashMap<>()).put(candidate, conflict);
+            conflicts.computeIfAbsent(candidate, key -> new HashMap<>()).put(policy, conflict);
+        }
+        conflict.scopes.add(scope);
+    }
+
+    private void remove(Node policy) {
+        PolicyState state = policies.remove(policy);
+        if (state == null) {
+            return;
+        }
+        for (String scope : state.scopes) {
+            EnumMap<Requirement, Set<Node>> levels = index.get(scope);
+            for (Requirement requirement : state.requirements) {
+                Set<Node> nodes = levels.get(requirement);
+                nodes.remove(policy);
+                if (nodes.isEmpty()) {
+                    levels.remove(requirement);
+                }
+            }
+            if (levels.isEmpty()) {
+                index.remove(scope);
+            }
+        }
+        Map<Node, Conflict> partners = conflicts.remove(policy);
+        if (partners != null) {
+            for (Node partner : partners.keySet()) {
+                Map<Node, Conflict> partnerConflicts = conflicts.get(partner);
+                partnerConflicts.remove(policy);
+                if (partnerConflicts.isEmpty()) {
+                    conflicts.remove(partner);
+                }
+            }
+        }
+    }
+
+    private PolicyState read(Resource policy) {
+        PolicyState state = new PolicyState();
+        List<String> entities = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        StmtIterator statements = model.listStatements(policy, null, (RDFNode) null);
+        try {
+            while (statements.hasNext()) {
+                Statement statement = statements.next();
+                Property property = statement.getPredicate();
+                RDFNode object = statement.getObject();
+                if (property.equals(constrains) && !object.isLiteral()) {
+                    entities.add(object.asNode().toString());
+                } else if (property.equals(conflictID) && object.isLiteral()) {
+                    ids.add(object.asLiteral().getLexicalForm());
+                } else if (property.equals(targetCommunity) && !object.isLiteral()) {
+                    state.communities.add(object.asNode());
+                } else if (property.equals(requirementLevel)) {
+                    Requirement requirement = getRequirement(object);
+                    if (requirement != null) {
+                        state.requirements.add(requirement);
+                    }
+                }
+            }
+        } finally {
+            statements.close();
+        }
+        if (entities.isEmpty() && !ids.isEmpty()) {
+            // A policy without constrained entity and conflict ID has nothing in common with other policies.
+            entities.add(ANY_ENTITY);
+        }
+        for (String entity : entities) {
+            if (ids.isEmpty()) {
+                state.scopes.add(entity);
+            }
+            for (String id : ids) {
+                state.scopes.add(entity + " #" + id);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * The requirement level is a literal, or a Requirement Level entity with the level as label or name.
+     */
+    private Requirement getRequirement(RDFNode level) {
+        if (level.isLiteral()) {
+            return Requirement.parse(level.asLiteral().getLexicalForm());
+        }
+        Resource resource = level.asResource();
+        Statement label = resource.getProperty(RDFS.label);
+        if (label != null && label.getObject().isLiteral()) {
+            Requirement requirement = Requirement.parse(label.getString());
+            if (requirement != null) {
+                return requirement;
+            }
+        }
+        return resource.isURIResource() ? Requirement.parse(resource.getLocalName()) : null;
+    }
+
+    private class Listener extends StatementListener {
+        @Override
+        public void addedStatement(Statement statement) {
+            changed(statement);
+        }
+
+        @Override
+        public void removedStatement(Statement statement) {
+            changed(statement);
+        }
+
+        private void changed(Statement statement) {
+            Property property = statement.getPredicate();
+            if (property.equals(constrains) || property.equals(targetCommunity)
+                    || property.equals(requirementLevel)
+                    || (property.equals(conflictID) && statement.getObject().isLiteral())) {
+                update(statement.getSubject());
+            }
+        }
+    }
+}
@@ -34,7 +34,7 @@ public class DigitalPreservationPolicy extends Policy {
     public DigitalPreservationPolicy(ScenarioModel scenario, String identifier, Template resource) {
         super(scenario, identifier, resource);
         // All entities from the preservation policy model extension require an import of the policy model:
-        scenario.importModel(DEM.POLICY_MODEL);
+        scenario.importModel(DEM.getPolicyModel());
     }
 
     public static class DigitalPreservationPolicyTemplate extends PolicyTemplate {
@@ -20,6 +20,7 @@ package entities;
 import LRMv2.LRM_semantic_versioning_schema;
 import LRMv2.LRM_static_schema;
 import models.CoreModel;
+import models.ResourceMinter;
 import models.ScenarioModel;
 import org.apache.jena.datatypes.RDFDatatype;
 import org.apache.jena.graph.Node;
@@ -55,7 +56,7 @@ public class EcosystemEntity implements Individual, Serializable {
         // This ensures that the sub-model of the template class will be imported by the scenario model:
         scenario.importModel(template.model);
         this.individual = scenario.model.createIndividual(
-                scenario.namespace + model.sanitizeName(name), template);
+                scenario.mintURI(name), template);
         addLabel(name);
     }
 
@@ -137,7 +138,7 @@ public class EcosystemEntity implements Individual, Serializable {
         if (label.equals("")) {
             return;
         }
-        addLabel(label, "en");
+        addProperty(RDFS.label, ResourceMinter.literal(label, "en"));
     }
 
     public void setLabel(String label) {
@@ -150,7 +151,7 @@ public class EcosystemEntity implements Individual, Serializable {
     // WRAPPPER:
 
     public void addComment(String comment) {
-        addProperty(RDFS.comment, model.model.createLiteral(comment, "en"));
+        addProperty(RDFS.comment, ResourceMinter.literal(comment, "en"));
     }
 
     public Node asNode() {
@@ -422,7 +423,7 @@ public class EcosystemEntity implements Individual, Serializable {
 
 
     public Resource addProperty(Property p, String o) {
-        return individual.addProperty(p, o);
+        return addProperty(p, ResourceMinter.literal(o));
     }
 
 
@@ -432,7 +433,14 @@ public class EcosystemEntity implements Individual, Serializable {
 
 
     public Resource addProperty(Property p, String o, String l) {
-        return individual.addProperty(p, o, l);
+        return addProperty(p, ResourceMinter.literal(o, l));
+    }
+
+    /**
+     * Adds a statement with a minted literal node, which may be shared with other statements and graphs.
+     */
+    private Resource addProperty(Property p, Node literal) {
+        return individual.addProperty(p, model.model.asRDFNode(literal));
     }
 
 
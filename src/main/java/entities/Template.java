@@ -21,6 +21,7 @@ import LRMv2.LRM_semantic_versioning_schema;
 import LRMv2.LRM_static_schema;
 import models.AbstractModel;
 import models.CoreModel;
+import models.ResourceMinter;
 import models.ScenarioModel;
 import org.apache.jena.datatypes.RDFDatatype;
 import org.apache.jena.graph.Node;
@@ -41,6 +42,8 @@ import java.util.Set;
  * concrete resource can be created from them in a defined way.
  */
 public class Template implements OntClass, Serializable {
+    private static final long serialVersionUID = 701269743253696795L;
+
     // The model to which this entity template belongs:
     public final AbstractModel model;
     // The Jena ontology class representing this entity template:
@@ -50,6 +53,8 @@ public class Template implements OntClass, Serializable {
     // List of all subclasses which inherit from this class:
     transient private List<Template> children = new ArrayList<Template>();
     transient public String description;
+    // True, if the ontology class was loaded from a DEMSnapshot and must not be written again:
+    transient private final boolean fromSnapshot;
 
     public final String name;
 
@@ -67,14 +72,22 @@ public class Template implements OntClass, Serializable {
 
     public Template(AbstractModel model, String name, Template parent) {
         this.model = model;
-        this.resource = model.model.createClass(model.namespace + CoreModel.sanitizeName(name));
-        this.resource.addSuperClass(LRM_static_schema.ExogenousResource);
-        this.resource.addSuperClass(LRM_semantic_versioning_schema.VersionedResource);
+        String uri = model.mintURI(name);
+        // Models loaded from a snapshot already contain the class with all its statements:
+        OntClass existing = model.isLoadedFromSnapshot() ? model.model.getOntClass(uri) : null;
+        this.fromSnapshot = existing != null;
+        if (fromSnapshot) {
+            this.resource = existing;
+        } else {
+            this.resource = model.model.createClass(uri);
+            this.resource.addSuperClass(LRM_static_schema.ExogenousResource);
+            this.resource.addSuperClass(LRM_semantic_versioning_schema.VersionedResource);
+        }
+        model.getHierarchy().register(this);
         model.templates.add(this);
         this.name = CoreModel.sanitizeName(name);
         if (parent != null) {
             addSuperClass(parent);
-            this.resource.addSuperClass(parent);
         }
     }
 
@@ -100,27 +113,55 @@ public class Template implements OntClass, Serializable {
      *
      * @param child
      */
-    public void addChild(Template child) {
+    public synchronized void addChild(Template child) {
         children.add(child);
     }
 
+    /**
+     * @param ancestor another template
+     * @return true, if this template is the given template or inherits from it
+     */
+    public boolean isSubTemplateOf(Template ancestor) {
+        return model.getHierarchy().isSubTemplateOf(this, ancestor);
+    }
+
+    /**
+     * The custom templates of a scenario are not descendants of the DEM templates, as the hierarchy is scoped to the
+     * model, see {@link TemplateHierarchy}.
+     *
+     * @return this template and all templates of its hierarchy which inherit from it
+     */
+    public Set<Template> getAllDescendants() {
+        TemplateHierarchy hierarchy = model.getHierarchy();
+        return hierarchy.getDescendants(hierarchy.getDescendantIds(this));
+    }
+
     @Override
     public String toString() {
         return resource.getLocalName();
     }
 
     public void addLabel(String label) {
-        addProperty(RDFS.label, model.model.createLiteral(label, "en"));
+        if (fromSnapshot) {
+            return;
+        }
+        addProperty(RDFS.label, model.model.asRDFNode(ResourceMinter.literal(label, "en")));
     }
 
     public void addDescription(String description) {
         this.description = description;
+        if (fromSnapshot) {
+            return;
+        }
         addProperty(LRM_static_schema.specification, model.model.createIndividual(LRM_static_schema.Description)
                 .addProperty(LRM_static_schema.definition, description));
     }
 
     public void addComment(String comment) {
-        addProperty(RDFS.comment, model.model.createLiteral(comment, "en"));
+        if (fromSnapshot) {
+            return;
+        }
+        addProperty(RDFS.comment, model.model.asRDFNode(ResourceMinter.literal(comment, "en")));
     }
 
     // Resource wrapper:
@@ -657,13 +698,21 @@ public class Template implements OntClass, Serializable {
     }
 
     public void addSuperClass(Template parent) {
-        parent.addChild(this);
+        // The DEM templates don't keep the custom templates of the scenarios as children:
+        if (parent.model.getHierarchy() == model.getHierarchy()) {
+            parent.addChild(this);
+        }
         this.parents.add(parent);
-        resource.addSuperClass(parent);
+        model.getHierarchy().addParent(this, parent);
+        if (!fromSnapshot) {
+            resource.addSuperClass(parent);
+        }
     }
 
     public void addSuperClass(Resource superClass) {
-        resource.addSuperClass(superClass);
+        if (!fromSnapshot) {
+            resource.addSuperClass(superClass);
+        }
     }
 
     public OntClass getSuperClass() {
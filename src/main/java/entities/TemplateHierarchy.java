@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package entities;
+
+import java.util.*;
+
+/**
+ * The inheritance hierarchy of the {@link Template}s of a model.
+ * <p>
+ * Each template gets a dense integer id in the hierarchy. For each id the hierarchy keeps the transitive closure of the
+ * ancestors and of the descendants as {@link BitSet}s, both including the template itself. Subclass tests and the
+ * membership in the domain or range of a relation are therewith single bit lookups or word-parallel intersections,
+ * instead of recursive walks over the children.
+ * <p>
+ * The templates of the DEM models, which exist only once, share the {@link #DEM} hierarchy. Each scenario model has its
+ * own hierarchy, so that its custom templates are released together with the scenario model. The DEM templates from
+ * which the custom templates inherit are included into the hierarchy of the scenario, with their ancestors.
+ * <p>
+ * The closures are updated incrementally if a parent is added to a template, e.g. when a custom template is created
+ * for a scenario.
+ */
+public class TemplateHierarchy {
+    /**
+     * The hierarchy of the templates of the DEM models, see {@link models.DEM}.
+     */
+    public static final TemplateHierarchy DEM = new TemplateHierarchy();
+
+    private final List<Template> templates = new ArrayList<>();
+    private final Map<Template, Integer> ids = new IdentityHashMap<>();
+    private final List<BitSet> ancestors = new ArrayList<>();
+    private final List<BitSet> descendants = new ArrayList<>();
+
+    /**
+     * Creates the empty hierarchy of a scenario model.
+     */
+    public TemplateHierarchy() {
+    }
+
+    /**
+     * Registers a new template of a model of this hierarchy, without parents.
+     *
+     * @param template the new template
+     */
+    synchronized void register(Template template) {
+        add(template);
+    }
+
+    private int add(Template template) {
+        int id = templates.size();
+        templates.add(template);
+        ids.put(template, id);
+        BitSet self = new BitSet();
+        self.set(id);
+        ancestors.add(self);
+        descendants.add((BitSet) self.clone());
+        return id;
+    }
+
+    /**
+     * Adds an inheritance relation and updates the closures. The parent can be a template of the DEM, it is then
+     * included into this hierarchy.
+     */
+    synchronized void addParent(Template child, Template parent) {
+        Integer childId = ids.get(child);
+        int parentId = include(parent);
+        if (childId != null && parentId >= 0) {
+            link(childId, parentId);
+        }
+    }
+
+    /**
+     * The child and all its descendants inherit from the parent and all its ancestors.
+     */
+    private void link(int childId, int parentId) {
+        if (ancestors.get(childId).get(parentId)) {
+            return;
+        }
+        BitSet newAncestors = ancestors.get(parentId);
+        BitSet newDescendants = descendants.get(childId);
+        for (int i = newDescendants.nextSetBit(0); i >= 0; i = newDescendants.nextSetBit(i + 1)) {
+            ancestors.get(i).or(newAncestors);
+        }
+        for (int i = newAncestors.nextSetBit(0); i >= 0; i = newAncestors.nextSetBit(i + 1)) {
+            descendants.get(i).or(newDescendants);
+        }
+    }
+
+    /**
+     * Includes a template of the DEM together with its ancestors. Templates of other scenarios are not included, and
+     * the DEM hierarchy never includes templates of a scenario. Deserialized templates, which have no parents, are not
+     * part of any hierarchy.
+     *
+     * @return the id of the template in this hierarchy, or -1 if it can't be included
+     */
+    public synchronized int include(Template template) {
+        Integer id = ids.get(template);
+        if (id != null) {
+            return id;
+        }
+        if (this == DEM || template.model.getHierarchy() != DEM || template.parents == null) {
+            return -1;
+        }
+        int newId = add(template);
+        for (Template parent : template.parents) {
+            int parentId = include(parent);
+            if (parentId >= 0) {
+                link(newId, parentId);
+            }
+        }
+        return newId;
+    }
+
+    /**
+     * @return the ids of the given templates, which are part of this hierarchy
+     */
+    public synchronized BitSet getIds(Collection<Template> templates) {
+        BitSet result = new BitSet();
+        for (Template template : templates) {
+            Integer id = ids.get(template);
+            if (id != null) {
+                result.set(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true, if the template is the ancestor or inherits from it
+     */
+    public synchronized boolean isSubTemplateOf(Template template, Template ancestor) {
+        Integer id = ids.get(template);
+        Integer ancestorId = ids.get(ancestor);
+        return id != null && ancestorId != null && ancestors.get(id).get(ancestorId);
+    }
+
+    /**
+     * @param template    a template
+     * @param ancestorIds ids of templates, e.g. the domains of a relation
+     * @return true, if the template is one of the given templates or inherits from one of them
+     */
+    public synchronized boolean isSubTemplateOfAny(Template template, BitSet ancestorIds) {
+        Integer id = ids.get(template);
+        return id != null && ancestors.get(id).intersects(ancestorIds);
+    }
+
+    /**
+     * @return copy of the ids of the template and all templates from which it inherits
+     */
+    public synchronized BitSet getAncestorIds(Template template) {
+        Integer id = ids.get(template);
+        return id != null ? (BitSet) ancestors.get(id).clone() : new BitSet();
+    }
+
+    /**
+     * @return copy of the ids of the template and all templates which inherit from it
+     */
+    public synchronized BitSet getDescendantIds(Template template) {
+        Integer id = ids.get(template);
+        return id != null ? (BitSet) descendants.get(id).clone() : new BitSet();
+    }
+
+    /**
+     * @param roots ids of templates
+     * @return the given templates and all templates which inherit from them
+     */
+    public synchronized Set<Template> getDescendants(BitSet roots) {
+        BitSet all = new BitSet();
+        for (int i = roots.nextSetBit(0); i >= 0; i = roots.nextSetBit(i + 1)) {
+            all.or(descendants.get(i));
+        }
+        Set<Template> result = new HashSet<>();
+        for (int i = all.nextSetBit(0); i >= 0; i = all.nextSetBit(i + 1)) {
+            result.add(templates.get(i));
+        }
+        return result;
+    }
+
+    public synchronized Template getTemplate(int id) {
+        return templates.get(id);
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+}
@@ -31,8 +31,17 @@ package experiments;
 import entities.*;
 import entities.Process;
 import models.CoreModel;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import relations.DEMRelation;
 import relations.RelationBuilder;
+import rules.Rule;
+import rules.RuleEngine;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is an example form the space science EUMETSAT domain.
@@ -41,8 +50,39 @@ import relations.RelationBuilder;
  * from the EUMETSAT Data Archive in digital and graphical form via the associated operational service
  * in formats which represent both full and partial spatial coverage as well as both full and partial
  * spatial resolution.
+ * <p>
+ * The change rules of the policy and of its "policy applies to" dependency are also added as formal statements of the
+ * policy, in the syntax of {@link Rule#parse}, and can be attached to the scenario model by
+ * {@link #startChangeManagement()}. The rule syntax has no arithmetic, therefore the age of the data is checked by the
+ * time trigger, which reports the data whose release time has come.
  */
 public class ChangeManagementExample extends Experiment {
+    /**
+     * Change 0: new Meteosat data in the private repository gets the dependency to the policy, and a time trigger for
+     * the hours of the policy.
+     */
+    public static final String CHANGE_0 = "Precondition: ?data a DEM-Core:DigitalObject .\n" +
+            "?data DEM-Scenario:type \"Meteosat data\" . ?data DEM-Scenario:location ?url .\n" +
+            "DEM-Scenario:Privatedatarepository DEM-Scenario:URL ?url .\n" +
+            "DEM-Scenario:DataReleasePolicyPG14 DEM-Scenario:timebeforerelease ?hours\n" +
+            "Impact: dependency DEM-Scenario:DataReleasePolicyPG14 ?data \"policy applies to\" ;\n" +
+            "run DEM-Scenario:CreateTimeTrigger ?data ?hours";
+    /**
+     * Change 1: the time trigger reported the data of the policy, which is still in the private repository. It is
+     * moved to the public repository, and a partial resolution version is created.
+     */
+    public static final String CHANGE_1 = "Precondition: ?dependency LRM:from DEM-Scenario:DataReleasePolicyPG14 .\n" +
+            "?dependency LRM:to ?data . ?data DEM-Scenario:timeTrigger \"reported\" .\n" +
+            "?data DEM-Scenario:location ?url . DEM-Scenario:Privatedatarepository DEM-Scenario:URL ?url\n" +
+            "Impact: run DEM-Scenario:Move ?data DEM-Scenario:Privatedatarepository\n" +
+            "DEM-Scenario:Publicdatarepository ; run DEM-Scenario:PartialRes ?data";
+    /**
+     * Change 2: the URL of a repository changed, the location of its data is updated.
+     */
+    public static final String CHANGE_2 = "Precondition: ?repository DEM-Scenario:URL ?url .\n" +
+            "?repository DEM-Scenario:previousURL ?old . ?data DEM-Scenario:location ?old\n" +
+            "Impact: set ?data DEM-Scenario:location ?url";
+
     /* Ecosystem Communities */
     private Community authorisedOrganisations;
     private Community websiteVisitors;
@@ -113,6 +153,9 @@ public class ChangeManagementExample extends Experiment {
                 "Create dependency “appliesTo” between this policy  and\n" +
                 "New DOdata;\n" +
                 "Create time trigger for X hours.\n", "non-formal", "en");
+        METSATPolicy14.addStatement(CHANGE_0, "formal", "EcoBuilder rule");
+        METSATPolicy14.addStatement(CHANGE_1, "formal", "EcoBuilder rule");
+        METSATPolicy14.addStatement(CHANGE_2, "formal", "EcoBuilder rule");
 
         METSATPolicy14.responsiblePerson(policyManager);
         METSATPolicy14.version("1.0");
@@ -168,4 +211,45 @@ public class ChangeManagementExample extends Experiment {
         uses2.to(partialRes);
         uses2.describedBy("This dependency indicates that a the dependency uses the specific process in its rule for change management");
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the change rules of the example, with the prefixes of the scenario model
+     */
+    public List<Rule> getChangeRules() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(Rule.parse("Change 0", CHANGE_0, scenario.model));
+        rules.add(Rule.parse("Change 1", CHANGE_1, scenario.model));
+        rules.add(Rule.parse("Change 2", CHANGE_2, scenario.model));
+        return rules;
+    }
+
+    /**
+     * Attaches the change rules to the scenario model, so that they fire at the following edits of the model. The
+     * processes of the rules are simulated: the time trigger only prints the hours, Move changes the location of the
+     * data to the URL of the target repository, and PartialRes only prints the data.
+     *
+     * @return the engine, which has to be closed to detach the rules
+     */
+    public RuleEngine startChangeManagement() {
+        RuleEngine engine = new RuleEngine(scenario);
+        getChangeRules().forEach(engine::addRule);
+        Graph graph = scenario.model.getGraph();
+        Node locationProperty = NodeFactory.createURI(scenario.namespace + "location");
+        Node urlProperty = URL.property.asNode();
+        engine.registerProcess(NodeFactory.createURI(scenario.namespace + "CreateTimeTrigger"),
+                (process, arguments) -> System.out.println("Time trigger for " + arguments.get(0).getLocalName()
+                        + " in " + arguments.get(1).getLiteralLexicalForm() + " hours"));
+        engine.registerProcess(move.asNode(), (process, arguments) -> {
+            Node data = arguments.get(0);
+            for (Triple url : graph.find(arguments.get(2), urlProperty, Node.ANY).toList()) {
+                for (Triple old : graph.find(data, locationProperty, Node.ANY).toList()) {
+                    graph.delete(old);
+                }
+                graph.add(Triple.create(data, locationProperty, url.getObject()));
+            }
+        });
+        engine.registerProcess(partialRes.asNode(), (process, arguments) ->
+                System.out.println("Partial resolution version of " + arguments.get(0).getLocalName()));
+        return engine;
+    }
+}
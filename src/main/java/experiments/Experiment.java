@@ -26,10 +26,12 @@ import java.util.HashSet;
  * create a CORE_MODEL instance, then create a class which inherits from this
  * class.
  * <p>
- * If an experiment should be created using the EcoBuilder GUI, then add it to the {@link saver.ExperimentsSaver}.
+ * If an experiment should be saved by the EcoBuilder GUI and the {@link ExperimentRunner}, then add it to the
+ * {@link ExperimentRunner#EXPERIMENTS}.
  */
 public abstract class Experiment {
-    public static ScenarioModel scenario;
+    // Each experiment builds its own scenario model:
+    public final ScenarioModel scenario;
     public final String name;
 
     public Experiment(String name) {
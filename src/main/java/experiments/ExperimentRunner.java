@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package experiments;
+
+import saver.ModelWriter;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Command line runner, which builds the example experiments and saves their scenario models into a directory, without
+ * the graphical interface. Each experiment builds its own {@link models.ScenarioModel}, so that the experiments run in
+ * parallel on a fork join pool.
+ * <p>
+ * Usage: ExperimentRunner [--threads n] [--formats TURTLE,RDF_XML_ABBREV,...] output-directory [experiment ...]
+ * <p>
+ * Without experiment names all experiments are run. The formats are the names of {@link ModelWriter.Format}, by
+ * default turtle and owl like the {@link saver.ExperimentsSaver}.
+ */
+public class ExperimentRunner {
+    /**
+     * All example experiments, by their class name.
+     */
+    public static final Map<String, Supplier<Experiment>> EXPERIMENTS;
+
+    static {
+        Map<String, Supplier<Experiment>> experiments = new LinkedHashMap<>();
+        experiments.put("SimplePolicyExample", SimplePolicyExample::new);
+        experiments.put("VideoStreaming", VideoStreaming::new);
+        experiments.put("TransferScenario", TransferScenario::new);
+        experiments.put("PolicyChangeExample", PolicyChangeExample::new);
+        experiments.put("PolicyWithDependenciesExample", PolicyWithDependenciesExample::new);
+        experiments.put("QuickStartExample", QuickStartExample::new);
+        experiments.put("DemoExample", DemoExample::new);
+        experiments.put("ScientificDataPolicyExperiment", ScientificDataPolicyExperiment::new);
+        experiments.put("CERNExample", CERNExample::new);
+        experiments.put("DigitalVideoArtworkExample", DigitalVideoArtworkExample::new);
+        experiments.put("MediatorScript", MediatorScript::new);
+        experiments.put("ChangeManagementExample", ChangeManagementExample::new);
+        experiments.put("SpacePolicyChangeExample", SpacePolicyChangeExample::new);
+        EXPERIMENTS = Collections.unmodifiableMap(experiments);
+    }
+
+    private final File outputDirectory;
+    private final Set<ModelWriter.Format> formats;
+
+    public ExperimentRunner(File outputDirectory, Set<ModelWriter.Format> formats) {
+        this.outputDirectory = outputDirectory;
+        this.formats = formats;
+    }
+
+    /**
+     * Runs the experiments on a pool with the given parallelism, and prints the time of each experiment.
+     *
+     * @return the names of the failed experiments
+     */
+    public List<String> run(List<String> experimentNames, int threads) {
+        outputDirectory.mkdirs();
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (String name : experimentNames) {
+                tasks.add(pool.submit(() -> {
+                    if (!run(name)) {
+                        failed.add(name);
+                    }
+                }));
+            }
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+        System.out.println("Ran " + experimentNames.size() + " experiments on " + threads + " threads in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+        return failed;
+    }
+
+    /**
+     * Builds one experiment and saves its scenario model.
+     *
+     * @return true, if the experiment was built and all formats were saved
+     */
+    public boolean run(String name) {
+        try {
+            long start = System.nanoTime();
+            Experiment experiment = EXPERIMENTS.get(name).get();
+            long built = System.nanoTime();
+            Map<ModelWriter.Format, File> targets = new EnumMap<>(ModelWriter.Format.class);
+            for (ModelWriter.Format format : formats) {
+                targets.put(format, new File(outputDirectory, "Scenario-" + experiment.name + format.extension));
+            }
+            boolean success = true;
+            for (ModelWriter.Result result : ModelWriter.write(experiment.scenario.model, targets)) {
+                if (!result.isSuccess()) {
+                    System.err.println(name + ": " + result);
+                    success = false;
+                }
+            }
+            long saved = System.nanoTime();
+            System.out.println(name + ": " + experiment.scenario.model.getBaseModel().size() + " statements, built in "
+                    + (built - start) / 1000000 + " ms, saved in " + (saved - built) / 1000000 + " ms");
+            return success;
+        } catch (RuntimeException e) {
+            System.err.println(name + ": failed");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Set<ModelWriter.Format> formats = EnumSet.of(ModelWriter.Format.TURTLE, ModelWriter.Format.RDF_XML_ABBREV);
+        File outputDirectory = null;
+        List<String> experimentNames = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--formats") && i + 1 < args.length) {
+                formats = EnumSet.noneOf(ModelWriter.Format.class);
+                for (String format : args[++i].split(",")) {
+                    formats.add(ModelWriter.Format.valueOf(format.trim()));
+                }
+            } else if (outputDirectory == null) {
+                outputDirectory = new File(args[i]);
+            } else if (EXPERIMENTS.containsKey(args[i])) {
+                experimentNames.add(args[i]);
+            } else {
+                System.err.println("Unknown experiment " + args[i] + ", known are: " + EXPERIMENTS.keySet());
+                System.exit(2);
+            }
+        }
+        if (outputDirectory == null) {
+            System.err.println("Usage: ExperimentRunner [--threads n] [--formats TURTLE,RDF_XML_ABBREV,...] "
+                    + "output-directory [experiment ...]");
+            System.exit(2);
+        }
+        if (experimentNames.isEmpty()) {
+            experimentNames.addAll(EXPERIMENTS.keySet());
+        }
+        List<String> failed = new ExperimentRunner(outputDirectory, formats).run(experimentNames, threads);
+        if (!failed.isEmpty()) {
+            System.err.println("Failed experiments: " + failed);
+            System.exit(1);
+        }
+    }
+}
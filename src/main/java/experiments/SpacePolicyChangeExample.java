@@ -5,13 +5,22 @@ import LRMv2.LRM_static_schema;
 import entities.*;
 import models.AbstractModel;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.ontology.OntProperty;
 import org.apache.jena.rdf.model.*;
+import rules.Rule;
+import rules.RuleEngine;
 
+import java.time.Duration;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static java.time.format.DateTimeFormatter.*;
 
@@ -23,8 +32,26 @@ import static java.time.format.DateTimeFormatter.*;
  *          saveExperiment(new SpacePolicyChangeExample());
  * Then start the GUI and go to File - Generate Examples. In the selected folder you will find a ScenarioSpacepolicychangeexampleXXX.ttl
  *
+ * The SPIN rule of the release date policy is also written in the syntax of {@link Rule#parse}, and can be attached to
+ * the scenario model by {@link #startChangeManagement()}. The rule syntax has no arithmetic, therefore the age of the
+ * images is checked by the release timer, which reports the images whose release time has come.
  */
 public class SpacePolicyChangeExample extends Experiment {
+    /**
+     * A private image with a creation date starts the release timer for the hours of the release date policy.
+     */
+    public static final String RELEASE_TIMER = "Precondition: ?image a DEM-Core:DigitalObject .\n" +
+            "?image DEM-Scenario:releaseState \"private\" . ?image DEM-Scenario:dateCreated ?created .\n" +
+            "DEM-Scenario:Releasedatepolicy DEM-Scenario:Releasedatepolicytimebeforerelease ?hours\n" +
+            "Impact: run DEM-Scenario:ReleaseTimer ?image ?created ?hours";
+    /**
+     * A private image, whose release time has come, is made public.
+     */
+    public static final String RELEASE = "Precondition: ?image DEM-Scenario:releaseState \"private\" .\n" +
+            "?image DEM-Scenario:releaseDue DEM-Scenario:Releasedatepolicy\n" +
+            "Impact: set ?image DEM-Scenario:releaseState \"public\" ;\n" +
+            "remove ?image DEM-Scenario:releaseDue DEM-Scenario:Releasedatepolicy";
+
     private static String SPINTEXT = "# baseURI: http://www.pericles-project.eu/ns/spinrules\n" +
             "# imports: http://www.pericles-project.eu/ns/DEM-Scenario#\n" +
             "# imports: http://spinrdf.org/spl\n" +
@@ -337,6 +364,17 @@ public class SpacePolicyChangeExample extends Experiment {
         dataReleaseSPIN.addProperty(LRM_static_schema.definition, SPINTEXT);
         dataReleaseSPIN.isStatementOf(dataReleasePolicy);
 
+        PolicyStatement releaseTimerRule = new PolicyStatement(scenario, "RELEASE_TIMER_RULE");
+        releaseTimerRule.language("EcoBuilder rule");
+        releaseTimerRule.format("formal");
+        releaseTimerRule.addProperty(LRM_static_schema.definition, RELEASE_TIMER);
+        releaseTimerRule.isStatementOf(dataReleasePolicy);
+        PolicyStatement releaseRule = new PolicyStatement(scenario, "RELEASE_RULE");
+        releaseRule.language("EcoBuilder rule");
+        releaseRule.format("formal");
+        releaseRule.addProperty(LRM_static_schema.definition, RELEASE);
+        releaseRule.isStatementOf(dataReleasePolicy);
+
         dataReleasePolicy.hasRequirementsLevel(RequirementLevel.ReqLevel.MUST);
         dataReleasePolicy.hasType(Policy.TypeOfPolicy.MANDATORY);
         dataReleasePolicy.addProperty(dataReleasePolicy.getOntModel().createOntProperty(dataReleasePolicy.getURI()+ AbstractModel.sanitizeName("time_before_release")),"24");
@@ -404,4 +442,40 @@ public class SpacePolicyChangeExample extends Experiment {
         dummy4.addProperty(dateCreated, ResourceFactory.createTypedLiteral(creationDate.format(DATEFORMAT), XSDDatatype.XSDdateTime));
 
     }
+
+    /**
+     * @return the change rules of the release date policy, with the prefixes of the scenario model
+     */
+    public List<Rule> getChangeRules() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(Rule.parse("Release timer", RELEASE_TIMER, scenario.model));
+        rules.add(Rule.parse("Release", RELEASE, scenario.model));
+        return rules;
+    }
+
+    /**
+     * Attaches the change rules to the scenario model, so that they fire at the following edits of the model. The
+     * release timer is simulated: an image which is old enough is reported at once, the other images are only
+     * printed.
+     *
+     * @return the engine, which has to be closed to detach the rules
+     */
+    public RuleEngine startChangeManagement() {
+        RuleEngine engine = new RuleEngine(scenario);
+        getChangeRules().forEach(engine::addRule);
+        Graph graph = scenario.model.getGraph();
+        Node releaseDue = NodeFactory.createURI(scenario.namespace + "releaseDue");
+        engine.registerProcess(NodeFactory.createURI(scenario.namespace + "ReleaseTimer"), (process, arguments) -> {
+            Node image = arguments.get(0);
+            ZonedDateTime created = ZonedDateTime.parse(arguments.get(1).getLiteralLexicalForm());
+            long hours = Long.parseLong(arguments.get(2).getLiteralLexicalForm());
+            long age = Duration.between(created, ZonedDateTime.now(ZoneId.of("UTC"))).toHours();
+            if (age >= hours) {
+                graph.add(Triple.create(image, releaseDue, dataReleasePolicy.asNode()));
+            } else {
+                System.out.println("Release of " + image.getLocalName() + " in " + (hours - age) + " hours");
+            }
+        });
+        return engine;
+    }
 }
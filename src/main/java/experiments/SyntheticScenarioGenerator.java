@@ -0,0 +1,358 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package experiments;
+
+import LRMv2.LRM_static_schema;
+import entities.EcosystemEntity;
+import entities.Template;
+import models.AbstractModel;
+import models.DEM;
+import models.ScenarioModel;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDF;
+import relations.DEMRelation;
+import relations.Relation;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Generates synthetic scenario models of arbitrary size for scale testing. The generator is seeded, so that the same
+ * parameters always create the same scenario.
+ * <p>
+ * The entities are spread over all templates of the DEM sub models including the Digital Video Artwork ontology. The
+ * fan-out of the entities and the frequency of the relations follow the distributions measured on the example
+ * experiments of this package.
+ * <p>
+ * Usage from the command line:
+ * <pre>
+ * java -cp EcoBuilder.jar experiments.SyntheticScenarioGenerator entities [relations] [seed] [output file]
+ * </pre>
+ * The output format is chosen by the file extension (.nt, .ttl or .owl). Without output file only statistics are
+ * printed.
+ */
+public class SyntheticScenarioGenerator {
+    public static final long DEFAULT_SEED = 42;
+    /**
+     * The examples used to measure the distributions. The MediatorScript is excluded, as it depends on the file system.
+     */
+    private static final List<Supplier<Experiment>> EXAMPLES = Arrays.asList(
+            SimplePolicyExample::new, VideoStreaming::new, TransferScenario::new, PolicyChangeExample::new,
+            PolicyWithDependenciesExample::new, QuickStartExample::new, DemoExample::new,
+            ScientificDataPolicyExperiment::new, CERNExample::new, DigitalVideoArtworkExample::new,
+            ChangeManagementExample::new, SpacePolicyChangeExample::new);
+    private static ExampleStatistics statistics;
+
+    private final Random random;
+    private final List<Template> templates = new ArrayList<>();
+    private final List<DEMRelation> relations = new ArrayList<>();
+    private final Map<Template, List<DEMRelation>> applicableRelations = new HashMap<>();
+    private final Map<DEMRelation, List<Template>> rangeTemplates = new HashMap<>();
+
+    public SyntheticScenarioGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public SyntheticScenarioGenerator(long seed) {
+        this.random = new Random(seed);
+        for (AbstractModel model : getDEMModels()) {
+            templates.addAll(model.templates);
+            for (Relation relation : model.relations) {
+                relations.add((DEMRelation) relation);
+            }
+        }
+        for (Template template : templates) {
+            applicableRelations.put(template, new ArrayList<>());
+        }
+        for (DEMRelation relation : relations) {
+            for (Template domain : relation.getAllTemplateDomains()) {
+                if (applicableRelations.containsKey(domain)) {
+                    applicableRelations.get(domain).add(relation);
+                }
+            }
+            List<Template> ranges = new ArrayList<>();
+            for (Template range : relation.getAllTemplateRanges()) {
+                if (applicableRelations.containsKey(range)) {
+                    ranges.add(range);
+                }
+            }
+            // Keep the order independent of the hash codes, so that the seed alone defines the scenario:
+            ranges.sort(Comparator.comparingInt(templates::indexOf));
+            rangeTemplates.put(relation, ranges);
+        }
+    }
+
+    /**
+     * Convenience method for fixtures: a scenario with the given number of entities, and as many relations as the
+     * examples have on average per entity.
+     *
+     * @param entityCount number of entities
+     * @return the generated scenario
+     */
+    public static ScenarioModel scenario(int entityCount) {
+        long relationCount = Math.round(entityCount * getStatistics().meanFanOut());
+        return new SyntheticScenarioGenerator().generate(entityCount, (int) Math.min(Integer.MAX_VALUE, relationCount));
+    }
+
+    /**
+     * Generates a scenario model.
+     *
+     * @param entityCount   number of entities to be created
+     * @param relationCount number of relation statements between the entities (or from an entity to a value)
+     * @return the generated scenario model
+     */
+    public ScenarioModel generate(int entityCount, int relationCount) {
+        ExampleStatistics examples = getStatistics();
+        ScenarioModel scenario = new ScenarioModel(new HashSet<>(getDEMModels()));
+        List<EcosystemEntity> entities = new ArrayList<>(entityCount);
+        Map<Template, List<EcosystemEntity>> entitiesByTemplate = new HashMap<>();
+        for (int i = 0; i < entityCount; i++) {
+            Template template = templates.get(i % templates.size());
+            EcosystemEntity entity = new EcosystemEntity(scenario, template.name + " " + i, template);
+            if (random.nextDouble() < examples.descriptionRate) {
+                entity.describedBy("Synthetic " + template.name + " number " + i);
+            }
+            entities.add(entity);
+            entitiesByTemplate.computeIfAbsent(template, t -> new ArrayList<>()).add(entity);
+        }
+        if (entities.isEmpty()) {
+            return scenario;
+        }
+        // Each entity gets a weight drawn from the fan-out distribution of the examples. The subjects of the relations
+        // are chosen proportional to these weights, so that the fan-out follows the same shape at any scale.
+        double[] cumulativeWeights = new double[entities.size()];
+        double sum = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            List<DEMRelation> applicable = applicableRelations.get(entities.get(i).template);
+            if (!applicable.isEmpty()) {
+                sum += examples.sampleFanOut(random);
+            }
+            cumulativeWeights[i] = sum;
+        }
+        if (sum == 0) {
+            return scenario;
+        }
+        for (int i = 0; i < relationCount; i++) {
+            EcosystemEntity subject = entities.get(sample(cumulativeWeights, random.nextDouble() * sum));
+            DEMRelation relation = chooseRelation(applicableRelations.get(subject.template), examples);
+            EcosystemEntity object = chooseTarget(relation, entitiesByTemplate);
+            if (object != null) {
+                subject.addProperty(relation.property, object);
+            } else {
+                subject.addProperty(relation.property, "value " + i);
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Choses a relation weighted by the frequency of the relation in the examples. Relations which do not occur in the
+     * examples still get a small weight, so that all relations are used.
+     */
+    private DEMRelation chooseRelation(List<DEMRelation> applicable, ExampleStatistics examples) {
+        double total = 0;
+        for (DEMRelation relation : applicable) {
+            total += examples.relationWeight(relation);
+        }
+        double position = random.nextDouble() * total;
+        for (DEMRelation relation : applicable) {
+            position -= examples.relationWeight(relation);
+            if (position < 0) {
+                return relation;
+            }
+        }
+        return applicable.get(applicable.size() - 1);
+    }
+
+    /**
+     * Choses a target entity from the templates in the range of the relation, or null if the relation has no templates
+     * in its range, or if no entities of these templates exist.
+     */
+    private EcosystemEntity chooseTarget(DEMRelation relation, Map<Template, List<EcosystemEntity>> entitiesByTemplate) {
+        List<Template> ranges = rangeTemplates.get(relation);
+        int candidates = 0;
+        for (Template range : ranges) {
+            candidates += entitiesByTemplate.getOrDefault(range, Collections.emptyList()).size();
+        }
+        if (candidates == 0) {
+            return null;
+        }
+        int position = random.nextInt(candidates);
+        for (Template range : ranges) {
+            List<EcosystemEntity> rangeEntities = entitiesByTemplate.getOrDefault(range, Collections.emptyList());
+            if (position < rangeEntities.size()) {
+                return rangeEntities.get(position);
+            }
+            position -= rangeEntities.size();
+        }
+        return null;
+    }
+
+    /**
+     * Binary search for the index of the first cumulative weight larger than the position.
+     */
+    private static int sample(double[] cumulativeWeights, double position) {
+        int index = Arrays.binarySearch(cumulativeWeights, position);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            index++;
+        }
+        return Math.min(index, cumulativeWeights.length - 1);
+    }
+
+    private static List<AbstractModel> getDEMModels() {
+        List<AbstractModel> models = DEM.getModels();
+        if (!models.contains(DEM.getDVAModel())) {
+            models.add(DEM.getDVAModel());
+        }
+        return models;
+    }
+
+    /**
+     * The statistics are measured once and shared by all generators.
+     */
+    public static synchronized ExampleStatistics getStatistics() {
+        if (statistics == null) {
+            statistics = new ExampleStatistics();
+        }
+        return statistics;
+    }
+
+    /**
+     * The distributions measured on the example experiments: the number of relations per entity, the frequency of the
+     * relations, and the share of entities with a description.
+     */
+    public static class ExampleStatistics {
+        private final int[] fanOuts;
+        private final Map<String, Integer> relationFrequencies = new HashMap<>();
+        private final double descriptionRate;
+
+        private ExampleStatistics() {
+            Set<String> relationURIs = new HashSet<>();
+            for (AbstractModel model : getDEMModels()) {
+                for (Relation relation : model.relations) {
+                    relationURIs.add(((DEMRelation) relation).getURI());
+                }
+            }
+            List<Integer> measuredFanOuts = new ArrayList<>();
+            int described = 0;
+            for (Supplier<Experiment> example : EXAMPLES) {
+                Experiment experiment = example.get();
+                Model model = experiment.scenario.model;
+                ResIterator subjects = model.listSubjectsWithProperty(RDF.type);
+                while (subjects.hasNext()) {
+                    Resource subject = subjects.next();
+                    if (subject.isAnon() || !subject.getURI().startsWith(experiment.scenario.namespace)) {
+                        continue;
+                    }
+                    if (subject.hasProperty(LRM_static_schema.specification)) {
+                        described++;
+                    }
+                    int fanOut = 0;
+                    StmtIterator statements = subject.listProperties();
+                    while (statements.hasNext()) {
+                        String predicate = statements.next().getPredicate().getURI();
+                        if (relationURIs.contains(predicate)) {
+                            relationFrequencies.merge(predicate, 1, Integer::sum);
+                            fanOut++;
+                        }
+                    }
+                    measuredFanOuts.add(fanOut);
+                }
+            }
+            fanOuts = new int[measuredFanOuts.size()];
+            for (int i = 0; i < fanOuts.length; i++) {
+                fanOuts[i] = measuredFanOuts.get(i);
+            }
+            Arrays.sort(fanOuts);
+            descriptionRate = fanOuts.length == 0 ? 0 : (double) described / fanOuts.length;
+        }
+
+        /**
+         * Draws a fan-out from the measured distribution. Zero fan-outs are drawn as well, so that leaf entities exist
+         * in the same share as in the examples.
+         */
+        public int sampleFanOut(Random random) {
+            if (fanOuts.length == 0) {
+                return 1;
+            }
+            return fanOuts[random.nextInt(fanOuts.length)];
+        }
+
+        public double meanFanOut() {
+            if (fanOuts.length == 0) {
+                return 1;
+            }
+            long sum = 0;
+            for (int fanOut : fanOuts) {
+                sum += fanOut;
+            }
+            return (double) sum / fanOuts.length;
+        }
+
+        public int maxFanOut() {
+            return fanOuts.length == 0 ? 0 : fanOuts[fanOuts.length - 1];
+        }
+
+        public double relationWeight(DEMRelation relation) {
+            return relationFrequencies.getOrDefault(relation.getURI(), 0) + 0.1;
+        }
+
+        public double getDescriptionRate() {
+            return descriptionRate;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticScenarioGenerator entities [relations] [seed] [output.nt|.ttl|.owl]");
+            return;
+        }
+        int entityCount = Integer.parseInt(args[0]);
+        ExampleStatistics examples = getStatistics();
+        int relationCount = args.length > 1 ? Integer.parseInt(args[1])
+                : (int) Math.round(entityCount * examples.meanFanOut());
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        System.out.println("Fan-out of the examples: mean " + String.format("%.2f", examples.meanFanOut())
+                + ", max " + examples.maxFanOut());
+        long start = System.currentTimeMillis();
+        ScenarioModel scenario = new SyntheticScenarioGenerator(seed).generate(entityCount, relationCount);
+        System.out.println("Generated " + entityCount + " entities and " + relationCount + " relations ("
+                + scenario.model.getBaseModel().size() + " statements) in "
+                + (System.currentTimeMillis() - start) + " ms");
+        if (args.length > 3) {
+            String output = args[3];
+            String language = "N-TRIPLE";
+            if (output.endsWith(".ttl")) {
+                language = "TURTLE";
+            } else if (output.endsWith(".owl")) {
+                language = "RDF/XML";
+            }
+            start = System.currentTimeMillis();
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+                scenario.model.write(out, language);
+            }
+            System.out.println("Written to " + output + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+}
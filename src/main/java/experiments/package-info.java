@@ -24,5 +24,8 @@
  * via the graphical user interface.
  * <p>
  * For developers: Add any scenario experiment classes to this package.
+ * <p>
+ * Large scenarios for scale testing can be created with the {@link experiments.SyntheticScenarioGenerator}, which
+ * follows the entity and relation distributions of the examples.
  */
 package experiments;
\ No newline at end of file
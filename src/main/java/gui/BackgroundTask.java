@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import javafx.concurrent.Task;
+
+/**
+ * A long running operation of the EcoBuilder, like the saving of the models, which runs in the background on the
+ * {@link TaskArea}. The work has to use a snapshot of the scenario, which was taken in the GUI thread before, and
+ * should check {@link #isCancelled()} between its steps.
+ *
+ * @param <T> the result, which is passed to the GUI thread
+ */
+public class BackgroundTask<T> extends Task<T> {
+    private final Work<T> work;
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(BackgroundTask<T> task) throws Exception;
+    }
+
+    /**
+     * @param title shown in the information area
+     * @param work  runs on the background thread
+     */
+    public BackgroundTask(String title, Work<T> work) {
+        this.work = work;
+        updateTitle(title);
+    }
+
+    @Override
+    protected T call() throws Exception {
+        return work.run(this);
+    }
+
+    /**
+     * Shows the progress of the work. Can be called from the background thread.
+     *
+     * @param done    the finished steps
+     * @param total   all steps, or -1 if unknown
+     * @param message describes the current step
+     */
+    public void progress(long done, long total, String message) {
+        updateProgress(done, total);
+        updateMessage(message);
+    }
+}
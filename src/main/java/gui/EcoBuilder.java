@@ -20,22 +20,37 @@ package gui;
 import ERMR.Configuration;
 import ERMR.ERMRConnection;
 import ERMR.ERMRGui;
+import analysis.Centrality;
+import analysis.CostRollup;
+import analysis.Impact;
+import analysis.ImpactGraph;
+import analysis.PolicyConflictDetector;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.Scene;
-import javafx.scene.control.ScrollPane;
 import javafx.scene.control.Separator;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TreeItem;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import models.ScenarioModel;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.Resource;
+import query.QueryEngine;
+import query.QueryGui;
 import saver.*;
 
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 public class EcoBuilder extends Application {
     public static final String TITLE_ID = "title";
@@ -62,6 +77,7 @@ public class EcoBuilder extends Application {
 
     private final SystemTrayIcon trayIcon;
     private final TextArea informationArea = new TextArea();
+    private final TaskArea taskArea = new TaskArea(this);
     private Text informationTitle = new Text("Information Area");
 
     // Utility classes for saving the models:
@@ -70,6 +86,8 @@ public class EcoBuilder extends Application {
     public final ScenarioSaver scenarioSaver;
     public final ProjectSaver projectSaver;
     public final ProjectLoader projectLoader;
+    public final ProjectJournal journal;
+    private final ERMRConnection ermrConnection = new ERMRConnection();
 
     // Classes for the configuration
     public final EntityConfiguration entityConfiguration;
@@ -77,6 +95,11 @@ public class EcoBuilder extends Application {
     protected final ModelConfiguration modelConfiguration;
 
     public static void main(String[] args) {
+        // The ERMR uploads run over several kept alive connections to the same host. Java keeps only
+        // http.maxConnections sockets alive per host, and reads the property once, at the first http request:
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(Math.max(5, Configuration.getConnections())));
+        }
         launch();
     }
 
@@ -98,15 +121,12 @@ public class EcoBuilder extends Application {
         GridPane rightPane = new GridPane();
         rightPane.getStyleClass().add(EcoBuilder.PANE);
         setConstraints();
-        rightPane.getChildren().addAll(informationTitle, informationArea, separator, configurationPane);
-        ScrollPane scrollPane = new ScrollPane();
-        scrollPane.setContent(scenarioPane);
-        scrollPane.setMaxWidth(Double.MAX_VALUE);
-        scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
+        rightPane.getChildren().addAll(informationTitle, informationArea, taskArea, separator, configurationPane);
+        // The scenario tree scrolls itself, and only renders the visible rows:
         HBox hbox = new HBox();
         hbox.setPrefSize(1280, 770);
         hbox.setMinSize(1280, 770);
-        hbox.getChildren().addAll(scrollPane, rightPane);
+        hbox.getChildren().addAll(scenarioPane, rightPane);
         VBox vbox = new VBox();
         vbox.getChildren().addAll(menu, hbox);
         loadWelcomeInformation();
@@ -129,13 +149,16 @@ public class EcoBuilder extends Application {
         entityConfiguration = new EntityConfiguration(configurationPane, scenarioPane);
         templateConfiguration = new TemplateConfiguration(configurationPane, scenarioPane);
         modelConfiguration = new ModelConfiguration(configurationPane);
+        journal = new ProjectJournal(this, ProjectJournal.getDefaultDirectory());
+        journal.recover();
     }
 
     private void setConstraints() {
         GridPane.setConstraints(informationTitle, 0, 0);
         GridPane.setConstraints(informationArea, 0, 1);
-        GridPane.setConstraints(separator, 0, 2);
-        GridPane.setConstraints(configurationPane, 0, 3);
+        GridPane.setConstraints(taskArea, 0, 2);
+        GridPane.setConstraints(separator, 0, 3);
+        GridPane.setConstraints(configurationPane, 0, 4);
     }
 
     /**
@@ -157,24 +180,41 @@ public class EcoBuilder extends Application {
         informationArea.setText(text);
     }
 
-    public File saveScenario() {
-        return scenarioSaver.save();
+    /*
+     * The saving and loading runs in the background, see TaskArea. The menu of the system tray calls these methods
+     * from the AWT thread, so that they switch to the GUI thread first.
+     */
+
+    public void saveScenario() {
+        runInGUIThread(() -> taskArea.run(scenarioSaver.saveTask(), null));
+    }
+
+    public void exportScenario() {
+        runInGUIThread(() -> taskArea.run(scenarioSaver.exportTask(), null));
     }
 
     public void saveDEM() {
-        demSaver.save();
+        runInGUIThread(() -> taskArea.run(demSaver.saveTask(), null));
     }
 
     public void saveExamples() {
-        experimentsSaver.save();
+        runInGUIThread(() -> taskArea.run(experimentsSaver.saveTask(), null));
     }
 
-    public File saveProject() {
-        return projectSaver.save();
+    public void saveProject() {
+        runInGUIThread(() -> taskArea.run(projectSaver.saveTask(), null));
     }
 
     public void loadProject() {
-        projectLoader.load();
+        runInGUIThread(() -> taskArea.run(projectLoader.loadTask(), projectLoader::apply));
+    }
+
+    private static void runInGUIThread(Runnable runnable) {
+        if (Platform.isFxApplicationThread()) {
+            runnable.run();
+        } else {
+            Platform.runLater(runnable);
+        }
     }
 
     /**
@@ -194,30 +234,181 @@ public class EcoBuilder extends Application {
     protected void exit() {
         SystemTray systemTray = SystemTray.getSystemTray();
         systemTray.remove(trayIcon.icon);
+        taskArea.close();
+        journal.close();
+        ermrConnection.close();
         Platform.exit();
     }
 
     /**
-     * Sends the scenario model to the Entity Registry and Model Repository (ERMR)
+     * Sends the changes of the scenario model to the Entity Registry and Model Repository (ERMR). The requests run in
+     * the background, their progress is shown in the information area.
      */
     protected void sendToERMR() {
-        ERMRConnection connection = new ERMRConnection();
-        File file = scenarioSaver.save();
-        if (file.isFile()) {
-            if (Configuration.isValid()) {
-                connection.send(file);
-            } else {
-                new ERMRGui(this);
-                if (Configuration.isValid()) {
-                    connection.send(file);
-                } else {
-                    System.err.println("Invalid ERMR configuraiton");
-                }
-            }
+        if (!Configuration.isValid()) {
+            new ERMRGui(this);
+        }
+        if (Configuration.isValid()) {
+            loadInformation("Send to ERMR", "Sending the scenario to the ERMR...");
+            // Only the snapshot is taken in the GUI thread, the triples are exported in the background:
+            ScenarioExporter exporter = new ScenarioExporter(new ScenarioSnapshot(scenarioPane));
+            ermrConnection.syncAsync(exporter, (done, total, message) ->
+                    Platform.runLater(() -> loadInformation("Send to ERMR", message + "\n" + done
+                            + (total < 0 ? "" : " of " + total) + " statements")))
+                    .whenComplete((report, error) -> Platform.runLater(() -> {
+                        if (error == null) {
+                            loadInformation("Send to ERMR", report);
+                        } else {
+                            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                            cause.printStackTrace();
+                            loadInformation("Send to ERMR", "The scenario couldn't be sent to the ERMR:\n" + cause);
+                        }
+                    }));
+        } else {
+            System.err.println("Invalid ERMR configuraiton");
         }
     }
 
     public void configuteERMR() {
         new ERMRGui(this);
     }
+
+    /**
+     * Shows which entities are affected by a change of the entity, which is selected in the scenario tree. The impact
+     * is computed in the background, from a snapshot of the scenario.
+     */
+    public void showImpact() {
+        runInGUIThread(() -> {
+            TreeItem<Object> selected = scenarioPane.tree.getSelectionModel().getSelectedItem();
+            if (selected == null || !(selected.getValue() instanceof EntityView)) {
+                loadInformation("Change Impact", "Select an entity of the scenario first.");
+                return;
+            }
+            EntityView view = (EntityView) selected.getValue();
+            ScenarioSnapshot snapshot = new ScenarioSnapshot(scenarioPane);
+            ScenarioSnapshot.EntityCopy entity = snapshot.getEntity(view);
+            if (entity == null) {
+                loadInformation("Change Impact", view.name + " isn't part of the scenario model.");
+                return;
+            }
+            taskArea.run(new BackgroundTask<String>("Change Impact", task -> {
+                ScenarioModel scenario = createScenarioModel(snapshot);
+                String uri = scenario.getEntity(entity).getURI();
+                ImpactGraph graph = ImpactGraph.fromModel(scenario.model);
+                List<Impact> impacts = graph.impactOf(NodeFactory.createURI(uri), 0.01f, Integer.MAX_VALUE);
+                StringBuilder report = new StringBuilder();
+                report.append(impacts.size()).append(" affected entities:\n");
+                for (Impact impact : impacts.subList(0, Math.min(100, impacts.size()))) {
+                    report.append(String.format("%.2f  %s%n", impact.getImpact(),
+                            scenario.model.shortForm(impact.getNode().toString())));
+                }
+                return report.toString();
+            }), report -> loadInformation("Change Impact of " + view.name, report));
+        });
+    }
+
+    /**
+     * Shows the most significant entities for the entity, which is selected in the scenario tree, computed by the
+     * personalized PageRank, see {@link Centrality}. Without a selected entity, the PageRank of the whole scenario is
+     * shown.
+     */
+    public void showSignificance() {
+        runInGUIThread(() -> {
+            TreeItem<Object> selected = scenarioPane.tree.getSelectionModel().getSelectedItem();
+            EntityView view = selected != null && selected.getValue() instanceof EntityView
+                    ? (EntityView) selected.getValue() : null;
+            ScenarioSnapshot snapshot = new ScenarioSnapshot(scenarioPane);
+            ScenarioSnapshot.EntityCopy entity = view == null ? null : snapshot.getEntity(view);
+            String title = entity == null ? "Significance" : "Significance for " + view.name;
+            taskArea.run(new BackgroundTask<String>(title, task -> {
+                ScenarioModel scenario = createScenarioModel(snapshot);
+                String uri = entity == null ? null : scenario.getEntity(entity).getURI();
+                Centrality centrality = Centrality.fromModel(scenario.model);
+                Centrality.Report report = uri == null ? centrality.rank()
+                        : centrality.rankFor(NodeFactory.createURI(uri));
+                StringBuilder text = new StringBuilder(report.toString()).append("\n");
+                for (int node : report.top(50)) {
+                    text.append(String.format("%.4f  %s%n", report.getScore(node),
+                            scenario.model.shortForm(centrality.getNode(node).toString())));
+                }
+                return text.toString();
+            }), text -> loadInformation(title, text));
+        });
+    }
+
+    /**
+     * Shows the cost totals of the entities, rolled up along the ownership and infrastructure relations, see
+     * {@link CostRollup}.
+     */
+    public void showCosts() {
+        runInGUIThread(() -> {
+            ScenarioSnapshot snapshot = new ScenarioSnapshot(scenarioPane);
+            taskArea.run(new BackgroundTask<String>("Cost Totals", task -> {
+                ScenarioModel scenario = createScenarioModel(snapshot);
+                CostRollup rollup = new CostRollup(scenario.model);
+                rollup.close();
+                List<Map.Entry<Resource, Double>> totals = new ArrayList<>(rollup.getTotals().entrySet());
+                totals.sort(Map.Entry.<Resource, Double>comparingByValue().reversed());
+                StringBuilder report = new StringBuilder();
+                for (Map.Entry<Resource, Double> total : totals) {
+                    report.append(String.format("%.2f  %s%n", total.getValue(),
+                            scenario.model.shortForm(total.getKey().toString())));
+                }
+                return report.length() == 0 ? "The scenario has no costs." : report.toString();
+            }), report -> loadInformation("Cost Totals", report));
+        });
+    }
+
+    /**
+     * Shows the conflicting policies of the scenario, see {@link PolicyConflictDetector}.
+     */
+    public void showPolicyConflicts() {
+        runInGUIThread(() -> {
+            ScenarioSnapshot snapshot = new ScenarioSnapshot(scenarioPane);
+            taskArea.run(new BackgroundTask<String>("Policy Conflicts", task -> {
+                ScenarioModel scenario = createScenarioModel(snapshot);
+                PolicyConflictDetector detector = new PolicyConflictDetector(scenario.model);
+                detector.close();
+                StringBuilder report = new StringBuilder();
+                for (PolicyConflictDetector.Conflict conflict : detector.getConflicts()) {
+                    report.append(conflict.severity).append(": ")
+                            .append(scenario.model.shortForm(conflict.first.toString())).append(" and ")
+                            .append(scenario.model.shortForm(conflict.second.toString())).append("\n");
+                    for (String scope : conflict.scopes) {
+                        report.append("    ").append(scenario.model.shortForm(scope)).append("\n");
+                    }
+                }
+                return report.length() == 0 ? "No conflicting policies were found." : report.toString();
+            }), report -> loadInformation("Policy Conflicts", report));
+        });
+    }
+
+    /**
+     * Creates the scenario model from the snapshot, in the background.
+     */
+    private static ScenarioModel createScenarioModel(ScenarioSnapshot snapshot) {
+        ScenarioModel scenario = new ScenarioModel(snapshot.toBeImported);
+        scenario.createModelFromSnapshot(snapshot);
+        return scenario;
+    }
+
+    /**
+     * Opens a window to query a snapshot of the scenario.
+     */
+    public void queryScenario() {
+        runInGUIThread(() -> new QueryGui(this));
+    }
+
+    /**
+     * Indexes a snapshot of the scenario for queries in the background.
+     *
+     * @param onIndexed receives the query engine of the snapshot in the GUI thread
+     */
+    public void indexScenario(Consumer<QueryEngine> onIndexed) {
+        runInGUIThread(() -> {
+            ScenarioSnapshot snapshot = new ScenarioSnapshot(scenarioPane);
+            taskArea.run(new BackgroundTask<QueryEngine>("Query Index",
+                    task -> new QueryEngine(createScenarioModel(snapshot).model)), onIndexed);
+        });
+    }
 }
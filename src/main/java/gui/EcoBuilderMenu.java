@@ -29,25 +29,40 @@ import javafx.scene.control.SeparatorMenuItem;
 public class EcoBuilderMenu extends MenuBar {
     public EcoBuilderMenu(final EcoBuilder ecoBuilder) {
         Menu fileMenu = new Menu("File");
+        Menu analysisMenu = new Menu("Analysis");
         Menu ermrMenu = new Menu("Repository");
         MenuItem saveScenario = new MenuItem("Generate Your Scenario Model");
+        MenuItem exportScenario = new MenuItem("Export Your Scenario Model as N-Triples");
         MenuItem saveDEM = new MenuItem("Generate DEM");
         MenuItem saveExamples = new MenuItem("Generate Examples");
         MenuItem openProject = new MenuItem("Open Project");
         MenuItem saveProject = new MenuItem("Save Project");
         MenuItem newProject = new MenuItem("New Project");
+        MenuItem queryScenario = new MenuItem("Query Your Scenario");
+        MenuItem showImpact = new MenuItem("Change Impact of the Selected Entity");
+        MenuItem showCosts = new MenuItem("Cost Totals");
+        MenuItem showSignificance = new MenuItem("Significance for the Selected Entity");
+        MenuItem showPolicyConflicts = new MenuItem("Policy Conflicts");
         MenuItem configure = new MenuItem("Configure");
         MenuItem send = new MenuItem("Send");
         saveDEM.setOnAction(e -> ecoBuilder.saveDEM());
         saveScenario.setOnAction(e -> ecoBuilder.saveScenario());
+        exportScenario.setOnAction(e -> ecoBuilder.exportScenario());
         saveExamples.setOnAction(e -> ecoBuilder.saveExamples());
+        queryScenario.setOnAction(e -> ecoBuilder.queryScenario());
+        showImpact.setOnAction(e -> ecoBuilder.showImpact());
+        showCosts.setOnAction(e -> ecoBuilder.showCosts());
+        showSignificance.setOnAction(e -> ecoBuilder.showSignificance());
+        showPolicyConflicts.setOnAction(e -> ecoBuilder.showPolicyConflicts());
         saveProject.setOnAction(e -> ecoBuilder.saveProject());
         openProject.setOnAction(e -> ecoBuilder.loadProject());
-        newProject.setOnAction(e -> ecoBuilder.projectLoader.cleanModels());
+        newProject.setOnAction(e -> ecoBuilder.journal.rebase(ecoBuilder.projectLoader::cleanModels));
         send.setOnAction(e -> ecoBuilder.sendToERMR());
         configure.setOnAction(e -> ecoBuilder.configuteERMR());
-        fileMenu.getItems().addAll(saveScenario, saveDEM, saveExamples, new SeparatorMenuItem(), openProject, saveProject, newProject);
+        fileMenu.getItems().addAll(saveScenario, exportScenario, saveDEM, saveExamples, new SeparatorMenuItem(), openProject, saveProject, newProject);
+        analysisMenu.getItems().addAll(queryScenario, new SeparatorMenuItem(), showImpact, showCosts, showSignificance,
+                showPolicyConflicts);
         ermrMenu.getItems().addAll(configure, send);
-        getMenus().addAll(fileMenu, ermrMenu);
+        getMenus().addAll(fileMenu, analysisMenu, ermrMenu);
     }
 }
\ No newline at end of file
@@ -145,7 +145,7 @@ public class EntityConfiguration {
         if (customRelation == null) {
             return;
         }
-        scenarioPane.customRelations.add(customRelation);
+        scenarioPane.addCustomRelation(customRelation);
         fillRelationBox();
         if (relationBox.getItems().contains(customRelation)) {
             relationBox.getSelectionModel().select(customRelation);
@@ -215,7 +215,7 @@ public class EntityConfiguration {
         relationDescription.setText(selectedRelation.description);
         updateExistingEntitiesBox(this.selectedRelation);
         entitiesFromTemplatesBox.getItems().clear();
-        for (TemplateView range : selectedRelation.getAllRanges(scenarioPane)) {
+        for (TemplateView range : scenarioPane.getPossibleTargets(selectedRelation)) {
             entitiesFromTemplatesBox.getItems().add(new TargetView(range));
         }
     }
@@ -255,7 +255,7 @@ public class EntityConfiguration {
             return;
         }
         existingEntitiesBox.getItems().clear();
-        for (TemplateView view : selectedRelation.getAllRanges(scenarioPane)) {
+        for (TemplateView view : scenarioPane.getPossibleTargets(selectedRelation)) {
             existingEntitiesBox.getItems().addAll(view.childEntities);
         }
         existingEntitiesBox.getItems().remove(loadedEntity); // ensure that the loaded entity is not in the target list
@@ -18,11 +18,7 @@
 package gui;
 
 import entities.EcosystemEntity;
-import javafx.scene.control.Button;
-import javafx.scene.control.Hyperlink;
 import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
-import javafx.scene.text.Text;
 import models.CoreModel;
 import relations.Relation;
 
@@ -30,7 +26,12 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * An entity of the scenario. It is shown as a row of the {@link ScenarioTree}, with its relations as children.
+ */
 public class EntityView extends GridPane implements Serializable {
+    private static final long serialVersionUID = -5599702096776065391L;
+
     public TemplateView parentTemplate;
 
     public EcosystemEntity entity;
@@ -41,54 +42,15 @@ public class EntityView extends GridPane implements Serializable {
 
     public Set<RelationView> childRelations = new HashSet<>();
 
-    transient private final HBox buttonBox = new HBox();
-    transient private final Button removeEntity = new Button("x");
-    transient private final Text relationLabel = new Text("Relation");
-    transient private final Text targetLabel = new Text("Target Entity");
-
-    transient private final Hyperlink nameText;
-
     public EntityView(final TemplateView parentTemplate) {
         this.parentTemplate = parentTemplate;
         this.name = "new" + parentTemplate.name;
-        nameText = new Hyperlink(name);
-        buttonBox.getChildren().add(removeEntity);
-        buttonBox.setId("hbox");
-        configure();
-        setConstraints();
-        addElements();
-    }
-
-    private void addElements() {
-        getChildren().addAll(nameText, buttonBox, relationLabel, targetLabel);
-    }
-
-    private void configure() {
-        nameText.setOnAction(event -> loadConfiguration());
-        setId(EcoBuilder.ENTITY_ID);
-        getStyleClass().add(EcoBuilder.PANE);
-        removeEntity.setId(EcoBuilder.REMOVE_BUTTON_ID);
-        removeEntity.setOnAction(e -> removeThisEntity());
-    }
-
-    private void setConstraints() {
-        setConstraints(nameText, 0, 0, 3, 1);
-        setConstraints(buttonBox, 3, 0);
-        setConstraints(relationLabel, 1, 1);
-        setConstraints(targetLabel, 2, 1);
     }
 
-    private void loadConfiguration() {
+    void loadConfiguration() {
         parentTemplate.parentModel.scenario.ecoBuilder.entityConfiguration.loadConfiguration(this);
     }
 
-    /**
-     * Remove this entity from the scenario
-     */
-    private void removeThisEntity() {
-        parentTemplate.remove(this);
-    }
-
     @Override
     public String toString() {
         return name;
@@ -102,12 +64,7 @@ public class EntityView extends GridPane implements Serializable {
      */
     public void removeRelation(RelationView relation) {
         childRelations.remove(relation);
-        getChildren().remove(relation);
-        int relationIndex = 1;
-        for (RelationView view : childRelations) {
-            setConstraints(view, 1, relationIndex, 2, 1);
-            relationIndex++;
-        }
+        getTree().remove(relation);
     }
 
     /**
@@ -119,6 +76,7 @@ public class EntityView extends GridPane implements Serializable {
             System.err.println("Error: Adding relation " + relation + " to target " + target);
             return;
         }
+        parentTemplate.parentModel.scenario.journal(journal -> journal.relationTargetAdded(this, relation, target));
         // If there is already a relation of this type, add the new relation to the existing view
         for (RelationView relationView : childRelations) {
             if (relationView.relation.name.equals(relation.name)) {
@@ -181,6 +139,8 @@ public class EntityView extends GridPane implements Serializable {
             return;
         }
         value = value.trim();
+        final String trimmedValue = value;
+        parentTemplate.parentModel.scenario.journal(journal -> journal.valueAdded(this, relation, trimmedValue));
         // If there is already a relation of this type, add the new relation to the existing view
         for (RelationView relationView : childRelations) {
             if (relationView.relation.name.equals(relation.name)) {
@@ -192,15 +152,46 @@ public class EntityView extends GridPane implements Serializable {
         addRelationView(relationView);
     }
 
+    /**
+     * Removes a target entity from the relation view of the relation, like the X-Button of the target.
+     */
+    public void removeRelationTarget(Relation relation, EntityView target) {
+        for (RelationView relationView : childRelations) {
+            if (relation != null && relationView.relation.name.equals(relation.name)) {
+                for (TargetEntityView targetView : relationView.childTargetEntities) {
+                    if (targetView.sameEntity == target) {
+                        relationView.removeTarget(targetView);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a value from the relation view of the relation, like the X-Button of the value.
+     */
+    public void removeValue(Relation relation, String value) {
+        for (RelationView relationView : childRelations) {
+            if (relation != null && relationView.relation.name.equals(relation.name)) {
+                for (RangeValueView valueView : relationView.childValueEntities) {
+                    if (valueView.value.equals(value)) {
+                        relationView.removeValueTarget(valueView);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Adds a new relation view to an entity view.
      *
      * @param relationView
      */
     public void addRelationView(RelationView relationView) {
-        setConstraints(relationView, 1, childRelations.size() + 1, 2, 1);
         childRelations.add(relationView);
-        getChildren().add(relationView);
+        getTree().add(this, relationView);
         parentTemplate.parentModel.scenario.importRelationsModel(relationView.relation);
     }
 
@@ -213,10 +204,16 @@ public class EntityView extends GridPane implements Serializable {
      * @param description
      */
     public void updateEntity(String name, String version, String description) {
+        String oldName = this.name;
         this.name = CoreModel.sanitizeName(name);
+        if (!this.name.equals(oldName)) {
+            parentTemplate.parentModel.scenario.entityRenamed(this, oldName, this.name);
+        }
         this.version = version;
         this.description = description;
         this.updateView();
+        parentTemplate.parentModel.scenario.entityChanged(this);
+        parentTemplate.parentModel.scenario.journal(journal -> journal.entityUpdated(this));
         // Update the name of this entity, where the entity is a target!
         for (ModelView model : parentTemplate.parentModel.scenario.models) {
             for (RadioTemplate radioTemplate : model.childTemplateViews) {
@@ -231,7 +228,11 @@ public class EntityView extends GridPane implements Serializable {
     }
 
     public void updateView() {
-        nameText.setText(name);
+        getTree().refresh(this);
+    }
+
+    ScenarioTree getTree() {
+        return parentTemplate.parentModel.scenario.tree;
     }
 
 }
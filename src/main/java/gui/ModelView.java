@@ -18,15 +18,19 @@
 package gui;
 
 import entities.Template;
-import javafx.scene.control.Hyperlink;
-import javafx.scene.control.ToggleButton;
 import javafx.scene.layout.GridPane;
 
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * A model of the scenario with its templates. It is shown as a row of the {@link ScenarioTree}, with the used templates
+ * as children.
+ */
 public class ModelView extends GridPane implements Serializable {
+    private static final long serialVersionUID = 8763344902345142310L;
+
     transient protected final ScenarioPanel scenario;
     /**
      * All entity templates which were in use for the scenario
@@ -34,19 +38,11 @@ public class ModelView extends GridPane implements Serializable {
     public Set<RadioTemplate> childTemplateViews = new HashSet<>();
     public String prefix;
     transient protected String description;
-    transient protected int templateIndex = 1;
 
     public ModelView(ScenarioPanel scenario, String prefix, String description) {
         this.scenario = scenario;
         this.prefix = prefix;
         this.description = description;
-        getStyleClass().add(EcoBuilder.PANE);
-        setId(EcoBuilder.MODEL_ID);
-        final Hyperlink name = new Hyperlink(prefix + " Model");
-        name.setId(EcoBuilder.SUB_TITLE);
-        name.setOnAction(e -> loadModelInformation());
-        setConstraints(name, 0, 0);
-        getChildren().add(name);
     }
 
     /**
@@ -58,6 +54,7 @@ public class ModelView extends GridPane implements Serializable {
     public void addTemplateView(TemplateView templateView) {
         RadioTemplate item = new RadioTemplate(templateView, this);
         childTemplateViews.add(item);
+        scenario.templateAdded(templateView);
     }
 
     /**
@@ -84,17 +81,13 @@ public class ModelView extends GridPane implements Serializable {
             radioTemplate.setSelected(true);
             radioTemplate.selected = true;
         }
-        if (!getChildren().contains(templateView)) {
-            setConstraints(templateView, 0, templateIndex);
-            getChildren().add(templateView);
-            templateIndex++;
-        }
+        scenario.tree.add(this, templateView);
     }
 
     /**
      * Loads the information about the model into the information area.
      */
-    private void loadModelInformation() {
+    void loadModelInformation() {
         scenario.ecoBuilder.loadInformation("Model Information: " + prefix, description);
         scenario.ecoBuilder.modelConfiguration.loadConfiguration(this);
     }
@@ -102,16 +95,10 @@ public class ModelView extends GridPane implements Serializable {
     public void removeTemplate(String name) {
         for (RadioTemplate radioTemplate : childTemplateViews) {
             if (radioTemplate.templateView.name.equals(name)) {
-                getChildren().remove(radioTemplate.templateView);
+                scenario.tree.remove(radioTemplate.templateView);
                 break;
             }
         }
-        // Update the index of all templates in the list to prevent holes.
-        templateIndex = 1;
-        childTemplateViews.stream().filter(ToggleButton::isSelected).forEach(radioTemplate -> {
-            setConstraints(radioTemplate.templateView, 0, templateIndex);
-            templateIndex++;
-        });
     }
 
 
@@ -34,6 +34,7 @@ public class RadioTemplate extends RadioButton implements Serializable {
         this.view = model;
         setText(templateView.name);
         setOnAction(e -> {
+            view.scenario.journal(journal -> journal.templateSelected(view, templateView, isSelected()));
             if (isSelected()) {
                 view.useTemplateView(templateView);
                 selected = true;
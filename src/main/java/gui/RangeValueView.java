@@ -17,15 +17,16 @@
  */
 package gui;
 
-import javafx.event.ActionEvent;
-import javafx.event.EventHandler;
-import javafx.scene.control.Button;
 import javafx.scene.layout.GridPane;
-import javafx.scene.text.Text;
 
 import java.io.Serializable;
 
+/**
+ * A text value, which is the target of a relation. It is shown as a row of the {@link ScenarioTree}.
+ */
 public class RangeValueView extends GridPane implements Serializable {
+    private static final long serialVersionUID = -4095507601848234945L;
+
     public String value;
     transient public RelationView parentRelation;
 
@@ -37,23 +38,6 @@ public class RangeValueView extends GridPane implements Serializable {
         }
         this.parentRelation = parentProperty;
         parentProperty.childValueEntities.add(this);
-        setId(EcoBuilder.TARGET_ENTITY_ID);
-        Button remove = new Button("X");
-        remove.setId(EcoBuilder.REMOVE_BUTTON_ID);
-        remove.setOnAction(new EventHandler<ActionEvent>() {
-            @Override
-            public void handle(ActionEvent e) {
-                removeTarget();
-            }
-        });
-        Text text = new Text(value);
-        setConstraints(text, 0, 0);
-        setConstraints(remove, 1, 0);
-        getChildren().addAll(text, remove);
-    }
-
-    private void removeTarget() {
-        parentRelation.removeValueTarget(this);
     }
 
     @Override
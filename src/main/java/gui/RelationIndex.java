@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import relations.Relation;
+
+import java.util.*;
+
+/**
+ * Index of the relations which can be used from and to the templates of a scenario.
+ * <p>
+ * A relation can be used from a template, if the template or one of its ancestors is a domain of the relation, and it
+ * can point to a template, if the template or one of its ancestors is a range of the relation. The index keeps the
+ * subsumption closure of the templates, so that the applicable relations and valid target templates don't have to be
+ * searched each time an entity is configured. It is built once for the DEM models, and updated incrementally if custom
+ * templates or custom relations are added.
+ */
+public class RelationIndex {
+    // The template itself and all templates which inherit from it:
+    private final Map<TemplateView, Set<TemplateView>> descendants = new HashMap<>();
+    // The template itself and all templates from which it inherits:
+    private final Map<TemplateView, Set<TemplateView>> ancestors = new HashMap<>();
+    private final Map<TemplateView, Set<Relation>> relationsByDomain = new HashMap<>();
+    private final Map<TemplateView, Set<Relation>> relationsByRange = new HashMap<>();
+    private final Map<TemplateView, Set<Relation>> applicableRelations = new HashMap<>();
+    private final Map<Relation, Set<TemplateView>> targetTemplates = new HashMap<>();
+
+    /**
+     * Rebuilds the index from scratch.
+     *
+     * @param templates all templates of the scenario
+     * @param relations all relations of the scenario
+     */
+    public void rebuild(Collection<TemplateView> templates, Collection<Relation> relations) {
+        descendants.clear();
+        ancestors.clear();
+        relationsByDomain.clear();
+        relationsByRange.clear();
+        applicableRelations.clear();
+        targetTemplates.clear();
+        for (TemplateView template : templates) {
+            ancestors.put(template, computeAncestors(template));
+        }
+        for (Map.Entry<TemplateView, Set<TemplateView>> entry : ancestors.entrySet()) {
+            for (TemplateView ancestor : entry.getValue()) {
+                getDescendants(ancestor).add(entry.getKey());
+            }
+        }
+        relations.forEach(this::addRelation);
+    }
+
+    private Set<TemplateView> computeAncestors(TemplateView template) {
+        Set<TemplateView> result = new HashSet<>();
+        Deque<TemplateView> stack = new ArrayDeque<>();
+        stack.push(template);
+        while (!stack.isEmpty()) {
+            TemplateView current = stack.pop();
+            if (current != null && result.add(current)) {
+                current.parentTemplates.forEach(stack::push);
+            }
+        }
+        return result;
+    }
+
+    private Set<TemplateView> getDescendants(TemplateView template) {
+        return descendants.computeIfAbsent(template, key -> {
+            Set<TemplateView> self = new HashSet<>();
+            self.add(key);
+            return self;
+        });
+    }
+
+    /**
+     * Adds a new template, e.g. a custom template. It inherits the relations of its parent templates.
+     *
+     * @param template the new template
+     */
+    public void addTemplate(TemplateView template) {
+        Set<TemplateView> templateAncestors = computeAncestors(template);
+        ancestors.put(template, templateAncestors);
+        for (TemplateView ancestor : templateAncestors) {
+            getDescendants(ancestor).add(template);
+            for (Relation relation : relationsByDomain.getOrDefault(ancestor, Collections.emptySet())) {
+                applicableRelations.computeIfAbsent(template, key -> new LinkedHashSet<>()).add(relation);
+            }
+            for (Relation relation : relationsByRange.getOrDefault(ancestor, Collections.emptySet())) {
+                targetTemplates.computeIfAbsent(relation, key -> new LinkedHashSet<>()).add(template);
+            }
+        }
+    }
+
+    /**
+     * Adds a new relation, e.g. a custom relation, for its domains and ranges and all their descendants.
+     *
+     * @param relation the new relation
+     */
+    public void addRelation(Relation relation) {
+        Set<TemplateView> targets = targetTemplates.computeIfAbsent(relation, key -> new LinkedHashSet<>());
+        for (TemplateView domain : relation.getParentDomains()) {
+            relationsByDomain.computeIfAbsent(domain, key -> new HashSet<>()).add(relation);
+            for (TemplateView template : getDescendants(domain)) {
+                applicableRelations.computeIfAbsent(template, key -> new LinkedHashSet<>()).add(relation);
+            }
+        }
+        for (TemplateView range : relation.getParentRanges()) {
+            relationsByRange.computeIfAbsent(range, key -> new HashSet<>()).add(relation);
+            targets.addAll(getDescendants(range));
+        }
+    }
+
+    /**
+     * @param template the template of an entity
+     * @return the relations which can be used from entities of the template
+     */
+    public Set<Relation> getApplicableRelations(TemplateView template) {
+        return Collections.unmodifiableSet(applicableRelations.getOrDefault(template, Collections.emptySet()));
+    }
+
+    /**
+     * @param relation a relation
+     * @return the templates of which entities can be targets of the relation, or null if the relation is not indexed
+     */
+    public Set<TemplateView> getTargetTemplates(Relation relation) {
+        Set<TemplateView> targets = targetTemplates.get(relation);
+        return targets == null ? null : Collections.unmodifiableSet(targets);
+    }
+}
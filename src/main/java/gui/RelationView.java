@@ -17,10 +17,7 @@
  */
 package gui;
 
-import javafx.scene.Node;
-import javafx.scene.control.Button;
 import javafx.scene.layout.GridPane;
-import javafx.scene.text.Text;
 import relations.DEMRelation;
 import relations.Relation;
 
@@ -32,8 +29,12 @@ import java.util.Set;
  * This class represents the view of a {@link DEMRelation} in the graphical user interface.
  * In contrast to the {@link DEMRelation} it is not created in a model yet. The {@link DEMRelationView} already has an
  * associated {@link DEMRelation} which belongs to one of the DEM models.,
+ * <p>
+ * It is shown as a row of the {@link ScenarioTree}, with the target entities and values as children.
  */
 public class RelationView extends GridPane implements Serializable {
+    private static final long serialVersionUID = -6939194380836844470L;
+
     public final EntityView parentEntity;
     public final Set<TargetEntityView> childTargetEntities = new HashSet<>();
     public final Set<RangeValueView> childValueEntities = new HashSet<RangeValueView>();
@@ -53,16 +54,7 @@ public class RelationView extends GridPane implements Serializable {
     public RelationView(Relation relation, EntityView parentEntity) {
         this.parentEntity = parentEntity;
         this.relation = relation;
-        getStyleClass().add(EcoBuilder.PANE);
         parentEntity.childRelations.add(this);
-        setId(EcoBuilder.RELATION_ID);
-        Text nameLabel = new Text(this.toString());
-        Button remove = new Button("X");
-        remove.setId(EcoBuilder.REMOVE_BUTTON_ID);
-        remove.setOnAction(e -> removeThisRelationView());
-        setConstraints(remove, 2, 0);
-        setConstraints(nameLabel, 0, 0);
-        getChildren().addAll(nameLabel, remove);
     }
 
 
@@ -74,8 +66,7 @@ public class RelationView extends GridPane implements Serializable {
     protected TargetEntityView addTarget(EntityView targetEntity) {
         TargetEntityView target = new TargetEntityView(targetEntity, this);
         childTargetEntities.add(target);
-        setConstraints(target, 1, childTargetEntities.size() + childValueEntities.size());
-        getChildren().add(target);
+        parentEntity.getTree().add(this, target);
         return  target;
     }
 
@@ -87,8 +78,8 @@ public class RelationView extends GridPane implements Serializable {
     public void addValueTarget(String value) {
         RangeValueView view = new RangeValueView(value, this);
         childValueEntities.add(view);
-        setConstraints(view, 1, childTargetEntities.size() + childValueEntities.size());
-        getChildren().add(view);
+        parentEntity.getTree().add(this, view);
+        parentEntity.parentTemplate.parentModel.scenario.entityChanged(parentEntity);
     }
 
     /**
@@ -98,6 +89,8 @@ public class RelationView extends GridPane implements Serializable {
      * @param target
      */
     protected void removeTarget(TargetEntityView target) {
+        parentEntity.parentTemplate.parentModel.scenario.journal(journal ->
+                journal.relationTargetRemoved(parentEntity, relation, target.sameEntity));
         removeTargetView(target);
         removeInverseRelation(target);
     }
@@ -157,9 +150,8 @@ public class RelationView extends GridPane implements Serializable {
 
     private void removeTargetView(TargetEntityView target) {
         childTargetEntities.remove(target);
-        int removedIndex = getChildren().indexOf(target);
-        getChildren().remove(target);
-        revalidateRelationGUI(removedIndex);
+        parentEntity.getTree().remove(target);
+        revalidateRelationGUI();
     }
 
     /**
@@ -167,24 +159,21 @@ public class RelationView extends GridPane implements Serializable {
      */
 
     protected void removeValueTarget(RangeValueView targetEntity) {
+        parentEntity.parentTemplate.parentModel.scenario.journal(journal ->
+                journal.valueRemoved(parentEntity, relation, targetEntity.value));
         childValueEntities.remove(targetEntity);
-        int removedIndex = getChildren().indexOf(targetEntity);
-        getChildren().remove(targetEntity);
-        revalidateRelationGUI(removedIndex);
+        parentEntity.getTree().remove(targetEntity);
+        parentEntity.parentTemplate.parentModel.scenario.entityChanged(parentEntity);
+        revalidateRelationGUI();
     }
 
     /**
      * This is called if a relation target was removed.
      * If the target was the last entity referred by this relation, remove the complete relation view.
-     * Adjusts also the alignment of the other targets, otherwise there are holes in the GUI.
-     *
-     * @param removedIndex Index of the removed target in the list of targets of this relation.
      */
-    private void revalidateRelationGUI(int removedIndex) {
+    private void revalidateRelationGUI() {
         if (childTargetEntities.size() == 0 && childValueEntities.size() == 0) {
             parentEntity.removeRelation(this);
-        } else {
-            adjustChildren(removedIndex);
         }
     }
 
@@ -192,7 +181,7 @@ public class RelationView extends GridPane implements Serializable {
      * The x-Button was clicked to remove the whole relation view with all relations. This will first remove all targets
      * and afterwards this view.
      */
-    private void removeThisRelationView() {
+    void removeThisRelationView() {
         while (childValueEntities.size() > 0) {
             removeValueTarget(childValueEntities.iterator().next());
         }
@@ -202,20 +191,6 @@ public class RelationView extends GridPane implements Serializable {
     }
 
 
-    /**
-     * Adjust the indices of all other children after removeValueTarget
-     *
-     * @param removedIndex
-     */
-    private void adjustChildren(int removedIndex) {
-        for (Node child : getChildren()) {
-            int currentIndex = getChildren().indexOf(child);
-            if (currentIndex >= removedIndex && (child instanceof TargetEntityView || child instanceof RangeValueView)) {
-                setConstraints(child, 1, currentIndex - 1);
-            }
-        }
-    }
-
     @Override
     public String toString() {
         return relation.name;
@@ -21,6 +21,7 @@ import entities.Template;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextArea;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
 import javafx.scene.text.Text;
 import models.AbstractModel;
 import models.CoreModel;
@@ -29,17 +30,23 @@ import models.ScenarioModel;
 import relations.CustomRelation;
 import relations.DEMRelation;
 import relations.Relation;
+import saver.ProjectJournal;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * This class is the scenario panel which contains the model views with the templates, created entities and relations.
+ * The models are shown by the virtualized {@link ScenarioTree}.
  */
 public class ScenarioPanel extends GridPane implements Serializable {
+    private static final long serialVersionUID = -4240715156689069960L;
+
     transient public final EcoBuilder ecoBuilder;
+    transient final ScenarioTree tree = new ScenarioTree();
+    transient private final SearchIndex searchIndex = new SearchIndex();
     transient private final ModelView scenarioModel;
     transient public Set<AbstractModel> toBeImported = new HashSet<>();
     transient private Button addDVA = new Button("Import DVA ontology");
@@ -47,6 +54,15 @@ public class ScenarioPanel extends GridPane implements Serializable {
     public final Set<CustomTemplateView> customTemplates = new HashSet<>();
     public final Set<CustomRelation> customRelations = new HashSet<>();
     public boolean addedDVA = false;
+    /*
+     * Indexes for the lookups by name. They are kept in step with the models, templates, relations and entities:
+     */
+    transient private final Map<String, ModelView> modelsByPrefix = new HashMap<>();
+    transient private final Map<String, TemplateView> templatesByName = new HashMap<>();
+    transient private final Map<String, Relation> relationsByName = new HashMap<>();
+    transient private final Map<Relation, AbstractModel> relationModels = new IdentityHashMap<>();
+    transient private final Map<TemplateView, Map<String, List<EntityView>>> entitiesByName = new HashMap<>();
+    transient private final RelationIndex relationIndex = new RelationIndex();
 
     public ScenarioPanel(EcoBuilder ecoBuilder) {
         this.ecoBuilder = ecoBuilder;
@@ -61,26 +77,26 @@ public class ScenarioPanel extends GridPane implements Serializable {
         Text title = new Text("Scenario Model");
         title.setId(EcoBuilder.TITLE_ID);
         getStyleClass().add(EcoBuilder.PANE);
+        SearchBox searchBox = new SearchBox(this);
         setConstraints(title, 0, 0);
-        getChildren().add(title);
-        int i = 1;
+        setConstraints(searchBox, 0, 1);
+        setConstraints(tree, 0, 2);
+        setVgrow(tree, Priority.ALWAYS);
+        setConstraints(dvaLabel, 0, 3);
+        setConstraints(addDVA, 0, 4);
+        getChildren().addAll(title, searchBox, tree, dvaLabel, addDVA);
         for (AbstractModel model : DEM.getModels()) {
             DEMModelView view = new DEMModelView(model, this);
             models.add(view);
-            setConstraints(view, 0, i);
-            getChildren().add(view);
-            i++;
+            indexModel(view);
+            tree.add(null, view);
         }
         transferRelationDomains();
         transferParents(models);
         scenarioModel = new ModelView(this, ScenarioModel.PREFIX, ScenarioModel.DESCRIPTION);
         models.add(scenarioModel);
-        setConstraints(scenarioModel, 0, i);
-        i++;
-        setConstraints(dvaLabel, 0, i);
-        i++;
-        setConstraints(addDVA, 0, i);
-        getChildren().addAll(scenarioModel, dvaLabel, addDVA);
+        tree.add(null, scenarioModel);
+        rebuildRelationIndex();
     }
 
     /**
@@ -138,13 +154,15 @@ public class ScenarioPanel extends GridPane implements Serializable {
     public void addDVA() {
         DEM.addedDVA = true;
         addedDVA = true;
-        DEMModelView dvaModel = new DEMModelView(DEM.DVA_MODEL, this);
+        DEMModelView dvaModel = new DEMModelView(DEM.getDVAModel(), this);
         models.add(dvaModel);
-        setConstraints(dvaModel, 0, 9);
+        indexModel(dvaModel);
         getChildren().remove(addDVA);
-        getChildren().add(dvaModel);
+        tree.add(null, dvaModel);
         transferRelationDomains();
         transferParents(models);
+        rebuildRelationIndex();
+        journal(journal -> journal.dvaAdded());
     }
 
     /**
@@ -163,27 +181,26 @@ public class ScenarioPanel extends GridPane implements Serializable {
         customTemplates.add(customTemplate);
         scenarioModel.addTemplateView(customTemplate);
         scenarioModel.useTemplateView(customTemplate);
+        relationIndex.addTemplate(customTemplate);
+        journal(journal -> journal.customTemplateCreated(customTemplate));
 
         return customTemplate;
     }
 
+    /**
+     * Adds a custom relation created by the user to the scenario.
+     *
+     * @param relation the custom relation
+     */
+    public void addCustomRelation(CustomRelation relation) {
+        customRelations.add(relation);
+        relationsByName.putIfAbsent(relation.name, relation);
+        relationIndex.addRelation(relation);
+        journal(journal -> journal.customRelationAdded(relation));
+    }
+
     public Relation getRelation(String relationName) {
-        for (ModelView model : models) {
-            if (model instanceof DEMModelView) {
-                for (Relation relation : ((DEMModelView) model).model.relations) {
-                    if (relation.name.equals(relationName)) {
-                        return relation;
-                    }
-                }
-            } else { // Scenario model
-                for (Relation relation : customRelations) {
-                    if (relation.name.equals(relationName)) {
-                        return relation;
-                    }
-                }
-            }
-        }
-        return null;
+        return relationsByName.get(relationName);
     }
 
     public EntityView getEntity(String templateName, String entityName) {
@@ -192,13 +209,13 @@ public class ScenarioPanel extends GridPane implements Serializable {
             System.err.println("Error at ScenarioPanel#getEntity: templateView null.");
             return null;
         }
-        for (EntityView entity : templateView.childEntities) {
-            if (entity.name.equals(CoreModel.sanitizeName(entityName))) {
-                return entity;
-            }
+        List<EntityView> entities = entitiesByName.getOrDefault(templateView, Collections.emptyMap())
+                .get(CoreModel.sanitizeName(entityName));
+        if (entities == null || entities.isEmpty()) {
+            System.err.println("Error at ScenarioPanel#getEntity: null");
+            return null;
         }
-        System.err.println("Error at ScenarioPanel#getEntity: null");
-        return null;
+        return entities.get(0);
     }
 
     /**
@@ -208,14 +225,7 @@ public class ScenarioPanel extends GridPane implements Serializable {
      * @return
      */
     public TemplateView getTemplateView(String name) {
-        for (ModelView model : models) {
-            for (RadioTemplate radioTemplate : model.childTemplateViews) {
-                if (radioTemplate.templateView.name.equals(name)) {
-                    return radioTemplate.templateView;
-                }
-            }
-        }
-        return null;
+        return templatesByName.get(name);
     }
 
     /**
@@ -225,14 +235,91 @@ public class ScenarioPanel extends GridPane implements Serializable {
      * @return the model
      */
     public ModelView getModel(String prefix) {
-        for (ModelView model : models) {
-            if (model instanceof DEMModelView) {
-                if (((DEMModelView) model).model.prefix.equals(prefix)) {
-                    return model;
-                }
-            }
+        return modelsByPrefix.getOrDefault(prefix, scenarioModel);
+    }
+
+    /**
+     * Adds the prefix and the relations of a DEM model view to the indexes. If names are used by several models, the
+     * first indexed model wins.
+     */
+    private void indexModel(DEMModelView modelView) {
+        modelsByPrefix.putIfAbsent(modelView.prefix, modelView);
+        for (Relation relation : modelView.model.relations) {
+            relationsByName.putIfAbsent(relation.name, relation);
+            relationModels.put(relation, modelView.model);
+        }
+    }
+
+    /**
+     * Is called by the {@link ModelView} if a template view was added.
+     */
+    protected void templateAdded(TemplateView templateView) {
+        templatesByName.putIfAbsent(templateView.name, templateView);
+    }
+
+    /**
+     * Is called by the {@link TemplateView} if an entity view was added.
+     */
+    protected void entityAdded(EntityView entity) {
+        entitiesByName.computeIfAbsent(entity.parentTemplate, template -> new HashMap<>())
+                .computeIfAbsent(entity.name, name -> new ArrayList<>(1)).add(entity);
+        searchIndex.update(entity);
+        journal(journal -> journal.entityAdded(entity));
+    }
+
+    /**
+     * Is called by the {@link TemplateView} if an entity view was removed.
+     */
+    protected void entityRemoved(EntityView entity) {
+        entityRenamed(entity, entity.name, null);
+        searchIndex.remove(entity);
+        journal(journal -> journal.entityRemoved(entity));
+    }
+
+    /**
+     * Is called by the {@link EntityView} and its {@link RelationView}s, if the name, version, description or a value of
+     * the entity was changed.
+     */
+    protected void entityChanged(EntityView entity) {
+        searchIndex.update(entity);
+    }
+
+    /**
+     * Searches the entities by their names, versions, descriptions and the values of their relations, see
+     * {@link SearchIndex}.
+     *
+     * @param query the words to search, the last may be incomplete
+     * @param limit maximum number of results
+     * @return the matching entities, the entities with an exact match first
+     */
+    public List<EntityView> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Records an edit of the user in the {@link ProjectJournal}, if there is one.
+     */
+    protected void journal(Consumer<ProjectJournal> edit) {
+        if (ecoBuilder != null && ecoBuilder.journal != null) {
+            edit.accept(ecoBuilder.journal);
+        }
+    }
+
+    /**
+     * Is called by the {@link EntityView} if its name was changed.
+     */
+    protected void entityRenamed(EntityView entity, String oldName, String newName) {
+        Map<String, List<EntityView>> entities = entitiesByName.get(entity.parentTemplate);
+        if (entities == null) {
+            return;
+        }
+        List<EntityView> sameName = entities.get(oldName);
+        if (sameName != null && sameName.remove(entity) && sameName.isEmpty()) {
+            entities.remove(oldName);
+        }
+        if (newName != null) {
+            entities.computeIfAbsent(newName, name -> new ArrayList<>(1)).add(entity);
         }
-        return scenarioModel;
     }
 
     /**
@@ -256,12 +343,32 @@ public class ScenarioPanel extends GridPane implements Serializable {
      * @return set of possible relations usable "from" this template
      */
     public Set<Relation> getPossibleRelations(TemplateView templateView) {
-        Set<Relation> possibleRelations = new HashSet<>();
-        for (Relation relation : getAllRelations()) {
-            possibleRelations.addAll(relation.getAllDomains(this).stream()
-                    .filter(domain -> domain == templateView).map(domain -> relation).collect(Collectors.toList()));
+        return relationIndex.getApplicableRelations(templateView);
+    }
+
+    /**
+     * Returns the templates of which entities can be targets of the relation.
+     *
+     * @param relation the relation
+     * @return set of templates in the range of the relation, including all their children
+     */
+    public Set<TemplateView> getPossibleTargets(Relation relation) {
+        Set<TemplateView> targets = relationIndex.getTargetTemplates(relation);
+        return targets != null ? targets : relation.getAllRanges(this);
+    }
+
+    /**
+     * Rebuilds the relation index after models were added or the custom templates were removed.
+     */
+    private void rebuildRelationIndex() {
+        List<Relation> relations = new ArrayList<>();
+        for (ModelView model : models) {
+            if (model instanceof DEMModelView) {
+                relations.addAll(((DEMModelView) model).model.relations);
+            }
         }
-        return possibleRelations;
+        relations.addAll(customRelations);
+        relationIndex.rebuild(getAllTemplates(), relations);
     }
 
     /**
@@ -282,7 +389,15 @@ public class ScenarioPanel extends GridPane implements Serializable {
      * Cleans the scenario model from all custom templates which are currently added.
      */
     public void cleanScenarioModel() {
+        for (CustomRelation relation : customRelations) {
+            relationsByName.remove(relation.name, relation);
+        }
         customRelations.clear();
+        for (CustomTemplateView template : customTemplates) {
+            templatesByName.remove(template.name, template);
+            entitiesByName.remove(template);
+            template.childEntities.forEach(searchIndex::remove);
+        }
         customTemplates.clear();
         ModelView scenarioModel = getScenarioModel();
         if (scenarioModel == null) {
@@ -290,10 +405,8 @@ public class ScenarioPanel extends GridPane implements Serializable {
             return;
         }
         scenarioModel.childTemplateViews.clear();
-        while (scenarioModel.getChildren().size() > 1) {
-            scenarioModel.getChildren().remove(1);
-        }
-        scenarioModel.templateIndex = 1;
+        tree.removeChildren(scenarioModel);
+        rebuildRelationIndex();
     }
 
     protected ModelView getScenarioModel() {
@@ -311,12 +424,9 @@ public class ScenarioPanel extends GridPane implements Serializable {
      * @param relation
      */
     public void importRelationsModel(Relation relation) {
-        for (AbstractModel model : DEM.getModels()) {
-            for (Relation modelRelation : model.relations) {
-                if (modelRelation == relation) {
-                    toBeImported.add(model);
-                }
-            }
+        AbstractModel model = relationModels.get(relation);
+        if (model != null) {
+            toBeImported.add(model);
         }
     }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import entities.Template;
+import models.AbstractModel;
+import relations.CustomRelation;
+import relations.Relation;
+
+import java.util.*;
+
+/**
+ * An immutable copy of the scenario of the {@link ScenarioPanel}, which is taken in the GUI thread. It only copies the
+ * names and texts of the entities and their relations, so that the scenario model can be created from it in the
+ * background, while the user continues to edit the panel, see
+ * {@link models.ScenarioModel#createModelFromSnapshot(ScenarioSnapshot)}.
+ * <p>
+ * Only the entities which result in individuals of the scenario model are copied: the entities of the DEM templates
+ * in the DEM models, and the entities of the custom templates which extend a DEM template.
+ */
+public class ScenarioSnapshot {
+    public final Set<AbstractModel> toBeImported;
+    public final List<CustomTemplateCopy> customTemplates;
+    public final List<CustomRelationCopy> customRelations;
+    public final List<EntityCopy> entities;
+    private final Map<EntityView, EntityCopy> entitiesByView = new IdentityHashMap<>();
+
+    /**
+     * A custom template, which is created in the scenario model if it extends a DEM template.
+     */
+    public static class CustomTemplateCopy {
+        public final String name;
+        public final String description;
+        // The template of the first parent, or null if it isn't a DEM template:
+        public final Template parent;
+
+        private CustomTemplateCopy(CustomTemplateView view) {
+            name = view.name;
+            description = view.description;
+            TemplateView parent = view.parentTemplates.iterator().next();
+            this.parent = parent instanceof DEMTemplateView ? ((DEMTemplateView) parent).template : null;
+        }
+    }
+
+    /**
+     * A custom relation with its DEM domain and range templates. Custom templates can't be domains or ranges.
+     */
+    public static class CustomRelationCopy {
+        public final CustomRelation relation;
+        public final String name;
+        public final String description;
+        public final List<Template> domains;
+        public final List<Template> ranges;
+
+        private CustomRelationCopy(CustomRelation relation) {
+            this.relation = relation;
+            name = relation.name;
+            description = relation.description;
+            domains = getTemplates(relation.getParentDomains());
+            ranges = getTemplates(relation.getParentRanges());
+        }
+
+        private static List<Template> getTemplates(Set<TemplateView> templateViews) {
+            List<Template> templates = new ArrayList<>();
+            for (TemplateView templateView : templateViews) {
+                if (templateView instanceof DEMTemplateView) {
+                    templates.add(((DEMTemplateView) templateView).template);
+                }
+            }
+            return Collections.unmodifiableList(templates);
+        }
+    }
+
+    /**
+     * An entity, with either the DEM template or the custom template of its view.
+     */
+    public static class EntityCopy {
+        public final String name;
+        public final String version;
+        public final String description;
+        public final Template template;
+        public final CustomTemplateCopy customTemplate;
+        private List<RelationCopy> relations = Collections.emptyList();
+
+        private EntityCopy(EntityView view, Template template, CustomTemplateCopy customTemplate) {
+            name = view.name;
+            version = view.version;
+            description = view.description;
+            this.template = template;
+            this.customTemplate = customTemplate;
+        }
+
+        public List<RelationCopy> getRelations() {
+            return relations;
+        }
+    }
+
+    /**
+     * The targets and values of a relation of an entity.
+     */
+    public static class RelationCopy {
+        public final Relation relation;
+        public final List<EntityCopy> targets;
+        public final List<String> values;
+
+        private RelationCopy(Relation relation, List<EntityCopy> targets, List<String> values) {
+            this.relation = relation;
+            this.targets = Collections.unmodifiableList(targets);
+            this.values = Collections.unmodifiableList(values);
+        }
+    }
+
+    /**
+     * Copies the scenario. Has to be called in the GUI thread.
+     */
+    public ScenarioSnapshot(ScenarioPanel panel) {
+        toBeImported = Collections.unmodifiableSet(new HashSet<>(panel.toBeImported));
+        List<CustomTemplateCopy> customTemplates = new ArrayList<>();
+        List<CustomRelationCopy> customRelations = new ArrayList<>();
+        List<EntityCopy> entities = new ArrayList<>();
+        Map<CustomTemplateView, CustomTemplateCopy> customTemplatesByView = new IdentityHashMap<>();
+        for (CustomTemplateView customTemplate : panel.customTemplates) {
+            CustomTemplateCopy copy = new CustomTemplateCopy(customTemplate);
+            customTemplatesByView.put(customTemplate, copy);
+            customTemplates.add(copy);
+        }
+        for (CustomRelation customRelation : panel.customRelations) {
+            customRelations.add(new CustomRelationCopy(customRelation));
+        }
+        for (ModelView modelView : panel.models) {
+            for (RadioTemplate radioTemplate : modelView.childTemplateViews) {
+                TemplateView templateView = radioTemplate.templateView;
+                Template template = null;
+                CustomTemplateCopy customTemplate = null;
+                if (modelView instanceof DEMModelView) {
+                    if (templateView instanceof DEMTemplateView) {
+                        template = ((DEMTemplateView) templateView).template;
+                    }
+                } else {
+                    customTemplate = customTemplatesByView.get(templateView);
+                }
+                if (template == null && (customTemplate == null || customTemplate.parent == null)) {
+                    continue;
+                }
+                for (EntityView entityView : templateView.childEntities) {
+                    EntityCopy entity = new EntityCopy(entityView, template, customTemplate);
+                    entitiesByView.put(entityView, entity);
+                    entities.add(entity);
+                }
+            }
+        }
+        // The targets are copied after all entities:
+        for (Map.Entry<EntityView, EntityCopy> entity : entitiesByView.entrySet()) {
+            List<RelationCopy> relations = new ArrayList<>();
+            for (RelationView relationView : entity.getKey().childRelations) {
+                List<EntityCopy> targets = new ArrayList<>();
+                for (TargetEntityView target : relationView.childTargetEntities) {
+                    EntityCopy targetEntity = entitiesByView.get(target.sameEntity);
+                    if (targetEntity != null) {
+                        targets.add(targetEntity);
+                    }
+                }
+                List<String> values = new ArrayList<>();
+                for (RangeValueView value : relationView.childValueEntities) {
+                    values.add(value.value);
+                }
+                relations.add(new RelationCopy(relationView.relation, targets, values));
+            }
+            entity.getValue().relations = Collections.unmodifiableList(relations);
+        }
+        this.customTemplates = Collections.unmodifiableList(customTemplates);
+        this.customRelations = Collections.unmodifiableList(customRelations);
+        this.entities = Collections.unmodifiableList(entities);
+    }
+
+    /**
+     * @return the copy of the entity view, or null if it doesn't result in an individual
+     */
+    public EntityCopy getEntity(EntityView entityView) {
+        return entitiesByView.get(entityView);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+
+import java.util.*;
+
+/**
+ * The scenario as a virtualized tree: the models, their used templates, the entities of the templates, the relations
+ * of the entities and the targets of the relations. Only the visible rows are rendered, by {@link ScenarioTreeCell}s
+ * which are reused while scrolling, so that the tree stays fast with many thousand entities.
+ * <p>
+ * The views of the scenario are the values of the tree items. They keep the data of the scenario, and tell the tree
+ * when a child was added or removed, or when they were changed. A view which is added with its children, e.g. a
+ * template which is selected again, gets the items of all its children.
+ */
+public class ScenarioTree extends TreeView<Object> {
+    private static final double ROW_HEIGHT = 28;
+    private final Map<Object, TreeItem<Object>> items = new IdentityHashMap<>();
+
+    public ScenarioTree() {
+        super(new TreeItem<>());
+        getRoot().setExpanded(true);
+        setShowRoot(false);
+        setFixedCellSize(ROW_HEIGHT);
+        setCellFactory(tree -> new ScenarioTreeCell());
+    }
+
+    /**
+     * Adds the view with its children at the end of the children of the parent. Nothing is done if the parent isn't
+     * shown, as the view is added with the parent later.
+     *
+     * @param parent the parent view, or null for a model
+     */
+    public void add(Object parent, Object view) {
+        TreeItem<Object> parentItem = parent == null ? getRoot() : items.get(parent);
+        if (parentItem == null || items.containsKey(view)) {
+            return;
+        }
+        parentItem.getChildren().add(createItem(view));
+    }
+
+    /**
+     * Removes the view and its children from the tree.
+     */
+    public void remove(Object view) {
+        TreeItem<Object> item = items.get(view);
+        if (item == null) {
+            return;
+        }
+        forget(item);
+        if (item.getParent() != null) {
+            item.getParent().getChildren().remove(item);
+        }
+    }
+
+    /**
+     * Removes all children of the view from the tree.
+     */
+    public void removeChildren(Object view) {
+        TreeItem<Object> item = items.get(view);
+        if (item == null) {
+            return;
+        }
+        item.getChildren().forEach(this::forget);
+        item.getChildren().clear();
+    }
+
+    /**
+     * Renders the row of the view again, e.g. after it was renamed.
+     */
+    public void refresh(Object view) {
+        TreeItem<Object> item = items.get(view);
+        if (item != null) {
+            item.setValue(null);
+            item.setValue(view);
+        }
+    }
+
+    /**
+     * Expands the parents of the view, selects it and scrolls to it.
+     */
+    public void show(Object view) {
+        TreeItem<Object> item = items.get(view);
+        if (item == null) {
+            return;
+        }
+        for (TreeItem<Object> parent = item.getParent(); parent != null; parent = parent.getParent()) {
+            parent.setExpanded(true);
+        }
+        getSelectionModel().select(item);
+        scrollTo(getRow(item));
+    }
+
+    public boolean contains(Object view) {
+        return items.containsKey(view);
+    }
+
+    private TreeItem<Object> createItem(Object view) {
+        TreeItem<Object> item = new TreeItem<>(view);
+        item.setExpanded(true);
+        items.put(view, item);
+        List<TreeItem<Object>> children = new ArrayList<>();
+        for (Object child : getChildViews(view)) {
+            children.add(createItem(child));
+        }
+        item.getChildren().addAll(children);
+        return item;
+    }
+
+    private void forget(TreeItem<Object> item) {
+        items.remove(item.getValue());
+        item.getChildren().forEach(this::forget);
+    }
+
+    private static Collection<?> getChildViews(Object view) {
+        if (view instanceof ModelView) {
+            List<TemplateView> templates = new ArrayList<>();
+            for (RadioTemplate radioTemplate : ((ModelView) view).childTemplateViews) {
+                if (radioTemplate.selected || radioTemplate.isSelected()) {
+                    templates.add(radioTemplate.templateView);
+                }
+            }
+            return templates;
+        } else if (view instanceof TemplateView) {
+            return ((TemplateView) view).childEntities;
+        } else if (view instanceof EntityView) {
+            return ((EntityView) view).childRelations;
+        } else if (view instanceof RelationView) {
+            List<Object> targets = new ArrayList<>(((RelationView) view).childTargetEntities);
+            targets.addAll(((RelationView) view).childValueEntities);
+            return targets;
+        }
+        return Collections.emptyList();
+    }
+}
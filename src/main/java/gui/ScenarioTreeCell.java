@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Hyperlink;
+import javafx.scene.control.TreeCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.text.Text;
+
+/**
+ * Renders one row of the {@link ScenarioTree}. The controls of the cell are created once, and are set up again for
+ * each view which is shown by the cell: a link to the information or configuration of the view, and the buttons to
+ * add entities to a template or to remove entities, relations and targets.
+ */
+public class ScenarioTreeCell extends TreeCell<Object> {
+    private final HBox box = new HBox(10);
+    private final Hyperlink link = new Hyperlink();
+    private final Text text = new Text();
+    private final Button add = new Button("New Entity");
+    private final Button remove = new Button("x");
+
+    public ScenarioTreeCell() {
+        box.setAlignment(Pos.CENTER_LEFT);
+        add.setId(EcoBuilder.ADD_BUTTON_ID);
+        remove.setId(EcoBuilder.REMOVE_BUTTON_ID);
+    }
+
+    @Override
+    protected void updateItem(Object view, boolean empty) {
+        super.updateItem(view, empty);
+        setText(null);
+        box.getChildren().clear();
+        link.setId(null);
+        if (empty || view == null) {
+            setGraphic(null);
+            return;
+        }
+        if (view instanceof ModelView) {
+            ModelView model = (ModelView) view;
+            showLink(model.prefix + " Model", e -> model.loadModelInformation());
+            link.setId(EcoBuilder.SUB_TITLE);
+        } else if (view instanceof TemplateView) {
+            TemplateView template = (TemplateView) view;
+            showLink(template.toString(), e -> template.loadInformation());
+            showButton(add, e -> template.addEntity());
+        } else if (view instanceof EntityView) {
+            EntityView entity = (EntityView) view;
+            showLink(entity.name, e -> entity.loadConfiguration());
+            showButton(remove, e -> entity.parentTemplate.remove(entity));
+        } else if (view instanceof RelationView) {
+            RelationView relation = (RelationView) view;
+            showText(relation.toString());
+            showButton(remove, e -> relation.removeThisRelationView());
+        } else if (view instanceof TargetEntityView) {
+            TargetEntityView target = (TargetEntityView) view;
+            showLink(target.sameEntity.name, e -> target.loadConfiguration());
+            showButton(remove, e -> target.parentRelation.removeTarget(target));
+        } else if (view instanceof RangeValueView) {
+            RangeValueView value = (RangeValueView) view;
+            showText(value.value);
+            showButton(remove, e -> value.parentRelation.removeValueTarget(value));
+        } else {
+            showText(view.toString());
+        }
+        setGraphic(box);
+    }
+
+    private void showLink(String name, EventHandler<ActionEvent> action) {
+        link.setText(name);
+        link.setVisited(false);
+        link.setOnAction(action);
+        box.getChildren().add(link);
+    }
+
+    private void showText(String content) {
+        text.setText(content);
+        box.getChildren().add(text);
+    }
+
+    private void showButton(Button button, EventHandler<ActionEvent> action) {
+        button.setOnAction(action);
+        box.getChildren().add(button);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.CustomMenuItem;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+
+import java.util.List;
+
+/**
+ * A type-ahead search box for the entities of the scenario. The matches of the {@link SearchIndex} are listed below the
+ * box while typing. A chosen entity is selected in the {@link ScenarioTree}, and its configuration is opened.
+ */
+public class SearchBox extends TextField {
+    private static final int MAX_RESULTS = 12;
+    private final ScenarioPanel scenario;
+    // Created at the first search, as the box may be created before the GUI is shown:
+    private ContextMenu results;
+
+    public SearchBox(ScenarioPanel scenario) {
+        this.scenario = scenario;
+        setPromptText("Search entities");
+        textProperty().addListener((observable, oldText, text) -> showResults(text));
+        setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                List<EntityView> matches = scenario.search(getText(), 1);
+                if (!matches.isEmpty()) {
+                    choose(matches.get(0));
+                }
+            } else if (event.getCode() == KeyCode.ESCAPE && results != null) {
+                results.hide();
+            }
+        });
+    }
+
+    private void showResults(String text) {
+        if (results == null) {
+            results = new ContextMenu();
+        }
+        List<EntityView> matches = scenario.search(text, MAX_RESULTS);
+        if (matches.isEmpty()) {
+            results.hide();
+            return;
+        }
+        results.getItems().clear();
+        for (EntityView entity : matches) {
+            CustomMenuItem item = new CustomMenuItem(new Label(entity.name + " (" + entity.parentTemplate.name + ")"),
+                    true);
+            item.setOnAction(event -> choose(entity));
+            results.getItems().add(item);
+        }
+        if (!results.isShowing() && getScene() != null) {
+            results.show(this, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    private void choose(EntityView entity) {
+        if (results != null) {
+            results.hide();
+        }
+        scenario.tree.show(entity);
+        if (scenario.ecoBuilder != null) {
+            entity.loadConfiguration();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import java.util.*;
+
+/**
+ * Full-text index of the entities of a scenario, for the search box and {@link ScenarioPanel#search(String, int)}.
+ * <p>
+ * The names, versions and descriptions of the entities and the text values of their relations are split into lower
+ * case tokens, at all characters which aren't letters or digits and at camel case boundaries. The inverted index maps
+ * each token to the entities which contain it. The tokens are kept sorted, so that all tokens with a prefix are one
+ * range of the map, like the subtree of a prefix trie. The index is updated with each edit of an entity: the tokens of
+ * the entity are computed again, and only the changed postings are updated.
+ * <p>
+ * A query matches the entities which contain each of its tokens as a prefix of one of their tokens. The matches of the
+ * query token with the fewest candidates are checked against the other tokens, and the search stops at the limit,
+ * which keeps the type-ahead search fast also for very large scenarios.
+ */
+public class SearchIndex {
+    // The tokens of the query words are only counted up to this bound, to choose the word with the fewest candidates:
+    private static final int COUNT_BOUND = 10000;
+    private final NavigableMap<String, Set<EntityView>> postings = new TreeMap<>();
+    private final Map<EntityView, Set<String>> tokensOfEntity = new IdentityHashMap<>();
+
+    /**
+     * Indexes a new or changed entity.
+     */
+    public void update(EntityView entity) {
+        Set<String> tokens = getTokens(entity);
+        Set<String> oldTokens = tokensOfEntity.put(entity, tokens);
+        if (oldTokens != null) {
+            for (String token : oldTokens) {
+                if (!tokens.contains(token)) {
+                    removePosting(token, entity);
+                }
+            }
+        }
+        for (String token : tokens) {
+            if (oldTokens == null || !oldTokens.contains(token)) {
+                postings.computeIfAbsent(token, key -> new HashSet<>(2)).add(entity);
+            }
+        }
+    }
+
+    public void remove(EntityView entity) {
+        Set<String> tokens = tokensOfEntity.remove(entity);
+        if (tokens != null) {
+            tokens.forEach(token -> removePosting(token, entity));
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        tokensOfEntity.clear();
+    }
+
+    /**
+     * @param query the words, which may be incomplete
+     * @param limit the maximum number of results
+     * @return the entities which contain all words of the query as prefix of their tokens, the entities with an exact
+     * match of a word first
+     */
+    public List<EntityView> search(String query, int limit) {
+        Set<String> queryTokens = tokenize(query, new LinkedHashSet<>());
+        List<String> words = new ArrayList<>();
+        for (String word : queryTokens) {
+            if (queryTokens.stream().noneMatch(other -> other.length() > word.length() && other.startsWith(word))) {
+                words.add(word); // else covered by the longer word
+            }
+        }
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String driver = words.get(0);
+        int fewestTokens = COUNT_BOUND;
+        for (String word : words) {
+            int tokens = countTokens(word, fewestTokens);
+            if (tokens < fewestTokens) {
+                fewestTokens = tokens;
+                driver = word;
+            }
+        }
+        if (fewestTokens == 0) {
+            return Collections.emptyList();
+        }
+        Set<EntityView> results = new LinkedHashSet<>();
+        Set<EntityView> exact = postings.get(driver);
+        if (exact != null) {
+            collect(exact, words, driver, limit, results);
+        }
+        for (Map.Entry<String, Set<EntityView>> token : getRange(driver).entrySet()) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (!token.getKey().equals(driver)) {
+                collect(token.getValue(), words, driver, limit, results);
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    public int size() {
+        return tokensOfEntity.size();
+    }
+
+    private void collect(Set<EntityView> candidates, List<String> words, String driver, int limit,
+                         Set<EntityView> results) {
+        for (EntityView candidate : candidates) {
+            if (results.size() >= limit) {
+                return;
+            }
+            if (matchesAll(tokensOfEntity.get(candidate), words, driver)) {
+                results.add(candidate);
+            }
+        }
+    }
+
+    private static boolean matchesAll(Set<String> tokens, List<String> words, String driver) {
+        for (String word : words) {
+            if (word.equals(driver) || tokens.contains(word)) {
+                continue;
+            }
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts the tokens with the prefix, but stops at the bound.
+     */
+    private int countTokens(String prefix, int bound) {
+        int count = 0;
+        for (String ignored : getRange(prefix).keySet()) {
+            if (++count >= bound) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private SortedMap<String, Set<EntityView>> getRange(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private void removePosting(String token, EntityView entity) {
+        Set<EntityView> entities = postings.get(token);
+        if (entities != null && entities.remove(entity) && entities.isEmpty()) {
+            postings.remove(token);
+        }
+    }
+
+    private static Set<String> getTokens(EntityView entity) {
+        Set<String> tokens = new HashSet<>();
+        tokenize(entity.name, tokens);
+        tokenize(entity.version, tokens);
+        tokenize(entity.description, tokens);
+        for (RelationView relation : entity.childRelations) {
+            for (RangeValueView value : relation.childValueEntities) {
+                tokenize(value.value, tokens);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds the lower case words of the text, and the parts of camel case words.
+     */
+    static Set<String> tokenize(String text, Set<String> tokens) {
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                addWord(text.substring(start, i), tokens);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static void addWord(String word, Set<String> tokens) {
+        tokens.add(word.toLowerCase(Locale.ROOT));
+        int partStart = 0;
+        for (int i = 1; i < word.length(); i++) {
+            if (Character.isUpperCase(word.charAt(i)) && Character.isLowerCase(word.charAt(i - 1))) {
+                tokens.add(word.substring(partStart, i).toLowerCase(Locale.ROOT));
+                partStart = i;
+            }
+        }
+        if (partStart > 0) {
+            tokens.add(word.substring(partStart).toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -17,8 +17,6 @@
  */
 package gui;
 
-import javafx.scene.control.Button;
-import javafx.scene.control.Hyperlink;
 import javafx.scene.layout.GridPane;
 
 import java.io.Serializable;
@@ -28,26 +26,18 @@ import java.io.Serializable;
  * at the tree as a child of a {@link RelationView} node.
  */
 public class TargetEntityView extends GridPane implements Serializable {
+    private static final long serialVersionUID = 6961945773746698207L;
+
     /* The 'sameEntity' links to the entity node which represents exactly the same entity as this one. */
     public EntityView sameEntity;
     transient public final RelationView parentRelation;
-    transient private final Hyperlink name;
 
     public TargetEntityView(EntityView sameEntity, RelationView relation) {
         this.sameEntity = sameEntity;
         this.parentRelation = relation;
-        setId(EcoBuilder.TARGET_ENTITY_ID);
-        name = new Hyperlink(sameEntity.name);
-        name.setOnAction(event -> loadConfiguration());
-        Button remove = new Button("X");
-        remove.setId(EcoBuilder.REMOVE_BUTTON_ID);
-        remove.setOnAction(e -> parentRelation.removeTarget(this));
-        setConstraints(name, 0, 0);
-        setConstraints(remove, 1, 0);
-        getChildren().addAll(name, remove);
     }
 
-    private void loadConfiguration() {
+    void loadConfiguration() {
         parentRelation.parentEntity.parentTemplate.parentModel.scenario.ecoBuilder.entityConfiguration.loadConfiguration(sameEntity);
     }
 
@@ -57,6 +47,6 @@ public class TargetEntityView extends GridPane implements Serializable {
     }
 
     public void update() {
-        name.setText(sameEntity.name);
+        parentRelation.parentEntity.getTree().refresh(this);
     }
 }
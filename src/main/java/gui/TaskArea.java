@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package gui;
+
+import javafx.beans.binding.Bindings;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs the {@link BackgroundTask}s one after the other on a worker thread, and shows the progress of the running task
+ * with a cancel button below the information area. The area is hidden, while no task is running.
+ */
+public class TaskArea extends HBox {
+    private final EcoBuilder ecoBuilder;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "EcoBuilder-Task");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ProgressBar progressBar = new ProgressBar();
+    private final Label message = new Label();
+    private final Button cancel = new Button("Cancel");
+    // The submitted tasks, which aren't finished yet:
+    private final List<BackgroundTask<?>> tasks = new ArrayList<>();
+    private BackgroundTask<?> shownTask;
+
+    public TaskArea(EcoBuilder ecoBuilder) {
+        this.ecoBuilder = ecoBuilder;
+        setSpacing(5);
+        setAlignment(Pos.CENTER_LEFT);
+        message.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(message, Priority.ALWAYS);
+        getChildren().addAll(progressBar, message, cancel);
+        setVisible(false);
+        setManaged(false);
+    }
+
+    /**
+     * Starts the task after the previously started tasks. Has to be called in the GUI thread.
+     *
+     * @param task      the task, nothing is done if it is null, e.g. because the user closed a dialog
+     * @param onSuccess applies the result of the task in the GUI thread, can be null
+     */
+    public <T> void run(BackgroundTask<T> task, Consumer<T> onSuccess) {
+        if (task == null) {
+            return;
+        }
+        tasks.add(task);
+        task.setOnRunning(event -> show(task));
+        task.setOnSucceeded(event -> {
+            finished(task);
+            if (onSuccess != null) {
+                onSuccess.accept(task.getValue());
+            } else {
+                ecoBuilder.loadInformation(task.getTitle(), task.getMessage());
+            }
+        });
+        task.setOnFailed(event -> {
+            finished(task);
+            task.getException().printStackTrace();
+            ecoBuilder.loadInformation(task.getTitle(), "Failed: " + task.getException());
+        });
+        task.setOnCancelled(event -> {
+            finished(task);
+            ecoBuilder.loadInformation(task.getTitle(), "Cancelled.");
+        });
+        worker.execute(task);
+    }
+
+    /**
+     * @return true, if a task is running or waiting
+     */
+    public boolean isBusy() {
+        return !tasks.isEmpty();
+    }
+
+    /**
+     * Cancels the running and the waiting tasks.
+     */
+    public void close() {
+        new ArrayList<>(tasks).forEach(BackgroundTask::cancel);
+        worker.shutdownNow();
+    }
+
+    private void show(BackgroundTask<?> task) {
+        shownTask = task;
+        progressBar.progressProperty().bind(task.progressProperty());
+        message.textProperty().bind(Bindings.concat(task.titleProperty(), ": ", task.messageProperty()));
+        cancel.setOnAction(event -> task.cancel());
+        setVisible(true);
+        setManaged(true);
+    }
+
+    private void finished(BackgroundTask<?> task) {
+        tasks.remove(task);
+        if (shownTask == task) {
+            shownTask = null;
+            progressBar.progressProperty().unbind();
+            message.textProperty().unbind();
+            cancel.setOnAction(null);
+        }
+        if (tasks.isEmpty()) {
+            setVisible(false);
+            setManaged(false);
+        }
+    }
+}
@@ -17,8 +17,6 @@
  */
 package gui;
 
-import javafx.scene.control.Button;
-import javafx.scene.control.Hyperlink;
 import javafx.scene.layout.GridPane;
 
 import java.io.Serializable;
@@ -27,9 +25,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * A template of a model, which is used in the scenario. It is shown as a row of the {@link ScenarioTree}, with its
+ * entities as children.
+ */
 public class TemplateView extends GridPane implements Serializable {
+    private static final long serialVersionUID = 1158505467186937380L;
+
     public ModelView parentModel;
-    transient private final Button add;
     public String name;
     public String description;
     public Set<EntityView> childEntities = new HashSet<>();
@@ -39,23 +42,13 @@ public class TemplateView extends GridPane implements Serializable {
         this.parentModel = parentModel;
         this.name = name;
         this.description = description;
-        getStyleClass().add(EcoBuilder.PANE);
-        setId(EcoBuilder.TEMPLATE_ID);
-        final Hyperlink link = new Hyperlink(this.toString());
-        link.setOnAction(e -> loadInformation());
-        add = new Button("New Entity");
-        add.setId(EcoBuilder.ADD_BUTTON_ID);
-        add.setOnAction(e -> addEntity());
-        setConstraints(link, 0, 0);
-        setConstraints(add, 0, 1);
-        getChildren().addAll(link, add);
     }
 
     /**
      * Load information about this template into the graphical information view, once the
      * template is selected.
      */
-    private void loadInformation() {
+    void loadInformation() {
         EcoBuilder ecoBuilder = parentModel.scenario.ecoBuilder;
         ecoBuilder.loadInformation("Template Information: " + name, description);
         ecoBuilder.templateConfiguration.loadConfiguration(this);
@@ -63,10 +56,9 @@ public class TemplateView extends GridPane implements Serializable {
 
     public EntityView addEntity() {
         EntityView entity = new EntityView(this);
-        setConstraints(entity, 0, childEntities.size() + 1);
-        setConstraints(add, 0, childEntities.size() + 2); //The add button after all entities
-        getChildren().add(entity);
         childEntities.add(entity);
+        parentModel.scenario.tree.add(this, entity);
+        parentModel.scenario.entityAdded(entity);
         return entity;
     }
 
@@ -77,13 +69,9 @@ public class TemplateView extends GridPane implements Serializable {
     }
 
     public void remove(EntityView entity) {
-        getChildren().remove(entity);
-        childEntities.remove(entity);
-        setConstraints(add, 0, childEntities.size() + 2);
-        int entityIndex = 1;
-        for (EntityView view : childEntities) {
-            setConstraints(view, 0, entityIndex);
-            entityIndex++;
+        parentModel.scenario.tree.remove(entity);
+        if (childEntities.remove(entity)) {
+            parentModel.scenario.entityRemoved(entity);
         }
     }
 
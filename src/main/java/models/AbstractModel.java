@@ -20,6 +20,7 @@ package models;
 import LRMv2.LRM_dynamic_schema;
 import LRMv2.LRM_static_schema;
 import entities.Template;
+import entities.TemplateHierarchy;
 import org.apache.jena.ontology.OntModel;
 import org.apache.jena.ontology.OntModelSpec;
 import org.apache.jena.ontology.Ontology;
@@ -30,8 +31,6 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-import static models.DEM.*;
-
 /**
  * Base class for the ecosystem ontologies including the DEM sub models, the scenario model and the LRM wrapper.
  * <p>
@@ -42,6 +41,8 @@ import static models.DEM.*;
  * <p>
  */
 public abstract class AbstractModel implements Serializable {
+    private static final long serialVersionUID = -807253478623376869L;
+
     public final String prefix; // Alias for the namespace
     transient public final String description; // Description of the model
     transient public final String namespace;
@@ -50,6 +51,10 @@ public abstract class AbstractModel implements Serializable {
     transient protected final List<AbstractModel> imports = new ArrayList<>();
     transient public final List<Template> templates = new ArrayList<>();
     transient public final List<Relation> relations = new ArrayList<>();
+    // True, if the graph of this model was loaded from a precompiled DEMSnapshot:
+    transient private final boolean loadedFromSnapshot;
+    transient private ResourceMinter.Names names;
+    transient private TemplateHierarchy hierarchy;
 
     public AbstractModel(String prefix, String description) {
         this(getNamespace(prefix), prefix, description);
@@ -66,6 +71,7 @@ public abstract class AbstractModel implements Serializable {
         this.prefix = prefix;
         this.description = description;
         model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+        loadedFromSnapshot = DEMSnapshot.load(prefix, model);
         model.setNsPrefix(prefix, namespace);
         ontology = model.createOntology(namespace);
         importLRM();
@@ -73,6 +79,16 @@ public abstract class AbstractModel implements Serializable {
         createModelRelations();
     }
 
+    /**
+     * If the model was loaded from a snapshot, then its templates and relations only bind to the existing ontology
+     * resources, and must not write them again.
+     *
+     * @return true, if the graph of this model was loaded from a precompiled {@link DEMSnapshot}
+     */
+    public boolean isLoadedFromSnapshot() {
+        return loadedFromSnapshot;
+    }
+
     /**
      * Imports the LRM static and dynamic model. All DEM-ontologies inherit from the LRM.
      */
@@ -81,13 +97,13 @@ public abstract class AbstractModel implements Serializable {
             return;
         }
         // All DEM models import the static and the dynamic LRM:
-        importModel(LRM_STATIC);
-        importModel(LRM_DYNAMIC);
+        importModel(DEM.getLRMStatic());
+        importModel(DEM.getLRMDynamic());
         if (this instanceof CoreModel) {
             return;
         }
         // All DEM sub ontologies import the core model:
-        importModel(CORE_MODEL);
+        importModel(DEM.getCoreModel());
     }
 
     /**
@@ -132,15 +148,42 @@ public abstract class AbstractModel implements Serializable {
      * @return the sanitized name
      */
     public static String sanitizeName(String userInput) {
-        String whitelistedChars = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
-        char[] input = userInput.toCharArray();
-        String output = "";
-        for (int i = 0; i < input.length; i++) {
-            if (whitelistedChars.contains("" + input[i])) {
-                output += input[i];
-            }
+        return ResourceMinter.sanitize(userInput);
+    }
+
+    /**
+     * Mints the IRI of a resource of this model. If another name was used before for the same IRI, the collision is
+     * recorded in the {@link #getNames()}.
+     *
+     * @param name The name suggested by the user
+     * @return the IRI in the namespace of this model
+     */
+    public String mintURI(String name) {
+        String uri = ResourceMinter.iri(namespace, name).getURI();
+        getNames().register(uri, name);
+        return uri;
+    }
+
+    /**
+     * @return the names which were minted in this model, and their collisions
+     */
+    public synchronized ResourceMinter.Names getNames() {
+        if (names == null) {
+            names = new ResourceMinter.Names();
+        }
+        return names;
+    }
+
+    /**
+     * The DEM models share the {@link TemplateHierarchy#DEM}, each scenario model has its own hierarchy.
+     *
+     * @return the inheritance hierarchy of the templates of this model
+     */
+    public synchronized TemplateHierarchy getHierarchy() {
+        if (hierarchy == null) {
+            hierarchy = this instanceof ScenarioModel ? new TemplateHierarchy() : TemplateHierarchy.DEM;
         }
-        return output;
+        return hierarchy;
     }
 
     @Override
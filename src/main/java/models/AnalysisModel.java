@@ -26,6 +26,8 @@ import relations.DEMRelation;
 import relations.RelationBuilder;
 
 public class AnalysisModel extends AbstractModel {
+    private static final long serialVersionUID = 3920024635423863368L;
+
     /**
      * The abstract ecosystem templates. These are the abstract entity "classes"
      * of the ontology, which serve to be templates for the creation of real
@@ -110,4 +112,7 @@ public class AnalysisModel extends AbstractModel {
 //        weightedRelation.addPossibleRelation(LRM_static_schema.from_property, CoreModel.ecosystemEntity);
 //        weightedRelation.addPossibleRelation(LRM_static_schema.to_property, CoreModel.ecosystemEntity);
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final AnalysisModel INSTANCE = new AnalysisModel();
 }
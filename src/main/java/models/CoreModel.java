@@ -38,6 +38,8 @@ import relations.RelationBuilder;
  * object) and a few other base entities.
  */
 public class CoreModel extends AbstractModel {
+    private static final long serialVersionUID = -5509673723633524655L;
+
     /**
      * The abstract ecosystem templates. These are the abstract entity "classes"
      * of the ontology, which serve to be templates for the creation of real
@@ -163,4 +165,7 @@ public class CoreModel extends AbstractModel {
                 .superRelation(LRM_dynamic_schema.executes)
                 .comment("An agent executes an activity or a process.").create();
     }
-}
\ No newline at end of file
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final CoreModel INSTANCE = new CoreModel();
+}
@@ -25,32 +25,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Main manager of the different DEM template models. The models must exist only once! Therefore the DEM class is
- * implemented as Singleton.
+ * Main manager of the different DEM template models. The models must exist only once! Therefore each model class
+ * keeps its single instance, and the DEM class provides the access to them.
+ * <p>
+ * The models are built lazily: a model is created at the first access of its getter, or at the first access of one of
+ * its templates or relations, e.g. {@link CoreModel#policy}. A scenario which uses only core entities therewith never
+ * pays for the construction of the other sub models. The JVM class initialisation ensures that each model is created
+ * exactly once, also if it is accessed from multiple threads. This is free of deadlocks, as the model imports are
+ * acyclic: LRM &lt;- Core &lt;- (Policy, Process, Infrastructure, Analysis) &lt;- Preservation Policy, DVA.
  * <p>
  * The Digital Ecosystem Model builds on top of the The Linked Resource Model (LRM).
  * <p>
  */
 public class DEM {
-    // The DEM imports the LRM static and dynamic schema:
-    public static final LRM_static_schema LRM_STATIC = new LRM_static_schema();
-    public static final LRM_dynamic_schema LRM_DYNAMIC = new LRM_dynamic_schema();
-    // The Core entities - This model is obligatory:
-    public static final CoreModel CORE_MODEL = new CoreModel();
-    // Policies and Quality Assurance:
-    public static final PolicyModel POLICY_MODEL = new PolicyModel();
-    // Process and change modelling:
-    public static final ProcessModel PROCESS_MODEL = new ProcessModel();
-    // Entities to model the technical infrastructure in more detail:
-    public static final InfrastructureModel INFRASTRUCTURE_MODEL = new InfrastructureModel();
-    // Entities for arbitrary graph analysis:
-    public static final AnalysisModel ANALYSIS_MODEL = new AnalysisModel();
-    // SCAPE Guidance - Preservation extension of the Policy Model:
-    public static final PreservationPolicyModel PRESERVATION_POLICY_MODEL = new PreservationPolicyModel();
-
-    // Digital Video Artwork Domain Ontology:
-    public static final DVAWrapper DVA_MODEL = new DVAWrapper();
-
     public static boolean addedDVA = false;
 
     /**
@@ -59,16 +46,81 @@ public class DEM {
     private DEM() {
     }
 
+    /**
+     * The DEM imports the LRM static and dynamic schema.
+     */
+    public static LRM_static_schema getLRMStatic() {
+        return LRM_static_schema.INSTANCE;
+    }
+
+    public static LRM_dynamic_schema getLRMDynamic() {
+        return LRM_dynamic_schema.INSTANCE;
+    }
+
+    /**
+     * The Core entities - This model is obligatory.
+     */
+    public static CoreModel getCoreModel() {
+        return CoreModel.INSTANCE;
+    }
+
+    /**
+     * Policies and Quality Assurance.
+     */
+    public static PolicyModel getPolicyModel() {
+        return PolicyModel.INSTANCE;
+    }
+
+    /**
+     * Process and change modelling.
+     */
+    public static ProcessModel getProcessModel() {
+        return ProcessModel.INSTANCE;
+    }
+
+    /**
+     * Entities to model the technical infrastructure in more detail.
+     */
+    public static InfrastructureModel getInfrastructureModel() {
+        return InfrastructureModel.INSTANCE;
+    }
+
+    /**
+     * Entities for arbitrary graph analysis.
+     */
+    public static AnalysisModel getAnalysisModel() {
+        return AnalysisModel.INSTANCE;
+    }
+
+    /**
+     * SCAPE Guidance - Preservation extension of the Policy Model.
+     */
+    public static PreservationPolicyModel getPreservationPolicyModel() {
+        return PreservationPolicyModel.INSTANCE;
+    }
+
+    /**
+     * Digital Video Artwork Domain Ontology. It is only built if it is used.
+     */
+    public static DVAWrapper getDVAModel() {
+        return DVAWrapper.INSTANCE;
+    }
+
+    /**
+     * All DEM sub models, as they are presented in the graphical interface. Calling this method builds all models.
+     *
+     * @return the DEM sub models, and the DVA model if it was added
+     */
     public static List<AbstractModel> getModels() {
         List<AbstractModel> models = new ArrayList<AbstractModel>();
-        models.add(CORE_MODEL);
-        models.add(POLICY_MODEL);
-        models.add(PROCESS_MODEL);
-        models.add(INFRASTRUCTURE_MODEL);
-        models.add(ANALYSIS_MODEL);
-        models.add(PRESERVATION_POLICY_MODEL);
+        models.add(getCoreModel());
+        models.add(getPolicyModel());
+        models.add(getProcessModel());
+        models.add(getInfrastructureModel());
+        models.add(getAnalysisModel());
+        models.add(getPreservationPolicyModel());
         if (addedDVA) {
-            models.add(DVA_MODEL);
+            models.add(getDVAModel());
         }
         return models;
     }
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package models;
+
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.ontology.OntModelSpec;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Precompiled snapshots of the DEM sub ontologies.
+ * <p>
+ * The DEM template models never change at runtime. Instead of replaying all createModelEntities() and
+ * createModelRelations() calls at each start, the graph of each sub model is written at build time into a compact
+ * binary file, which is shipped in the jar at /dem/[prefix].bin. If a snapshot exists for a model, the
+ * {@link AbstractModel} loads the graph from it, and the {@link entities.Template}s and {@link relations.DEMRelation}s
+ * only bind to the existing ontology resources, without writing to the graph again.
+ * <p>
+ * The snapshots are created by the main method of this class in the process-classes phase of the maven build. It also
+ * checks that each snapshot reads back into a graph isomorphic to the code-built model. Set the system property
+ * "ecobuilder.snapshot" to false to build the models from code.
+ * <p>
+ * File format: magic number, version, the namespace prefixes, a table of all strings, a table of all nodes referring to
+ * the strings, and the triples referring to the nodes.
+ */
+public class DEMSnapshot {
+    public static final String PROPERTY = "ecobuilder.snapshot";
+    private static final int MAGIC = 0x44454D53; // "DEMS"
+    private static final int VERSION = 1;
+    private static final String RESOURCE_DIRECTORY = "/dem/";
+    private static final String SUFFIX = ".bin";
+
+    private static final byte URI = 0;
+    private static final byte BLANK = 1;
+    private static final byte LANG_LITERAL = 2;
+    private static final byte TYPED_LITERAL = 3;
+
+    private static volatile boolean enabled = !"false".equals(System.getProperty(PROPERTY));
+
+    private DEMSnapshot() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        DEMSnapshot.enabled = enabled;
+    }
+
+    /**
+     * Loads the snapshot of the model with the given prefix into the ontology model, if a snapshot exists.
+     *
+     * @param prefix The prefix of the DEM sub model
+     * @param model  The empty ontology model of the sub model
+     * @return true, if the graph was loaded from the snapshot
+     */
+    static boolean load(String prefix, OntModel model) {
+        if (!enabled) {
+            return false;
+        }
+        try (InputStream in = open(prefix)) {
+            if (in == null) {
+                return false;
+            }
+            read(in, model);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not load the snapshot of " + prefix + ", building it from code.");
+            e.printStackTrace();
+            model.getBaseModel().removeAll();
+            return false;
+        }
+    }
+
+    private static InputStream open(String prefix) {
+        return DEMSnapshot.class.getResourceAsStream(RESOURCE_DIRECTORY + prefix + SUFFIX);
+    }
+
+    /**
+     * Writes the base graph and the prefixes of the model in the snapshot format.
+     *
+     * @param model The model to be written
+     * @param out   Stream to write to
+     */
+    public static void write(OntModel model, OutputStream out) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<Node, Integer> nodes = new LinkedHashMap<>();
+        List<int[]> triples = new ArrayList<>();
+        ExtendedIterator<Triple> iterator = model.getBaseModel().getGraph().find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (iterator.hasNext()) {
+                Triple triple = iterator.next();
+                triples.add(new int[]{nodeIndex(triple.getSubject(), nodes, strings),
+                        nodeIndex(triple.getPredicate(), nodes, strings),
+                        nodeIndex(triple.getObject(), nodes, strings)});
+            }
+        } finally {
+            iterator.close();
+        }
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        Map<String, String> prefixes = model.getNsPrefixMap();
+        data.writeInt(prefixes.size());
+        for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+            writeString(data, prefix.getKey());
+            writeString(data, prefix.getValue());
+        }
+        data.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            writeString(data, string);
+        }
+        data.writeInt(nodes.size());
+        for (Node node : nodes.keySet()) {
+            if (node.isURI()) {
+                data.writeByte(URI);
+                data.writeInt(strings.get(node.getURI()));
+            } else if (node.isBlank()) {
+                data.writeByte(BLANK);
+            } else if (!node.getLiteralLanguage().isEmpty()) {
+                data.writeByte(LANG_LITERAL);
+                data.writeInt(strings.get(node.getLiteralLexicalForm()));
+                data.writeInt(strings.get(node.getLiteralLanguage()));
+            } else {
+                data.writeByte(TYPED_LITERAL);
+                data.writeInt(strings.get(node.getLiteralLexicalForm()));
+                data.writeInt(strings.get(node.getLiteralDatatypeURI()));
+            }
+        }
+        data.writeInt(triples.size());
+        for (int[] triple : triples) {
+            data.writeInt(triple[0]);
+            data.writeInt(triple[1]);
+            data.writeInt(triple[2]);
+        }
+        data.flush();
+    }
+
+    private static int nodeIndex(Node node, Map<Node, Integer> nodes, Map<String, Integer> strings) {
+        Integer index = nodes.get(node);
+        if (index != null) {
+            return index;
+        }
+        if (node.isURI()) {
+            stringIndex(node.getURI(), strings);
+        } else if (node.isLiteral()) {
+            stringIndex(node.getLiteralLexicalForm(), strings);
+            if (!node.getLiteralLanguage().isEmpty()) {
+                stringIndex(node.getLiteralLanguage(), strings);
+            } else {
+                stringIndex(node.getLiteralDatatypeURI(), strings);
+            }
+        }
+        index = nodes.size();
+        nodes.put(node, index);
+        return index;
+    }
+
+    private static void stringIndex(String string, Map<String, Integer> strings) {
+        if (!strings.containsKey(string)) {
+            strings.put(string, strings.size());
+        }
+    }
+
+    /**
+     * Reads a snapshot into the base graph of the model. Blank nodes get new identities.
+     *
+     * @param in    Stream to read from
+     * @param model The model to be filled
+     */
+    public static void read(InputStream in, OntModel model) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a DEM snapshot.");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported DEM snapshot version " + version);
+        }
+        int prefixCount = data.readInt();
+        for (int i = 0; i < prefixCount; i++) {
+            model.setNsPrefix(readString(data), readString(data));
+        }
+        String[] strings = new String[data.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(data);
+        }
+        Node[] nodes = new Node[data.readInt()];
+        TypeMapper types = TypeMapper.getInstance();
+        for (int i = 0; i < nodes.length; i++) {
+            byte kind = data.readByte();
+            switch (kind) {
+                case URI:
+                    nodes[i] = NodeFactory.createURI(strings[data.readInt()]);
+                    break;
+                case BLANK:
+                    nodes[i] = NodeFactory.createBlankNode();
+                    break;
+                case LANG_LITERAL:
+                    nodes[i] = NodeFactory.createLiteral(strings[data.readInt()], strings[data.readInt()]);
+                    break;
+                case TYPED_LITERAL:
+                    String lexicalForm = strings[data.readInt()];
+                    String datatype = strings[data.readInt()];
+                    if (XSDDatatype.XSDstring.getURI().equals(datatype)) {
+                        nodes[i] = NodeFactory.createLiteral(lexicalForm);
+                    } else {
+                        nodes[i] = NodeFactory.createLiteral(lexicalForm, types.getSafeTypeByName(datatype));
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown node kind " + kind);
+            }
+        }
+        Graph graph = model.getBaseModel().getGraph();
+        int tripleCount = data.readInt();
+        for (int i = 0; i < tripleCount; i++) {
+            graph.add(Triple.create(nodes[data.readInt()], nodes[data.readInt()], nodes[data.readInt()]));
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates the snapshots of all DEM sub models including the DVA model, and checks that the snapshots read back into
+     * graphs isomorphic to the code-built models. Called by the maven build.
+     *
+     * @param args The output directory, by default target/classes/dem
+     */
+    public static void main(String[] args) throws Exception {
+        Path output = Paths.get(args.length > 0 ? args[0] : "target/classes/dem");
+        Files.createDirectories(output);
+        setEnabled(false);
+        List<AbstractModel> models = new ArrayList<>(DEM.getModels());
+        if (!models.contains(DEM.getDVAModel())) {
+            models.add(DEM.getDVAModel());
+        }
+        for (AbstractModel model : models) {
+            Path file = output.resolve(model.prefix + SUFFIX);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                write(model.model, out);
+            }
+            System.out.println("Wrote snapshot " + file + " (" + model.model.getBaseModel().size() + " statements, "
+                    + Files.size(file) + " bytes)");
+        }
+        // Check that the snapshots reproduce the code-built models. The snapshots are read into plain ontology models,
+        // because constructing the model classes again would re-assign their static templates and relations:
+        for (AbstractModel model : models) {
+            Path file = output.resolve(model.prefix + SUFFIX);
+            OntModel loaded = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+            long start = System.nanoTime();
+            try (InputStream in = Files.newInputStream(file)) {
+                read(in, loaded);
+            }
+            long time = (System.nanoTime() - start) / 1000;
+            if (!loaded.getBaseModel().getGraph().isIsomorphicWith(model.model.getBaseModel().getGraph())) {
+                throw new IllegalStateException("The snapshot of " + model.prefix
+                        + " is not isomorphic to the code-built model.");
+            }
+            if (!loaded.getNsPrefixMap().equals(model.model.getNsPrefixMap())) {
+                throw new IllegalStateException("The snapshot of " + model.prefix
+                        + " does not reproduce the prefixes of the code-built model.");
+            }
+            System.out.println("Checked snapshot of " + model.prefix + ", read in " + time + " µs");
+        }
+    }
+}
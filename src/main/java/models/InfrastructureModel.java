@@ -27,6 +27,8 @@ import relations.DEMRelation;
 import relations.RelationBuilder;
 
 public class InfrastructureModel extends AbstractModel {
+    private static final long serialVersionUID = -1614330553138475418L;
+
     /**
      * The abstract ecosystem templates. These are the abstract entity "classes"
      * of the ontology, which serve to be templates for the creation of real
@@ -78,4 +80,7 @@ public class InfrastructureModel extends AbstractModel {
         runsOn = new RelationBuilder(this, "runsOn", automaticAgent).comment("A software or hardware agent runs on a server.")
                 .range(CoreModel.technicalService).create();
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final InfrastructureModel INSTANCE = new InfrastructureModel();
 }
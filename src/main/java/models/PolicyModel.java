@@ -30,6 +30,8 @@ import relations.DEMRelation;
 import relations.RelationBuilder;
 
 public class PolicyModel extends AbstractModel {
+    private static final long serialVersionUID = 1975734577582385204L;
+
     /**
      * The abstract ecosystem templates. These are the abstract entity "classes"
      * of the ontology, which serve to be templates for the creation of real
@@ -151,4 +153,7 @@ public class PolicyModel extends AbstractModel {
                 .comment("The Quality Assurance definition assures the quality of a designated Policy linked via " +
                         "this relation.").range(CoreModel.policy).create();
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final PolicyModel INSTANCE = new PolicyModel();
 }
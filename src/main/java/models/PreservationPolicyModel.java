@@ -20,6 +20,8 @@ package models;
 import entities.*;
 
 public class PreservationPolicyModel extends AbstractModel {
+    private static final long serialVersionUID = 6114681024498518656L;
+
     public static DigitalPreservationPolicy.DigitalPreservationPolicyTemplate digitalPreservationPolicy;
     public static GuidancePolicyAccess.GuidancePolicyAccessTemplate guidancePolicyAccess;
     public static GuidancePolicyTrustworthyDigitalRepositories.GuidancePolicyAuditAndCertificationTemplate guidancePolicyTrustworthyDigitalRepositories;
@@ -34,7 +36,7 @@ public class PreservationPolicyModel extends AbstractModel {
     public PreservationPolicyModel() {
         super("http://www.pericles-project.eu/ns/DEM-preservation#", "SCAPE-Preservation", "This is the integration of the SCAPE project's guidance policy model into the DEM. The guidance " +
                 "model is described in detail at http://wiki.opf-labs.org/display/SP/Policy+Elements");
-        importModel(DEM.POLICY_MODEL);
+        importModel(DEM.getPolicyModel());
     }
 
     @Override
@@ -54,4 +56,7 @@ public class PreservationPolicyModel extends AbstractModel {
     @Override
     public void createModelRelations() {
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final PreservationPolicyModel INSTANCE = new PreservationPolicyModel();
 }
@@ -32,6 +32,8 @@ import relations.DEMRelation;
 import relations.RelationBuilder;
 
 public class ProcessModel extends AbstractModel {
+    private static final long serialVersionUID = 2368954550312991596L;
+
     /**
      * The abstract ecosystem templates. These are the abstract entity "classes"
      * of the ontology, which serve to be templates for the creation of real
@@ -134,4 +136,7 @@ public class ProcessModel extends AbstractModel {
         implementationType = new RelationBuilder(this, "implementationType", implementation)
                 .comment("The type format of the implementation, e.g. BPMN.").create();
     }
+
+    // Built at the first use of the class, see models.DEM. Keep it the last static field!
+    public static final ProcessModel INSTANCE = new ProcessModel();
 }
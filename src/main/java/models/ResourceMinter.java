@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package models;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+import java.util.*;
+
+/**
+ * Central minting service for the IRIs and literals of the ecosystem models.
+ * <p>
+ * The resource IRIs are generated from the names given by the user or the template models. The sanitizer does not
+ * allocate if the name is already clean, and the IRIs of recently used names are kept in a bounded cache. Frequent
+ * short literals, like the "en" labels, requirement levels or formats, are interned, so that the scenario and the DEM
+ * graphs share the same literal nodes.
+ * <p>
+ * As the sanitizer removes characters, different names can result in the same IRI, e.g. "Server 1" and "Server-1". Each
+ * model records such collisions in its {@link Names}.
+ */
+public class ResourceMinter {
+    private static final int IRI_CACHE_SIZE = 8192;
+    private static final int LITERAL_POOL_SIZE = 4096;
+    // Longer literals are mostly unique descriptions, which are not worth to be interned:
+    private static final int MAX_INTERNED_LITERAL_LENGTH = 64;
+
+    private static final BoundedCache IRIS = new BoundedCache(IRI_CACHE_SIZE);
+    private static final BoundedCache LITERALS = new BoundedCache(LITERAL_POOL_SIZE);
+
+    private ResourceMinter() {
+    }
+
+    /**
+     * Removes all characters which are not alphanumeric. The input string itself is returned, if it contains only
+     * valid characters.
+     *
+     * @param name The name suggested by the user
+     * @return the sanitized name
+     */
+    public static String sanitize(String name) {
+        int length = name.length();
+        int i = 0;
+        while (i < length && isValid(name.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return name;
+        }
+        char[] output = new char[length - 1];
+        name.getChars(0, i, output, 0);
+        int size = i;
+        for (i++; i < length; i++) {
+            char c = name.charAt(i);
+            if (isValid(c)) {
+                output[size++] = c;
+            }
+        }
+        return new String(output, 0, size);
+    }
+
+    private static boolean isValid(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * The IRI node of a resource with the given name.
+     *
+     * @param namespace The namespace of the model
+     * @param name      The unsanitized name of the resource
+     * @return the cached IRI node
+     */
+    public static Node iri(String namespace, String name) {
+        Node node = IRIS.get(namespace, name);
+        if (node == null) {
+            node = IRIS.put(namespace, name, NodeFactory.createURI(namespace + sanitize(name)));
+        }
+        return node;
+    }
+
+    /**
+     * A plain string literal node. Short literals are interned.
+     *
+     * @param lexicalForm the literal value
+     * @return the literal node
+     */
+    public static Node literal(String lexicalForm) {
+        return literal(lexicalForm, "");
+    }
+
+    /**
+     * A literal node with a language tag. Short literals are interned.
+     *
+     * @param lexicalForm the literal value
+     * @param language    the language tag, or an empty string for a plain string literal
+     * @return the literal node
+     */
+    public static Node literal(String lexicalForm, String language) {
+        if (lexicalForm.length() > MAX_INTERNED_LITERAL_LENGTH) {
+            return createLiteral(lexicalForm, language);
+        }
+        Node node = LITERALS.get(language, lexicalForm);
+        if (node == null) {
+            node = LITERALS.put(language, lexicalForm, createLiteral(lexicalForm, language));
+        }
+        return node;
+    }
+
+    private static Node createLiteral(String lexicalForm, String language) {
+        return language.isEmpty() ? NodeFactory.createLiteral(lexicalForm)
+                : NodeFactory.createLiteral(lexicalForm, language);
+    }
+
+    /**
+     * Records which name was minted first for an IRI of a model, to detect names which collide after sanitization.
+     */
+    public static class Names {
+        private final Map<String, String> firstNames = new HashMap<>();
+        private final Map<String, Set<String>> collisions = new TreeMap<>();
+
+        /**
+         * Registers the name for the IRI.
+         *
+         * @return the name which was registered before for the same IRI, if it differs from the given name, else null
+         */
+        public synchronized String register(String iri, String name) {
+            String first = firstNames.putIfAbsent(iri, name);
+            if (first == null || first.equals(name)) {
+                return null;
+            }
+            collisions.computeIfAbsent(iri, key -> new TreeSet<>(Collections.singleton(first))).add(name);
+            return first;
+        }
+
+        public synchronized int getCollisionCount() {
+            return collisions.size();
+        }
+
+        /**
+         * @return the IRIs which were minted from different names, mapped to these names
+         */
+        public synchronized Map<String, Set<String>> getCollisions() {
+            Map<String, Set<String>> copy = new TreeMap<>();
+            collisions.forEach((iri, names) -> copy.put(iri, new TreeSet<>(names)));
+            return copy;
+        }
+
+        /**
+         * @return a warning for the user, which lists the names resulting in the same IRI, or an empty string if there
+         * are no collisions
+         */
+        public synchronized String describeCollisions() {
+            StringBuilder text = new StringBuilder();
+            collisions.forEach((iri, names) -> text.append("\nThe names ").append(names)
+                    .append(" result in the same resource ").append(iri));
+            return text.toString();
+        }
+    }
+
+    /**
+     * A least recently used cache of nodes with a two part key. The lookup reuses a probe key, so that it does not
+     * allocate.
+     */
+    private static class BoundedCache {
+        private final Key probe = new Key();
+        private final LinkedHashMap<Key, Node> nodes;
+
+        BoundedCache(int capacity) {
+            nodes = new LinkedHashMap<Key, Node>(capacity * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Node> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized Node get(String first, String second) {
+            return nodes.get(probe.set(first, second));
+        }
+
+        /**
+         * @return the node in the cache, which is the given node unless another thread added one in between
+         */
+        synchronized Node put(String first, String second, Node node) {
+            Node existing = nodes.putIfAbsent(new Key().set(first, second), node);
+            return existing != null ? existing : node;
+        }
+    }
+
+    private static class Key {
+        private String first;
+        private String second;
+        private int hash;
+
+        Key set(String first, String second) {
+            this.first = first;
+            this.second = second;
+            this.hash = 31 * first.hashCode() + second.hashCode();
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) object;
+            return hash == key.hash && first.equals(key.first) && second.equals(key.second);
+        }
+    }
+}
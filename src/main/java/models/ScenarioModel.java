@@ -24,18 +24,24 @@ import relations.CustomRelation;
 import relations.DEMRelation;
 import relations.RelationBuilder;
 
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Set;
 
 /**
- * The ontology which keeps the individuals belonging to the scenario created by the user. It is created from the
- * {@link ScenarioPanel} directly before the scenario is saved by the {@link saver.ScenarioSaver}.
+ * The ontology which keeps the individuals belonging to the scenario created by the user. It is created from a
+ * {@link ScenarioSnapshot} of the {@link ScenarioPanel} directly before the scenario is saved by the
+ * {@link saver.ScenarioSaver}.
  */
 public class ScenarioModel extends AbstractModel {
+    private static final long serialVersionUID = -3859002918464883493L;
+
     public static final String PREFIX = "DEM-Scenario";
     public static final String DESCRIPTION = "The model which keeps the entity instances created by the user.";
     private Hashtable<CustomRelation, DEMRelation> createdCustomRelations = new Hashtable<>();
-    private Hashtable<CustomTemplateView, Template> createdCustomTemplates = new Hashtable<>();
+    private Hashtable<ScenarioSnapshot.CustomTemplateCopy, Template> createdCustomTemplates = new Hashtable<>();
+    transient private Map<ScenarioSnapshot.EntityCopy, EcosystemEntity> createdEntities = new HashMap<>();
 
     public ScenarioModel(Set<AbstractModel> toBeImported) {
         super(ScenarioModel.PREFIX, ScenarioModel.DESCRIPTION);
@@ -43,152 +49,151 @@ public class ScenarioModel extends AbstractModel {
     }
 
     /**
-     * This method is used by the graphical interface to parse the {@link ScenarioPanel} into a scenario model.
+     * This method is used by the graphical interface to parse the {@link ScenarioPanel} into a scenario model. The
+     * created individuals are also saved at the entity views.
      * <p/>
-     * Each model is considered separately, so that implementation details can be regarded. The {@link ScenarioModel} is
-     * created at save time, and not before, to allow the user to make a modifications before the ontology is generated.
+     * The {@link ScenarioModel} is created at save time, and not before, to allow the user to make a modifications
+     * before the ontology is generated. Has to be called in the GUI thread, the background tasks use
+     * {@link #createModelFromSnapshot(ScenarioSnapshot)} instead.
      *
      * @param panel The panel manages the copy of the user created scenario.
      */
     public void createModelFromPanel(ScenarioPanel panel) {
-        // Create all custom Templates:
-        panel.customTemplates.forEach(this::createCustomTemplate);
-        // Create all custom Relations:
-        panel.customRelations.forEach(this::createCustomRelation);
+        ScenarioSnapshot snapshot = new ScenarioSnapshot(panel);
+        createModelFromSnapshot(snapshot);
         for (ModelView modelView : panel.models) {
-            if (modelView instanceof DEMModelView) {
-                // Create all entities, which are from DEM Templates:
-                createDEMEntities(modelView);
-            } else {
-                // Create all entities, which are from Custom Templates:
-                createScenarioEntities(modelView);
+            for (RadioTemplate radioTemplate : modelView.childTemplateViews) {
+                for (EntityView entityView : radioTemplate.templateView.childEntities) {
+                    ScenarioSnapshot.EntityCopy entity = snapshot.getEntity(entityView);
+                    if (entity != null) {
+                        entityView.entity = createdEntities.get(entity);
+                    }
+                }
             }
         }
+    }
+
+    /**
+     * Creates the scenario model from a copy of the {@link ScenarioPanel}. Can be called in the background.
+     *
+     * @param snapshot the copy of the user created scenario
+     */
+    public void createModelFromSnapshot(ScenarioSnapshot snapshot) {
+        createSchemaFromSnapshot(snapshot);
+        // Create all entities, from DEM Templates and from Custom Templates:
+        snapshot.entities.forEach(this::createEntity);
         // Create the relations between all entities:
-        panel.models.forEach(this::createModelRelations);
+        snapshot.entities.forEach(this::createRelations);
     }
 
     /**
-     * Creates Templates from the custom created template views
+     * Creates only the custom templates and custom relations of the snapshot, but no entities. This is the part of
+     * the scenario model which doesn't grow with the scenario, see {@link saver.ScenarioExporter}.
      *
-     * @param customTemplate
+     * @param snapshot the copy of the user created scenario
      */
-    private void createCustomTemplate(CustomTemplateView customTemplate) {
-        TemplateView parent = customTemplate.parentTemplates.iterator().next();
-        if (parent instanceof DEMTemplateView) {
-            Template template = new Template(this, customTemplate.name, ((DEMTemplateView) parent).template);
-            template.addDescription(customTemplate.description);
-            createdCustomTemplates.put(customTemplate, template);
-            importModel(((DEMModelView) parent.parentModel).model);
-        }
+    public void createSchemaFromSnapshot(ScenarioSnapshot snapshot) {
+        // Create all custom Templates:
+        snapshot.customTemplates.forEach(this::createCustomTemplate);
+        // Create all custom Relations:
+        snapshot.customRelations.forEach(this::createCustomRelation);
     }
 
-    private void createDEMEntities(ModelView model) {
-        model.childTemplateViews.stream()
-                .filter(radioTemplate -> radioTemplate.templateView instanceof DEMTemplateView).forEach(radioTemplate -> {
-            createEntities((DEMTemplateView) radioTemplate.templateView);
-        });
+    /**
+     * @return the template created for the custom template, or null
+     */
+    public Template getCustomTemplate(ScenarioSnapshot.CustomTemplateCopy customTemplate) {
+        return createdCustomTemplates.get(customTemplate);
     }
 
-    private void createScenarioEntities(ModelView scenarioModelView) {
-        for (RadioTemplate radioTemplate : scenarioModelView.childTemplateViews) {
-            CustomTemplateView customTemplateView = (CustomTemplateView) radioTemplate.templateView;
-            for (EntityView entityView : customTemplateView.childEntities) {
-                entityView.entity = new EcosystemEntity(this, entityView.name, createdCustomTemplates.get(customTemplateView));
-            }
-        }
+    /**
+     * @return the DEM relation created for the custom relation, or null
+     */
+    public DEMRelation getCustomRelation(CustomRelation customRelation) {
+        return createdCustomRelations.get(customRelation);
+    }
+
+    /**
+     * @return the individual created for the entity, or null
+     */
+    public EcosystemEntity getEntity(ScenarioSnapshot.EntityCopy entity) {
+        return createdEntities.get(entity);
     }
 
     /**
-     * Creates all relations of the scenario model.
+     * Creates Templates from the custom created templates, which extend a DEM template.
      *
-     * @param model
+     * @param customTemplate
      */
-    public void createModelRelations(ModelView model) {
-        for (RadioTemplate radioTemplate : model.childTemplateViews) {
-            createRelations(radioTemplate.templateView);
+    private void createCustomTemplate(ScenarioSnapshot.CustomTemplateCopy customTemplate) {
+        if (customTemplate.parent != null) {
+            Template template = new Template(this, customTemplate.name, customTemplate.parent);
+            template.addDescription(customTemplate.description);
+            createdCustomTemplates.put(customTemplate, template);
+            importModel(customTemplate.parent.model);
         }
     }
 
     /**
-     * Creates individuals (represented by the {@link EcosystemEntity} class) from the entity templates. The references
-     * to the created individuals are also saved at the tree representations to be able to create the references from
-     * and to the correct individuals afterwards.
+     * Creates an individual (represented by the {@link EcosystemEntity} class) from the entity. Only the entities of
+     * DEM templates get a description and version. The references to the created individuals are kept to create the
+     * references from and to the correct individuals afterwards.
      *
-     * @param template
+     * @param entityCopy
      */
-    private void createEntities(DEMTemplateView template) {
-        for (EntityView entityView : template.childEntities) {
-            EcosystemEntity entity = new EcosystemEntity(this, entityView.name, template.template);
-            entityView.entity = entity;
-            entity.describedBy(entityView.description);
-            entity.version(entityView.version);
+    private void createEntity(ScenarioSnapshot.EntityCopy entityCopy) {
+        EcosystemEntity entity;
+        if (entityCopy.template != null) {
+            entity = new EcosystemEntity(this, entityCopy.name, entityCopy.template);
+            entity.describedBy(entityCopy.description);
+            entity.version(entityCopy.version);
+        } else {
+            entity = new EcosystemEntity(this, entityCopy.name, createdCustomTemplates.get(entityCopy.customTemplate));
         }
+        createdEntities.put(entityCopy, entity);
     }
 
     /**
      * Creates the relations which point from and to individuals
      *
-     * @param template
+     * @param entityCopy
      */
-    private void createRelations(TemplateView template) {
-        for (EntityView entity : template.childEntities) {
-            for (RelationView relationView : entity.childRelations) {
-                if (relationView.relation instanceof DEMRelation) {
-                    createDEMRelation(entity, relationView);
-                } else if (relationView.relation instanceof CustomRelation) {
-                    DEMRelation demRelation = createdCustomRelations.get(relationView.relation);
-                    createCustomRelation(entity, relationView, demRelation);
-                }
+    private void createRelations(ScenarioSnapshot.EntityCopy entityCopy) {
+        EcosystemEntity entity = createdEntities.get(entityCopy);
+        for (ScenarioSnapshot.RelationCopy relationCopy : entityCopy.getRelations()) {
+            DEMRelation relation = null;
+            if (relationCopy.relation instanceof DEMRelation) {
+                relation = (DEMRelation) relationCopy.relation;
+            } else if (relationCopy.relation instanceof CustomRelation) {
+                relation = createdCustomRelations.get(relationCopy.relation);
+            }
+            if (relation == null) {
+                continue;
+            }
+            for (ScenarioSnapshot.EntityCopy target : relationCopy.targets) {
+                entity.addProperty(relation.property, createdEntities.get(target));
+            }
+            for (String value : relationCopy.values) {
+                entity.addProperty(relation.property, value);
             }
         }
     }
 
-    private void createCustomRelation(EntityView entity, RelationView relationView, DEMRelation demRelation) {
-        for (TargetEntityView objectEntity : relationView.childTargetEntities) {
-            entity.entity.addProperty(demRelation.property, objectEntity.sameEntity.entity);
-        }
-        for (RangeValueView rangeValue : relationView.childValueEntities) {
-            entity.entity.addProperty(demRelation.property, rangeValue.value);
-        }
-    }
-
-    private void createDEMRelation(EntityView entity, RelationView relationView) {
-        for (TargetEntityView objectEntity : relationView.childTargetEntities) {
-            entity.entity.addProperty(((DEMRelation) relationView.relation).property, objectEntity.sameEntity.entity);
-        }
-        for (RangeValueView rangeValue : relationView.childValueEntities) {
-            entity.entity.addProperty(((DEMRelation) relationView.relation).property, rangeValue.value);
-        }
-    }
-
-    private void createCustomRelation(CustomRelation customRelation) {
-        Template firstDomain = null;
-        for (TemplateView domain : customRelation.getParentDomains()) {
-            if (domain instanceof DEMTemplateView) {
-                firstDomain = ((DEMTemplateView) domain).template;
-                break;
-            }
-        }
-        if(firstDomain == null){
+    private void createCustomRelation(ScenarioSnapshot.CustomRelationCopy customRelation) {
+        if (customRelation.domains.isEmpty()) {
             return;
         }
-        customRelation.getParentDomains().remove(firstDomain);
-        RelationBuilder builder = new RelationBuilder(this, customRelation.name, firstDomain)
+        RelationBuilder builder = new RelationBuilder(this, customRelation.name, customRelation.domains.get(0))
                 .comment(customRelation.description);
-        for (TemplateView domain : customRelation.getParentDomains()) {
-            //At the moment a custom relation can only have DEMTemplateViews as domain and range. (Not custom templates)
-            if (domain instanceof DEMTemplateView) {
-                builder = builder.domain(((DEMTemplateView) domain).template);
-            }
+        //At the moment a custom relation can only have DEMTemplateViews as domain and range. (Not custom templates)
+        for (Template domain : customRelation.domains) {
+            builder = builder.domain(domain);
         }
-        for (TemplateView range : customRelation.getParentRanges()) {
-            if (range instanceof DEMTemplateView) {
-                builder = builder.range(((DEMTemplateView) range).template);
-            }
+        for (Template range : customRelation.ranges) {
+            builder = builder.range(range);
         }
         DEMRelation demRelation = builder.create();
-        createdCustomRelations.put(customRelation, demRelation);
+        createdCustomRelations.put(customRelation.relation, demRelation);
     }
 
     @Override
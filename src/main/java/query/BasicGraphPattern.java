@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package query;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.*;
+
+/**
+ * A basic graph pattern: triple patterns which are joined on their shared variables.
+ * <p>
+ * The text syntax is the one of the SPARQL WHERE clause without the braces: the patterns are separated by dots, and a
+ * term is a variable (?name), an IRI (&lt;iri&gt;), a prefixed name of the prefixes of the model (prefix:name), "a" for
+ * rdf:type, a quoted literal with an optional @language or ^^datatype, or an integer or decimal number. For example:
+ * <pre>
+ *     ?process a DEM-Process:Process . ?process DEM-Core:hasPart ?part
+ * </pre>
+ */
+public class BasicGraphPattern {
+    private final List<Triple> patterns;
+    private final List<String> variables = new ArrayList<>();
+
+    public BasicGraphPattern(List<Triple> patterns) {
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("The query has no triple patterns.");
+        }
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+        for (Triple pattern : patterns) {
+            for (Node node : new Node[]{pattern.getSubject(), pattern.getPredicate(), pattern.getObject()}) {
+                if (node.isVariable() && !variables.contains(node.getName())) {
+                    variables.add(node.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the text syntax of a basic graph pattern.
+     *
+     * @param prefixes the prefixes for prefixed names, e.g. the model which is queried
+     * @throws IllegalArgumentException if the text isn't a valid pattern
+     */
+    public static BasicGraphPattern parse(String text, PrefixMapping prefixes) {
+        List<Triple> patterns = new ArrayList<>();
+        List<Node> terms = new ArrayList<>();
+        Parser parser = new Parser(text, prefixes);
+        while (true) {
+            Node term = parser.next();
+            if (term == null || term == Parser.SEPARATOR) {
+                if (terms.size() == 3) {
+                    patterns.add(Triple.create(terms.get(0), terms.get(1), terms.get(2)));
+                } else if (!terms.isEmpty()) {
+                    throw new IllegalArgumentException("A triple pattern needs three terms, found " + terms.size()
+                            + " before position " + parser.position + ".");
+                }
+                terms.clear();
+                if (term == null) {
+                    break;
+                }
+            } else {
+                terms.add(term);
+                if (terms.size() > 3) {
+                    throw new IllegalArgumentException("Missing '.' between triple patterns at position "
+                            + parser.position + ".");
+                }
+            }
+        }
+        return new BasicGraphPattern(patterns);
+    }
+
+    /**
+     * Parses terms in the syntax of the patterns, without dots, e.g. the arguments of a rule action.
+     *
+     * @throws IllegalArgumentException if a term is invalid
+     */
+    public static List<Node> parseTerms(String text, PrefixMapping prefixes) {
+        List<Node> terms = new ArrayList<>();
+        Parser parser = new Parser(text, prefixes);
+        for (Node term = parser.next(); term != null; term = parser.next()) {
+            if (term == Parser.SEPARATOR) {
+                throw new IllegalArgumentException("Unexpected '.' at position " + parser.position + ".");
+            }
+            terms.add(term);
+        }
+        return terms;
+    }
+
+    public List<Triple> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * @return the names of the variables, in the order of their first occurrence
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(variables);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Triple pattern : patterns) {
+            if (builder.length() > 0) {
+                builder.append(" .\n");
+            }
+            builder.append(format(pattern.getSubject())).append(' ').append(format(pattern.getPredicate()))
+                    .append(' ').append(format(pattern.getObject()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the term in the text syntax, with full IRIs
+     */
+    public static String format(Node node) {
+        if (node.isVariable()) {
+            return "?" + node.getName();
+        } else if (node.isURI()) {
+            return "<" + node.getURI() + ">";
+        } else if (node.isBlank()) {
+            return "_:" + node.getBlankNodeLabel();
+        }
+        String literal = "\"" + node.getLiteralLexicalForm().replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n") + "\"";
+        if (!node.getLiteralLanguage().isEmpty()) {
+            return literal + "@" + node.getLiteralLanguage();
+        } else if (node.getLiteralDatatypeURI() != null
+                && !node.getLiteralDatatypeURI().equals(XSDDatatype.XSDstring.getURI())) {
+            return literal + "^^<" + node.getLiteralDatatypeURI() + ">";
+        }
+        return literal;
+    }
+
+    private static class Parser {
+        static final Node SEPARATOR = NodeFactory.createVariable(".");
+
+        private final String text;
+        private final PrefixMapping prefixes;
+        private int position = 0;
+        // A dot which ended the last prefixed name:
+        private boolean pendingSeparator = false;
+
+        Parser(String text, PrefixMapping prefixes) {
+            this.text = text;
+            this.prefixes = prefixes;
+        }
+
+        /**
+         * @return the next term, {@link #SEPARATOR} for a dot, or null at the end
+         */
+        Node next() {
+            if (pendingSeparator) {
+                pendingSeparator = false;
+                return SEPARATOR;
+            }
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            if (position >= text.length()) {
+                return null;
+            }
+            char first = text.charAt(position);
+            if (first == '.') {
+                position++;
+                return SEPARATOR;
+            } else if (first == '<') {
+                return NodeFactory.createURI(readIRI());
+            } else if (first == '"' || first == '\'') {
+                return readLiteral(first);
+            } else if (first == '?' || first == '$') {
+                position++;
+                int start = position;
+                while (position < text.length() && (Character.isLetterOrDigit(text.charAt(position))
+                        || text.charAt(position) == '_')) {
+                    position++;
+                }
+                if (start == position) {
+                    throw new IllegalArgumentException("Missing variable name at position " + start + ".");
+                }
+                return NodeFactory.createVariable(text.substring(start, position));
+            }
+            return readName();
+        }
+
+        private String readIRI() {
+            int end = text.indexOf('>', position);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated IRI at position " + position + ".");
+            }
+            String iri = text.substring(position + 1, end);
+            position = end + 1;
+            return iri;
+        }
+
+        private Node readLiteral(char quote) {
+            int start = position;
+            StringBuilder lexical = new StringBuilder();
+            position++;
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated literal at position " + start + ".");
+                }
+                char c = text.charAt(position++);
+                if (c == quote) {
+                    break;
+                } else if (c == '\\' && position < text.length()) {
+                    char escaped = text.charAt(position++);
+                    lexical.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped == 'r' ? '\r' : escaped);
+                } else {
+                    lexical.append(c);
+                }
+            }
+            if (text.startsWith("@", position)) {
+                int languageStart = ++position;
+                while (position < text.length() && (Character.isLetterOrDigit(text.charAt(position))
+                        || text.charAt(position) == '-')) {
+                    position++;
+                }
+                return NodeFactory.createLiteral(lexical.toString(), text.substring(languageStart, position));
+            } else if (text.startsWith("^^", position)) {
+                position += 2;
+                String datatypeURI;
+                if (text.startsWith("<", position)) {
+                    datatypeURI = readIRI();
+                } else {
+                    Node datatype = readName();
+                    if (!datatype.isURI()) {
+                        throw new IllegalArgumentException("Invalid datatype at position " + position + ".");
+                    }
+                    datatypeURI = datatype.getURI();
+                }
+                RDFDatatype datatype = TypeMapper.getInstance().getSafeTypeByName(datatypeURI);
+                return NodeFactory.createLiteral(lexical.toString(), datatype);
+            }
+            return NodeFactory.createLiteral(lexical.toString());
+        }
+
+        /**
+         * Reads "a", a number or a prefixed name. A dot at the end of the name is the separator of the pattern.
+         */
+        private Node readName() {
+            int start = position;
+            while (position < text.length() && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            String name = text.substring(start, position);
+            if (name.endsWith(".")) {
+                name = name.substring(0, name.length() - 1);
+                pendingSeparator = true;
+            }
+            if (name.equals("a")) {
+                return RDF.type.asNode();
+            } else if (name.matches("[+-]?\\d+")) {
+                return NodeFactory.createLiteral(name, XSDDatatype.XSDinteger);
+            } else if (name.matches("[+-]?\\d*\\.\\d+")) {
+                return NodeFactory.createLiteral(name, XSDDatatype.XSDdecimal);
+            }
+            int colon = name.indexOf(':');
+            String namespace = colon < 0 ? null : prefixes.getNsPrefixURI(name.substring(0, colon));
+            if (namespace == null) {
+                throw new IllegalArgumentException("Unknown term '" + name + "' at position " + start + ".");
+            }
+            return NodeFactory.createURI(namespace + name.substring(colon + 1));
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package query;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.shared.PrefixMapping;
+
+import java.util.*;
+
+/**
+ * Evaluates basic graph patterns over a snapshot of a graph, e.g. the model of a {@link models.ScenarioModel}:
+ * <pre>
+ *     QueryEngine engine = new QueryEngine(scenarioModel.model);
+ *     List&lt;Map&lt;String, Node&gt;&gt; processes = engine.select("?process a DEM-Process:Process");
+ * </pre>
+ * The patterns are joined as nested loops over the {@link TripleIndex}, in the order of the {@link QueryPlan}. The
+ * plans of the recently used queries are cached. Call {@link #refresh()} after the graph was changed.
+ */
+public class QueryEngine {
+    private static final int PLAN_CACHE_SIZE = 64;
+
+    private final Graph graph;
+    private final PrefixMapping prefixes;
+    private volatile TripleIndex index;
+    private final Map<String, QueryPlan> planCache = new LinkedHashMap<String, QueryPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest) {
+            return size() > PLAN_CACHE_SIZE;
+        }
+    };
+
+    public QueryEngine(Model model) {
+        this(model.getGraph(), model);
+    }
+
+    public QueryEngine(Graph graph, PrefixMapping prefixes) {
+        this.graph = graph;
+        this.prefixes = prefixes;
+        this.index = new TripleIndex(graph);
+    }
+
+    /**
+     * Rebuilds the index from the current state of the graph. The cached plans are dropped, because their join order
+     * depends on the statistics of the index.
+     */
+    public void refresh() {
+        TripleIndex refreshed = new TripleIndex(graph);
+        synchronized (planCache) {
+            index = refreshed;
+            planCache.clear();
+        }
+    }
+
+    public TripleIndex getIndex() {
+        return index;
+    }
+
+    public PrefixMapping getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * @return the plan of the query, from the cache if the query was planned before
+     * @throws IllegalArgumentException if the query isn't a valid basic graph pattern
+     */
+    public QueryPlan plan(String query) {
+        String key = query.trim();
+        synchronized (planCache) {
+            QueryPlan plan = planCache.get(key);
+            if (plan == null) {
+                plan = new QueryPlan(BasicGraphPattern.parse(key, prefixes), index);
+                planCache.put(key, plan);
+            }
+            return plan;
+        }
+    }
+
+    /**
+     * @return all solutions of the query, each mapping the variable names to their values
+     */
+    public List<Map<String, Node>> select(String query) {
+        return select(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param limit the maximal number of solutions
+     * @return the solutions of the query, each mapping the variable names to their values
+     */
+    public List<Map<String, Node>> select(String query, int limit) {
+        return execute(plan(query), limit);
+    }
+
+    /**
+     * @param limit the maximal number of solutions
+     * @return the solutions of the plan, each mapping the variable names to their values
+     */
+    public List<Map<String, Node>> execute(QueryPlan plan, int limit) {
+        TripleIndex index = this.index;
+        List<String> variables = plan.getPattern().getVariables();
+        List<Triple> order = plan.getOrder();
+        // Per step and position: the id of a constant, or the slot of a variable:
+        int[][] constants = new int[order.size()][3];
+        int[][] slots = new int[order.size()][3];
+        for (int step = 0; step < order.size(); step++) {
+            Node[] nodes = QueryPlan.nodes(order.get(step));
+            for (int i = 0; i < 3; i++) {
+                if (nodes[i].isVariable()) {
+                    constants[step][i] = TripleIndex.ANY;
+                    slots[step][i] = variables.indexOf(nodes[i].getName());
+                } else {
+                    constants[step][i] = index.getId(nodes[i]);
+                    slots[step][i] = -1;
+                }
+            }
+        }
+        int[] bindings = new int[variables.size()];
+        Arrays.fill(bindings, TripleIndex.ANY);
+        List<Map<String, Node>> solutions = new ArrayList<>();
+        if (limit > 0) {
+            new Join(index, constants, slots, bindings, variables, solutions, limit).run(0);
+        }
+        return solutions;
+    }
+
+    private static class Join {
+        private final TripleIndex index;
+        private final int[][] constants;
+        private final int[][] slots;
+        private final int[] bindings;
+        private final List<String> variables;
+        private final List<Map<String, Node>> solutions;
+        private final int limit;
+
+        Join(TripleIndex index, int[][] constants, int[][] slots, int[] bindings, List<String> variables,
+             List<Map<String, Node>> solutions, int limit) {
+            this.index = index;
+            this.constants = constants;
+            this.slots = slots;
+            this.bindings = bindings;
+            this.variables = variables;
+            this.solutions = solutions;
+            this.limit = limit;
+        }
+
+        /**
+         * @return false, if the limit is reached
+         */
+        boolean run(int step) {
+            if (step == constants.length) {
+                Map<String, Node> solution = new LinkedHashMap<>();
+                for (int i = 0; i < variables.size(); i++) {
+                    solution.put(variables.get(i), index.getNode(bindings[i]));
+                }
+                solutions.add(solution);
+                return solutions.size() < limit;
+            }
+            int[] ids = new int[3];
+            for (int i = 0; i < 3; i++) {
+                int slot = slots[step][i];
+                ids[i] = slot >= 0 ? bindings[slot] : constants[step][i];
+            }
+            return index.match(ids[0], ids[1], ids[2], (subject, predicate, object) -> {
+                int[] values = {subject, predicate, object};
+                boolean[] bound = new boolean[3];
+                boolean consistent = true;
+                for (int i = 0; i < 3 && consistent; i++) {
+                    int slot = slots[step][i];
+                    if (slot < 0) {
+                        continue;
+                    }
+                    if (bindings[slot] == TripleIndex.ANY) {
+                        bindings[slot] = values[i];
+                        bound[i] = true;
+                    } else {
+                        // a variable which occurs twice in the pattern:
+                        consistent = bindings[slot] == values[i];
+                    }
+                }
+                boolean proceed = !consistent || run(step + 1);
+                for (int i = 0; i < 3; i++) {
+                    if (bound[i]) {
+                        bindings[slots[step][i]] = TripleIndex.ANY;
+                    }
+                }
+                return proceed;
+            });
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package query;
+
+import gui.EcoBuilder;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import org.apache.jena.graph.Node;
+
+import java.util.List;
+import java.util.Map;
+
+import static gui.EcoBuilder.DIALOG_ID;
+import static gui.EcoBuilder.STYLESHEET;
+
+/**
+ * A window to query the current scenario with basic graph patterns, see {@link BasicGraphPattern} for the syntax.
+ * The query runs over a snapshot of the scenario model, which is taken when the window opens and on "Refresh", and is
+ * indexed in the background.
+ */
+public class QueryGui extends GridPane {
+    private static final int LIMIT = 1000;
+
+    private final EcoBuilder ecoBuilder;
+    private QueryEngine engine;
+    private TextArea query = new TextArea("?entity a ?type");
+    private Button run = new Button("Run");
+    private Button refresh = new Button("Refresh");
+    private Button explain = new Button("Explain");
+    private Button close = new Button("Close");
+    private Text status = new Text();
+    private TableView<Map<String, Node>> results = new TableView<>();
+
+    public QueryGui(EcoBuilder ecoBuilder) {
+        this.ecoBuilder = ecoBuilder;
+        setId(DIALOG_ID);
+        query.setPrefRowCount(5);
+        results.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        setVgrow(results, Priority.ALWAYS);
+        setHgrow(query, Priority.ALWAYS);
+        int y = 0;
+        setConstraints(query, 0, y, 4, 1);
+        y++;
+        setConstraints(run, 0, y);
+        setConstraints(explain, 1, y);
+        setConstraints(refresh, 2, y);
+        setConstraints(close, 3, y);
+        y++;
+        setConstraints(status, 0, y, 4, 1);
+        y++;
+        setConstraints(results, 0, y, 4, 1);
+        getChildren().addAll(query, run, explain, refresh, close, status, results);
+        Scene scene = new Scene(this, 700, 500);
+        scene.getStylesheets().add(STYLESHEET);
+        Stage stage = new Stage();
+        stage.initStyle(StageStyle.UTILITY);
+        stage.setTitle("Query Scenario");
+        stage.setScene(scene);
+        stage.show();
+        close.setOnAction(e -> stage.hide());
+        refresh.setOnAction(e -> refresh());
+        run.setOnAction(e -> run());
+        explain.setOnAction(e -> explain());
+        refresh();
+    }
+
+    /**
+     * Takes a new snapshot of the scenario. The queries are disabled until it is indexed.
+     */
+    private void refresh() {
+        run.setDisable(true);
+        explain.setDisable(true);
+        status.setText("Indexing the scenario...");
+        ecoBuilder.indexScenario(indexed -> {
+            engine = indexed;
+            run.setDisable(false);
+            explain.setDisable(false);
+            status.setText("Indexed " + engine.getIndex().size() + " triples.");
+        });
+    }
+
+    private void run() {
+        try {
+            long start = System.nanoTime();
+            QueryPlan plan = engine.plan(query.getText());
+            List<Map<String, Node>> solutions = engine.execute(plan, LIMIT);
+            long milliseconds = (System.nanoTime() - start) / 1000000;
+            results.getColumns().clear();
+            for (String variable : plan.getPattern().getVariables()) {
+                TableColumn<Map<String, Node>, String> column = new TableColumn<>("?" + variable);
+                column.setCellValueFactory(row -> new ReadOnlyStringWrapper(format(row.getValue().get(variable))));
+                results.getColumns().add(column);
+            }
+            results.setItems(FXCollections.observableArrayList(solutions));
+            status.setText(solutions.size() + (solutions.size() == LIMIT ? "+" : "") + " results in " + milliseconds
+                    + " ms.");
+        } catch (IllegalArgumentException e) {
+            status.setText(e.getMessage());
+        }
+    }
+
+    private void explain() {
+        try {
+            ecoBuilder.loadInformation("Query Plan", engine.plan(query.getText()).toString());
+        } catch (IllegalArgumentException e) {
+            status.setText(e.getMessage());
+        }
+    }
+
+    private String format(Node node) {
+        if (node == null) {
+            return "";
+        } else if (node.isURI()) {
+            return engine.getPrefixes().shortForm(node.getURI());
+        } else if (node.isLiteral()) {
+            return node.getLiteralLexicalForm();
+        }
+        return BasicGraphPattern.format(node);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package query;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+
+import java.util.*;
+
+/**
+ * The join order of the triple patterns of a {@link BasicGraphPattern}.
+ * <p>
+ * The order is chosen greedily: the next pattern is the one with the smallest estimated number of matches, given the
+ * variables which are bound by the patterns before it. Patterns which share a bound variable are preferred, so that
+ * no cross products are built while a connected pattern is left.
+ */
+public class QueryPlan {
+    private final BasicGraphPattern pattern;
+    private final List<Triple> order = new ArrayList<>();
+    private final List<Double> estimates = new ArrayList<>();
+
+    QueryPlan(BasicGraphPattern pattern, TripleIndex index) {
+        this.pattern = pattern;
+        List<Triple> remaining = new ArrayList<>(pattern.getPatterns());
+        Set<String> bound = new HashSet<>();
+        while (!remaining.isEmpty()) {
+            Triple best = null;
+            double bestEstimate = Double.MAX_VALUE;
+            boolean bestConnected = false;
+            for (Triple candidate : remaining) {
+                boolean connected = isConnected(candidate, bound);
+                double estimate = estimate(candidate, bound, index);
+                if (best == null || (connected && !bestConnected)
+                        || (connected == bestConnected && estimate < bestEstimate)) {
+                    best = candidate;
+                    bestEstimate = estimate;
+                    bestConnected = connected;
+                }
+            }
+            remaining.remove(best);
+            order.add(best);
+            estimates.add(bestEstimate);
+            for (Node node : nodes(best)) {
+                if (node.isVariable()) {
+                    bound.add(node.getName());
+                }
+            }
+        }
+    }
+
+    public BasicGraphPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the triple patterns in the order of the join
+     */
+    public List<Triple> getOrder() {
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * @return the estimated number of matches of the pattern at the position of the join order, per binding of the
+     * patterns before it
+     */
+    public double getEstimate(int position) {
+        return estimates.get(position);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < order.size(); i++) {
+            Triple triple = order.get(i);
+            builder.append(i + 1).append(". ").append(BasicGraphPattern.format(triple.getSubject())).append(' ')
+                    .append(BasicGraphPattern.format(triple.getPredicate())).append(' ')
+                    .append(BasicGraphPattern.format(triple.getObject()))
+                    .append(String.format(Locale.ROOT, "  (~%.1f)%n", estimates.get(i)));
+        }
+        return builder.toString();
+    }
+
+    private static boolean isConnected(Triple triple, Set<String> bound) {
+        for (Node node : nodes(triple)) {
+            if (node.isVariable() && bound.contains(node.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double estimate(Triple triple, Set<String> bound, TripleIndex index) {
+        Node[] nodes = nodes(triple);
+        int[] ids = new int[3];
+        boolean[] joined = new boolean[3];
+        for (int i = 0; i < 3; i++) {
+            if (nodes[i].isVariable()) {
+                ids[i] = TripleIndex.ANY;
+                joined[i] = bound.contains(nodes[i].getName());
+            } else {
+                ids[i] = index.getId(nodes[i]);
+            }
+        }
+        return index.estimate(ids[0], ids[1], ids[2], joined[0], joined[1], joined[2]);
+    }
+
+    static Node[] nodes(Triple triple) {
+        return new Node[]{triple.getSubject(), triple.getPredicate(), triple.getObject()};
+    }
+}
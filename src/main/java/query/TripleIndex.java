@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package query;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.util.*;
+
+/**
+ * A read-only index of the triples of a graph, for the evaluation of triple patterns.
+ * <p>
+ * The nodes are replaced by integer ids. The triples are kept three times, sorted in the orders subject-predicate-object
+ * (SPO), predicate-object-subject (POS) and object-subject-predicate (OSP), so that the triples matching any
+ * combination of bound positions are one contiguous range of one of the orders, found by binary search. The number of
+ * matching triples of a pattern with constants is therefore exact. For variables which are bound during a join, the
+ * number of distinct subjects and objects per predicate is kept as statistics.
+ * <p>
+ * The index is a snapshot: it doesn't see later changes of the graph.
+ */
+public class TripleIndex {
+    public static final int ANY = -1;
+    // An id for constants which aren't in the graph, and therefore match nothing:
+    public static final int UNKNOWN = -2;
+
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final int[] spo;
+    private final int[] pos;
+    private final int[] osp;
+    private final int size;
+    private final int distinctSubjects;
+    private final int distinctObjects;
+    // Per predicate id: the number of triples, distinct subjects and distinct objects:
+    private final Map<Integer, int[]> predicateStatistics = new HashMap<>();
+
+    @FunctionalInterface
+    public interface TripleVisitor {
+        /**
+         * @return false, to stop the iteration
+         */
+        boolean visit(int subject, int predicate, int object);
+    }
+
+    public TripleIndex(Graph graph) {
+        List<int[]> triples = new ArrayList<>();
+        ExtendedIterator<Triple> iterator = graph.find(Node.ANY, Node.ANY, Node.ANY);
+        try {
+            while (iterator.hasNext()) {
+                Triple triple = iterator.next();
+                triples.add(new int[]{id(triple.getSubject()), id(triple.getPredicate()), id(triple.getObject())});
+            }
+        } finally {
+            iterator.close();
+        }
+        spo = sort(triples, 0, 1, 2);
+        size = spo.length / 3;
+        pos = sort(triples, 1, 2, 0);
+        osp = sort(triples, 2, 0, 1);
+        distinctSubjects = countDistinct(spo);
+        distinctObjects = countDistinct(osp);
+        Map<Integer, Set<Integer>> subjectsByPredicate = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int predicate = pos[3 * i];
+            int[] statistics = predicateStatistics.computeIfAbsent(predicate, key -> new int[3]);
+            statistics[0]++;
+            if (i == 0 || pos[3 * (i - 1)] != predicate || pos[3 * (i - 1) + 1] != pos[3 * i + 1]) {
+                statistics[2]++; // the objects of a predicate are sorted in the POS order
+            }
+            subjectsByPredicate.computeIfAbsent(predicate, key -> new HashSet<>()).add(pos[3 * i + 2]);
+        }
+        subjectsByPredicate.forEach((predicate, subjects) -> predicateStatistics.get(predicate)[1] = subjects.size());
+    }
+
+    /**
+     * @return the id of the node, or {@link #UNKNOWN} if the node isn't in the graph
+     */
+    public int getId(Node node) {
+        Integer id = ids.get(node);
+        return id == null ? UNKNOWN : id;
+    }
+
+    public Node getNode(int id) {
+        return nodes.get(id);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the exact number of triples matching the ids, {@link #ANY} for an unbound position
+     */
+    public int count(int subject, int predicate, int object) {
+        int[] range = new int[2];
+        int[] index = select(subject, predicate, object, range);
+        return index == null ? 0 : range[1] - range[0];
+    }
+
+    /**
+     * Estimates how many triples match, if the positions which are bound by a join, but whose values aren't known yet,
+     * are bound. The other positions are given by their ids or {@link #ANY}.
+     */
+    public double estimate(int subject, int predicate, int object, boolean subjectJoined, boolean predicateJoined,
+                           boolean objectJoined) {
+        double estimate = count(subject, predicate, object);
+        int[] statistics = predicate >= 0 ? predicateStatistics.get(predicate) : null;
+        if (subjectJoined) {
+            estimate /= Math.max(1, statistics != null ? statistics[1] : distinctSubjects);
+        }
+        if (predicateJoined) {
+            estimate /= Math.max(1, predicateStatistics.size());
+        }
+        if (objectJoined) {
+            estimate /= Math.max(1, statistics != null ? statistics[2] : distinctObjects);
+        }
+        return estimate;
+    }
+
+    /**
+     * Visits the triples matching the ids, {@link #ANY} for an unbound position.
+     *
+     * @return false, if the visitor stopped the iteration
+     */
+    public boolean match(int subject, int predicate, int object, TripleVisitor visitor) {
+        int[] range = new int[2];
+        int[] index = select(subject, predicate, object, range);
+        if (index == null) {
+            return true;
+        }
+        for (int i = range[0]; i < range[1]; i++) {
+            int a = index[3 * i];
+            int b = index[3 * i + 1];
+            int c = index[3 * i + 2];
+            boolean proceed;
+            if (index == spo) {
+                proceed = visitor.visit(a, b, c);
+            } else if (index == pos) {
+                proceed = visitor.visit(c, a, b);
+            } else {
+                proceed = visitor.visit(b, c, a);
+            }
+            if (!proceed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chooses the order, in which the bound positions are a prefix, and finds the range of the matching triples.
+     *
+     * @return the order, or null if a constant isn't in the graph
+     */
+    private int[] select(int subject, int predicate, int object, int[] range) {
+        if (subject == UNKNOWN || predicate == UNKNOWN || object == UNKNOWN) {
+            return null;
+        }
+        boolean s = subject >= 0;
+        boolean p = predicate >= 0;
+        boolean o = object >= 0;
+        if (s && p) {
+            findRange(spo, subject, predicate, o ? object : ANY, range);
+            return spo;
+        } else if (p) {
+            findRange(pos, predicate, object, ANY, range);
+            return pos;
+        } else if (o) {
+            findRange(osp, object, subject, ANY, range);
+            return osp;
+        } else if (s) {
+            findRange(spo, subject, ANY, ANY, range);
+            return spo;
+        }
+        range[0] = 0;
+        range[1] = size;
+        return spo;
+    }
+
+    /**
+     * Finds the triples of the order, which start with the given ids. The first {@link #ANY} ends the prefix.
+     */
+    private void findRange(int[] index, int a, int b, int c, int[] range) {
+        int[] key = {a, b, c};
+        int length = a < 0 ? 0 : b < 0 ? 1 : c < 0 ? 2 : 3;
+        range[0] = bound(index, key, length, false);
+        range[1] = bound(index, key, length, true);
+    }
+
+    /**
+     * @param upper false for the first triple whose prefix is not smaller than the key, true for the first triple
+     *              whose prefix is greater than the key
+     */
+    private int bound(int[] index, int[] key, int length, boolean upper) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparePrefix(index, middle, key, length);
+            if (comparison < 0 || (upper && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int comparePrefix(int[] index, int triple, int[] key, int length) {
+        for (int i = 0; i < length; i++) {
+            int comparison = Integer.compare(index[3 * triple + i], key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private int id(Node node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodes.size();
+            ids.put(node, id);
+            nodes.add(node);
+        }
+        return id;
+    }
+
+    /**
+     * Sorts the triples in the order of the given positions, and removes duplicates.
+     */
+    private static int[] sort(List<int[]> triples, int first, int second, int third) {
+        List<int[]> sorted = new ArrayList<>(triples);
+        sorted.sort((x, y) -> {
+            int comparison = Integer.compare(x[first], y[first]);
+            if (comparison == 0) {
+                comparison = Integer.compare(x[second], y[second]);
+            }
+            return comparison != 0 ? comparison : Integer.compare(x[third], y[third]);
+        });
+        int[] index = new int[3 * sorted.size()];
+        int count = 0;
+        for (int[] triple : sorted) {
+            if (count > 0 && index[3 * count - 3] == triple[first] && index[3 * count - 2] == triple[second]
+                    && index[3 * count - 1] == triple[third]) {
+                continue;
+            }
+            index[3 * count] = triple[first];
+            index[3 * count + 1] = triple[second];
+            index[3 * count + 2] = triple[third];
+            count++;
+        }
+        return Arrays.copyOf(index, 3 * count);
+    }
+
+    private static int countDistinct(int[] index) {
+        int count = 0;
+        for (int i = 0; i < index.length; i += 3) {
+            if (i == 0 || index[i] != index[i - 3]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -19,7 +19,9 @@ package relations;
 
 import LRMv2.LRM_static_schema;
 import entities.Template;
+import entities.TemplateHierarchy;
 import models.AbstractModel;
+import models.ResourceMinter;
 import org.apache.jena.datatypes.RDFDatatype;
 import org.apache.jena.graph.Node;
 import org.apache.jena.ontology.*;
@@ -28,6 +30,7 @@ import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDFS;
 
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -36,6 +39,8 @@ import java.util.Set;
  * already added to an {@link AbstractModel} and it wraps around an associated ontology {@link ObjectProperty}.
  */
 public class DEMRelation extends Relation implements ObjectProperty {
+    private static final long serialVersionUID = -6945460418589425099L;
+
     /**
      * The model to which this relation belongs
      */
@@ -52,6 +57,15 @@ public class DEMRelation extends Relation implements ObjectProperty {
      * A list of entities to which this relation can point.
      */
     transient private Set<Template> templateRanges = new HashSet<>();
+    /**
+     * The ids of the domain and range templates in the {@link TemplateHierarchy} of the model.
+     */
+    transient private final BitSet domainIds = new BitSet();
+    transient private final BitSet rangeIds = new BitSet();
+    /**
+     * True, if the property was loaded from a {@link models.DEMSnapshot} and must not be written again.
+     */
+    transient private final boolean fromSnapshot;
 
 
     /**
@@ -62,7 +76,11 @@ public class DEMRelation extends Relation implements ObjectProperty {
     public DEMRelation(RelationBuilder builder) {
         super(builder.name, builder.description);
         this.model = builder.model;
-        this.property = model.model.createObjectProperty(model.namespace + AbstractModel.sanitizeName(name));
+        String uri = model.mintURI(name);
+        // Models loaded from a snapshot already contain the property with all its statements:
+        ObjectProperty existing = model.isLoadedFromSnapshot() ? model.model.getObjectProperty(uri) : null;
+        this.fromSnapshot = existing != null;
+        this.property = fromSnapshot ? existing : model.model.createObjectProperty(uri);
         builder.domains.forEach(this::addDomain);
         builder.ranges.forEach(this::addRange);
         if (builder.description != null) {
@@ -71,7 +89,7 @@ public class DEMRelation extends Relation implements ObjectProperty {
         if (builder.inverse != null) {
             addInverse(builder.inverse);
         }
-        if (builder.superRelation != null) {
+        if (builder.superRelation != null && !fromSnapshot) {
             addSuperProperty(builder.superRelation);
         }
         addLabel(name);
@@ -81,7 +99,7 @@ public class DEMRelation extends Relation implements ObjectProperty {
     protected void addInverse(Relation inverse) {
         this.inverse = inverse;
         this.inverse.inverse = this;
-        if (inverse instanceof DEMRelation) {
+        if (inverse instanceof DEMRelation && !fromSnapshot) {
             addProperty(OWL.inverseOf, (DEMRelation) inverse);
             addInverseOf((DEMRelation) inverse);
             ((DEMRelation) inverse).addProperty(OWL.inverseOf, this);
@@ -95,27 +113,37 @@ public class DEMRelation extends Relation implements ObjectProperty {
      * @param range The range resource
      */
     public void addRange(Resource range) {
-        property.addRange(range);
+        if (!fromSnapshot) {
+            property.addRange(range);
+        }
         if (range instanceof Template) {
             addTarget((Template) range);
         }
     }
 
     /**
-     * Recursively add all child classes of the passed entity class as possible templateRanges of the relation.
+     * Adds a template as possible target of the relation. All templates which inherit from the target are possible
+     * targets as well, see {@link #canPointTo(Template)}.
      */
     public void addTarget(Template target) {
         templateRanges.add(target);
-        for (Template child : target.getChildren()) {
-            addTarget(child);
+        int id = model.getHierarchy().include(target);
+        if (id >= 0) {
+            rangeIds.set(id);
         }
     }
 
     public void addDomain(Resource domain) {
         if (domain instanceof Template) {
             templateDomains.add((Template) domain);
+            int id = model.getHierarchy().include((Template) domain);
+            if (id >= 0) {
+                domainIds.set(id);
+            }
+        }
+        if (!fromSnapshot) {
+            property.addDomain(domain);
         }
-        property.addDomain(domain);
     }
 
     /**
@@ -124,12 +152,18 @@ public class DEMRelation extends Relation implements ObjectProperty {
      * @param description of this relation
      */
     public void addDescription(String description) {
+        if (fromSnapshot) {
+            return;
+        }
         addProperty(LRM_static_schema.specification, model.model.createIndividual(LRM_static_schema.Description)
                 .addProperty(LRM_static_schema.definition, description));
     }
 
     public void addLabel(String label) {
-        addProperty(RDFS.label, model.model.createLiteral(label, "en"));
+        if (fromSnapshot) {
+            return;
+        }
+        addProperty(RDFS.label, model.model.asRDFNode(ResourceMinter.literal(label, "en")));
     }
 
     public Set<Template> getParentTemplateDomains() {
@@ -142,34 +176,49 @@ public class DEMRelation extends Relation implements ObjectProperty {
 
 
     public Set<Template> getAllTemplateDomains() {
-        Set<Template> all = new HashSet<>();
-        all.addAll(templateDomains);
-        all.addAll(getChildren(templateDomains));
-        return all;
+        return getDescendants(templateDomains, domainIds);
     }
 
     public Set<Template> getAllTemplateRanges() {
-        Set<Template> all = new HashSet<>();
-        all.addAll(templateRanges);
-        all.addAll(getChildren(templateRanges));
-        return all;
+        return getDescendants(templateRanges, rangeIds);
     }
 
-    private Set<Template> getChildren(Set<Template> parents) {
-        Set<Template> childs = new HashSet<>();
-        for (Template template : parents) {
-            childs.addAll(recursivelyAddChilds(template));
+    /**
+     * The relations of a scenario get the DEM templates, which inherit from their DEM domains and ranges, from the DEM
+     * hierarchy, as the scenario hierarchy only includes the DEM templates it uses.
+     */
+    private Set<Template> getDescendants(Set<Template> templates, BitSet ids) {
+        Set<Template> descendants = model.getHierarchy().getDescendants(ids);
+        if (model.getHierarchy() != TemplateHierarchy.DEM) {
+            descendants.addAll(TemplateHierarchy.DEM.getDescendants(TemplateHierarchy.DEM.getIds(templates)));
         }
-        return childs;
+        return descendants;
     }
 
-    private Set<Template> recursivelyAddChilds(Template template) {
-        Set<Template> childs = new HashSet<>();
-        for (Template child : template.getChildren()) {
-            childs.add(child);
-            childs.addAll(recursivelyAddChilds(child));
-        }
-        return childs;
+    /**
+     * @param template the template of an entity
+     * @return true, if the relation can be used from entities of the template
+     */
+    public boolean canBeUsedFrom(Template template) {
+        return isSubTemplateOfAny(template, templateDomains, domainIds);
+    }
+
+    /**
+     * @param template the template of an entity
+     * @return true, if the relation can point to entities of the template
+     */
+    public boolean canPointTo(Template template) {
+        return isSubTemplateOfAny(template, templateRanges, rangeIds);
+    }
+
+    /**
+     * The test runs in the hierarchy of the template, so that DEM relations can be used with the custom templates of a
+     * scenario, and the relations of a scenario with DEM templates.
+     */
+    private boolean isSubTemplateOfAny(Template template, Set<Template> templates, BitSet ids) {
+        TemplateHierarchy hierarchy = template.model.getHierarchy();
+        BitSet ancestorIds = hierarchy == model.getHierarchy() ? ids : hierarchy.getIds(templates);
+        return hierarchy.isSubTemplateOfAny(template, ancestorIds);
     }
 
     @Override
@@ -70,7 +70,10 @@ public class RelationBuilder {
         this.model = model;
         this.name = name;
         domains.add(domain);
-        OntProperty property = model.model.getOntProperty(model.namespace + AbstractModel.sanitizeName(name));
+        // The domain and range of an already existing property are kept. Snapshot models contain all properties
+        // already, their domains and ranges are added again by the relation definitions:
+        OntProperty property = model.isLoadedFromSnapshot() ? null
+                : model.model.getOntProperty(model.namespace + AbstractModel.sanitizeName(name));
         if (property != null) {
             domains.add(property.getDomain());
             ranges.add(property.getRange());
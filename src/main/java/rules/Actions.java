@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package rules;
+
+import entities.EcosystemDependency;
+import models.ScenarioModel;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The actions of the rule syntax, see {@link Rule#parse}. The arguments may be variables of the precondition, which are
+ * replaced by their values when the action fires.
+ */
+public class Actions {
+    private Actions() {
+    }
+
+    /**
+     * Creates an Ecosystem Dependency from one entity to another. The IRI of the dependency is derived from the label
+     * and the entities, so that the same dependency is only created once. The dependency is created through the
+     * scenario model of the engine, which imports the analysis model.
+     */
+    public static Action dependency(Node from, Node to, String label) {
+        return (engine, binding) -> {
+            Node source = resolve(from, binding);
+            Node target = resolve(to, binding);
+            if (source == null || !source.isURI()) {
+                throw new IllegalArgumentException("The dependency \"" + label + "\" needs an entity as source: "
+                        + source);
+            }
+            if (target == null || !target.isURI()) {
+                throw new IllegalArgumentException("The dependency \"" + label + "\" needs an entity as target: "
+                        + target);
+            }
+            ScenarioModel scenario = engine.getScenario();
+            if (scenario == null) {
+                throw new IllegalStateException("The dependency \"" + label
+                        + "\" needs a rule engine on the scenario model.");
+            }
+            Model model = scenario.model;
+            EcosystemDependency dependency = new EcosystemDependency(scenario,
+                    label + " " + source.getLocalName() + " " + target.getLocalName(),
+                    model.wrapAsResource(source), model.wrapAsResource(target));
+            dependency.setLabel(label);
+        };
+    }
+
+    /**
+     * Runs the process with the handler, which is registered at the engine.
+     */
+    public static Action run(Node process, List<Node> arguments) {
+        return (engine, binding) -> {
+            List<Node> values = new ArrayList<>();
+            for (Node argument : arguments) {
+                values.add(resolve(argument, binding));
+            }
+            engine.runProcess(resolve(process, binding), values);
+        };
+    }
+
+    /**
+     * Replaces the values of the property of the subject with the value.
+     */
+    public static Action set(Node subject, Node property, Node value) {
+        return (engine, binding) -> {
+            Node s = resolve(subject, binding);
+            Node p = resolve(property, binding);
+            Graph graph = engine.getModel().getGraph();
+            // Deleted one by one, so that the listeners see each triple:
+            for (Triple old : graph.find(s, p, Node.ANY).toList()) {
+                graph.delete(old);
+            }
+            graph.add(Triple.create(s, p, resolve(value, binding)));
+        };
+    }
+
+    public static Action add(Node subject, Node property, Node object) {
+        return (engine, binding) -> engine.getModel().getGraph().add(Triple.create(resolve(subject, binding),
+                resolve(property, binding), resolve(object, binding)));
+    }
+
+    public static Action remove(Node subject, Node property, Node object) {
+        return (engine, binding) -> engine.getModel().getGraph().delete(Triple.create(resolve(subject, binding),
+                resolve(property, binding), resolve(object, binding)));
+    }
+
+    /**
+     * @return the value of the variable, or the term itself
+     */
+    static Node resolve(Node term, Map<String, Node> binding) {
+        return term.isVariable() ? binding.get(term.getName()) : term;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package rules;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.shared.PrefixMapping;
+import query.BasicGraphPattern;
+
+import java.util.*;
+
+/**
+ * A change rule: when the precondition, a {@link BasicGraphPattern} over the scenario graph, gets a new match, the
+ * actions are executed with the values of its variables.
+ * <p>
+ * The text syntax follows the free-text rules of the examples:
+ * <pre>
+ *     Precondition: ?object a DEM-Core:DigitalObject . ?object ex:location "private"
+ *     Impact: dependency ex:ReleasePolicy ?object "policy applies to" ; run ex:Move ?object
+ * </pre>
+ * The actions are separated by semicolons:
+ * <ul>
+ * <li>dependency &lt;from&gt; &lt;to&gt; ["label"]: creates an Ecosystem Dependency</li>
+ * <li>run &lt;process&gt; [arguments]: runs a process, see {@link ProcessHandler}</li>
+ * <li>set &lt;subject&gt; &lt;property&gt; &lt;value&gt;: replaces the values of a property</li>
+ * <li>add &lt;subject&gt; &lt;property&gt; &lt;object&gt; and remove &lt;subject&gt; &lt;property&gt;
+ * &lt;object&gt;: change a triple</li>
+ * </ul>
+ */
+public class Rule {
+    private static final String PRECONDITION = "precondition:";
+    private static final String IMPACT = "impact:";
+
+    private final String name;
+    private final BasicGraphPattern precondition;
+    private final List<Action> actions;
+
+    public Rule(String name, BasicGraphPattern precondition, List<Action> actions) {
+        this.name = name;
+        this.precondition = precondition;
+        this.actions = Collections.unmodifiableList(new ArrayList<>(actions));
+    }
+
+    /**
+     * Parses a rule of the text syntax.
+     *
+     * @param prefixes the prefixes for prefixed names, e.g. the scenario model
+     * @throws IllegalArgumentException if the text isn't a valid rule
+     */
+    public static Rule parse(String name, String text, PrefixMapping prefixes) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int precondition = lowerCase.indexOf(PRECONDITION);
+        int impact = lowerCase.indexOf(IMPACT);
+        if (precondition < 0 || impact < precondition) {
+            throw new IllegalArgumentException("The rule " + name + " needs a precondition followed by an impact.");
+        }
+        BasicGraphPattern pattern = BasicGraphPattern.parse(
+                text.substring(precondition + PRECONDITION.length(), impact), prefixes);
+        List<Action> actions = new ArrayList<>();
+        for (String action : split(text.substring(impact + IMPACT.length()))) {
+            actions.add(parseAction(action, pattern.getVariables(), prefixes));
+        }
+        if (actions.isEmpty()) {
+            throw new IllegalArgumentException("The rule " + name + " has no impact.");
+        }
+        return new Rule(name, pattern, actions);
+    }
+
+    private static Action parseAction(String text, List<String> variables, PrefixMapping prefixes) {
+        int space = 0;
+        while (space < text.length() && !Character.isWhitespace(text.charAt(space))) {
+            space++;
+        }
+        String keyword = text.substring(0, space);
+        List<Node> arguments = BasicGraphPattern.parseTerms(text.substring(space), prefixes);
+        for (Node argument : arguments) {
+            if (argument.isVariable() && !variables.contains(argument.getName())) {
+                throw new IllegalArgumentException("The variable ?" + argument.getName() + " of '" + text
+                        + "' isn't bound by the precondition.");
+            }
+        }
+        switch (keyword) {
+            case "dependency":
+                if (arguments.size() == 2 || (arguments.size() == 3 && arguments.get(2).isLiteral())) {
+                    String label = arguments.size() == 3 ? arguments.get(2).getLiteralLexicalForm() : "dependency";
+                    return Actions.dependency(arguments.get(0), arguments.get(1), label);
+                }
+                break;
+            case "run":
+                if (!arguments.isEmpty()) {
+                    return Actions.run(arguments.get(0), arguments.subList(1, arguments.size()));
+                }
+                break;
+            case "set":
+            case "add":
+            case "remove":
+                if (arguments.size() == 3) {
+                    Node subject = arguments.get(0);
+                    Node property = arguments.get(1);
+                    Node object = arguments.get(2);
+                    return keyword.equals("set") ? Actions.set(subject, property, object)
+                            : keyword.equals("add") ? Actions.add(subject, property, object)
+                            : Actions.remove(subject, property, object);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown action '" + keyword + "'.");
+        }
+        throw new IllegalArgumentException("Wrong arguments of the action '" + text + "'.");
+    }
+
+    /**
+     * Splits the actions at the semicolons, which are not in a literal or an IRI.
+     */
+    private static List<String> split(String text) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder part = new StringBuilder();
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && i + 1 < text.length()) {
+                    part.append(c);
+                    c = text.charAt(++i);
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '<') {
+                quote = '>';
+            } else if (c == ';') {
+                parts.add(part.toString());
+                part.setLength(0);
+                continue;
+            }
+            part.append(c);
+        }
+        parts.add(part.toString());
+        List<String> actions = new ArrayList<>();
+        for (String action : parts) {
+            if (!action.trim().isEmpty()) {
+                actions.add(action.trim());
+            }
+        }
+        return actions;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BasicGraphPattern getPrecondition() {
+        return precondition;
+    }
+
+    public List<Action> getActions() {
+        return actions;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package rules;
+
+import models.ScenarioModel;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.listeners.StatementListener;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+import java.io.Closeable;
+import java.util.*;
+
+/**
+ * Executes {@link Rule}s on a model: a rule fires once for each new match of its precondition, and can fire again
+ * after the match was lost and found again. Matches which already exist when a rule is added don't fire.
+ * <p>
+ * The matching is incremental and follows TREAT: the triple patterns of all rules are indexed by their predicates,
+ * so that an added triple is only compared with the patterns which can match it. A matching pattern is joined with the
+ * other patterns of its rule, starting at the values of the triple, using the indexes of the graph. There are no
+ * stored partial matches; the complete matches are kept with the triples that support them, so that a removed triple
+ * retracts exactly the matches it supported.
+ * <p>
+ * New matches are put on an agenda, which is executed after the change of the model. Changes by the actions are
+ * matched in turn.
+ */
+public class RuleEngine implements Closeable {
+    /**
+     * Stops rules which trigger each other endlessly.
+     */
+    public static final int MAX_FIRINGS = 100000;
+
+    private final ScenarioModel scenario;
+    private final Model model;
+    private final Graph graph;
+    private final Listener listener = new Listener();
+    private final Map<Rule, CompiledRule> rules = new LinkedHashMap<>();
+    // The patterns of the rules by their constant predicates, and the patterns with a variable predicate:
+    private final Map<Node, List<PatternReference>> byPredicate = new HashMap<>();
+    private final List<PatternReference> anyPredicate = new ArrayList<>();
+    // The matches by the triples which support them:
+    private final Map<Triple, Set<Match>> support = new HashMap<>();
+    private final Deque<Match> agenda = new ArrayDeque<>();
+    private final Map<Node, ProcessHandler> processes = new HashMap<>();
+    private boolean firing = false;
+    private long firings = 0;
+
+    public RuleEngine(Model model) {
+        this(null, model);
+    }
+
+    /**
+     * The engine on the scenario model can also create entities, like the Ecosystem Dependencies of the
+     * "dependency" actions.
+     */
+    public RuleEngine(ScenarioModel scenario) {
+        this(scenario, scenario.model);
+    }
+
+    private RuleEngine(ScenarioModel scenario, Model model) {
+        this.scenario = scenario;
+        this.model = model;
+        this.graph = model.getGraph();
+        model.register(listener);
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * @return the scenario model, or null if the engine runs on a plain model
+     */
+    public ScenarioModel getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Adds the rule. The current matches of its precondition are recorded, but don't fire.
+     */
+    public synchronized void addRule(Rule rule) {
+        if (rules.containsKey(rule)) {
+            return;
+        }
+        CompiledRule compiled = new CompiledRule(rule);
+        rules.put(rule, compiled);
+        for (int i = 0; i < compiled.patterns.length; i++) {
+            Node predicate = compiled.patterns[i].getPredicate();
+            PatternReference reference = new PatternReference(compiled, i);
+            if (predicate.isVariable()) {
+                anyPredicate.add(reference);
+            } else {
+                byPredicate.computeIfAbsent(predicate, key -> new ArrayList<>()).add(reference);
+            }
+        }
+        List<Match> matches = new ArrayList<>();
+        compiled.join(compiled.fullOrder, 0, new Node[compiled.variables.size()],
+                new Triple[compiled.patterns.length], matches);
+        matches.forEach(this::record);
+    }
+
+    public synchronized void removeRule(Rule rule) {
+        CompiledRule compiled = rules.remove(rule);
+        if (compiled == null) {
+            return;
+        }
+        byPredicate.values().forEach(references -> references.removeIf(reference -> reference.rule == compiled));
+        byPredicate.values().removeIf(List::isEmpty);
+        anyPredicate.removeIf(reference -> reference.rule == compiled);
+        new ArrayList<>(compiled.matches.values()).forEach(this::retract);
+    }
+
+    /**
+     * Registers the handler, which runs the process for the "run" actions.
+     */
+    public synchronized void registerProcess(Node process, ProcessHandler handler) {
+        processes.put(process, handler);
+    }
+
+    void runProcess(Node process, List<Node> arguments) {
+        ProcessHandler handler = processes.get(process);
+        if (handler == null) {
+            System.err.println("No handler is registered for the process " + process);
+        } else {
+            handler.run(process, arguments);
+        }
+    }
+
+    /**
+     * @return the number of current matches of the rule
+     */
+    public synchronized int getMatchCount(Rule rule) {
+        CompiledRule compiled = rules.get(rule);
+        return compiled == null ? 0 : compiled.matches.size();
+    }
+
+    /**
+     * @return how often actions were fired since the engine was created
+     */
+    public synchronized long getFirings() {
+        return firings;
+    }
+
+    @Override
+    public void close() {
+        model.unregister(listener);
+    }
+
+    private synchronized void added(Triple triple) {
+        List<Match> matches = new ArrayList<>();
+        List<PatternReference> references = byPredicate.getOrDefault(triple.getPredicate(), Collections.emptyList());
+        for (List<PatternReference> candidates : Arrays.asList(references, anyPredicate)) {
+            for (PatternReference reference : candidates) {
+                CompiledRule rule = reference.rule;
+                Node[] bindings = new Node[rule.variables.size()];
+                if (rule.bind(reference.pattern, triple, bindings)) {
+                    Triple[] matched = new Triple[rule.patterns.length];
+                    matched[reference.pattern] = triple;
+                    rule.join(rule.orders[reference.pattern], 0, bindings, matched, matches);
+                }
+            }
+        }
+        for (Match match : matches) {
+            if (record(match)) {
+                agenda.add(match);
+            }
+        }
+        fire();
+    }
+
+    private synchronized void removed(Triple triple) {
+        Set<Match> supported = support.remove(triple);
+        if (supported != null) {
+            new ArrayList<>(supported).forEach(this::retract);
+        }
+    }
+
+    /**
+     * @return true, if the match is new
+     */
+    private boolean record(Match match) {
+        if (match.rule.matches.putIfAbsent(match.key, match) != null) {
+            return false;
+        }
+        for (Triple triple : match.triples) {
+            support.computeIfAbsent(triple, key -> new HashSet<>()).add(match);
+        }
+        return true;
+    }
+
+    private void retract(Match match) {
+        match.retracted = true;
+        match.rule.matches.remove(match.key);
+        for (Triple triple : match.triples) {
+            Set<Match> matches = support.get(triple);
+            if (matches != null) {
+                matches.remove(match);
+                if (matches.isEmpty()) {
+                    support.remove(triple);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the agenda. The changes of the actions are matched while the agenda runs, and their matches are added to
+     * the end of the agenda.
+     */
+    private void fire() {
+        if (firing) {
+            return;
+        }
+        firing = true;
+        try {
+            int count = 0;
+            while (!agenda.isEmpty()) {
+                Match match = agenda.poll();
+                if (match.retracted) {
+                    continue;
+                }
+                if (++count > MAX_FIRINGS) {
+                    System.err.println("The rules fired more than " + MAX_FIRINGS + " times, the agenda is dropped.");
+                    agenda.clear();
+                    break;
+                }
+                firings++;
+                Map<String, Node> binding = match.getBinding();
+                for (Action action : match.rule.rule.getActions()) {
+                    try {
+                        action.fire(this, binding);
+                    } catch (RuntimeException e) {
+                        System.err.println("The rule " + match.rule.rule.getName() + " failed:");
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } finally {
+            firing = false;
+        }
+    }
+
+    /**
+     * A pattern of a rule, as entry of the predicate index.
+     */
+    private static class PatternReference {
+        final CompiledRule rule;
+        final int pattern;
+
+        PatternReference(CompiledRule rule, int pattern) {
+            this.rule = rule;
+            this.pattern = pattern;
+        }
+    }
+
+    /**
+     * A match of the precondition of a rule: the values of its variables, and the triples which matched its patterns.
+     */
+    private static class Match {
+        final CompiledRule rule;
+        final List<Node> key;
+        final Triple[] triples;
+        boolean retracted = false;
+
+        Match(CompiledRule rule, Node[] values, Triple[] triples) {
+            this.rule = rule;
+            this.key = Arrays.asList(values);
+            this.triples = triples;
+        }
+
+        Map<String, Node> getBinding() {
+            Map<String, Node> binding = new LinkedHashMap<>();
+            for (int i = 0; i < key.size(); i++) {
+                binding.put(rule.variables.get(i), key.get(i));
+            }
+            return binding;
+        }
+    }
+
+    /**
+     * The patterns of a rule with their variables replaced by slots, and the join orders from each pattern.
+     */
+    private class CompiledRule {
+        final Rule rule;
+        final List<String> variables;
+        final Triple[] patterns;
+        // Per pattern and position: the slot of the variable, or -1 for a constant:
+        final int[][] slots;
+        // Per pattern: the order in which the other patterns are joined, if the pattern matched a new triple:
+        final int[][] orders;
+        // The order of all patterns, for the matches which exist when the rule is added:
+        final int[] fullOrder;
+        final Map<List<Node>, Match> matches = new HashMap<>();
+
+        CompiledRule(Rule rule) {
+            this.rule = rule;
+            variables = rule.getPrecondition().getVariables();
+            patterns = rule.getPrecondition().getPatterns().toArray(new Triple[0]);
+            slots = new int[patterns.length][3];
+            for (int i = 0; i < patterns.length; i++) {
+                Node[] nodes = nodes(patterns[i]);
+                for (int j = 0; j < 3; j++) {
+                    slots[i][j] = nodes[j].isVariable() ? variables.indexOf(nodes[j].getName()) : -1;
+                }
+            }
+            orders = new int[patterns.length][];
+            for (int i = 0; i < patterns.length; i++) {
+                orders[i] = order(i);
+            }
+            fullOrder = order(-1);
+        }
+
+        /**
+         * Orders the patterns greedily, so that the next pattern has the most constant or bound positions.
+         *
+         * @param first the pattern which is already matched, or -1
+         */
+        private int[] order(int first) {
+            boolean[] bound = new boolean[variables.size()];
+            boolean[] used = new boolean[patterns.length];
+            if (first >= 0) {
+                used[first] = true;
+                bindSlots(first, bound);
+            }
+            int[] order = new int[first >= 0 ? patterns.length - 1 : patterns.length];
+            for (int step = 0; step < order.length; step++) {
+                int best = -1;
+                int bestScore = -1;
+                for (int i = 0; i < patterns.length; i++) {
+                    if (used[i]) {
+                        continue;
+                    }
+                    int score = 0;
+                    for (int slot : slots[i]) {
+                        if (slot < 0 || bound[slot]) {
+                            score++;
+                        }
+                    }
+                    if (score > bestScore) {
+                        best = i;
+                        bestScore = score;
+                    }
+                }
+                used[best] = true;
+                bindSlots(best, bound);
+                order[step] = best;
+            }
+            return order;
+        }
+
+        private void bindSlots(int pattern, boolean[] bound) {
+            for (int slot : slots[pattern]) {
+                if (slot >= 0) {
+                    bound[slot] = true;
+                }
+            }
+        }
+
+        /**
+         * Binds the variables of the pattern to the values of the triple.
+         *
+         * @return false, if the triple doesn't match the pattern and the bindings; the bindings are then undefined
+         */
+        boolean bind(int pattern, Triple triple, Node[] bindings) {
+            Node[] nodes = nodes(patterns[pattern]);
+            Node[] values = nodes(triple);
+            for (int i = 0; i < 3; i++) {
+                int slot = slots[pattern][i];
+                if (slot < 0) {
+                    if (!nodes[i].equals(values[i])) {
+                        return false;
+                    }
+                } else if (bindings[slot] == null) {
+                    bindings[slot] = values[i];
+                } else if (!bindings[slot].equals(values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Joins the patterns of the order from the step on against the graph, and collects the complete matches.
+         */
+        void join(int[] order, int step, Node[] bindings, Triple[] matched, List<Match> result) {
+            if (step == order.length) {
+                result.add(new Match(this, bindings.clone(), matched.clone()));
+                return;
+            }
+            int pattern = order[step];
+            Node[] nodes = nodes(patterns[pattern]);
+            Node[] query = new Node[3];
+            for (int i = 0; i < 3; i++) {
+                int slot = slots[pattern][i];
+                query[i] = slot < 0 ? nodes[i] : bindings[slot] != null ? bindings[slot] : Node.ANY;
+            }
+            List<Triple> triples;
+            ExtendedIterator<Triple> iterator = graph.find(query[0], query[1], query[2]);
+            try {
+                triples = iterator.toList();
+            } finally {
+                iterator.close();
+            }
+            for (Triple triple : triples) {
+                Node[] extended = bindings.clone();
+                if (bind(pattern, triple, extended)) {
+                    matched[pattern] = triple;
+                    join(order, step + 1, extended, matched, result);
+                }
+            }
+            matched[pattern] = null;
+        }
+    }
+
+    private static Node[] nodes(Triple triple) {
+        return new Node[]{triple.getSubject(), triple.getPredicate(), triple.getObject()};
+    }
+
+    private class Listener extends StatementListener {
+        @Override
+        public void addedStatement(Statement statement) {
+            added(statement.asTriple());
+        }
+
+        @Override
+        public void removedStatement(Statement statement) {
+            removed(statement.asTriple());
+        }
+    }
+}
@@ -17,6 +17,7 @@
  */
 package saver;
 
+import gui.BackgroundTask;
 import gui.EcoBuilder;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
@@ -24,10 +25,8 @@ import models.CoreModel;
 import org.apache.jena.ontology.OntModel;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.*;
 
 /**
  * Abstract base class to be inherited by model saving classes.
@@ -42,6 +41,9 @@ public abstract class AbstractSaver {
     protected File turtleSubDirectory;
     protected File xmlSubDirectory;
     protected EcoBuilder ecoBuilder;
+    // The formats in which the models are saved, can be changed by the savers:
+    protected final Set<ModelWriter.Format> formats =
+            EnumSet.of(ModelWriter.Format.TURTLE, ModelWriter.Format.RDF_XML_ABBREV);
 
     public AbstractSaver(EcoBuilder ecoBuilder, String subDirectoryName) {
         this.ecoBuilder = ecoBuilder;
@@ -50,6 +52,22 @@ public abstract class AbstractSaver {
 
     public abstract File save();
 
+    /**
+     * Prepares the saving in the GUI thread, e.g. asks for the output directory and takes a snapshot of the scenario,
+     * and returns the writing of the files, which runs in the background on the {@link gui.TaskArea}.
+     *
+     * @return null, if the user canceled the saving
+     */
+    public abstract BackgroundTask<File> saveTask();
+
+    /**
+     * Selects the formats in which this saver saves the models.
+     */
+    public void setFormats(ModelWriter.Format... formats) {
+        this.formats.clear();
+        this.formats.addAll(Arrays.asList(formats));
+    }
+
     /**
      * Create the sub output directories which are specific for the implementing saver.
      */
@@ -102,30 +120,61 @@ public abstract class AbstractSaver {
         return "_" + new SimpleDateFormat("dd_MM_yyyy").format(new Date()) + format;
     }
 
+    protected String getSuffix(ModelWriter.Format format) {
+        return "_" + new SimpleDateFormat("dd_MM_yyyy").format(new Date()) + format.extension;
+    }
+
     /**
-     * Save the model in XML as well as in TURTLE.
+     * Save the model in all {@link #formats} of this saver.
      *
      * @param model The model to be saved
      */
-    protected File saveModel(OntModel model) {
+    protected List<ModelWriter.Result> saveModel(OntModel model) {
         return saveModel(model, "scenario");
     }
 
-    protected File saveModel(OntModel model, String experimentName) {
+    /**
+     * The formats are written concurrently by the {@link ModelWriter}. Turtle and N-Triples files are saved into the
+     * turtle directory, the RDF/XML files into the owl directory.
+     *
+     * @return the result of each format, which is empty if the output directories couldn't be created
+     */
+    protected List<ModelWriter.Result> saveModel(OntModel model, String experimentName) {
         if (!createOutputDirectories()) {
-            return null; // Output dirs couldn't be created.
+            return Collections.emptyList(); // Output dirs couldn't be created.
         }
-        File turtleFile = new File(turtleSubDirectory.getAbsolutePath() + File.separator + CoreModel.sanitizeName(experimentName) + getSuffix(TURTLE));
-        File xmlFile = new File(xmlSubDirectory.getAbsolutePath() + File.separator + CoreModel.sanitizeName(experimentName) + getSuffix(XML));
-        try {
-            model.write(new FileOutputStream(turtleFile), TURTLE);
-            model.write(new FileOutputStream(xmlFile), XML);
-        } catch (FileNotFoundException e1) {
-            return null;
+        Map<ModelWriter.Format, File> targets = new EnumMap<>(ModelWriter.Format.class);
+        for (ModelWriter.Format format : formats) {
+            boolean xml = format == ModelWriter.Format.RDF_XML || format == ModelWriter.Format.RDF_XML_ABBREV;
+            File directory = xml ? xmlSubDirectory : turtleSubDirectory;
+            targets.put(format, new File(directory, CoreModel.sanitizeName(experimentName) + getSuffix(format)));
         }
-        return turtleFile;
+        return ModelWriter.write(model, targets);
     }
 
+    /**
+     * @return the turtle file, or the first saved file if no turtle was saved, or null if no file was saved
+     */
+    protected static File getSavedFile(List<ModelWriter.Result> results) {
+        File savedFile = null;
+        for (ModelWriter.Result result : results) {
+            if (result.isSuccess() && (savedFile == null || result.format == ModelWriter.Format.TURTLE)) {
+                savedFile = result.file;
+            }
+        }
+        return savedFile;
+    }
+
+    /**
+     * @return one line per result, to be shown in the information area
+     */
+    protected static String describe(List<ModelWriter.Result> results) {
+        StringBuilder text = new StringBuilder();
+        for (ModelWriter.Result result : results) {
+            text.append("\n").append(result);
+        }
+        return text.toString();
+    }
 
     /**
      * Creates the required output directories, if not yet existing.
@@ -17,11 +17,16 @@
  */
 package saver;
 
+import gui.BackgroundTask;
 import gui.EcoBuilder;
 import models.AbstractModel;
 import models.DEM;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Saves the abstract DEM models.
@@ -37,21 +42,45 @@ public class DEMSaver extends AbstractSaver {
      */
     @Override
     public File save() {
-        saveSubOntology(DEM.CORE_MODEL);
-        saveSubOntology(DEM.POLICY_MODEL);
-        saveSubOntology(DEM.PROCESS_MODEL);
-        saveSubOntology(DEM.ANALYSIS_MODEL);
-        saveSubOntology(DEM.INFRASTRUCTURE_MODEL);
-        saveSubOntology(DEM.PRESERVATION_POLICY_MODEL);
+        for (Supplier<AbstractModel> subOntology : getSubOntologies()) {
+            saveSubOntology(subOntology.get());
+        }
         return null;
     }
 
+    /**
+     * The DEM models don't change, so that they are saved completely in the background.
+     */
+    @Override
+    public BackgroundTask<File> saveTask() {
+        if (!createOutputDirectories()) {
+            return null;
+        }
+        return new BackgroundTask<>("Save DEM", task -> {
+            List<Supplier<AbstractModel>> subOntologies = getSubOntologies();
+            List<ModelWriter.Result> failures = new ArrayList<>();
+            for (int i = 0; i < subOntologies.size() && !task.isCancelled(); i++) {
+                AbstractModel model = subOntologies.get(i).get();
+                task.progress(i, subOntologies.size(), "Saving " + model.prefix);
+                saveSubOntology(model).stream().filter(result -> !result.isSuccess()).forEach(failures::add);
+            }
+            task.progress(subOntologies.size(), subOntologies.size(), "Saved the DEM to " + projectOutputDirectory
+                    + describe(failures));
+            return null;
+        });
+    }
+
+    private static List<Supplier<AbstractModel>> getSubOntologies() {
+        return Arrays.asList(DEM::getCoreModel, DEM::getPolicyModel, DEM::getProcessModel, DEM::getAnalysisModel,
+                DEM::getInfrastructureModel, DEM::getPreservationPolicyModel);
+    }
+
     /**
      * Saves the sub ontology model in xml as well as in turtle format.
      *
      * @param model The model to be saved
      */
-    private void saveSubOntology(AbstractModel model) {
-        saveModel(model.model, model.prefix + "-");
+    private List<ModelWriter.Result> saveSubOntology(AbstractModel model) {
+        return saveModel(model.model, model.prefix + "-");
     }
 }
@@ -18,9 +18,14 @@
 package saver;
 
 import experiments.*;
+import gui.BackgroundTask;
 import gui.EcoBuilder;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Saves all experiments from the experiments directory in OWL as well as in TURTLE format.
@@ -36,28 +41,44 @@ public class ExperimentsSaver extends AbstractSaver {
      */
     @Override
     public File save() {
-        saveExperiment(new SimplePolicyExample());
-        saveExperiment(new VideoStreaming());
-        saveExperiment(new TransferScenario());
-        saveExperiment(new PolicyChangeExample());
-        saveExperiment(new PolicyWithDependenciesExample());
-        saveExperiment(new QuickStartExample());
-        saveExperiment(new DemoExample());
-        saveExperiment(new ScientificDataPolicyExperiment());
-        saveExperiment(new CERNExample());
-        saveExperiment(new DigitalVideoArtworkExample());
-        saveExperiment(new MediatorScript());
-        saveExperiment(new ChangeManagementExample());
-        saveExperiment(new SpacePolicyChangeExample());
+        for (Supplier<Experiment> experiment : ExperimentRunner.EXPERIMENTS.values()) {
+            saveExperiment(experiment.get());
+        }
         return null;
     }
 
+    /**
+     * The experiments create their own scenario models, so that they are saved completely in the background.
+     */
+    @Override
+    public BackgroundTask<File> saveTask() {
+        if (!createOutputDirectories()) {
+            return null;
+        }
+        return new BackgroundTask<>("Save examples", task -> {
+            int total = ExperimentRunner.EXPERIMENTS.size();
+            int done = 0;
+            List<ModelWriter.Result> failures = new ArrayList<>();
+            for (Map.Entry<String, Supplier<Experiment>> experiment : ExperimentRunner.EXPERIMENTS.entrySet()) {
+                if (task.isCancelled()) {
+                    return null;
+                }
+                task.progress(done++, total, "Saving " + experiment.getKey());
+                saveExperiment(experiment.getValue().get()).stream().filter(result -> !result.isSuccess())
+                        .forEach(failures::add);
+            }
+            task.progress(total, total, "Saved " + total + " examples to " + projectOutputDirectory
+                    + describe(failures));
+            return null;
+        });
+    }
+
     /**
      * Saves the user's instantiated scenario model.
      *
      * @param experiment A model example
      */
-    private void saveExperiment(Experiment experiment) {
-        saveModel(Experiment.scenario.model, "Scenario-" + experiment.name);
+    private List<ModelWriter.Result> saveExperiment(Experiment experiment) {
+        return saveModel(experiment.scenario.model, "Scenario-" + experiment.name);
     }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.impl.WrappedGraph;
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes a model in several RDF formats at the same time.
+ * <p>
+ * The formats are rendered concurrently from the same model, which the Jena writers only read. The model must therefore
+ * not be changed while the files are written, the savers pass snapshots like the scenario model created from the
+ * panel, or the DEM models which don't change. Each file is written through a buffered channel into a temporary file in
+ * the target directory, which replaces the target file only after it was written completely.
+ */
+public class ModelWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The RDF formats, with the Jena language name and the file extension.
+     */
+    public enum Format {
+        N_TRIPLES("N-TRIPLE", ".nt"),
+        TURTLE("TURTLE", ".ttl"),
+        RDF_XML("RDF/XML", ".rdf"),
+        RDF_XML_ABBREV("RDF/XML-ABBREV", ".owl");
+
+        public final String language;
+        public final String extension;
+
+        Format(String language, String extension) {
+            this.language = language;
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * The outcome of writing one format.
+     */
+    public static class Result {
+        public final Format format;
+        public final File file;
+        public final long bytes;
+        public final long millis;
+        public final Exception error;
+
+        Result(Format format, File file, long bytes, long millis, Exception error) {
+            this.format = format;
+            this.file = file;
+            this.bytes = bytes;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            if (!isSuccess()) {
+                return format.language + ": failed to write " + file + " (" + error.getMessage() + ")";
+            }
+            return format.language + ": " + bytes + " bytes in " + millis + " ms to " + file;
+        }
+    }
+
+    private ModelWriter() {
+    }
+
+    /**
+     * Writes the model in all given formats. Returns after all files were written.
+     *
+     * @param model   The model to be written. For an OntModel only the base model is written, like by OntModel.write.
+     * @param targets The target file of each format.
+     * @return the results, in the order of the targets
+     */
+    public static List<Result> write(Model model, Map<Format, File> targets) {
+        Model view = view(model);
+        List<Result> results = new ArrayList<>();
+        if (targets.size() == 1) {
+            Map.Entry<Format, File> target = targets.entrySet().iterator().next();
+            results.add(write(view, target.getKey(), target.getValue()));
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(targets.size(), Runtime.getRuntime().availableProcessors()), runnable -> {
+                    Thread thread = new Thread(runnable, "ModelWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            Map<Format, Future<Result>> futures = new LinkedHashMap<>();
+            for (Map.Entry<Format, File> target : targets.entrySet()) {
+                futures.put(target.getKey(), executor.submit(() -> write(view, target.getKey(), target.getValue())));
+            }
+            for (Map.Entry<Format, Future<Result>> future : futures.entrySet()) {
+                try {
+                    results.add(future.getValue().get());
+                } catch (ExecutionException e) {
+                    // An error, which is not caught by the writing:
+                    results.add(new Result(future.getKey(), targets.get(future.getKey()), 0, 0,
+                            new Exception(e.getCause())));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * A view of the base graph with the prefixes of the whole model, like written by OntModel.write. The triples are not
+     * copied, the view only reads the graph of the model.
+     */
+    private static Model view(Model model) {
+        Graph base = (model instanceof OntModel ? ((OntModel) model).getBaseModel() : model).getGraph();
+        PrefixMapping prefixes = new PrefixMappingImpl().setNsPrefixes(model.getNsPrefixMap());
+        return ModelFactory.createModelForGraph(new WrappedGraph(base) {
+            @Override
+            public PrefixMapping getPrefixMapping() {
+                return prefixes;
+            }
+        });
+    }
+
+    private static Result write(Model view, Format format, File file) {
+        long start = System.nanoTime();
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                view.write(out, format.language);
+            }
+            long bytes = Files.size(temp);
+            commit(temp, target);
+            return new Result(format, file, bytes, (System.nanoTime() - start) / 1000000, null);
+        } catch (IOException | RuntimeException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+            return new Result(format, file, 0, (System.nanoTime() - start) / 1000000, e);
+        }
+    }
+
+    /**
+     * Replaces the target by the written file, atomically if the file system supports it.
+     */
+    private static void commit(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes triples as N-Triples, one line per triple.
+ * <p>
+ * Duplicated triples are not filtered, as this would require to keep the written triples in memory. They are
+ * ignored by the readers of the written file.
+ */
+public class NTriplesSink implements TripleSink {
+    protected final Writer writer;
+
+    /**
+     * @param writer should be buffered, it is closed with the sink. Can be null, if the sink is only used to format
+     *               the lines with {@link #toLine(Node, Node, Node)}.
+     */
+    public NTriplesSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void start(Map<String, String> prefixes) throws IOException {
+    }
+
+    @Override
+    public void triple(Node subject, Node predicate, Node object) throws IOException {
+        writer.write(toLine(subject, predicate, object));
+        writer.write('\n');
+    }
+
+    /**
+     * @return the N-Triples line of the triple, without the line break
+     */
+    public String toLine(Node subject, Node predicate, Node object) {
+        return format(subject) + ' ' + format(predicate) + ' ' + format(object) + " .";
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    protected String format(Node node) {
+        if (node.isURI()) {
+            return formatIRI(node.getURI());
+        } else if (node.isBlank()) {
+            return formatBlankNode(node.getBlankNodeLabel());
+        } else if (node.isLiteral()) {
+            return formatLiteral(node);
+        }
+        throw new IllegalArgumentException("Variables can't be written: " + node);
+    }
+
+    protected String formatIRI(String iri) {
+        StringBuilder builder = new StringBuilder(iri.length() + 2).append('<');
+        for (int i = 0; i < iri.length(); i++) {
+            char c = iri.charAt(i);
+            if (c <= ' ' || c == '<' || c == '>' || c == '"' || c == '{' || c == '}' || c == '|' || c == '^'
+                    || c == '`' || c == '\\') {
+                appendUnicodeEscape(builder, c);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('>').toString();
+    }
+
+    /**
+     * Blank node labels of Jena may contain characters, which aren't allowed in a label of the serialization. These
+     * are escaped, so that different labels stay different.
+     */
+    protected String formatBlankNode(String label) {
+        StringBuilder builder = new StringBuilder(label.length() + 3).append("_:b");
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                builder.append(c);
+            } else {
+                builder.append('_').append(Integer.toHexString(c)).append('_');
+            }
+        }
+        return builder.toString();
+    }
+
+    protected String formatLiteral(Node literal) {
+        StringBuilder builder = new StringBuilder().append('"');
+        String lexicalForm = literal.getLiteralLexicalForm();
+        for (int i = 0; i < lexicalForm.length(); i++) {
+            char c = lexicalForm.charAt(i);
+            switch (c) {
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        appendUnicodeEscape(builder, c);
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        builder.append('"');
+        String language = literal.getLiteralLanguage();
+        String datatype = literal.getLiteralDatatypeURI();
+        if (language != null && !language.isEmpty()) {
+            builder.append('@').append(language);
+        } else if (datatype != null && !datatype.equals(XSDDatatype.XSDstring.getURI())) {
+            builder.append("^^").append(formatIRI(datatype));
+        }
+        return builder.toString();
+    }
+
+    private static void appendUnicodeEscape(StringBuilder builder, char c) {
+        builder.append(String.format("\\u%04X", (int) c));
+    }
+}
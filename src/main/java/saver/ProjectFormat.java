@@ -0,0 +1,351 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import gui.*;
+import relations.CustomRelation;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The binary file format of the EcoBuilder projects.
+ * <p>
+ * A project only consists of names and texts, which refer to each other. The file therefore starts with a header
+ * (magic number, version, flags) and a table of all strings, followed by the records, which refer to the strings and
+ * to the previous records by integer ids:
+ * <ol>
+ * <li>templates: kind (DEM or custom), model prefix, name, description, and the names of the parent templates</li>
+ * <li>custom relations: name, description, and the names of the domain and range templates</li>
+ * <li>entities: template id, name, version, description</li>
+ * <li>value targets: entity id, relation name, value</li>
+ * <li>relation targets: entity id, relation name, target entity id</li>
+ * </ol>
+ * All integers are written as variable length integers. The {@link ProjectLoader} reads the records in one sequential
+ * pass into a {@link Project}, and rebuilds the views afterwards.
+ */
+public class ProjectFormat {
+    private static final int MAGIC = 0x45434F50; // "ECOP"
+    private static final int VERSION = 1;
+    private static final int FLAG_DVA = 1;
+
+    private static final byte DEM_TEMPLATE = 0;
+    private static final byte CUSTOM_TEMPLATE = 1;
+
+    private ProjectFormat() {
+    }
+
+    /**
+     * The records of a project file.
+     */
+    public static class Project {
+        public boolean addedDVA;
+        public String[] strings;
+        public TemplateRecord[] templates;
+        public RelationRecord[] customRelations;
+        public EntityRecord[] entities;
+        public ValueRecord[] values;
+        public TargetRecord[] targets;
+    }
+
+    public static class TemplateRecord {
+        public boolean custom;
+        public int prefix;
+        public int name;
+        public int description;
+        public int[] parents;
+    }
+
+    public static class RelationRecord {
+        public int name;
+        public int description;
+        public int[] domains;
+        public int[] ranges;
+    }
+
+    public static class EntityRecord {
+        public int template;
+        public int name;
+        public int version;
+        public int description;
+    }
+
+    public static class ValueRecord {
+        public int entity;
+        public int relation;
+        public int value;
+    }
+
+    public static class TargetRecord {
+        public int entity;
+        public int relation;
+        public int target;
+    }
+
+    /**
+     * Checks the magic number at the beginning of the stream, without consuming it.
+     *
+     * @param in a stream which supports mark and reset
+     * @return true, if the stream is a project in this format, false if it is e.g. a serialized project of an older
+     * EcoBuilder version
+     */
+    public static boolean isProjectFormat(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            return new DataInputStream(in).readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Writes the used templates with their entities, and the custom relations of the scenario.
+     *
+     * @return the written entities, in the order of their records
+     */
+    public static List<EntityView> write(ScenarioPanel scenario, OutputStream out) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<TemplateView, Integer> templateIds = new IdentityHashMap<>();
+        Map<EntityView, Integer> entityIds = new IdentityHashMap<>();
+        List<EntityView> entityViews = new ArrayList<>();
+        List<int[]> templates = new ArrayList<>();
+        List<int[]> relations = new ArrayList<>();
+        List<int[]> entities = new ArrayList<>();
+        List<int[]> values = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        for (ModelView model : scenario.models) {
+            boolean custom = !(model instanceof DEMModelView);
+            for (RadioTemplate radioTemplate : model.childTemplateViews) {
+                if (!custom && !radioTemplate.selected && !radioTemplate.isSelected()) {
+                    continue;
+                }
+                TemplateView template = radioTemplate.templateView;
+                int[] record = new int[4 + template.parentTemplates.size()];
+                record[0] = custom ? CUSTOM_TEMPLATE : DEM_TEMPLATE;
+                record[1] = string(model.prefix, strings);
+                record[2] = string(template.name, strings);
+                record[3] = string(template.description, strings);
+                int i = 4;
+                for (TemplateView parent : template.parentTemplates) {
+                    record[i++] = string(parent.name, strings);
+                }
+                templateIds.put(template, templates.size());
+                templates.add(record);
+                for (EntityView entity : template.childEntities) {
+                    entityIds.put(entity, entities.size());
+                    entityViews.add(entity);
+                    entities.add(new int[]{templateIds.get(template), string(entity.name, strings),
+                            string(entity.version, strings), string(entity.description, strings)});
+                }
+            }
+        }
+        for (CustomRelation relation : scenario.customRelations) {
+            int[] record = new int[4 + relation.getParentDomains().size() + relation.getParentRanges().size()];
+            record[0] = string(relation.name, strings);
+            record[1] = string(relation.description, strings);
+            record[2] = relation.getParentDomains().size();
+            record[3] = relation.getParentRanges().size();
+            int i = 4;
+            for (TemplateView domain : relation.getParentDomains()) {
+                record[i++] = string(domain.name, strings);
+            }
+            for (TemplateView range : relation.getParentRanges()) {
+                record[i++] = string(range.name, strings);
+            }
+            relations.add(record);
+        }
+        for (Map.Entry<EntityView, Integer> entity : entityIds.entrySet()) {
+            for (RelationView relationView : entity.getKey().childRelations) {
+                int relation = string(relationView.relation.name, strings);
+                for (RangeValueView value : relationView.childValueEntities) {
+                    values.add(new int[]{entity.getValue(), relation, string(value.value, strings)});
+                }
+                for (TargetEntityView target : relationView.childTargetEntities) {
+                    Integer targetId = entityIds.get(target.sameEntity);
+                    if (targetId != null) {
+                        targets.add(new int[]{entity.getValue(), relation, targetId});
+                    }
+                }
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        writeVarInt(data, VERSION);
+        writeVarInt(data, scenario.addedDVA ? FLAG_DVA : 0);
+        writeVarInt(data, strings.size());
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(data, bytes.length);
+            data.write(bytes);
+        }
+        writeVarInt(data, templates.size());
+        for (int[] template : templates) {
+            data.writeByte(template[0]);
+            writeRecord(data, template, 1, 3);
+            writeArray(data, template, 4, template.length);
+        }
+        writeVarInt(data, relations.size());
+        for (int[] relation : relations) {
+            writeRecord(data, relation, 0, 2);
+            writeArray(data, relation, 4, 4 + relation[2]);
+            writeArray(data, relation, 4 + relation[2], relation.length);
+        }
+        writeRecords(data, entities);
+        writeRecords(data, values);
+        writeRecords(data, targets);
+        data.flush();
+        return entityViews;
+    }
+
+    /**
+     * Reads a project, which was written by {@link #write(ScenarioPanel, OutputStream)}.
+     */
+    public static Project read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an EcoBuilder project file");
+        }
+        int version = readVarInt(data);
+        if (version > VERSION) {
+            throw new IOException("The project was saved by a newer EcoBuilder version (format version " + version + ")");
+        }
+        Project project = new Project();
+        project.addedDVA = (readVarInt(data) & FLAG_DVA) != 0;
+        project.strings = new String[readVarInt(data)];
+        for (int i = 0; i < project.strings.length; i++) {
+            byte[] bytes = new byte[readVarInt(data)];
+            data.readFully(bytes);
+            project.strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        project.templates = new TemplateRecord[readVarInt(data)];
+        for (int i = 0; i < project.templates.length; i++) {
+            TemplateRecord template = new TemplateRecord();
+            template.custom = data.readByte() == CUSTOM_TEMPLATE;
+            template.prefix = readVarInt(data);
+            template.name = readVarInt(data);
+            template.description = readVarInt(data);
+            template.parents = readArray(data);
+            project.templates[i] = template;
+        }
+        project.customRelations = new RelationRecord[readVarInt(data)];
+        for (int i = 0; i < project.customRelations.length; i++) {
+            RelationRecord relation = new RelationRecord();
+            relation.name = readVarInt(data);
+            relation.description = readVarInt(data);
+            relation.domains = readArray(data);
+            relation.ranges = readArray(data);
+            project.customRelations[i] = relation;
+        }
+        project.entities = new EntityRecord[readVarInt(data)];
+        for (int i = 0; i < project.entities.length; i++) {
+            EntityRecord entity = new EntityRecord();
+            entity.template = readVarInt(data);
+            entity.name = readVarInt(data);
+            entity.version = readVarInt(data);
+            entity.description = readVarInt(data);
+            project.entities[i] = entity;
+        }
+        project.values = new ValueRecord[readVarInt(data)];
+        for (int i = 0; i < project.values.length; i++) {
+            ValueRecord value = new ValueRecord();
+            value.entity = readVarInt(data);
+            value.relation = readVarInt(data);
+            value.value = readVarInt(data);
+            project.values[i] = value;
+        }
+        project.targets = new TargetRecord[readVarInt(data)];
+        for (int i = 0; i < project.targets.length; i++) {
+            TargetRecord target = new TargetRecord();
+            target.entity = readVarInt(data);
+            target.relation = readVarInt(data);
+            target.target = readVarInt(data);
+            project.targets[i] = target;
+        }
+        return project;
+    }
+
+    /**
+     * Null strings are stored as empty strings.
+     */
+    private static int string(String string, Map<String, Integer> strings) {
+        if (string == null) {
+            string = "";
+        }
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    private static void writeRecords(DataOutputStream data, List<int[]> records) throws IOException {
+        writeVarInt(data, records.size());
+        for (int[] record : records) {
+            writeRecord(data, record, 0, record.length - 1);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream data, int[] record, int first, int last) throws IOException {
+        for (int i = first; i <= last; i++) {
+            writeVarInt(data, record[i]);
+        }
+    }
+
+    private static void writeArray(DataOutputStream data, int[] record, int from, int to) throws IOException {
+        writeVarInt(data, to - from);
+        for (int i = from; i < to; i++) {
+            writeVarInt(data, record[i]);
+        }
+    }
+
+    private static int[] readArray(DataInputStream data) throws IOException {
+        int[] array = new int[readVarInt(data)];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = readVarInt(data);
+        }
+        return array;
+    }
+
+    /**
+     * Writes a non negative integer in 7 bit groups, with the highest bit set if another group follows.
+     */
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            data.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed integer in project file");
+    }
+}
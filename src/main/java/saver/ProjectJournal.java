@@ -0,0 +1,615 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import gui.*;
+import javafx.application.Platform;
+import relations.CustomRelation;
+import relations.Relation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of the edits of the user, which keeps the current project on disk without rewriting it at each
+ * change.
+ * <p>
+ * Each edit in the GUI (entities added, removed and updated, relation and value targets added and removed, templates
+ * selected, custom templates and relations created, the DVA ontology imported) is appended as a small entry to the
+ * journal file. If the journal grows over {@link #COMPACTION_THRESHOLD} bytes, a snapshot of the whole project is
+ * written in the {@link ProjectFormat} in the background, and a new journal is started.
+ * <p>
+ * Journals and snapshots are numbered by generations: the snapshot of a generation is the project at the start of the
+ * journal of the same generation. A journal is only started after the snapshot of its generation was written
+ * completely. At the start of the EcoBuilder, {@link #recover()} loads the newest snapshot and replays the journal of
+ * its generation. Older files are only deleted after a newer snapshot was written, so that the last edits survive a
+ * crash at any moment.
+ * <p>
+ * The entities are addressed by ids, as their names don't need to be unique. The ids of a generation are the indices
+ * of the entities in its snapshot, and the entities added by the journal get the following ids.
+ * <p>
+ * The entries are encoded in the GUI thread, but written and forced to disk by the writer thread. The writer forces
+ * the journal once for each burst of edits, so that the GUI doesn't wait for the disk.
+ */
+public class ProjectJournal implements Closeable {
+    public static final String DIRECTORY_PROPERTY = "ecobuilder.journal";
+    public static final long COMPACTION_THRESHOLD = 1 << 20;
+    private static final int MAGIC = 0x45434F4A; // "ECOJ"
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".ecop";
+
+    private static final byte ENTITY_ADDED = 1;
+    private static final byte ENTITY_REMOVED = 2;
+    private static final byte ENTITY_UPDATED = 3;
+    private static final byte TARGET_ADDED = 4;
+    private static final byte TARGET_REMOVED = 5;
+    private static final byte VALUE_ADDED = 6;
+    private static final byte VALUE_REMOVED = 7;
+    private static final byte TEMPLATE_SELECTED = 8;
+    private static final byte CUSTOM_TEMPLATE = 9;
+    private static final byte CUSTOM_RELATION = 10;
+    private static final byte DVA_ADDED = 11;
+
+    private final EcoBuilder ecoBuilder;
+    private final Path directory;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ProjectJournal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Only used by the writer thread:
+    private FileChannel journal;
+    private boolean snapshotFailed = false;
+    // The entries, which were appended but not written yet:
+    private final AtomicInteger unwritten = new AtomicInteger();
+    private long generation = 0;
+    private long journalSize = 0;
+    // The entities by their ids in the current generation:
+    private final List<EntityView> entities = new ArrayList<>();
+    private final Map<EntityView, Integer> entityIds = new IdentityHashMap<>();
+    // Edits are not recorded while the journal replays or while a project is loaded:
+    private int paused = 0;
+
+    /**
+     * @param ecoBuilder the EcoBuilder, whose scenario panel is journaled
+     * @param directory  directory of the journal and snapshot files
+     */
+    public ProjectJournal(EcoBuilder ecoBuilder, File directory) {
+        this.ecoBuilder = ecoBuilder;
+        this.directory = directory.toPath();
+    }
+
+    /**
+     * @return the directory given by the system property "ecobuilder.journal", or .ecobuilder/journal in the home
+     * directory of the user
+     */
+    public static File getDefaultDirectory() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory != null) {
+            return new File(directory);
+        }
+        return new File(System.getProperty("user.home") + File.separator + ".ecobuilder" + File.separator + "journal");
+    }
+
+    /**
+     * Restores the project of the last session from the newest snapshot and the journals, and starts a new generation.
+     */
+    public void recover() {
+        try {
+            Files.createDirectories(directory);
+            SortedSet<Long> snapshots = listGenerations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            SortedSet<Long> journals = listGenerations(JOURNAL_PREFIX, "");
+            long start = snapshots.isEmpty() ? 0 : snapshots.last();
+            paused++;
+            try {
+                if (!snapshots.isEmpty()) {
+                    try (InputStream in = Files.newInputStream(snapshotFile(start))) {
+                        ProjectFormat.Project project = ProjectFormat.read(in);
+                        ecoBuilder.projectLoader.cleanModels();
+                        setEntities(Arrays.asList(ecoBuilder.projectLoader.loadProject(project)));
+                    }
+                }
+                // Newer journals can only be left by an older version, their ids don't match the snapshot:
+                if (journals.contains(start)) {
+                    replay(journalFile(start));
+                }
+            } finally {
+                paused--;
+            }
+            generation = Math.max(start, journals.isEmpty() ? 0 : journals.last());
+        } catch (IOException e) {
+            System.err.println("Could not restore the last project from the journal at " + directory);
+            e.printStackTrace();
+        }
+        compact();
+    }
+
+    /**
+     * Runs a change of the whole project, e.g. the loading of a project file, without recording its single edits. The
+     * result is recorded by a new snapshot.
+     */
+    public void rebase(Runnable change) {
+        pause();
+        try {
+            change.run();
+        } finally {
+            paused--;
+        }
+        compact();
+    }
+
+    /**
+     * Stops the recording of the edits, for a change of the whole project which is applied in several steps, see
+     * {@link #resume()}.
+     */
+    public void pause() {
+        paused++;
+    }
+
+    /**
+     * Ends a {@link #pause()}, and records the changed project by a new snapshot.
+     */
+    public void resume() {
+        paused--;
+        compact();
+    }
+
+    /**
+     * Encodes the current project, and starts the journal of the next generation. The snapshot is written to disk in
+     * the background, and the journal is started once the snapshot is complete. If the snapshot can't be written, the
+     * next edit starts another compaction. Has to be called in the GUI thread, like the edits.
+     */
+    public synchronized void compact() {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        try {
+            setEntities(ProjectFormat.write(ecoBuilder.scenarioPane, snapshot));
+        } catch (IOException e) {
+            System.err.println("Could not encode the project snapshot, continuing the journal " + generation);
+            e.printStackTrace();
+            return;
+        }
+        generation++;
+        journalSize = 12;
+        final long snapshotGeneration = generation;
+        writer.execute(() -> {
+            // The entries of the previous journal are written, and the new entries refer to the new snapshot:
+            closeJournal();
+            snapshotFailed = !writeSnapshot(snapshotGeneration, snapshot.toByteArray());
+            if (!snapshotFailed) {
+                openJournal(snapshotGeneration);
+                deleteOlderFiles(snapshotGeneration);
+            }
+        });
+    }
+
+    private void openJournal(long journalGeneration) {
+        try {
+            journal = FileChannel.open(journalFile(journalGeneration), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(12).putInt(MAGIC).putLong(journalGeneration);
+            header.flip();
+            journal.write(header);
+        } catch (IOException e) {
+            System.err.println("Could not start a new journal at " + directory);
+            e.printStackTrace();
+            journal = null;
+        }
+    }
+
+    /**
+     * @return true, if the snapshot was written completely
+     */
+    private boolean writeSnapshot(long snapshotGeneration, byte[] snapshot) {
+        try {
+            Path temp = Files.createTempFile(directory, SNAPSHOT_PREFIX, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, snapshotFile(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, snapshotFile(snapshotGeneration), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not write the project snapshot " + snapshotGeneration);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the files, which are not needed anymore for a recovery.
+     */
+    private void deleteOlderFiles(long snapshotGeneration) {
+        try {
+            for (long older : listGenerations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headSet(snapshotGeneration)) {
+                Files.deleteIfExists(snapshotFile(older));
+            }
+            for (long older : listGenerations(JOURNAL_PREFIX, "").headSet(snapshotGeneration)) {
+                Files.deleteIfExists(journalFile(older));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not delete the old journal files at " + directory);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the remaining entries and closes the journal. Waits some seconds for the writer thread.
+     */
+    @Override
+    public synchronized void close() {
+        writer.execute(this::closeJournal);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.force(false);
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        journal = null;
+    }
+
+    /*
+     * The ids of the entities:
+     */
+
+    private void setEntities(Collection<EntityView> entityViews) {
+        entities.clear();
+        entityIds.clear();
+        for (EntityView entity : entityViews) {
+            if (entity != null) {
+                entityIds.put(entity, entities.size());
+            }
+            entities.add(entity);
+        }
+    }
+
+    private String getId(EntityView entity) {
+        Integer id = entityIds.get(entity);
+        return id == null ? "-1" : id.toString();
+    }
+
+    private EntityView getEntity(String id) {
+        int index = Integer.parseInt(id);
+        return index >= 0 && index < entities.size() ? entities.get(index) : null;
+    }
+
+    /*
+     * The edits, called by the GUI:
+     */
+
+    public void entityAdded(EntityView entity) {
+        // Also numbered while the journal replays, as the replayed entries refer to the ids:
+        String id = Integer.toString(entities.size());
+        entityIds.put(entity, entities.size());
+        entities.add(entity);
+        append(ENTITY_ADDED, entry -> entry.add(entity.parentTemplate.name).add(id));
+    }
+
+    public void entityRemoved(EntityView entity) {
+        String id = getId(entity);
+        Integer index = entityIds.remove(entity);
+        if (index != null) {
+            entities.set(index, null);
+        }
+        append(ENTITY_REMOVED, entry -> entry.add(id));
+    }
+
+    public void entityUpdated(EntityView entity) {
+        append(ENTITY_UPDATED, entry -> entry.add(getId(entity)).add(entity.name).add(entity.version)
+                .add(entity.description));
+    }
+
+    public void relationTargetAdded(EntityView entity, Relation relation, EntityView target) {
+        append(TARGET_ADDED, entry -> entry.add(getId(entity)).add(relation.name).add(getId(target)));
+    }
+
+    public void relationTargetRemoved(EntityView entity, Relation relation, EntityView target) {
+        append(TARGET_REMOVED, entry -> entry.add(getId(entity)).add(relation.name).add(getId(target)));
+    }
+
+    public void valueAdded(EntityView entity, Relation relation, String value) {
+        append(VALUE_ADDED, entry -> entry.add(getId(entity)).add(relation.name).add(value));
+    }
+
+    public void valueRemoved(EntityView entity, Relation relation, String value) {
+        append(VALUE_REMOVED, entry -> entry.add(getId(entity)).add(relation.name).add(value));
+    }
+
+    public void templateSelected(ModelView model, TemplateView template, boolean selected) {
+        append(TEMPLATE_SELECTED, entry -> entry.add(model.prefix).add(template.name).add(selected ? "1" : "0"));
+    }
+
+    public void customTemplateCreated(CustomTemplateView template) {
+        append(CUSTOM_TEMPLATE, entry -> entry.add(template.name).add(template.description)
+                .addAll(template.parentTemplates));
+    }
+
+    public void customRelationAdded(CustomRelation relation) {
+        append(CUSTOM_RELATION, entry -> entry.add(relation.name).add(relation.description)
+                .addAll(relation.getParentDomains()).addAll(relation.getParentRanges())
+                .add(Integer.toString(relation.getParentDomains().size())));
+    }
+
+    public void dvaAdded() {
+        append(DVA_ADDED, entry -> {
+        });
+    }
+
+    /**
+     * Encodes an entry: its length, the type of the edit and its strings. It is written by the writer thread.
+     */
+    private synchronized void append(byte type, Consumer<Entry> content) {
+        if (paused > 0) {
+            return;
+        }
+        Entry entry = new Entry(type);
+        content.accept(entry);
+        ByteBuffer buffer = entry.toBuffer();
+        journalSize += buffer.remaining();
+        unwritten.incrementAndGet();
+        writer.execute(() -> write(buffer));
+        if (journalSize > COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    private void write(ByteBuffer buffer) {
+        // Only the last entry of a burst of edits forces the journal to disk:
+        boolean last = unwritten.decrementAndGet() == 0;
+        if (journal == null) {
+            if (snapshotFailed) {
+                snapshotFailed = false;
+                Platform.runLater(this::compact);
+            }
+            return;
+        }
+        try {
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            if (last) {
+                journal.force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write the journal, saving a snapshot instead.");
+            e.printStackTrace();
+            closeJournal();
+            Platform.runLater(this::compact);
+        }
+    }
+
+    /**
+     * A journal entry under construction.
+     */
+    private static class Entry {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        private final DataOutputStream data = new DataOutputStream(bytes);
+
+        Entry(byte type) {
+            bytes.write(type);
+        }
+
+        Entry add(String string) {
+            byte[] utf8 = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+            try {
+                data.writeInt(utf8.length);
+                data.write(utf8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // not thrown by a ByteArrayOutputStream
+            }
+            return this;
+        }
+
+        Entry addAll(Collection<? extends TemplateView> templates) {
+            for (TemplateView template : templates) {
+                add(template.name);
+            }
+            return this;
+        }
+
+        ByteBuffer toBuffer() {
+            ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.size()).putInt(bytes.size()).put(bytes.toByteArray());
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Replays the entries of a journal file. An incomplete last entry, e.g. after a crash, is ignored.
+     */
+    private void replay(Path file) throws IOException {
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a journal file: " + file);
+            }
+            data.readLong();
+            while (true) {
+                byte[] entry;
+                try {
+                    entry = new byte[data.readInt()];
+                    data.readFully(entry);
+                } catch (EOFException e) {
+                    return;
+                }
+                replay(entry);
+            }
+        }
+    }
+
+    private void replay(byte[] entry) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(entry));
+        byte type = data.readByte();
+        List<String> strings = new ArrayList<>();
+        while (data.available() > 0) {
+            byte[] utf8 = new byte[data.readInt()];
+            data.readFully(utf8);
+            strings.add(new String(utf8, StandardCharsets.UTF_8));
+        }
+        ScenarioPanel scenario = ecoBuilder.scenarioPane;
+        switch (type) {
+            case ENTITY_ADDED: {
+                TemplateView template = scenario.getTemplateView(strings.get(0));
+                // Keeps the ids of the following entities, even if an entity couldn't be added:
+                int id = Integer.parseInt(strings.get(1));
+                while (entities.size() < id) {
+                    entities.add(null);
+                }
+                if (template != null) {
+                    template.addEntity();
+                }
+                break;
+            }
+            case ENTITY_REMOVED: {
+                EntityView entity = getEntity(strings.get(0));
+                if (entity != null) {
+                    entity.parentTemplate.remove(entity);
+                }
+                break;
+            }
+            case ENTITY_UPDATED: {
+                EntityView entity = getEntity(strings.get(0));
+                if (entity != null) {
+                    entity.updateEntity(strings.get(1), strings.get(2), strings.get(3));
+                }
+                break;
+            }
+            case TARGET_ADDED:
+            case TARGET_REMOVED: {
+                EntityView entity = getEntity(strings.get(0));
+                EntityView target = getEntity(strings.get(2));
+                Relation relation = scenario.getRelation(strings.get(1));
+                if (entity != null && type == TARGET_ADDED) {
+                    entity.addRelationTarget(relation, target);
+                } else if (entity != null) {
+                    entity.removeRelationTarget(relation, target);
+                }
+                break;
+            }
+            case VALUE_ADDED:
+            case VALUE_REMOVED: {
+                EntityView entity = getEntity(strings.get(0));
+                Relation relation = scenario.getRelation(strings.get(1));
+                if (entity != null && type == VALUE_ADDED) {
+                    entity.addValueRelation(relation, strings.get(2));
+                } else if (entity != null) {
+                    entity.removeValue(relation, strings.get(2));
+                }
+                break;
+            }
+            case TEMPLATE_SELECTED: {
+                ModelView model = scenario.getModel(strings.get(0));
+                RadioTemplate radioTemplate = model == null ? null : model.getRadioTemplate(strings.get(1));
+                if (radioTemplate != null) {
+                    radioTemplate.setSelected(strings.get(2).equals("1"));
+                    radioTemplate.selected = radioTemplate.isSelected();
+                    if (radioTemplate.selected) {
+                        model.useTemplateView(radioTemplate.templateView);
+                    } else {
+                        model.removeTemplate(radioTemplate.templateView.name);
+                    }
+                }
+                break;
+            }
+            case CUSTOM_TEMPLATE: {
+                scenario.createCustomTemplate(getTemplateViews(strings.subList(2, strings.size())), strings.get(0),
+                        strings.get(1));
+                break;
+            }
+            case CUSTOM_RELATION: {
+                int domains = Integer.parseInt(strings.get(strings.size() - 1));
+                scenario.addCustomRelation(new CustomRelation(strings.get(0), strings.get(1),
+                        getTemplateViews(strings.subList(2, 2 + domains)),
+                        getTemplateViews(strings.subList(2 + domains, strings.size() - 1))));
+                break;
+            }
+            case DVA_ADDED: {
+                if (!scenario.addedDVA) {
+                    scenario.addDVA();
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal entry " + type);
+        }
+    }
+
+    private Set<TemplateView> getTemplateViews(List<String> names) {
+        Set<TemplateView> templates = new HashSet<>();
+        for (String name : names) {
+            TemplateView template = ecoBuilder.scenarioPane.getTemplateView(name);
+            if (template != null) {
+                templates.add(template);
+            }
+        }
+        return templates;
+    }
+
+    private Path journalFile(long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation);
+    }
+
+    private Path snapshotFile(long generation) {
+        return directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+    }
+
+    private SortedSet<Long> listGenerations(String prefix, String suffix) throws IOException {
+        SortedSet<Long> generations = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                    } catch (NumberFormatException ignored) {
+                        // e.g. temporary files
+                    }
+                }
+            }
+        }
+        return generations;
+    }
+}
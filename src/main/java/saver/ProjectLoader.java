@@ -18,22 +18,44 @@
 package saver;
 
 import gui.*;
+import javafx.application.Platform;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import relations.CustomRelation;
 import relations.Relation;
 
 import java.io.*;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.nio.file.Files;
+import java.util.*;
 
 /**
- * This class loads saved EcoBuilder projects from files into the program. It reconstructs the serialised scenarios.
+ * This class loads saved EcoBuilder projects from files into the program. Projects are read in the
+ * {@link ProjectFormat}. Projects saved by older EcoBuilder versions are serialised scenarios, which are reconstructed
+ * from the de-serialised {@link ScenarioPanel}.
+ * <p>
+ * In the GUI, the file is read and parsed in the background, see {@link #loadTask()}, and the views are rebuilt in
+ * batches of {@link #BATCH_SIZE} records, so that the GUI stays responsive while a large project is loaded.
  */
 public class ProjectLoader {
+    public static final int BATCH_SIZE = 500;
+    private static final String TITLE = "Open project";
     private final EcoBuilder ecoBuilder;
 
+    /**
+     * The content of a project file, which was read in the background.
+     */
+    public static class LoadedProject {
+        private final File file;
+        private final ProjectFormat.Project project;
+        private final byte[] serialisedScenario;
+
+        private LoadedProject(File file, ProjectFormat.Project project, byte[] serialisedScenario) {
+            this.file = file;
+            this.project = project;
+            this.serialisedScenario = serialisedScenario;
+        }
+    }
+
     public ProjectLoader(EcoBuilder ecoBuilder) {
         this.ecoBuilder = ecoBuilder;
     }
@@ -46,11 +68,91 @@ public class ProjectLoader {
         if (projectFile == null) {
             return;
         }
+        // The loaded project is the new base of the journal:
+        ecoBuilder.journal.rebase(() -> load(projectFile));
+    }
+
+    /**
+     * Asks for the project file in the GUI thread, and returns the reading of the file for the {@link TaskArea}. The
+     * result is applied with {@link #apply(LoadedProject)}.
+     *
+     * @return null, if the user didn't choose a file
+     */
+    public BackgroundTask<LoadedProject> loadTask() {
+        File projectFile = openDialog();
+        if (projectFile == null) {
+            return null;
+        }
+        return new BackgroundTask<>(TITLE, task -> {
+            task.progress(-1, -1, "Reading " + projectFile.getName());
+            byte[] content = Files.readAllBytes(projectFile.toPath());
+            InputStream inputStream = new ByteArrayInputStream(content);
+            if (ProjectFormat.isProjectFormat(inputStream)) {
+                return new LoadedProject(projectFile, ProjectFormat.read(inputStream), null);
+            }
+            // The views of the old serialised projects are de-serialised in the GUI thread:
+            return new LoadedProject(projectFile, null, content);
+        });
+    }
+
+    /**
+     * Replaces the current scenario by the loaded project. The views of a project file are rebuilt in batches, each
+     * batch in its own pulse of the GUI thread. The journal records the result, after the last batch.
+     */
+    public void apply(LoadedProject loaded) {
+        ecoBuilder.journal.pause();
+        if (loaded.project == null) {
+            try {
+                ScenarioPanel savedScenario = readSerialisedScenario(
+                        new ByteArrayInputStream(loaded.serialisedScenario));
+                cleanModels();
+                loadProject(savedScenario);
+                ecoBuilder.loadInformation(TITLE, "Loaded " + loaded.file.getName());
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Cannot load this file!");
+            } finally {
+                ecoBuilder.journal.resume();
+            }
+            return;
+        }
+        List<Runnable> steps = new ArrayList<>();
+        steps.add(this::cleanModels);
+        steps.addAll(getLoadSteps(loaded.project, new EntityView[loaded.project.entities.length]));
+        applySteps(steps.iterator(), 0, steps.size(), loaded.file);
+    }
+
+    private void applySteps(Iterator<Runnable> steps, int done, int total, File file) {
+        Platform.runLater(() -> {
+            try {
+                steps.next().run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                ecoBuilder.journal.resume();
+                ecoBuilder.loadInformation(TITLE, "Cannot load " + file.getName() + ": " + e);
+                return;
+            }
+            if (steps.hasNext()) {
+                ecoBuilder.loadInformation(TITLE, "Loading " + file.getName() + ": " + (done + 1) + " of " + total
+                        + " steps");
+                applySteps(steps, done + 1, total, file);
+            } else {
+                ecoBuilder.journal.resume();
+                ecoBuilder.loadInformation(TITLE, "Loaded " + file.getName());
+            }
+        });
+    }
+
+    private void load(File projectFile) {
         InputStream inputStream = null;
         try {
-            inputStream = new FileInputStream(projectFile);
-            ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
-            ScenarioPanel savedScenario = (ScenarioPanel) objectInputStream.readObject();
+            inputStream = new BufferedInputStream(new FileInputStream(projectFile));
+            if (ProjectFormat.isProjectFormat(inputStream)) {
+                ProjectFormat.Project project = ProjectFormat.read(inputStream);
+                cleanModels();
+                loadProject(project);
+                return;
+            }
+            ScenarioPanel savedScenario = readSerialisedScenario(inputStream);
             cleanModels();
             loadProject(savedScenario);
         } catch (IOException | ClassNotFoundException e) {
@@ -66,6 +168,18 @@ public class ProjectLoader {
         }
     }
 
+    /**
+     * Reads a project of an older EcoBuilder version. The serialised classes keep the serialVersionUIDs of the released
+     * version, so that their changed methods don't prevent the loading.
+     *
+     * @param inputStream the serialised {@link ScenarioPanel}
+     * @return the de-serialised scenario, whose views are not part of the GUI
+     */
+    static ScenarioPanel readSerialisedScenario(InputStream inputStream) throws IOException, ClassNotFoundException {
+        ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
+        return (ScenarioPanel) objectInputStream.readObject();
+    }
+
     private File openDialog() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Project File");
@@ -87,6 +201,124 @@ public class ProjectLoader {
         }
     }
 
+    /**
+     * Rebuilds the views from the records of a project file. The records refer to each other by their index, so that
+     * no name lookups are needed for the entities.
+     *
+     * @return the entities by the index of their records, or null for the entities of a missing template
+     */
+    EntityView[] loadProject(ProjectFormat.Project project) {
+        EntityView[] entities = new EntityView[project.entities.length];
+        for (Runnable step : getLoadSteps(project, entities)) {
+            step.run();
+        }
+        return entities;
+    }
+
+    /**
+     * Splits the rebuild of the views into steps: the templates and custom relations, and then the entities, the
+     * values and the targets in batches of {@link #BATCH_SIZE} records. The steps have to run in their order.
+     */
+    private List<Runnable> getLoadSteps(ProjectFormat.Project project, EntityView[] entities) {
+        TemplateView[] templates = new TemplateView[project.templates.length];
+        List<Runnable> steps = new ArrayList<>();
+        steps.add(() -> loadTemplates(project, templates));
+        for (int start = 0; start < entities.length; start += BATCH_SIZE) {
+            int from = start;
+            steps.add(() -> loadEntities(project, templates, entities, from, Math.min(from + BATCH_SIZE,
+                    entities.length)));
+        }
+        for (int start = 0; start < project.values.length; start += BATCH_SIZE) {
+            int from = start;
+            steps.add(() -> loadValues(project, entities, from, Math.min(from + BATCH_SIZE, project.values.length)));
+        }
+        for (int start = 0; start < project.targets.length; start += BATCH_SIZE) {
+            int from = start;
+            steps.add(() -> loadTargets(project, entities, from, Math.min(from + BATCH_SIZE,
+                    project.targets.length)));
+        }
+        return steps;
+    }
+
+    private void loadTemplates(ProjectFormat.Project project, TemplateView[] templates) {
+        ScenarioPanel scenarioPane = ecoBuilder.scenarioPane;
+        String[] strings = project.strings;
+        if (project.addedDVA && !scenarioPane.addedDVA) {
+            scenarioPane.addDVA();
+        }
+        scenarioPane.cleanScenarioModel();
+        for (int i = 0; i < templates.length; i++) {
+            ProjectFormat.TemplateRecord record = project.templates[i];
+            if (record.custom) {
+                Set<TemplateView> parents = new HashSet<>();
+                for (int parent : record.parents) {
+                    parents.add(scenarioPane.getTemplateView(strings[parent]));
+                }
+                templates[i] = scenarioPane.createCustomTemplate(parents, strings[record.name],
+                        strings[record.description]);
+            } else {
+                ModelView model = scenarioPane.getModel(strings[record.prefix]);
+                RadioTemplate radioTemplate = model.getRadioTemplate(strings[record.name]);
+                if (radioTemplate == null) {
+                    System.err.println("Couldn't find template " + strings[record.name]);
+                    continue;
+                }
+                model.useTemplateView(radioTemplate.templateView);
+                templates[i] = radioTemplate.templateView;
+            }
+        }
+        for (ProjectFormat.RelationRecord record : project.customRelations) {
+            Set<TemplateView> domains = new HashSet<>();
+            Set<TemplateView> ranges = new HashSet<>();
+            for (int domain : record.domains) {
+                domains.add(scenarioPane.getTemplateView(strings[domain]));
+            }
+            for (int range : record.ranges) {
+                ranges.add(scenarioPane.getTemplateView(strings[range]));
+            }
+            scenarioPane.addCustomRelation(new CustomRelation(strings[record.name], strings[record.description],
+                    domains, ranges));
+        }
+    }
+
+    private void loadEntities(ProjectFormat.Project project, TemplateView[] templates, EntityView[] entities,
+                              int from, int to) {
+        String[] strings = project.strings;
+        for (int i = from; i < to; i++) {
+            ProjectFormat.EntityRecord record = project.entities[i];
+            TemplateView template = templates[record.template];
+            if (template == null) {
+                continue;
+            }
+            entities[i] = template.addEntity();
+            entities[i].updateEntity(strings[record.name], strings[record.version], strings[record.description]);
+        }
+    }
+
+    private void loadValues(ProjectFormat.Project project, EntityView[] entities, int from, int to) {
+        String[] strings = project.strings;
+        ScenarioPanel scenarioPane = ecoBuilder.scenarioPane;
+        for (int i = from; i < to; i++) {
+            ProjectFormat.ValueRecord record = project.values[i];
+            if (entities[record.entity] != null) {
+                entities[record.entity].addValueRelation(scenarioPane.getRelation(strings[record.relation]),
+                        strings[record.value]);
+            }
+        }
+    }
+
+    private void loadTargets(ProjectFormat.Project project, EntityView[] entities, int from, int to) {
+        String[] strings = project.strings;
+        ScenarioPanel scenarioPane = ecoBuilder.scenarioPane;
+        for (int i = from; i < to; i++) {
+            ProjectFormat.TargetRecord record = project.targets[i];
+            if (entities[record.entity] != null) {
+                entities[record.entity].addRelationTarget(scenarioPane.getRelation(strings[record.relation]),
+                        entities[record.target]);
+            }
+        }
+    }
+
     /**
      * Loads the saved scenario from a de-serialised {@link ScenarioPanel}.
      */
@@ -213,7 +445,7 @@ public class ProjectLoader {
                 domains.add(ecoBuilder.scenarioPane.getTemplateView(domainName));
             }
             CustomRelation destinationRelation = new CustomRelation(sourceRelation.name, sourceRelation.description, domains, ranges);
-            ecoBuilder.scenarioPane.customRelations.add(destinationRelation);
+            ecoBuilder.scenarioPane.addCustomRelation(destinationRelation);
         }
     }
 
@@ -17,15 +17,18 @@
  */
 package saver;
 
+import gui.BackgroundTask;
 import gui.EcoBuilder;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
- * Saves the complete scenario (selected templates, created entities, relations,...) into a file. This will NOT
- * generate the ontology.
+ * Saves the complete scenario (selected templates, created entities, relations,...) into a file in the
+ * {@link ProjectFormat}. This will NOT generate the ontology.
  */
 public class ProjectSaver extends AbstractSaver {
 
@@ -48,8 +51,7 @@ public class ProjectSaver extends AbstractSaver {
         OutputStream outputStream = null;
         try {
             outputStream = new FileOutputStream(output);
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
-            objectOutputStream.writeObject(ecoBuilder.scenarioPane);
+            ProjectFormat.write(ecoBuilder.scenarioPane, outputStream);
         } catch (IOException e) {
             System.err.println(e);
         } finally {
@@ -61,4 +63,37 @@ public class ProjectSaver extends AbstractSaver {
         }
         return output;
     }
+
+    /**
+     * The project is encoded in the GUI thread, which is fast, and the file is written in the background. The file is
+     * replaced at once, so that a cancelled or failed saving keeps the old file.
+     */
+    @Override
+    public BackgroundTask<File> saveTask() {
+        File output = openDialog();
+        if (output == null) {
+            return null;
+        }
+        ByteArrayOutputStream project = new ByteArrayOutputStream();
+        try {
+            ProjectFormat.write(ecoBuilder.scenarioPane, project);
+        } catch (IOException e) {
+            System.err.println(e);
+            return null;
+        }
+        return new BackgroundTask<>("Save project", task -> {
+            task.progress(-1, -1, "Writing " + output.getName());
+            File temp = new File(output.getAbsoluteFile().getParentFile(), output.getName() + ".tmp");
+            try (OutputStream outputStream = new FileOutputStream(temp)) {
+                project.writeTo(outputStream);
+            }
+            if (task.isCancelled()) {
+                temp.delete();
+                return null;
+            }
+            Files.move(temp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            task.progress(1, 1, "Saved the project to " + output);
+            return output;
+        });
+    }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import LRMv2.LRM_semantic_versioning_schema;
+import LRMv2.LRM_static_schema;
+import entities.Template;
+import gui.ScenarioSnapshot;
+import models.ResourceMinter;
+import models.ScenarioModel;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import relations.CustomRelation;
+import relations.DEMRelation;
+import relations.Relation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Exports a {@link ScenarioSnapshot} of the scenario panel to a {@link TripleSink}, without creating the whole
+ * {@link ScenarioModel} in memory. The export runs in the background, while the user continues to edit the panel.
+ * <p>
+ * Only the custom templates and custom relations are created in a {@link ScenarioModel}, because their triples are
+ * written by the Jena resource classes. The entities and their relations are streamed directly from the snapshot. The
+ * exported triples are the same as the triples of the scenario model created by
+ * {@link ScenarioModel#createModelFromSnapshot(ScenarioSnapshot)}, except for the labels of the blank nodes.
+ * <p>
+ * The blank nodes get labels which are derived from their content, so that repeated exports of an unchanged scenario
+ * are identical, see {@link ERMR.DeltaSync}.
+ * <p>
+ * Entity views whose names result in the same IRI share the entity, like in the scenario model. Each of these views
+ * keeps its own description and version individual, and the triples of the shared entities are written only once.
+ */
+public class ScenarioExporter {
+    private final ScenarioSnapshot snapshot;
+    private ScenarioModel schema;
+    private final Node type = RDF.type.asNode();
+    private final Node label = RDFS.label.asNode();
+    // The entities of several entity views, and the triples already written for them:
+    private final Set<Node> sharedEntities = new HashSet<>();
+    private final Set<Triple> sharedTriples = new HashSet<>();
+    // The number of the entity views of each shared entity, which were exported so far:
+    private final Map<Node, Integer> sharedViews = new HashMap<>();
+
+    /**
+     * @param snapshot the copy of the user created scenario
+     */
+    public ScenarioExporter(ScenarioSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Creates the custom templates and relations, and imports the models of all templates which have entities. Is
+     * done at the first export, so that the exporter can be created in the GUI thread.
+     */
+    private synchronized ScenarioModel getSchema() {
+        if (schema != null) {
+            return schema;
+        }
+        schema = new ScenarioModel(snapshot.toBeImported);
+        schema.createSchemaFromSnapshot(snapshot);
+        Set<Node> entities = new HashSet<>();
+        for (ScenarioSnapshot.EntityCopy entityCopy : snapshot.entities) {
+            // The same import is done by the constructor of the EcosystemEntity:
+            schema.importModel(getTemplate(entityCopy).model);
+            Node entity = getEntityNode(entityCopy);
+            if (!entities.add(entity)) {
+                sharedEntities.add(entity);
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * @return the names of the exported entities and templates, including the names which result in the same IRI
+     */
+    public ResourceMinter.Names getNames() {
+        return getSchema().getNames();
+    }
+
+    /**
+     * Writes all triples of the scenario to the sink, and closes the sink.
+     */
+    public synchronized void export(TripleSink sink) throws IOException {
+        getSchema();
+        sharedTriples.clear();
+        sharedViews.clear();
+        try {
+            sink.start(schema.model.getNsPrefixMap());
+            exportSchema(sink);
+            for (ScenarioSnapshot.EntityCopy entity : snapshot.entities) {
+                exportEntity(entity, sink);
+            }
+            for (ScenarioSnapshot.EntityCopy entity : snapshot.entities) {
+                exportRelations(entity, sink);
+            }
+        } finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * The ontology header with the imports, and the custom templates and relations. Only the base model is exported,
+     * like at the saving of an OntModel.
+     */
+    private void exportSchema(TripleSink sink) throws IOException {
+        List<Triple> triples = schema.model.getBaseModel().getGraph().find(Node.ANY, Node.ANY, Node.ANY).toList();
+        Map<Node, Node> blankNodes = getStableBlankNodes(triples);
+        for (Triple triple : triples) {
+            sink.triple(blankNodes.getOrDefault(triple.getSubject(), triple.getSubject()), triple.getPredicate(),
+                    blankNodes.getOrDefault(triple.getObject(), triple.getObject()));
+        }
+    }
+
+    /**
+     * Labels the blank nodes of the schema by a hash of their statements. Blank nodes with the same statements are
+     * numbered in the order of their statements.
+     */
+    private static Map<Node, Node> getStableBlankNodes(List<Triple> triples) {
+        Map<Node, List<String>> statements = new HashMap<>();
+        for (Triple triple : triples) {
+            if (triple.getSubject().isBlank()) {
+                Node object = triple.getObject();
+                statements.computeIfAbsent(triple.getSubject(), node -> new ArrayList<>())
+                        .add(triple.getPredicate() + " " + (object.isBlank() ? "_" : object.toString()));
+            }
+            if (triple.getObject().isBlank()) {
+                statements.computeIfAbsent(triple.getObject(), node -> new ArrayList<>())
+                        .add("^" + triple.getPredicate() + " " + (triple.getSubject().isBlank() ? "_" : triple.getSubject()));
+            }
+        }
+        Map<String, Integer> usedLabels = new HashMap<>();
+        SortedMap<String, Node> signatures = new TreeMap<>();
+        for (Map.Entry<Node, List<String>> node : statements.entrySet()) {
+            Collections.sort(node.getValue());
+            signatures.put(String.join("\n", node.getValue()) + "\n" + node.getKey().getBlankNodeLabel(), node.getKey());
+        }
+        Map<Node, Node> blankNodes = new HashMap<>();
+        for (Map.Entry<String, Node> signature : signatures.entrySet()) {
+            String content = signature.getKey().substring(0, signature.getKey().lastIndexOf('\n'));
+            String label = "s" + hash(content);
+            int index = usedLabels.merge(label, 1, Integer::sum);
+            blankNodes.put(signature.getValue(), NodeFactory.createBlankNode(index == 1 ? label : label + "_" + index));
+        }
+        return blankNodes;
+    }
+
+    private static String hash(String content) {
+        return UUID.nameUUIDFromBytes(content.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+    }
+
+    /**
+     * Mirrors ScenarioModel.createEntity(): only the entities of DEM templates get a description and version.
+     */
+    private void exportEntity(ScenarioSnapshot.EntityCopy entityCopy, TripleSink sink) throws IOException {
+        Template template = getTemplate(entityCopy);
+        if (template == null) {
+            return;
+        }
+        Node entity = getEntityNode(entityCopy);
+        schema.getNames().register(entity.getURI(), entityCopy.name);
+        Set<Triple> written = getWrittenTriples(entity);
+        write(entity, type, template.resource.asNode(), written, sink);
+        if (!entityCopy.name.equals("")) {
+            write(entity, label, ResourceMinter.literal(entityCopy.name, "en"), written, sink);
+        }
+        if (entityCopy.template != null) {
+            // The views of a shared entity are numbered in the order of the panel:
+            int view = sharedEntities.contains(entity) ? sharedViews.merge(entity, 1, Integer::sum) : 1;
+            exportDefinition(entity, view, LRM_static_schema.specification,
+                    LRM_static_schema.Description.asNode(), entityCopy.description, sink);
+            exportDefinition(entity, view, LRM_semantic_versioning_schema.version,
+                    LRM_semantic_versioning_schema.Version.asNode(), entityCopy.version, sink);
+        }
+    }
+
+    /**
+     * Same as EcosystemEntity.describedBy() and version(): the text is the definition of an anonymous individual.
+     *
+     * @param view the number of the entity view among the views of the same entity
+     */
+    private void exportDefinition(Node entity, int view, Property property, Node individualType, String text,
+                                  TripleSink sink) throws IOException {
+        if (text == null || text.equals("")) {
+            return;
+        }
+        // An entity view has at most one description and one version individual:
+        String key = entity.getURI() + " " + property.getURI() + (view == 1 ? "" : " " + view);
+        Node individual = NodeFactory.createBlankNode("e" + hash(key));
+        sink.triple(entity, property.asNode(), individual);
+        sink.triple(individual, type, individualType);
+        sink.triple(individual, LRM_static_schema.definition.asNode(), ResourceMinter.literal(text));
+    }
+
+    /**
+     * Mirrors ScenarioModel.createRelations().
+     */
+    private void exportRelations(ScenarioSnapshot.EntityCopy entityCopy, TripleSink sink) throws IOException {
+        if (getTemplate(entityCopy) == null) {
+            return;
+        }
+        Node entity = getEntityNode(entityCopy);
+        Set<Triple> written = getWrittenTriples(entity);
+        for (ScenarioSnapshot.RelationCopy relationCopy : entityCopy.getRelations()) {
+            DEMRelation relation = getRelation(relationCopy.relation);
+            if (relation == null) {
+                continue;
+            }
+            Node property = relation.property.asNode();
+            for (ScenarioSnapshot.EntityCopy target : relationCopy.targets) {
+                if (getTemplate(target) != null) {
+                    write(entity, property, getEntityNode(target), written, sink);
+                }
+            }
+            for (String value : relationCopy.values) {
+                write(entity, property, ResourceMinter.literal(value), written, sink);
+            }
+        }
+    }
+
+    /**
+     * The duplicates of an entity which has only one view are dropped per view, the duplicates of a shared entity
+     * across all its views. Therewith only the triples of the shared entities are kept during the whole export.
+     */
+    private Set<Triple> getWrittenTriples(Node entity) {
+        return sharedEntities.contains(entity) ? sharedTriples : new HashSet<>();
+    }
+
+    private static void write(Node subject, Node predicate, Node object, Set<Triple> written, TripleSink sink)
+            throws IOException {
+        if (written.add(Triple.create(subject, predicate, object))) {
+            sink.triple(subject, predicate, object);
+        }
+    }
+
+    /**
+     * @return the template of the entity, or null if the scenario model creates no individual for the entity
+     */
+    private Template getTemplate(ScenarioSnapshot.EntityCopy entity) {
+        return entity.template != null ? entity.template : schema.getCustomTemplate(entity.customTemplate);
+    }
+
+    private DEMRelation getRelation(Relation relation) {
+        if (relation instanceof DEMRelation) {
+            return (DEMRelation) relation;
+        } else if (relation instanceof CustomRelation) {
+            return schema.getCustomRelation((CustomRelation) relation);
+        }
+        return null;
+    }
+
+    /**
+     * The IRI of an entity, as minted by the EcosystemEntity in the scenario model.
+     */
+    private Node getEntityNode(ScenarioSnapshot.EntityCopy entity) {
+        return ResourceMinter.iri(schema.namespace, entity.name);
+    }
+}
@@ -17,11 +17,14 @@
  */
 package saver;
 
+import gui.BackgroundTask;
 import gui.EcoBuilder;
-import gui.ScenarioPanel;
+import gui.ScenarioSnapshot;
 import models.ScenarioModel;
 
-import java.io.File;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * All methods needed to save the models. The abstract DEM as well as the instantiated scenario models.
@@ -40,10 +43,92 @@ public class ScenarioSaver extends AbstractSaver {
         if (!createOutputDirectories()) {
             return null; // Output dirs couldn't be created.
         }
-        ScenarioPanel panel = ecoBuilder.scenarioPane;
+        return getSavedFile(saveModel(createScenarioModel().model));
+    }
+
+    /**
+     * Only a {@link ScenarioSnapshot} of the panel is taken in the GUI thread, the scenario model is created from it
+     * and written in the background.
+     */
+    @Override
+    public BackgroundTask<File> saveTask() {
+        if (!createOutputDirectories()) {
+            return null;
+        }
+        ScenarioSnapshot snapshot = new ScenarioSnapshot(ecoBuilder.scenarioPane);
+        return new BackgroundTask<>("Save scenario", task -> {
+            task.progress(-1, -1, "Creating the scenario model");
+            ScenarioModel scenario = new ScenarioModel(snapshot.toBeImported);
+            scenario.createModelFromSnapshot(snapshot);
+            task.progress(-1, -1, "Writing " + formats);
+            List<ModelWriter.Result> results = saveModel(scenario.model);
+            File savedFile = getSavedFile(results);
+            // Entities whose names result in the same IRI are merged in the saved model, the user is warned about them:
+            task.progress(1, 1, (savedFile == null ? "The scenario couldn't be saved" : "Saved the scenario")
+                    + describe(results) + scenario.getNames().describeCollisions());
+            return savedFile;
+        });
+    }
+
+    private ScenarioModel createScenarioModel() {
         ScenarioModel scenario = new ScenarioModel(ecoBuilder.scenarioPane.toBeImported);
-        scenario.createModelFromPanel(panel);
-        File savedFile = saveModel(scenario.model);
-        return savedFile;
+        scenario.createModelFromSnapshot(new ScenarioSnapshot(ecoBuilder.scenarioPane));
+        return scenario;
+    }
+
+    /**
+     * Exports the scenario as N-Triples and as Turtle into the DEM/scenario/turtle directory. In difference to
+     * {@link #save()} the scenario model is not created in memory, but streamed from the panel to the files.
+     *
+     * @return the turtle file, or null if the export failed
+     */
+    public File export() {
+        if (!createOutputDirectories()) {
+            return null; // Output dirs couldn't be created.
+        }
+        File nTriplesFile = new File(turtleSubDirectory, "scenario" + getSuffix(ModelWriter.Format.N_TRIPLES));
+        File turtleFile = new File(turtleSubDirectory, "scenario" + getSuffix(ModelWriter.Format.TURTLE));
+        ScenarioExporter exporter = new ScenarioExporter(new ScenarioSnapshot(ecoBuilder.scenarioPane));
+        try {
+            exporter.export(new NTriplesSink(openWriter(nTriplesFile)));
+            exporter.export(new TurtleSink(openWriter(turtleFile)));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return turtleFile;
+    }
+
+    /**
+     * Takes a {@link ScenarioSnapshot} in the GUI thread, and returns the streaming of the N-Triples and Turtle files
+     * from it. The files are deleted, if the task is cancelled.
+     *
+     * @return null, if the user canceled the export or it failed
+     */
+    public BackgroundTask<File> exportTask() {
+        if (!createOutputDirectories()) {
+            return null;
+        }
+        ScenarioExporter exporter = new ScenarioExporter(new ScenarioSnapshot(ecoBuilder.scenarioPane));
+        File nTriplesFile = new File(turtleSubDirectory, "scenario" + getSuffix(ModelWriter.Format.N_TRIPLES));
+        File turtleFile = new File(turtleSubDirectory, "scenario" + getSuffix(ModelWriter.Format.TURTLE));
+        return new BackgroundTask<>("Export scenario", task -> {
+            TaskSink triples = new TaskSink(new NTriplesSink(openWriter(nTriplesFile)), task, "Writing N-Triples");
+            try {
+                exporter.export(triples);
+                exporter.export(new TaskSink(new TurtleSink(openWriter(turtleFile)), task, "Writing Turtle"));
+            } catch (InterruptedIOException e) {
+                nTriplesFile.delete();
+                turtleFile.delete();
+                return null;
+            }
+            task.progress(triples.size(), triples.size(), "Exported " + triples.size() + " triples to "
+                    + turtleSubDirectory + exporter.getNames().describeCollisions());
+            return turtleFile;
+        });
+    }
+
+    private static Writer openWriter(File file) throws FileNotFoundException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
     }
 }
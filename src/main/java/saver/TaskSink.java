@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import gui.BackgroundTask;
+import org.apache.jena.graph.Node;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+
+/**
+ * Forwards the exported triples to another sink in the background, shows their number at the task, and stops the
+ * export with an {@link InterruptedIOException}, if the task is cancelled.
+ */
+public class TaskSink implements TripleSink {
+    private static final int PROGRESS_STEP = 10000;
+    private final TripleSink sink;
+    private final BackgroundTask<?> task;
+    private final String message;
+    private int triples = 0;
+
+    /**
+     * @param message describes the export at the task
+     */
+    public TaskSink(TripleSink sink, BackgroundTask<?> task, String message) {
+        this.sink = sink;
+        this.task = task;
+        this.message = message;
+    }
+
+    @Override
+    public void start(Map<String, String> prefixes) throws IOException {
+        sink.start(prefixes);
+    }
+
+    @Override
+    public void triple(Node subject, Node predicate, Node object) throws IOException {
+        if (triples % PROGRESS_STEP == 0) {
+            if (task.isCancelled()) {
+                throw new InterruptedIOException("The export was cancelled");
+            }
+            task.progress(triples, -1, message + ": " + triples + " triples");
+        }
+        sink.triple(subject, predicate, object);
+        triples++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sink.close();
+    }
+
+    /**
+     * @return the number of forwarded triples
+     */
+    public int size() {
+        return triples;
+    }
+}
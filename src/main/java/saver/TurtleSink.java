@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.vocabulary.RDF;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Writes triples as Turtle while they arrive. Only the current subject and predicate are kept: consecutive triples of
+ * the same subject are grouped with ";", and of the same predicate with ",". IRIs are abbreviated with the model
+ * prefixes if the local name is a simple name.
+ */
+public class TurtleSink extends NTriplesSink {
+    private static final Pattern SIMPLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_-]*");
+    private static final Pattern SIMPLE_PREFIX = Pattern.compile("([A-Za-z][A-Za-z0-9_-]*)?");
+    private final Map<String, String> prefixesByNamespace = new HashMap<>();
+    private Node subject;
+    private Node predicate;
+
+    public TurtleSink(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void start(Map<String, String> prefixes) throws IOException {
+        for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+            if (!SIMPLE_PREFIX.matcher(prefix.getKey()).matches()) {
+                continue; // not allowed in turtle, these IRIs are written in full
+            }
+            prefixesByNamespace.putIfAbsent(prefix.getValue(), prefix.getKey());
+        }
+        for (Map.Entry<String, String> prefix : prefixesByNamespace.entrySet()) {
+            writer.write("@prefix " + prefix.getValue() + ": " + super.formatIRI(prefix.getKey()) + " .\n");
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public void triple(Node subject, Node predicate, Node object) throws IOException {
+        if (subject.equals(this.subject)) {
+            if (predicate.equals(this.predicate)) {
+                writer.write(" ,\n        ");
+            } else {
+                writer.write(" ;\n    ");
+                writer.write(formatPredicate(predicate));
+                writer.write(' ');
+            }
+        } else {
+            if (this.subject != null) {
+                writer.write(" .\n\n");
+            }
+            writer.write(format(subject));
+            writer.write("\n    ");
+            writer.write(formatPredicate(predicate));
+            writer.write(' ');
+        }
+        writer.write(format(object));
+        this.subject = subject;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (subject != null) {
+            writer.write(" .\n");
+        }
+        super.close();
+    }
+
+    private String formatPredicate(Node predicate) {
+        return predicate.equals(RDF.type.asNode()) ? "a" : format(predicate);
+    }
+
+    @Override
+    protected String formatIRI(String iri) {
+        int split = Math.max(iri.lastIndexOf('#'), iri.lastIndexOf('/')) + 1;
+        if (split > 0) {
+            String prefix = prefixesByNamespace.get(iri.substring(0, split));
+            String localName = iri.substring(split);
+            if (prefix != null && SIMPLE_NAME.matcher(localName).matches()) {
+                return prefix + ":" + localName;
+            }
+        }
+        return super.formatIRI(iri);
+    }
+}
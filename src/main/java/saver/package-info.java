@@ -18,6 +18,6 @@
 /**
  * This package includes the saver classes of the EcoBuilder. It includes classes to save the abstract DEM,
  * the experiments, and the scenario model as turtle and owl files, and to save and load the user created
- * project.
+ * project. The {@link saver.ScenarioExporter} streams the scenario to a {@link saver.TripleSink} instead.
  */
 package saver;
\ No newline at end of file
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package ERMR;
+
+import org.apache.jena.graph.NodeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Uploads statements to a {@link LocalERMR}.
+ */
+public class BulkUploadTest {
+    private static final String REPOSITORY = "test";
+
+    private LocalERMR ermr;
+    private URL submissionURL;
+
+    @Before
+    public void startERMR() throws IOException {
+        ermr = new LocalERMR(0, 0);
+        ermr.createRepository(REPOSITORY);
+        ermr.start();
+        submissionURL = new URL("http://localhost:" + ermr.getPort() + "/api/triple/" + REPOSITORY + "/statements");
+    }
+
+    @After
+    public void stopERMR() {
+        ermr.stop();
+    }
+
+    @Test
+    public void statementsAreUploadedInBatches() throws IOException {
+        BulkUpload upload = new BulkUpload(submissionURL, new ERMRConnection(), 10, 2, 0);
+        send(upload, 25);
+        assertEquals(25, ermr.getStatementCount(REPOSITORY));
+        assertEquals(3, ermr.getBatchCount(REPOSITORY));
+        assertTrue(upload.getReport(), upload.getReport().startsWith("Uploaded 25 statements in 3 batches (0 retries, "
+                + "0 failed)"));
+    }
+
+    @Test
+    public void rejectedBatchesAreRetried() throws IOException {
+        ermr.rejectNext(2);
+        BulkUpload upload = new BulkUpload(submissionURL, new ERMRConnection(), 10, 1, 3);
+        send(upload, 25);
+        assertEquals(25, ermr.getStatementCount(REPOSITORY));
+        assertEquals(3, ermr.getBatchCount(REPOSITORY));
+        assertTrue(upload.getReport(), upload.getReport().startsWith("Uploaded 25 statements in 3 batches (2 retries, "
+                + "0 failed)"));
+    }
+
+    @Test
+    public void failedBatchesAreReported() throws IOException {
+        ermr.rejectNext(2);
+        BulkUpload upload = new BulkUpload(submissionURL, new ERMRConnection(), 10, 1, 1);
+        try {
+            send(upload, 10);
+            fail("The upload of the batch should fail");
+        } catch (IOException e) {
+            assertEquals("1 of 1 batches couldn't be uploaded", e.getMessage());
+        }
+        assertEquals(0, ermr.getStatementCount(REPOSITORY));
+        assertTrue(upload.getReport(), upload.getReport().startsWith("Uploaded 0 statements in 1 batches (1 retries, "
+                + "1 failed)"));
+    }
+
+    private static void send(BulkUpload upload, int statements) throws IOException {
+        upload.start(Collections.emptyMap());
+        for (int i = 0; i < statements; i++) {
+            upload.triple(NodeFactory.createURI("http://example.org/s" + i),
+                    NodeFactory.createURI("http://example.org/p"), NodeFactory.createLiteral("value " + i));
+        }
+        upload.close();
+    }
+}
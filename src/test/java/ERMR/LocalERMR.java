@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package ERMR;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A local stand-in for the triple API of the ERMR, to test the uploads without the real repository. It implements:
+ * <ul>
+ * <li>GET /api/triple/ lists the repositories</li>
+ * <li>PUT /api/triple/[repository] creates a repository</li>
+ * <li>POST /api/triple/[repository]/statements counts the received N-Triples statements, also gzip compressed</li>
+ * <li>POST /api/triple/[repository]/statements with a SPARQL update is accepted without evaluation</li>
+ * </ul>
+ * A share of the statement requests, or the next few of them, can be rejected on purpose, to see the retries of the
+ * {@link BulkUpload}.
+ * <p>
+ * Usage: LocalERMR [port] [failure rate], then configure http://localhost:[port] as ERMR URI.
+ */
+public class LocalERMR {
+    private static final String API = "/api/triple/";
+    private final HttpServer server;
+    private final double failureRate;
+    private final Set<String> repositories = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicLong> statements = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> updates = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> batches = new ConcurrentHashMap<>();
+    private final AtomicInteger rejections = new AtomicInteger();
+
+    public LocalERMR(int port, double failureRate) throws IOException {
+        this.failureRate = failureRate;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(API, this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * @return the port, also if the server was created with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void createRepository(String repository) {
+        repositories.add(repository);
+    }
+
+    /**
+     * Rejects the next statement requests, in addition to the failure rate.
+     */
+    public void rejectNext(int requests) {
+        rejections.set(requests);
+    }
+
+    /**
+     * @return the number of accepted statement requests of the repository
+     */
+    public long getBatchCount(String repository) {
+        AtomicLong count = batches.get(repository);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return the number of statements received for the repository
+     */
+    public long getStatementCount(String repository) {
+        AtomicLong count = statements.get(repository);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return the number of SPARQL updates received for the repository
+     */
+    public long getUpdateCount(String repository) {
+        AtomicLong count = updates.get(repository);
+        return count == null ? 0 : count.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().substring(API.length()).split("/");
+        String method = exchange.getRequestMethod();
+        try {
+            if (method.equals("GET") && path[0].isEmpty()) {
+                StringBuilder list = new StringBuilder("[");
+                for (String repository : repositories) {
+                    list.append(list.length() > 1 ? ", " : "").append("{\"title\": \"").append(repository).append("\"}");
+                }
+                respond(exchange, 200, list.append("]").toString());
+            } else if (method.equals("PUT") && path.length == 1) {
+                repositories.add(path[0]);
+                respond(exchange, 201, "");
+            } else if (method.equals("POST") && path.length == 2 && path[1].equals("statements")) {
+                if (!repositories.contains(path[0])) {
+                    respond(exchange, 404, "Unknown repository " + path[0]);
+                } else if (rejections.getAndUpdate(count -> Math.max(0, count - 1)) > 0
+                        || ThreadLocalRandom.current().nextDouble() < failureRate) {
+                    drain(exchange.getRequestBody());
+                    respond(exchange, 503, "Rejected on purpose");
+                } else if ("application/sparql-update".equals(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+                    drain(exchange.getRequestBody());
+                    updates.computeIfAbsent(path[0], repository -> new AtomicLong()).incrementAndGet();
+                    respond(exchange, 204, "");
+                } else {
+                    long count = countStatements(exchange);
+                    statements.computeIfAbsent(path[0], repository -> new AtomicLong()).addAndGet(count);
+                    batches.computeIfAbsent(path[0], repository -> new AtomicLong()).incrementAndGet();
+                    respond(exchange, 201, "");
+                }
+            } else {
+                respond(exchange, 400, "Unsupported request " + method + " " + exchange.getRequestURI());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private long countStatements(HttpExchange exchange) throws IOException {
+        InputStream body = exchange.getRequestBody();
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            body = new GZIPInputStream(body);
+        }
+        long count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (in.read(buffer) != -1) {
+            // discard
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        // An empty chunked body, since the server can reuse the socket too early after a response without body:
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? 0 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        double failureRate = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+        LocalERMR ermr = new LocalERMR(port, failureRate);
+        ermr.start();
+        System.out.println("Local ERMR listening at http://localhost:" + port + API);
+    }
+}
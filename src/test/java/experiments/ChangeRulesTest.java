@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package experiments;
+
+import LRMv2.LRM_static_schema;
+import entities.DigitalObject;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.rdf.model.*;
+import org.junit.Test;
+import rules.RuleEngine;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Attaches the change rules of the change management examples to their scenario models, and edits the models, so that
+ * the rules fire.
+ */
+public class ChangeRulesTest {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssX");
+
+    @Test
+    public void changeManagementRulesFire() {
+        ChangeManagementExample example = new ChangeManagementExample();
+        Model model = example.scenario.model;
+        String namespace = example.scenario.namespace;
+        Resource policy = model.getResource(namespace + "DataReleasePolicyPG14");
+        Resource privateRepository = model.getResource(namespace + "Privatedatarepository");
+        Property location = model.getProperty(namespace + "location");
+        Property timeTrigger = model.getProperty(namespace + "timeTrigger");
+        Property previousURL = model.getProperty(namespace + "previousURL");
+        try (RuleEngine engine = example.startChangeManagement()) {
+            assertEquals(0, engine.getFirings());
+
+            // Change 0: new Meteosat data in the private repository
+            DigitalObject image = new DigitalObject(example.scenario, "Meteosat image");
+            image.addProperty(example.type, "Meteosat data");
+            image.addProperty(location, "http://eumetsat/private");
+            assertEquals(1, engine.getFirings());
+            Resource dependency = model.listResourcesWithProperty(LRM_static_schema.to_property, image).next();
+            assertTrue(dependency.hasProperty(LRM_static_schema.from_property, policy));
+
+            // Change 1: the time trigger reports the image, which is moved to the public repository
+            image.addProperty(timeTrigger, "reported");
+            assertEquals(2, engine.getFirings());
+            assertEquals("http://eumetsat/public", image.getProperty(location).getString());
+
+            // Change 2: the URL of the private repository changes, the data in it moves along
+            Resource metadata = model.getResource(namespace + "Metadata");
+            metadata.addProperty(location, "http://eumetsat/private");
+            privateRepository.removeAll(example.URL.property);
+            privateRepository.addProperty(example.URL.property, "http://eumetsat/archive");
+            privateRepository.addProperty(previousURL, "http://eumetsat/private");
+            assertEquals("http://eumetsat/archive", metadata.getProperty(location).getString());
+            assertEquals("http://eumetsat/public", image.getProperty(location).getString());
+        }
+    }
+
+    @Test
+    public void spacePolicyRulesFire() {
+        SpacePolicyChangeExample example = new SpacePolicyChangeExample();
+        Model model = example.scenario.model;
+        String namespace = example.scenario.namespace;
+        Property releaseState = model.getProperty(namespace + "releaseState");
+        Property dateCreated = model.getProperty(namespace + "dateCreated");
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.of("UTC"));
+        try (RuleEngine engine = example.startChangeManagement()) {
+            DigitalObject recent = new DigitalObject(example.scenario, "SEVIRI Image 5");
+            recent.addProperty(dateCreated, model.createTypedLiteral(now.format(DATE_FORMAT), XSDDatatype.XSDdateTime));
+            recent.addProperty(releaseState, "private");
+            DigitalObject old = new DigitalObject(example.scenario, "SEVIRI Image 6");
+            old.addProperty(dateCreated, model.createTypedLiteral(now.minusDays(2).format(DATE_FORMAT),
+                    XSDDatatype.XSDdateTime));
+            old.addProperty(releaseState, "private");
+
+            // The release timer ran for both images, and reported the old one, which was released:
+            assertEquals(3, engine.getFirings());
+            assertEquals("private", recent.getProperty(releaseState).getString());
+            assertEquals("public", old.getProperty(releaseState).getString());
+            assertFalse(old.hasProperty(model.getProperty(namespace + "releaseDue")));
+        }
+    }
+}
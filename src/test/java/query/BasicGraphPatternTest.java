@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package query;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parses the text syntax of basic graph patterns: the dots between the patterns, also directly after a prefixed name,
+ * the kinds of terms, and the errors of invalid patterns.
+ */
+public class BasicGraphPatternTest {
+    private static final String EX = "http://example.org/";
+    private static final PrefixMapping PREFIXES = PrefixMapping.Factory.create()
+            .setNsPrefix("ex", EX)
+            .setNsPrefix("xsd", XSDDatatype.XSD + "#")
+            .lock();
+
+    @Test
+    public void dotAfterPrefixedNameEndsThePattern() {
+        List<Triple> patterns = parse("?s ex:knows ex:bob. ?s ex:likes ?o.");
+        assertEquals(Arrays.asList(
+                Triple.create(variable("s"), uri("knows"), uri("bob")),
+                Triple.create(variable("s"), uri("likes"), variable("o"))), patterns);
+    }
+
+    @Test
+    public void dotInsidePrefixedNameIsPartOfTheName() {
+        assertEquals(uri("version1.2"), parse("?s ex:p ex:version1.2 .").get(0).getObject());
+        assertEquals(uri("version1.2"), parse("?s ex:p ex:version1.2.").get(0).getObject());
+    }
+
+    @Test
+    public void termsOfAllKinds() {
+        Triple pattern = parse("<http://example.org/alice> a $type").get(0);
+        assertEquals(uri("alice"), pattern.getSubject());
+        assertEquals(RDF.type.asNode(), pattern.getPredicate());
+        assertEquals(variable("type"), pattern.getObject());
+
+        assertEquals(NodeFactory.createLiteral("42", XSDDatatype.XSDinteger), object("?s ex:age 42."));
+        assertEquals(NodeFactory.createLiteral("-1.5", XSDDatatype.XSDdecimal), object("?s ex:age -1.5."));
+        assertEquals(NodeFactory.createLiteral("say \"hi\"\n"), object("?s ex:text \"say \\\"hi\\\"\\n\""));
+        assertEquals(NodeFactory.createLiteral("it's"), object("?s ex:text 'it\\'s'"));
+        assertEquals(NodeFactory.createLiteral("chat", "fr"), object("?s ex:label \"chat\"@fr ."));
+    }
+
+    @Test
+    public void literalsWithDatatypes() {
+        Node integer = NodeFactory.createLiteral("42", XSDDatatype.XSDinteger);
+        assertEquals(integer, object("?s ex:age \"42\"^^xsd:integer"));
+        assertEquals(integer, object("?s ex:age \"42\"^^xsd:integer."));
+        assertEquals(integer, object("?s ex:age \"42\"^^<http://www.w3.org/2001/XMLSchema#integer> ."));
+        Node date = object("?s ex:created \"2016-05-01\"^^xsd:date");
+        assertEquals(XSDDatatype.XSDdate.getURI(), date.getLiteralDatatypeURI());
+        assertEquals("2016-05-01", date.getLiteralLexicalForm());
+    }
+
+    @Test
+    public void formatIsParsedAgain() {
+        String text = "?s ex:label \"a \\\"b\\\"\"@en . ?s ex:age \"42\"^^xsd:int";
+        BasicGraphPattern pattern = BasicGraphPattern.parse(text, PREFIXES);
+        assertEquals(pattern.getPatterns(), BasicGraphPattern.parse(pattern.toString(), PREFIXES).getPatterns());
+        assertEquals(Arrays.asList("s"), pattern.getVariables());
+    }
+
+    @Test
+    public void invalidPatternsAreRejected() {
+        assertInvalid("");
+        assertInvalid(" . ");
+        assertInvalid("?s ex:p .");
+        assertInvalid("?s ex:p ?o ?x");
+        assertInvalid("?s ex:p ?o . ?s");
+        assertInvalid("?s unknown:p ?o");
+        assertInvalid("?s p ?o");
+        assertInvalid("?s ex:p <http://example.org/o");
+        assertInvalid("?s ex:p \"open");
+        assertInvalid("? ex:p ?o");
+        assertInvalid("?s ex:p \"1\"^^42");
+        assertInvalid("?s ex:p \"1\"^^unknown:type");
+    }
+
+    @Test
+    public void termsWithoutDots() {
+        assertEquals(Arrays.asList(variable("s"), uri("p"), NodeFactory.createLiteral("o")),
+                BasicGraphPattern.parseTerms("?s ex:p \"o\"", PREFIXES));
+        try {
+            BasicGraphPattern.parseTerms("?s ex:p.", PREFIXES);
+            fail("A dot isn't a term");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static List<Triple> parse(String text) {
+        return BasicGraphPattern.parse(text, PREFIXES).getPatterns();
+    }
+
+    private static Node object(String text) {
+        List<Triple> patterns = parse(text);
+        assertEquals(1, patterns.size());
+        return patterns.get(0).getObject();
+    }
+
+    private static void assertInvalid(String text) {
+        try {
+            BasicGraphPattern.parse(text, PREFIXES);
+            fail("Invalid pattern was parsed: " + text);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private static Node uri(String localName) {
+        return NodeFactory.createURI(EX + localName);
+    }
+
+    private static Node variable(String name) {
+        return NodeFactory.createVariable(name);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package query;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Selects from a small model, with repeated variables, without any constant, and with each combination of bound
+ * positions: the subject and the predicate are looked up in the SPO order, the predicate and the object in the POS
+ * order, and the object and the subject in the OSP order.
+ */
+public class QueryEngineTest {
+    private static final String EX = "http://example.org/";
+
+    private Model model;
+    private QueryEngine engine;
+
+    @Before
+    public void createEngine() {
+        model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("ex", EX);
+        Resource alice = model.createResource(EX + "alice");
+        Resource bob = model.createResource(EX + "bob");
+        Resource carol = model.createResource(EX + "carol");
+        alice.addProperty(model.createProperty(EX + "knows"), bob);
+        alice.addProperty(model.createProperty(EX + "knows"), carol);
+        alice.addProperty(model.createProperty(EX + "likes"), bob);
+        bob.addProperty(model.createProperty(EX + "knows"), alice);
+        carol.addProperty(model.createProperty(EX + "knows"), carol);
+        bob.addProperty(model.createProperty(EX + "age"), model.createTypedLiteral("42", XSDDatatype.XSDinteger));
+        engine = new QueryEngine(model);
+    }
+
+    @Test
+    public void repeatedVariableMatchesEqualValues() {
+        assertEquals(set("carol"), select("?x ex:knows ?x", "x"));
+        assertEquals(set("alice bob", "bob alice", "carol carol"), select("?x ex:knows ?y . ?y ex:knows ?x", "x", "y"));
+        assertEquals(set("alice bob"), select("?x ex:knows ?y . ?x ex:likes ?y", "x", "y"));
+    }
+
+    @Test
+    public void unboundPatternMatchesAllTriples() {
+        List<Map<String, Node>> solutions = engine.select("?s ?p ?o");
+        assertEquals(model.size(), solutions.size());
+        for (Map<String, Node> solution : solutions) {
+            assertTrue(solution.toString(), model.getGraph().contains(solution.get("s"), solution.get("p"),
+                    solution.get("o")));
+        }
+        assertEquals(2, engine.select("?s ?p ?o", 2).size());
+        assertEquals(0, engine.select("?s ?p ?o", 0).size());
+    }
+
+    @Test
+    public void subjectAndPredicateAreBound() {
+        assertEquals(set("bob", "carol"), select("ex:alice ex:knows ?o", "o"));
+        assertEquals(set("alice", "bob", "carol"), select("?s ex:knows ?o . ?o ex:knows ?x", "o"));
+        assertEquals(set("knows bob", "knows carol", "likes bob"), select("ex:alice ?p ?o", "p", "o"));
+    }
+
+    @Test
+    public void predicateAndObjectAreBound() {
+        assertEquals(set("alice", "carol"), select("?s ex:knows ex:carol", "s"));
+        assertEquals(set("alice", "bob", "carol"), select("?s ex:knows ?o", "s"));
+        assertEquals(set("bob"), select("?s ex:age 42", "s"));
+    }
+
+    @Test
+    public void objectAndSubjectAreBound() {
+        assertEquals(set("knows", "likes"), select("ex:alice ?p ex:bob", "p"));
+        assertEquals(set("alice knows", "alice likes"), select("?s ?p ex:bob", "s", "p"));
+    }
+
+    @Test
+    public void allPositionsAreBound() {
+        assertEquals(1, engine.select("ex:alice ex:knows ex:bob").size());
+        assertEquals(0, engine.select("ex:bob ex:knows ex:carol").size());
+        assertEquals(0, engine.select("?s ex:knows ex:dave").size());
+    }
+
+    @Test
+    public void indexCountsEachCombinationOfBoundPositions() {
+        TripleIndex index = engine.getIndex();
+        for (Triple triple : model.getGraph().find(Node.ANY, Node.ANY, Node.ANY).toList()) {
+            Node[] nodes = {triple.getSubject(), triple.getPredicate(), triple.getObject()};
+            for (int bound = 0; bound < 8; bound++) {
+                Node[] pattern = new Node[3];
+                int[] ids = new int[3];
+                for (int i = 0; i < 3; i++) {
+                    boolean isBound = (bound & (1 << i)) != 0;
+                    pattern[i] = isBound ? nodes[i] : Node.ANY;
+                    ids[i] = isBound ? index.getId(nodes[i]) : TripleIndex.ANY;
+                }
+                int expected = model.getGraph().find(pattern[0], pattern[1], pattern[2]).toList().size();
+                assertEquals(Arrays.toString(pattern), expected, index.count(ids[0], ids[1], ids[2]));
+                List<Triple> matches = new ArrayList<>();
+                index.match(ids[0], ids[1], ids[2], (subject, predicate, object) -> matches.add(Triple.create(
+                        index.getNode(subject), index.getNode(predicate), index.getNode(object))));
+                assertEquals(Arrays.toString(pattern), expected, matches.size());
+                for (Triple match : matches) {
+                    assertTrue(match.toString(), Triple.createMatch(pattern[0], pattern[1], pattern[2]).matches(match));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the solutions, each as the local names of the variables' values, separated by spaces
+     */
+    private Set<String> select(String query, String... variables) {
+        Set<String> solutions = new HashSet<>();
+        for (Map<String, Node> solution : engine.select(query)) {
+            StringJoiner values = new StringJoiner(" ");
+            for (String variable : variables) {
+                Node value = solution.get(variable);
+                values.add(value.isURI() ? value.getLocalName() : value.getLiteralLexicalForm());
+            }
+            solutions.add(values.toString());
+        }
+        return solutions;
+    }
+
+    private static Set<String> set(String... solutions) {
+        return new HashSet<>(Arrays.asList(solutions));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package rules;
+
+import LRMv2.LRM_static_schema;
+import models.AnalysisModel;
+import models.ScenarioModel;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the incremental matching of the {@link RuleEngine}: the retraction of the matches of removed triples, the
+ * deduplication of the matches of a triple which matches several patterns of a rule, and the cutoff of rules which
+ * trigger each other endlessly, and the Ecosystem Dependencies of the rules on a scenario model.
+ */
+public class RuleEngineTest {
+    private static final String EX = "http://example.org/";
+
+    private Model model;
+    private RuleEngine engine;
+    private Property knows;
+    private Property state;
+
+    @Before
+    public void createEngine() {
+        model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("ex", EX);
+        knows = model.createProperty(EX + "knows");
+        state = model.createProperty(EX + "state");
+        engine = new RuleEngine(model);
+    }
+
+    @After
+    public void closeEngine() {
+        engine.close();
+    }
+
+    @Test
+    public void removedTripleRetractsItsMatches() {
+        Rule rule = parse("friends", "Precondition: ?a ex:knows ?b . ?b ex:knows ?a Impact: add ?a ex:friendOf ?b");
+        engine.addRule(rule);
+        Resource alice = model.createResource(EX + "alice");
+        Resource bob = model.createResource(EX + "bob");
+        Resource carol = model.createResource(EX + "carol");
+        model.add(alice, knows, bob);
+        model.add(bob, knows, alice);
+        model.add(alice, knows, carol);
+        assertEquals(2, engine.getMatchCount(rule));
+        assertEquals(2, engine.getFirings());
+        assertTrue(model.contains(alice, model.createProperty(EX + "friendOf"), bob));
+
+        // Both matches are supported by the removed triple, the unrelated triple keeps no match:
+        model.remove(bob, knows, alice);
+        assertEquals(0, engine.getMatchCount(rule));
+
+        // A match which is found again fires again:
+        model.add(bob, knows, alice);
+        assertEquals(2, engine.getMatchCount(rule));
+        assertEquals(4, engine.getFirings());
+    }
+
+    @Test
+    public void tripleMatchingSeveralPatternsFiresOnce() {
+        Rule rule = parse("self", "Precondition: ?a ex:knows ?b . ?b ex:knows ?c Impact: add ?a ex:knowsOf ?c");
+        engine.addRule(rule);
+        Resource alice = model.createResource(EX + "alice");
+        // The triple is matched from both patterns, with the same bindings:
+        model.add(alice, knows, alice);
+        assertEquals(1, engine.getMatchCount(rule));
+        assertEquals(1, engine.getFirings());
+
+        model.remove(alice, knows, alice);
+        assertEquals(0, engine.getMatchCount(rule));
+    }
+
+    @Test
+    public void existingMatchesDontFire() {
+        Resource alice = model.createResource(EX + "alice");
+        model.add(alice, knows, alice);
+        Rule rule = parse("self", "Precondition: ?a ex:knows ?a Impact: add ?a ex:knowsOf ?a");
+        engine.addRule(rule);
+        assertEquals(1, engine.getMatchCount(rule));
+        assertEquals(0, engine.getFirings());
+
+        engine.removeRule(rule);
+        assertEquals(0, engine.getMatchCount(rule));
+    }
+
+    @Test
+    public void endlessRulesAreCutOff() {
+        engine.addRule(parse("on", "Precondition: ?x ex:state \"on\" Impact: set ?x ex:state \"off\""));
+        engine.addRule(parse("off", "Precondition: ?x ex:state \"off\" Impact: set ?x ex:state \"on\""));
+        Resource lamp = model.createResource(EX + "lamp");
+        model.add(lamp, state, "on");
+        assertEquals(RuleEngine.MAX_FIRINGS, engine.getFirings());
+        // The agenda was dropped, the last action left one state:
+        assertEquals(1, model.listStatements(lamp, state, (RDFNode) null).toList().size());
+
+        // The next change is matched again:
+        Resource switchedOff = model.createResource(EX + "switch");
+        model.add(switchedOff, state, "off");
+        assertEquals(2L * RuleEngine.MAX_FIRINGS, engine.getFirings());
+    }
+
+    @Test
+    public void dependencyIsCreatedThroughTheScenario() {
+        ScenarioModel scenario = new ScenarioModel(Collections.emptySet());
+        scenario.model.setNsPrefix("ex", EX);
+        Property owns = scenario.model.createProperty(EX + "owns");
+        try (RuleEngine scenarioEngine = new RuleEngine(scenario)) {
+            scenarioEngine.addRule(Rule.parse("owner", "Precondition: ?a ex:owns ?b Impact: dependency ?a ?b \"owns\"",
+                    scenario.model));
+            Resource alice = scenario.model.createResource(EX + "alice");
+            alice.addProperty(owns, scenario.model.createResource(EX + "car"));
+            List<Resource> dependencies = scenario.model.listResourcesWithProperty(LRM_static_schema.from_property,
+                    alice).toList();
+            assertEquals(1, dependencies.size());
+            assertTrue(dependencies.get(0).hasProperty(RDF.type, AnalysisModel.ecosystemDependency.resource));
+            assertTrue(scenario.ontology.imports(AnalysisModel.INSTANCE.ontology));
+
+            // A literal can't be the end of a dependency, the action fails without a dependency:
+            Resource bob = scenario.model.createResource(EX + "bob");
+            bob.addProperty(owns, "a bike");
+            assertEquals(2, scenarioEngine.getFirings());
+            assertFalse(scenario.model.contains(null, LRM_static_schema.from_property, bob));
+        }
+    }
+
+    private Rule parse(String name, String text) {
+        return Rule.parse(name, text, model);
+    }
+}
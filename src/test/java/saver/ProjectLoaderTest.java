@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import gui.*;
+import javafx.embed.swing.JFXPanel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Loads a project, which was saved in the serialised format by the released EcoBuilder version. The project has a
+ * process with version and description, which runs on a technical service with a checksum, and a policy which
+ * constrains the process.
+ */
+public class ProjectLoaderTest {
+
+    @BeforeClass
+    public static void startToolkit() {
+        // The views are JavaFX controls, which can only be created once the toolkit is running:
+        new JFXPanel();
+    }
+
+    @Test
+    public void loadsSerialisedProjectOfReleasedVersion() throws Exception {
+        ScenarioPanel panel;
+        try (InputStream in = ProjectLoaderTest.class.getResourceAsStream("baseline-project.ecobuilder")) {
+            panel = ProjectLoader.readSerialisedScenario(in);
+        }
+        Map<String, EntityView> entities = new HashMap<>();
+        for (ModelView model : panel.models) {
+            for (RadioTemplate radioTemplate : model.childTemplateViews) {
+                for (EntityView entity : radioTemplate.templateView.childEntities) {
+                    entities.put(entity.name, entity);
+                }
+            }
+        }
+        assertEquals(new HashSet<>(Arrays.asList("Convertvideo", "Mediaserver", "Formatpolicy")),
+                entities.keySet());
+
+        EntityView process = entities.get("Convertvideo");
+        assertEquals("Process", process.parentTemplate.name);
+        assertEquals("1.0", process.version);
+        assertEquals("Converts the videos to MP4", process.description);
+        assertEquals(Collections.singleton("Mediaserver"), getTargets(process, "runsOn"));
+
+        EntityView service = entities.get("Mediaserver");
+        RelationView checksum = getRelation(service, "checksum");
+        assertEquals(1, checksum.childValueEntities.size());
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", checksum.childValueEntities.iterator().next().value);
+
+        EntityView policy = entities.get("Formatpolicy");
+        assertEquals(Collections.singleton("Convertvideo"), getTargets(policy, "constrains"));
+    }
+
+    private static RelationView getRelation(EntityView entity, String relation) {
+        for (RelationView relationView : entity.childRelations) {
+            if (relationView.relation.name.equals(relation)) {
+                return relationView;
+            }
+        }
+        fail(entity.name + " has no relation " + relation);
+        return null;
+    }
+
+    private static Set<String> getTargets(EntityView entity, String relation) {
+        Set<String> targets = new HashSet<>();
+        for (TargetEntityView target : getRelation(entity, relation).childTargetEntities) {
+            targets.add(target.sameEntity.name);
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Anna Eggers - Göttingen State and University Library
+ * The work has been developed in the PERICLES Project by Members of the PERICLES Consortium.
+ * This project has received funding from the European Union’s Seventh Framework Programme for research, technological
+ * development and demonstration under grant agreement no FP7- 601138 PERICLES.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at:   http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied, including without
+ * limitation, any warranties or conditions of TITLE, NON-INFRINGEMENT, MERCHANTIBITLY, or FITNESS FOR A PARTICULAR
+ * PURPOSE. In no event and under no legal theory, whether in tort (including negligence), contract, or otherwise,
+ * unless required by applicable law or agreed to in writing, shall any Contributor be liable for damages, including
+ * any direct, indirect, special, incidental, or consequential damages of any character arising as a result of this
+ * License or out of the use or inability to use the Work.
+ * See the License for the specific language governing permissions and limitation under the License.
+ */
+package saver;
+
+import experiments.*;
+import gui.EntityView;
+import gui.ScenarioPanel;
+import gui.ScenarioSnapshot;
+import gui.TemplateView;
+import javafx.embed.swing.JFXPanel;
+import models.ScenarioModel;
+import org.apache.jena.graph.Factory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import relations.Relation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exports the scenarios of the experiments, as if a user had modelled them with the scenario panel, and compares the
+ * export with the scenario model which is created from the same snapshot. The export has to stay isomorphic to the
+ * model, because the blank nodes are only labelled differently.
+ */
+public class ScenarioExporterTest {
+
+    @BeforeClass
+    public static void startToolkit() {
+        // The views are JavaFX controls, which can only be created once the toolkit is running:
+        new JFXPanel();
+    }
+
+    @Test
+    public void cernExample() throws Exception {
+        assertExportIsomorphic(new CERNExample());
+    }
+
+    @Test
+    public void videoStreaming() throws Exception {
+        assertExportIsomorphic(new VideoStreaming());
+    }
+
+    @Test
+    public void transferScenario() throws Exception {
+        assertExportIsomorphic(new TransferScenario());
+    }
+
+    @Test
+    public void digitalVideoArtworkExample() throws Exception {
+        assertExportIsomorphic(new DigitalVideoArtworkExample());
+    }
+
+    @Test
+    public void policyWithDependenciesExample() throws Exception {
+        assertExportIsomorphic(new PolicyWithDependenciesExample());
+    }
+
+    private static void assertExportIsomorphic(Experiment experiment) throws Exception {
+        ScenarioSnapshot snapshot = new ScenarioSnapshot(createPanel(experiment.scenario));
+        ScenarioModel scenario = new ScenarioModel(snapshot.toBeImported);
+        scenario.createModelFromSnapshot(snapshot);
+        Graph expected = scenario.model.getBaseModel().getGraph();
+
+        Graph exported = Factory.createGraphMem();
+        new ScenarioExporter(snapshot).export(new TripleSink() {
+            @Override
+            public void start(Map<String, String> prefixes) {
+            }
+
+            @Override
+            public void triple(Node subject, Node predicate, Node object) {
+                exported.add(Triple.create(subject, predicate, object));
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        assertTrue(experiment.getClass().getSimpleName() + " has an empty export", exported.size() > 0);
+        assertEquals(expected.size(), exported.size());
+        assertTrue(experiment.getClass().getSimpleName() + " is exported differently",
+                expected.isIsomorphicWith(exported));
+    }
+
+    /**
+     * Creates a scenario panel with the entities and relations of the scenario model. Each entity gets a version and
+     * a description, which are exported as individuals of their own. Individuals of custom templates, which are not
+     * known to the panel, are skipped.
+     */
+    private static ScenarioPanel createPanel(ScenarioModel scenario) {
+        ScenarioPanel panel = new ScenarioPanel(null);
+        Map<Resource, EntityView> views = new HashMap<>();
+        ResIterator subjects = scenario.model.listSubjectsWithProperty(RDF.type);
+        while (subjects.hasNext()) {
+            Resource subject = subjects.next();
+            Resource type = subject.getPropertyResourceValue(RDF.type);
+            if (subject.isAnon() || type == null || !type.isURIResource()) {
+                continue;
+            }
+            TemplateView templateView = panel.getTemplateView(type.getLocalName());
+            if (templateView == null) {
+                continue;
+            }
+            templateView.parentModel.useTemplateView(templateView);
+            EntityView entityView = templateView.addEntity();
+            entityView.updateEntity(subject.getLocalName(), "1." + views.size(),
+                    "The " + type.getLocalName() + " " + subject.getLocalName());
+            views.put(subject, entityView);
+        }
+        for (Map.Entry<Resource, EntityView> entry : views.entrySet()) {
+            StmtIterator statements = entry.getKey().listProperties();
+            while (statements.hasNext()) {
+                Statement statement = statements.next();
+                Relation relation = panel.getRelation(statement.getPredicate().getLocalName());
+                if (relation == null) {
+                    continue;
+                }
+                RDFNode object = statement.getObject();
+                if (object.isLiteral()) {
+                    entry.getValue().addValueRelation(relation, object.asLiteral().getLexicalForm());
+                } else if (views.containsKey(object.asResource())) {
+                    entry.getValue().addRelationTarget(relation, views.get(object.asResource()));
+                }
+            }
+        }
+        return panel;
+    }
+}